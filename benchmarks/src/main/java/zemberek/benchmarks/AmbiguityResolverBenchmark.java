@@ -0,0 +1,62 @@
+package zemberek.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.WordAnalysis;
+
+/**
+ * Disambiguation benchmarks. Sentences are analyzed during setup so only the perceptron decoder is
+ * measured. Each operation disambiguates a single sentence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AmbiguityResolverBenchmark {
+
+  private String[] sentences;
+  private List<WordAnalysis>[] analyses;
+  private PerceptronAmbiguityResolver resolver;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() throws IOException {
+    sentences = BenchmarkData.sentences();
+    TurkishMorphology morphology = TurkishMorphology.createWithDefaults();
+    analyses = new List[sentences.length];
+    for (int i = 0; i < sentences.length; i++) {
+      analyses[i] = morphology.analyzeSentence(sentences[i]);
+    }
+    resolver = PerceptronAmbiguityResolver.fromResource("/tr/ambiguity/model-compressed");
+  }
+
+  @Benchmark
+  public SentenceAnalysis disambiguate(InputCursor cursor) {
+    int i = cursor.nextIndex(sentences.length);
+    return resolver.disambiguate(sentences[i], analyses[i]);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public SentenceAnalysis disambiguate4Threads(InputCursor cursor) {
+    int i = cursor.nextIndex(sentences.length);
+    return resolver.disambiguate(sentences[i], analyses[i]);
+  }
+}
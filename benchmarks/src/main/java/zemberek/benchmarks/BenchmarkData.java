@@ -0,0 +1,53 @@
+package zemberek.benchmarks;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the input data used by the benchmarks. Words are the most frequent 10K words bundled with
+ * the morphology module, sentences are from the benchmarks/sentences-tr.txt resource.
+ */
+class BenchmarkData {
+
+  // number of sentences in a paragraph for sentence extraction benchmarks.
+  static final int PARAGRAPH_SENTENCE_COUNT = 8;
+
+  static String[] words() throws IOException {
+    List<String> words = new ArrayList<>();
+    for (String line : Resources.readLines(
+        Resources.getResource("tr/first-10K"), StandardCharsets.UTF_8)) {
+      line = line.trim();
+      if (line.length() > 0) {
+        words.add(line);
+      }
+    }
+    return words.toArray(new String[0]);
+  }
+
+  static String[] sentences() throws IOException {
+    List<String> sentences = new ArrayList<>();
+    for (String line : Resources.readLines(
+        Resources.getResource("benchmarks/sentences-tr.txt"), StandardCharsets.UTF_8)) {
+      line = line.trim();
+      if (line.length() > 0) {
+        sentences.add(line);
+      }
+    }
+    return sentences.toArray(new String[0]);
+  }
+
+  static String[] paragraphs() throws IOException {
+    List<String> paragraphs = new ArrayList<>();
+    for (List<String> part : Lists.partition(Lists.newArrayList(sentences()),
+        PARAGRAPH_SENTENCE_COUNT)) {
+      paragraphs.add(Joiner.on(" ").join(part));
+    }
+    return paragraphs.toArray(new String[0]);
+  }
+
+}
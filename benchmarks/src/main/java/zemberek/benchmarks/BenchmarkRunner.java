@@ -0,0 +1,34 @@
+package zemberek.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with standard JMH command line options. Allocation rates are reported with the
+ * GC profiler unless "-noalloc" is given as first argument. Usage examples:
+ * <pre>
+ *   java -jar zemberek-benchmarks.jar
+ *   java -jar zemberek-benchmarks.jar MorphologyBenchmark -t 8
+ *   java -jar zemberek-benchmarks.jar -noalloc -rf json -rff result.json
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    boolean profileAllocations = true;
+    if (args.length > 0 && args[0].equals("-noalloc")) {
+      profileAllocations = false;
+      String[] rest = new String[args.length - 1];
+      System.arraycopy(args, 1, rest, 0, rest.length);
+      args = rest;
+    }
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(new CommandLineOptions(args));
+    if (profileAllocations) {
+      builder.addProfiler(GCProfiler.class);
+    }
+    new Runner(builder.build()).run();
+  }
+}
@@ -0,0 +1,24 @@
+package zemberek.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cyclic index into benchmark inputs. Each benchmark thread has its own cursor so threads do not
+ * contend on a shared counter.
+ */
+@State(Scope.Thread)
+public class InputCursor {
+
+  private int index;
+
+  public <T> T next(T[] items) {
+    return items[nextIndex(items.length)];
+  }
+
+  public int nextIndex(int size) {
+    int i = index < size ? index : 0;
+    index = i + 1;
+    return i;
+  }
+}
@@ -0,0 +1,74 @@
+package zemberek.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zemberek.langid.LanguageIdentifier;
+
+/**
+ * Language identification benchmarks. modelGroup parameter is either "all" for all bundled models
+ * or the name of an internal model group such as "tr_group". Each operation identifies a single
+ * sentence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LanguageIdentifierBenchmark {
+
+  private static final int SAMPLE_COUNT = 50;
+
+  @Param({"all", "tr_group"})
+  public String modelGroup;
+
+  private String[] sentences;
+  private LanguageIdentifier identifier;
+
+  @Setup
+  public void setup() throws IOException {
+    sentences = BenchmarkData.sentences();
+    identifier = modelGroup.equals("all") ?
+        LanguageIdentifier.fromInternalModels() :
+        LanguageIdentifier.fromInternalModelGroup(modelGroup);
+  }
+
+  @Benchmark
+  public String identify(InputCursor cursor) {
+    return identifier.identify(cursor.next(sentences));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String identify4Threads(InputCursor cursor) {
+    return identifier.identify(cursor.next(sentences));
+  }
+
+  @Benchmark
+  public String identifySampled(InputCursor cursor) {
+    return identifier.identify(cursor.next(sentences), SAMPLE_COUNT);
+  }
+
+  @Benchmark
+  public String identifyFast(InputCursor cursor) {
+    return identifier.identifyFast(cursor.next(sentences), SAMPLE_COUNT);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String identifyFast4Threads(InputCursor cursor) {
+    return identifier.identifyFast(cursor.next(sentences), SAMPLE_COUNT);
+  }
+}
@@ -0,0 +1,127 @@
+package zemberek.benchmarks;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zemberek.core.turkish.Turkish;
+import zemberek.lm.LmVocabulary;
+import zemberek.lm.compression.SmoothLm;
+import zemberek.tokenization.TurkishTokenizer;
+
+/**
+ * SmoothLm probability lookup benchmarks. By default bundled lm-unigram.slm model is used and
+ * queries are unigrams. A higher order model can be benchmarked by setting modelPath parameter,
+ * such as "-p modelPath=/path/to/lm.slm", in that case queries are n-grams of benchmark sentences
+ * with model order (at most 3).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LanguageModelBenchmark {
+
+  @Param({""})
+  public String modelPath;
+
+  private SmoothLm lm;
+  private int[][] idGrams;
+  private String[][] wordGrams;
+  private int[][] idSentences;
+
+  @Setup
+  public void setup() throws IOException {
+    if (modelPath.isEmpty()) {
+      try (InputStream is = Resources.getResource("lm-unigram.slm").openStream()) {
+        lm = SmoothLm.builder(is).build();
+      }
+    } else {
+      lm = SmoothLm.builder(Paths.get(modelPath)).build();
+    }
+    int order = Math.min(lm.getOrder(), 3);
+    LmVocabulary vocabulary = lm.getVocabulary();
+    List<List<String>> sentenceTokens = new ArrayList<>();
+    for (String sentence : BenchmarkData.sentences()) {
+      List<String> tokens = new ArrayList<>();
+      tokens.add(vocabulary.getSentenceStart());
+      for (String token : TurkishTokenizer.DEFAULT.tokenizeToStrings(sentence)) {
+        tokens.add(token.toLowerCase(Turkish.LOCALE));
+      }
+      tokens.add(vocabulary.getSentenceEnd());
+      sentenceTokens.add(tokens);
+    }
+    List<String[]> grams = new ArrayList<>();
+    if (order == 1) {
+      for (String word : BenchmarkData.words()) {
+        grams.add(new String[]{word});
+      }
+    } else {
+      for (List<String> tokens : sentenceTokens) {
+        for (int i = 0; i + order <= tokens.size(); i++) {
+          grams.add(tokens.subList(i, i + order).toArray(new String[0]));
+        }
+      }
+    }
+    wordGrams = grams.toArray(new String[0][]);
+    idSentences = new int[sentenceTokens.size()][];
+    for (int i = 0; i < idSentences.length; i++) {
+      idSentences[i] = vocabulary.toIndexes(sentenceTokens.get(i).toArray(new String[0]));
+    }
+    idGrams = new int[wordGrams.length][];
+    for (int i = 0; i < wordGrams.length; i++) {
+      idGrams[i] = vocabulary.toIndexes(wordGrams[i]);
+    }
+  }
+
+  @Benchmark
+  public float probabilityById(InputCursor cursor) {
+    return lm.getProbability(cursor.next(idGrams));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public float probabilityById4Threads(InputCursor cursor) {
+    return lm.getProbability(cursor.next(idGrams));
+  }
+
+  /**
+   * Scores all tokens of a sentence except the sentence start.
+   */
+  @Benchmark
+  public float sequenceProbability(InputCursor cursor) {
+    int[] ids = cursor.next(idSentences);
+    return lm.getSequenceProbability(ids, 1, ids.length);
+  }
+
+  /**
+   * Includes vocabulary lookups of words.
+   */
+  @Benchmark
+  public double probabilityByWords(InputCursor cursor) {
+    return lm.getProbability(cursor.next(wordGrams));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public double probabilityByWords4Threads(InputCursor cursor) {
+    return lm.getProbability(cursor.next(wordGrams));
+  }
+
+}
@@ -0,0 +1,71 @@
+package zemberek.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zemberek.morphology.TurkishMorphology;
+import zemberek.morphology.analysis.RuleBasedAnalyzer;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.WordAnalysis;
+
+/**
+ * Word analysis benchmarks. Each operation analyzes a single word from the most frequent 10K
+ * words. Lexicon is loaded from the bundled lexicon.bin file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MorphologyBenchmark {
+
+  private String[] words;
+  private TurkishMorphology morphology;
+  private RuleBasedAnalyzer analyzer;
+
+  @Setup
+  public void setup() throws IOException {
+    words = BenchmarkData.words();
+    morphology = TurkishMorphology.createWithDefaults();
+    // rule based analyzer does not use the analysis cache.
+    analyzer = morphology.getAnalyzer();
+    // fill the dynamic cache so cached benchmarks measure lookups only.
+    for (String word : words) {
+      morphology.analyze(word);
+    }
+  }
+
+  @Benchmark
+  public List<SingleAnalysis> analyze(InputCursor cursor) {
+    return analyzer.analyze(cursor.next(words));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public List<SingleAnalysis> analyze4Threads(InputCursor cursor) {
+    return analyzer.analyze(cursor.next(words));
+  }
+
+  @Benchmark
+  public WordAnalysis analyzeCached(InputCursor cursor) {
+    return morphology.analyze(cursor.next(words));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public WordAnalysis analyzeCached4Threads(InputCursor cursor) {
+    return morphology.analyze(cursor.next(words));
+  }
+}
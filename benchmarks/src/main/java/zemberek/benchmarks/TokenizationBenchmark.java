@@ -0,0 +1,79 @@
+package zemberek.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import zemberek.tokenization.Token;
+import zemberek.tokenization.TokenBuffer;
+import zemberek.tokenization.TurkishSentenceExtractor;
+import zemberek.tokenization.TurkishTokenizer;
+
+/**
+ * Tokenization and sentence boundary detection benchmarks. Tokenizer operations process a single
+ * sentence, sentence extractor operations process a paragraph of several sentences.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TokenizationBenchmark {
+
+  private String[] sentences;
+  private String[] paragraphs;
+  private TurkishTokenizer tokenizer;
+  private TurkishSentenceExtractor extractor;
+
+  @Setup
+  public void setup() throws IOException {
+    sentences = BenchmarkData.sentences();
+    paragraphs = BenchmarkData.paragraphs();
+    tokenizer = TurkishTokenizer.DEFAULT;
+    extractor = TurkishSentenceExtractor.DEFAULT;
+  }
+
+  @Benchmark
+  public List<Token> tokenize(InputCursor cursor) {
+    return tokenizer.tokenize(cursor.next(sentences));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public List<Token> tokenize4Threads(InputCursor cursor) {
+    return tokenizer.tokenize(cursor.next(sentences));
+  }
+
+  @Benchmark
+  public TokenBuffer tokenizeToBuffer(InputCursor cursor, Buffer buffer) {
+    return tokenizer.tokenize(cursor.next(sentences), buffer.tokens);
+  }
+
+  @Benchmark
+  public List<String> extractSentences(InputCursor cursor) {
+    return extractor.fromParagraph(cursor.next(paragraphs));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public List<String> extractSentences4Threads(InputCursor cursor) {
+    return extractor.fromParagraph(cursor.next(paragraphs));
+  }
+
+  @State(Scope.Thread)
+  public static class Buffer {
+
+    TokenBuffer tokens = new TokenBuffer();
+  }
+}
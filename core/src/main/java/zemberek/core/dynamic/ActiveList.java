@@ -1,5 +1,6 @@
 package zemberek.core.dynamic;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -109,6 +110,49 @@ public class ActiveList<T extends Scorable> implements Iterable<T> {
     this.items = expandedList.items;
   }
 
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a new ActiveList that contains at most maxSize items with highest scores. Items with
+   * scores lower than [best score - scoreRange] are not included. If no item needs to be removed,
+   * this list is returned.
+   *
+   * @param maxSize maximum item count. Must be positive.
+   * @param scoreRange maximum score difference from the best item. Use Float.POSITIVE_INFINITY for
+   * no score limit.
+   */
+  @SuppressWarnings("unchecked")
+  public ActiveList<T> prune(int maxSize, float scoreRange) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Max size must be a positive value. But it is " + maxSize);
+    }
+    if (size == 0) {
+      return this;
+    }
+    float threshold = getBest().getScore() - scoreRange;
+    T[] kept = (T[]) new Scorable[size];
+    int count = 0;
+    for (T t : items) {
+      if (t != null && t.getScore() >= threshold) {
+        kept[count++] = t;
+      }
+    }
+    if (count == size && count <= maxSize) {
+      return this;
+    }
+    if (count > maxSize) {
+      Arrays.sort(kept, 0, count, (a, b) -> Float.compare(b.getScore(), a.getScore()));
+      count = maxSize;
+    }
+    ActiveList<T> result = new ActiveList<>((int) (count / DEFAULT_LOAD_FACTOR) + 1);
+    for (int i = 0; i < count; i++) {
+      result.add(kept[i]);
+    }
+    return result;
+  }
+
   public T getBest() {
     T best = null;
     for (T t : items) {
@@ -12,6 +12,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import zemberek.core.io.ChannelInputStream;
 import zemberek.core.logging.Log;
 
 /**
@@ -67,6 +74,26 @@ public class LargeNgramMphf implements Mphf {
    * @throws IOException If an error occurs during file access.
    */
   public static LargeNgramMphf generate(File file, int chunkBits) throws IOException {
+    return generate(file, chunkBits, 1);
+  }
+
+  /**
+   * Same as generate(File file, int chunkBits) but MPHFs of segments are generated concurrently
+   * with threadCount threads. Generated hash function is identical to the one generated with a
+   * single thread. Each thread loads a segment to memory, so memory usage increases with thread
+   * count.
+   *
+   * @param file binary key file
+   * @param chunkBits chunk size in bits.
+   * @param threadCount amount of threads to use for segment MPHF generation.
+   * @return LargeNgramMphf for the keys in the file
+   * @throws IOException If an error occurs during file access.
+   */
+  public static LargeNgramMphf generate(File file, int chunkBits, int threadCount)
+      throws IOException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be positive. But it is " + threadCount);
+    }
     File tmp = Files.createTempDir();
     Splitter splitter = new Splitter(file, tmp, chunkBits);
     Log.info("Gram count: " + splitter.gramCount);
@@ -79,19 +106,40 @@ public class LargeNgramMphf implements Mphf {
       bucketBits = 1;
     }
     MultiLevelMphf[] mphfs = new MultiLevelMphf[splitter.pageCount];
+    if (threadCount == 1 || splitter.pageCount == 1) {
+      for (int i = 0; i < splitter.pageCount; i++) {
+        mphfs[i] = generateSegment(splitter, i, bucketBits);
+      }
+    } else {
+      ExecutorService service = Executors.newFixedThreadPool(
+          Math.min(threadCount, splitter.pageCount));
+      try {
+        List<Future<MultiLevelMphf>> futures = new ArrayList<>(splitter.pageCount);
+        for (int i = 0; i < splitter.pageCount; i++) {
+          final int segment = i;
+          final int bits = bucketBits;
+          futures.add(service.submit(() -> generateSegment(splitter, segment, bits)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          mphfs[i] = futures.get(i).get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Segment MPHF generation is interrupted.", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      } finally {
+        service.shutdownNow();
+      }
+    }
+    // offsets depend on sizes of previous segments so they are calculated after all segments.
     int[] offsets = new int[splitter.pageCount];
     int total = 0;
     for (int i = 0; i < splitter.pageCount; i++) {
-      final ByteGramProvider keySegment = splitter.getKeySegment(i);
-      Log.debug("Segment key count: " + keySegment.keyAmount());
-      Log.debug("Segment bucket ratio: " + ((double) keySegment.keyAmount() / (1 << bucketBits)));
-      total += keySegment.keyAmount();
-      MultiLevelMphf mphf = MultiLevelMphf.generate(keySegment);
-      Log.info("MPHF is generated for segment %d with %d keys. Average bits per key: %.3f",
-          i,
-          mphf.size(),
-          mphf.averageBitsPerKey());
-      mphfs[i] = mphf;
+      total += mphfs[i].size();
       if (i > 0) {
         offsets[i] = offsets[i - 1] + mphfs[i - 1].size();
       }
@@ -102,6 +150,19 @@ public class LargeNgramMphf implements Mphf {
     return new LargeNgramMphf(maxMask, bucketMask, splitter.pageShift, mphfs, offsets);
   }
 
+  private static MultiLevelMphf generateSegment(Splitter splitter, int i, int bucketBits)
+      throws IOException {
+    final ByteGramProvider keySegment = splitter.getKeySegment(i);
+    Log.debug("Segment key count: " + keySegment.keyAmount());
+    Log.debug("Segment bucket ratio: " + ((double) keySegment.keyAmount() / (1 << bucketBits)));
+    MultiLevelMphf mphf = MultiLevelMphf.generate(keySegment);
+    Log.info("MPHF is generated for segment %d with %d keys. Average bits per key: %.3f",
+        i,
+        mphf.size(),
+        mphf.averageBitsPerKey());
+    return mphf;
+  }
+
   /**
    * A custom deserializer.
    *
@@ -156,6 +217,32 @@ public class LargeNgramMphf implements Mphf {
     return new LargeNgramMphf(maxBitMask, bucketMask, pageShift, hashes, offsets);
   }
 
+  /**
+   * Same as {@link #deserialize(DataInputStream)} but hash data of sub functions are accessed from
+   * memory mapped regions of the file. Stream position is moved to the end of the serialized data.
+   *
+   * @param in stream that contains serialized data.
+   * @return a new LargeNgramMphf object.
+   * @throws IOException if an error occurs during file access.
+   */
+  public static LargeNgramMphf deserialize(ChannelInputStream in) throws IOException {
+    DataInputStream dis = new DataInputStream(in);
+    int maxBitMask = dis.readInt();
+    int bucketMask = dis.readInt();
+    int pageShift = dis.readInt();
+    int phfCount = dis.readInt();
+
+    int[] offsets = new int[phfCount];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = dis.readInt();
+    }
+    MultiLevelMphf[] hashes = new MultiLevelMphf[phfCount];
+    for (int i = 0; i < offsets.length; i++) {
+      hashes[i] = MultiLevelMphf.deserialize(in);
+    }
+    return new LargeNgramMphf(maxBitMask, bucketMask, pageShift, hashes, offsets);
+  }
+
   public int get(int[] ngram) {
     final int hash = MultiLevelMphf.hash(ngram, -1);
     final int pageIndex = (hash & maxBitMask) >>> pageShift;
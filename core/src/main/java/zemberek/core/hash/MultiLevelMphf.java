@@ -9,11 +9,14 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import zemberek.core.collections.LongBitVector;
+import zemberek.core.io.ChannelInputStream;
 import zemberek.core.logging.Log;
 
 /**
@@ -80,6 +83,16 @@ public class MultiLevelMphf implements Mphf {
     return d & 0x7fffffff;
   }
 
+  /**
+   * Calculates the hash of a key with one more element from the hash of the key. Such as,
+   * extendHash(hash(key, -1), k) is equal to hash of key + [k] with the initial seed. Only the
+   * sign bit is cleared from the hash value, it only affects the sign bit of the next step, so
+   * result is exact.
+   */
+  public static int extendHash(int hash, int k) {
+    return ((hash ^ k) * HASH_MULTIPLIER) & 0x7fffffff;
+  }
+
   public static int hash(int d0, int d1, int d2, int seed) {
     int d = seed > 0 ? seed : INITIAL_HASH_SEED;
     d = (d ^ d0) * HASH_MULTIPLIER;
@@ -186,6 +199,30 @@ public class MultiLevelMphf implements Mphf {
     return new MultiLevelMphf(indexes);
   }
 
+  /**
+   * Same as {@link #deserialize(DataInputStream)} but bucket seed values and failed indexes are
+   * not loaded to memory, they are accessed from memory mapped regions of the file. Stream position
+   * is moved to the end of the serialized data.
+   *
+   * @param in stream that contains serialized data.
+   * @return a new MultiLevelMphf object.
+   * @throws IOException if an error occurs during file access.
+   */
+  public static MultiLevelMphf deserialize(ChannelInputStream in) throws IOException {
+    DataInputStream dis = new DataInputStream(in);
+    int levelCount = dis.readInt();
+    HashIndexes[] indexes = new HashIndexes[levelCount];
+    for (int i = 0; i < levelCount; i++) {
+      int keycount = dis.readInt();
+      int bucketAmount = dis.readInt();
+      ByteBuffer seeds = in.map(bucketAmount);
+      int failedIndexesCount = dis.readInt();
+      IntBuffer failedIndexes = in.map(failedIndexesCount * 4L).asIntBuffer();
+      indexes[i] = new MappedHashIndexes(keycount, bucketAmount, seeds, failedIndexes);
+    }
+    return new MultiLevelMphf(indexes);
+  }
+
   public int size() {
     return hashLevelData[0].keyAmount;
   }
@@ -217,7 +254,7 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(key, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(key, seed) % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(key, seed) % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -231,8 +268,8 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(k0, k1, k2, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(k0, k1, k2, seed)
-              % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(k0, k1, k2, seed)
+              % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -246,8 +283,8 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(k0, k1, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(k0, k1, seed)
-              % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(k0, k1, seed)
+              % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -277,7 +314,7 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(key, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(key, seed) % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(key, seed) % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -307,7 +344,7 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(key, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(key, seed) % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(key, seed) % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -328,8 +365,8 @@ public class MultiLevelMphf implements Mphf {
         if (i == 0) {
           return hash(key, begin, end, seed) % hashLevelData[0].keyAmount;
         } else {
-          return hashLevelData[i - 1].failedIndexes[hash(key, begin, end, seed)
-              % hashLevelData[i].keyAmount];
+          return hashLevelData[i - 1].getFailedIndex(hash(key, begin, end, seed)
+              % hashLevelData[i].keyAmount);
         }
       }
     }
@@ -344,8 +381,8 @@ public class MultiLevelMphf implements Mphf {
     long result = 12; // array overhead
     for (HashIndexes data : hashLevelData) {
       result += 12; // array overhead for failed buckets
-      result += data.bucketHashSeedValues.length;
-      result += data.failedIndexes.length * 4;
+      result += data.bucketAmount;
+      result += data.failedIndexCount() * 4L;
     }
     return result;
   }
@@ -389,10 +426,10 @@ public class MultiLevelMphf implements Mphf {
     for (HashIndexes index : hashLevelData) {
       dos.writeInt(index.keyAmount);
       dos.writeInt(index.bucketAmount);
-      dos.write(index.bucketHashSeedValues);
-      dos.writeInt(index.failedIndexes.length);
-      for (int i : index.failedIndexes) {
-        dos.writeInt(i);
+      index.writeSeeds(dos);
+      dos.writeInt(index.failedIndexCount());
+      for (int i = 0; i < index.failedIndexCount(); i++) {
+        dos.writeInt(index.getFailedIndex(i));
       }
     }
   }
@@ -414,6 +451,55 @@ public class MultiLevelMphf implements Mphf {
     int getSeed(int fingerPrint) {
       return (bucketHashSeedValues[fingerPrint % bucketAmount]) & 0xff;
     }
+
+    void writeSeeds(DataOutputStream dos) throws IOException {
+      dos.write(bucketHashSeedValues);
+    }
+
+    int getFailedIndex(int i) {
+      return failedIndexes[i];
+    }
+
+    int failedIndexCount() {
+      return failedIndexes.length;
+    }
+  }
+
+  /**
+   * Hash indexes that reads seed values and failed indexes from memory mapped file regions.
+   */
+  private static final class MappedHashIndexes extends HashIndexes {
+
+    final ByteBuffer seeds;
+    final IntBuffer failed;
+
+    MappedHashIndexes(int keyAmount, int bucketAmount, ByteBuffer seeds, IntBuffer failed) {
+      super(keyAmount, bucketAmount, null, null);
+      this.seeds = seeds;
+      this.failed = failed;
+    }
+
+    @Override
+    int getSeed(int fingerPrint) {
+      return seeds.get(fingerPrint % bucketAmount) & 0xff;
+    }
+
+    @Override
+    void writeSeeds(DataOutputStream dos) throws IOException {
+      for (int i = 0; i < bucketAmount; i++) {
+        dos.write(seeds.get(i));
+      }
+    }
+
+    @Override
+    int getFailedIndex(int i) {
+      return failed.get(i);
+    }
+
+    @Override
+    int failedIndexCount() {
+      return failed.limit();
+    }
   }
 
   private static class BucketCalculator {
@@ -580,7 +666,7 @@ public class MultiLevelMphf implements Mphf {
         int k = 0;
         for (int i = 0; i < bitVector.size(); i++) {
           if (!bitVector.get(i)) {
-            failedHashValues[k++] = indexes.get(currentLevel - 1).failedIndexes[i];
+            failedHashValues[k++] = indexes.get(currentLevel - 1).getFailedIndex(i);
           }
         }
       }
@@ -0,0 +1,113 @@
+package zemberek.core.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A buffered InputStream over a FileChannel that keeps track of the file position. Besides
+ * reading, regions of the file can be memory mapped with {@link #map(long)}. This allows loading
+ * small parts of a binary model with a DataInputStream while accessing large arrays directly from
+ * the file. DataInputStream does not buffer, so wrapping this stream with a DataInputStream does
+ * not break position tracking.
+ * <p>
+ * Mapped buffers stay valid after the stream is closed.
+ */
+public class ChannelInputStream extends InputStream {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  // file position of the beginning of the buffer.
+  private long bufferPosition;
+
+  public ChannelInputStream(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.bufferPosition = channel.position();
+    buffer.limit(0);
+  }
+
+  /**
+   * Returns the file position of the next byte to read.
+   */
+  public long position() {
+    return bufferPosition + buffer.position();
+  }
+
+  /**
+   * Maps `size` bytes starting from current position in read only mode and moves the position after
+   * the mapped region.
+   *
+   * @throws EOFException if there are less than `size` bytes left in the file.
+   */
+  public MappedByteBuffer map(long size) throws IOException {
+    long position = position();
+    if (position + size > channel.size()) {
+      throw new EOFException("Cannot map " + size + " bytes from position " + position +
+          ". File size is " + channel.size());
+    }
+    MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, position, size);
+    seek(position + size);
+    return mapped;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!buffer.hasRemaining() && !fill()) {
+      return -1;
+    }
+    return buffer.get() & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining() && !fill()) {
+      return -1;
+    }
+    int n = Math.min(len, buffer.remaining());
+    buffer.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    if (n <= 0) {
+      return 0;
+    }
+    long position = position();
+    long skipped = Math.min(n, channel.size() - position);
+    seek(position + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void seek(long position) {
+    bufferPosition = position;
+    buffer.limit(0);
+  }
+
+  private boolean fill() throws IOException {
+    bufferPosition = position();
+    buffer.clear();
+    int read = channel.read(buffer, bufferPosition);
+    buffer.flip();
+    return read > 0;
+  }
+}
@@ -609,4 +609,24 @@ public class TurkishAlphabet {
     return true;
   }
 
+  /**
+   * Same as startsWithIgnoreDiacritics(s1, s2) but checks the part of s1 starting from `offset`.
+   */
+  public boolean startsWithIgnoreDiacritics(String s1, int offset, String s2) {
+    if (s1 == null || s2 == null) {
+      return false;
+    }
+    if (offset < 0 || s1.length() - offset < s2.length()) {
+      return false;
+    }
+    for (int i = 0; i < s2.length(); i++) {
+      char c1 = s1.charAt(offset + i);
+      char c2 = s2.charAt(i);
+      if (!isAsciiEqual(c1, c2)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 }
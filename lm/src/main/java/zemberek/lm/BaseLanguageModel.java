@@ -68,7 +68,7 @@ public abstract class BaseLanguageModel {
   /**
    * This is a simple cache that may be useful if ngram queries exhibit strong temporal locality.
    * Cache stores key values so it does not produce false positives by itself. However underlying lm
-   * may do.
+   * may do. It is not thread safe, {@link ConcurrentLookupCache} can be shared by threads.
    */
   public static class LookupCache {
 
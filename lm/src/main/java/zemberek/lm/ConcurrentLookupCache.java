@@ -0,0 +1,168 @@
+package zemberek.lm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import zemberek.core.hash.MultiLevelMphf;
+
+/**
+ * A thread safe version of {@link BaseLanguageModel.LookupCache}. A single instance can be shared
+ * by all threads using the same model.
+ * <p>
+ * N-grams up to order 3 with word ids less than 2^21-1 are cached. Their ids are packed into a long
+ * key with 21 bits per id. Each slot is guarded with a sequence stamp. A writer makes the stamp odd,
+ * writes the key and value, then makes it even again. A reader accepts a slot only if the stamp is
+ * even and does not change while reading the key and value. So a key is never returned with the
+ * value of another key. Writers never wait. If another thread is writing the slot, the value is
+ * not cached. Other n-grams are always calculated by the model.
+ * <p>
+ * Hit and miss counts are kept in LongAdders, so counting does not cause contention between
+ * threads.
+ */
+public class ConcurrentLookupCache {
+
+  public static final int DEFAULT_LOOKUP_CACHE_SIZE = 1 << 17;
+  /**
+   * Maximum word id that can be cached. Ids are stored as id+1 in 21 bits, so that 0 means no id.
+   */
+  public static final int MAX_CACHED_ID = (1 << 21) - 2;
+  private static final int BITS_PER_ID = 21;
+  // each slot uses 4 longs in the table: [stamp][key][probability bits][padding]
+  private static final int SLOT_SHIFT = 2;
+
+  private final NgramLanguageModel model;
+  private final AtomicLongArray table;
+  private final int modulo;
+  private final LongAdder hit = new LongAdder();
+  private final LongAdder miss = new LongAdder();
+
+  /**
+   * Generates a cache with DEFAULT_LOOKUP_CACHE_SIZE slots.
+   */
+  public ConcurrentLookupCache(NgramLanguageModel model) {
+    this(model, DEFAULT_LOOKUP_CACHE_SIZE);
+  }
+
+  /**
+   * Generates a cache where slot count is the minimum power of two not less than the size.
+   */
+  public ConcurrentLookupCache(NgramLanguageModel model, int size) {
+    if (size < 1 || size > 1 << 28) {
+      throw new IllegalArgumentException("Cache size must be between 1 and 2^28. But it is " + size);
+    }
+    this.model = model;
+    int k = 2;
+    while (k < size) {
+      k <<= 1;
+    }
+    modulo = k - 1;
+    table = new AtomicLongArray(k << SLOT_SHIFT);
+  }
+
+  /**
+   * @return probability of the n-gram. If value is cached, it returns immediately. Otherwise it
+   * calculates the probability using the model and caches the value if possible.
+   */
+  public float get(int... ids) {
+    final int fingerPrint = MultiLevelMphf.hash(ids, -1);
+    long key = 0;
+    if (ids.length <= 3) {
+      for (int i = 0; i < ids.length && key >= 0; i++) {
+        key = pack(key, ids[i], i);
+      }
+    }
+    if (key > 0) {
+      float probability = read(key, fingerPrint & modulo);
+      if (!Float.isNaN(probability)) {
+        return probability;
+      }
+    } else {
+      miss.increment();
+    }
+    float probability = ids.length == 3 ?
+        model.getTriGramProbability(ids[0], ids[1], ids[2], fingerPrint)
+        : model.getProbability(ids);
+    if (key > 0) {
+      write(key, fingerPrint & modulo, probability);
+    }
+    return probability;
+  }
+
+  /**
+   * Same as get(id0, id1, id2) without creating an array.
+   */
+  public float get(int id0, int id1, int id2) {
+    final int fingerPrint = MultiLevelMphf.hash(id0, id1, id2, -1);
+    long key = pack(pack(pack(0, id0, 0), id1, 1), id2, 2);
+    if (key > 0) {
+      float probability = read(key, fingerPrint & modulo);
+      if (!Float.isNaN(probability)) {
+        return probability;
+      }
+    } else {
+      miss.increment();
+    }
+    float probability = model.getTriGramProbability(id0, id1, id2, fingerPrint);
+    if (key > 0) {
+      write(key, fingerPrint & modulo, probability);
+    }
+    return probability;
+  }
+
+  // adds id to the key as the i'th element. Returns -1 if key is already -1 or id cannot be cached.
+  private static long pack(long key, int id, int i) {
+    if (key < 0 || id < 0 || id > MAX_CACHED_ID) {
+      return -1;
+    }
+    return key | ((long) (id + 1) << (BITS_PER_ID * i));
+  }
+
+  // returns NaN if key is not in the slot.
+  private float read(long key, int slot) {
+    final int base = slot << SLOT_SHIFT;
+    final long stamp = table.get(base);
+    if ((stamp & 1) == 0 && table.get(base + 1) == key) {
+      final long bits = table.get(base + 2);
+      if (table.get(base) == stamp) {
+        hit.increment();
+        return Float.intBitsToFloat((int) bits);
+      }
+    }
+    miss.increment();
+    return Float.NaN;
+  }
+
+  private void write(long key, int slot, float probability) {
+    final int base = slot << SLOT_SHIFT;
+    final long stamp = table.get(base);
+    if ((stamp & 1) == 0 && table.compareAndSet(base, stamp, stamp + 1)) {
+      table.set(base + 1, key);
+      table.set(base + 2, Float.floatToRawIntBits(probability));
+      table.set(base, stamp + 2);
+    }
+  }
+
+  public long getHit() {
+    return hit.sum();
+  }
+
+  public long getMiss() {
+    return miss.sum();
+  }
+
+  /**
+   * @return ratio of hits to all look-ups of all threads. 0 if there is no look-up.
+   */
+  public double getHitRate() {
+    long h = hit.sum();
+    long total = h + miss.sum();
+    return total == 0 ? 0 : (double) h / total;
+  }
+
+  /**
+   * Resets hit and miss counts. Cached values are not removed.
+   */
+  public void resetStatistics() {
+    hit.reset();
+    miss.reset();
+  }
+}
@@ -1,5 +1,7 @@
 package zemberek.lm;
 
+import java.util.Arrays;
+
 /**
  * Represents an N-gram language model.
  */
@@ -42,6 +44,61 @@ public interface NgramLanguageModel {
    */
   float getTriGramProbability(int id0, int id1, int id2, int fingerPrint);
 
+  /**
+   * Returns sum of Log probabilities of tokens in ids[begin..end). Each token is scored with at most
+   * order-1 previous tokens as context. Context may contain tokens before `begin`, such as for a
+   * sentence starting with sentence begin token, begin can be 1.
+   *
+   * @param ids word ids.
+   * @param begin index of the first token to score.
+   * @param end end index (exclusive) of tokens to score.
+   * @return log probability
+   */
+  default float getSequenceProbability(int[] ids, int begin, int end) {
+    if (begin < 0 || end > ids.length || begin > end) {
+      throw new IllegalArgumentException("Invalid range [" + begin + "," + end + ") for " +
+          ids.length + " ids.");
+    }
+    float result = 0;
+    for (int i = begin; i < end; i++) {
+      result += getProbability(Arrays.copyOfRange(ids, Math.max(0, i - getOrder() + 1), i + 1));
+    }
+    return result;
+  }
+
+  /**
+   * Returns sum of Log probabilities of all tokens in ids. Each token is scored with at most
+   * order-1 previous tokens as context.
+   *
+   * @param ids word ids.
+   * @return log probability
+   */
+  default float getSequenceProbability(int[] ids) {
+    return getSequenceProbability(ids, 0, ids.length);
+  }
+
+  /**
+   * Calculates Log probabilities of candidate tokens following the context. Only the last order-1
+   * tokens of the context are used. results[i] is the probability of candidates[i].
+   *
+   * @param context word ids of the context. It can be empty.
+   * @param candidates word ids of candidate tokens.
+   * @param results array to write probabilities. Length must be at least candidate count.
+   */
+  default void getProbabilities(int[] context, int[] candidates, float[] results) {
+    if (results.length < candidates.length) {
+      throw new IllegalArgumentException("Result array length must be at least " +
+          candidates.length + ". But it is " + results.length);
+    }
+    int contextLength = Math.min(context.length, getOrder() - 1);
+    int[] ids = new int[contextLength + 1];
+    System.arraycopy(context, context.length - contextLength, ids, 0, contextLength);
+    for (int i = 0; i < candidates.length; i++) {
+      ids[contextLength] = candidates[i];
+      results[i] = getProbability(ids);
+    }
+  }
+
   /**
    * Order of language model
    *
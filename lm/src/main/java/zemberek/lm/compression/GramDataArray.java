@@ -12,15 +12,26 @@ public class GramDataArray {
   final int fpMask; // to access fingerprint data length in bytes.
   final int probSize; // size of probability data length in bytes
   final int backoffSize; // size of backoff length in bytes
+  final int pageLength; // amount of blocks in a page.
   int count; // gram count
   int blockSize; // defines the size of the key data. Such as if 3 bytes FP, 2 bytes Prob , 2 Bytes Backoff blockSize = 7
   byte[][] data; // holds the actual data. [page count][page length * block size ] bytes
 
   public GramDataArray(DataInputStream dis) throws IOException {
-    count = dis.readInt();
-    this.fpSize = dis.readInt();
-    this.probSize = dis.readInt();
-    this.backoffSize = dis.readInt();
+    this(dis.readInt(), dis.readInt(), dis.readInt(), dis.readInt());
+    int pageCount = pageCount();
+    data = new byte[pageCount][];
+    for (int i = 0; i < pageCount; i++) {
+      data[i] = new byte[pageByteLength(i)];
+      dis.readFully(data[i]);
+    }
+  }
+
+  GramDataArray(int count, int fpSize, int probSize, int backoffSize) {
+    this.count = count;
+    this.fpSize = fpSize;
+    this.probSize = probSize;
+    this.backoffSize = backoffSize;
 
     if (fpSize == 4) {
       fpMask = 0xffffffff;
@@ -29,26 +40,20 @@ public class GramDataArray {
     }
 
     blockSize = fpSize + probSize + backoffSize;
-    int pageLength = getPowerOf2(MAX_BUF / blockSize, MAX_BUF / blockSize);
+    pageLength = getPowerOf2(MAX_BUF / blockSize, MAX_BUF / blockSize);
     pageShift = 32 - Integer.numberOfLeadingZeros(pageLength - 1);
-    indexMask = (1 << pageShift - 1) - 1;
-    long l = 0;
-    int pageCounter = 0;
-    while (l < (long)count * blockSize) {
-      pageCounter++;
-      l += (pageLength * blockSize);
-    }
-    data = new byte[pageCounter][];
-    int total = 0;
-    for (int i = 0; i < pageCounter; i++) {
-      if (i < pageCounter - 1) {
-        data[i] = new byte[pageLength * blockSize];
-        total += pageLength * blockSize;
-      } else {
-        data[i] = new byte[(int)((long)count * blockSize - total)];
-      }
-      dis.readFully(data[i]);
-    }
+    indexMask = (1 << pageShift) - 1;
+  }
+
+  int pageCount() {
+    return (int) (((long) count * blockSize + (long) pageLength * blockSize - 1)
+        / ((long) pageLength * blockSize));
+  }
+
+  // byte length of the page. All pages except the last one are full.
+  int pageByteLength(int page) {
+    return (int) Math.min((long) pageLength * blockSize,
+        (long) count * blockSize - (long) page * pageLength * blockSize);
   }
 
   int getPowerOf2(int k, int limit) {
@@ -0,0 +1,97 @@
+package zemberek.lm.compression;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import zemberek.core.io.ChannelInputStream;
+
+/**
+ * A GramDataArray that reads n-gram data from memory mapped regions of the model file instead of
+ * heap arrays. Pages are same with the heap version, each page is mapped separately so that data
+ * larger than 2GB can be accessed. Only absolute reads are used on the buffers, so instances are
+ * thread safe.
+ */
+class MappedGramDataArray extends GramDataArray {
+
+  private final ByteBuffer[] pages;
+
+  private MappedGramDataArray(int count, int fpSize, int probSize, int backoffSize) {
+    super(count, fpSize, probSize, backoffSize);
+    pages = new ByteBuffer[pageCount()];
+  }
+
+  static MappedGramDataArray map(ChannelInputStream in) throws IOException {
+    DataInputStream dis = new DataInputStream(in);
+    MappedGramDataArray array = new MappedGramDataArray(
+        dis.readInt(), dis.readInt(), dis.readInt(), dis.readInt());
+    for (int i = 0; i < array.pages.length; i++) {
+      array.pages[i] = in.map(array.pageByteLength(i));
+    }
+    return array;
+  }
+
+  @Override
+  public int getFingerPrint(int index) {
+    final int pageIndex = (index & indexMask) * blockSize;
+    ByteBuffer d = pages[index >>> pageShift];
+    switch (fpSize) {
+      case 1:
+        return d.get(pageIndex) & 0xff;
+      case 2:
+        return ((d.get(pageIndex) & 0xff) << 8) |
+            (d.get(pageIndex + 1) & 0xff);
+      case 3:
+        return ((d.get(pageIndex) & 0xff) << 16) |
+            ((d.get(pageIndex + 1) & 0xff) << 8) |
+            (d.get(pageIndex + 2) & 0xff);
+      case 4:
+        return d.getInt(pageIndex);
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean checkFingerPrint(int fpToCheck_, int globalIndex) {
+    return (fpToCheck_ & fpMask) == getFingerPrint(globalIndex);
+  }
+
+  @Override
+  public int getProbabilityRank(int index) {
+    return read(index, fpSize, probSize);
+  }
+
+  @Override
+  public int getCompact(int index) {
+    return pages[index >>> pageShift].getInt((index & indexMask) * blockSize);
+  }
+
+  @Override
+  public int getBackoffRank(int index) {
+    return read(index, fpSize + probSize, backoffSize);
+  }
+
+  @Override
+  void load(int index, byte[] buff) {
+    ByteBuffer d = pages[index >>> pageShift];
+    final int pageIndex = (index & indexMask) * blockSize;
+    for (int i = 0; i < blockSize; i++) {
+      buff[i] = d.get(pageIndex + i);
+    }
+  }
+
+  // reads a big endian value of 1 to 3 bytes starting from `offset` of the block.
+  private int read(int index, int offset, int size) {
+    final int pageIndex = (index & indexMask) * blockSize + offset;
+    ByteBuffer d = pages[index >>> pageShift];
+    switch (size) {
+      case 1:
+        return d.get(pageIndex) & 0xff;
+      case 2:
+        return ((d.get(pageIndex) & 0xff) << 8) | (d.get(pageIndex + 1) & 0xff);
+      case 3:
+        return ((d.get(pageIndex) & 0xff) << 16) | ((d.get(pageIndex + 1) & 0xff) << 8) |
+            (d.get(pageIndex + 2) & 0xff);
+    }
+    return -1;
+  }
+}
@@ -7,6 +7,7 @@ import com.google.common.io.Files;
 import com.google.common.io.LineProcessor;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -15,8 +16,13 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import zemberek.core.SpaceTabTokenizer;
 import zemberek.core.logging.Log;
 import zemberek.core.quantization.DoubleLookup;
@@ -59,14 +65,41 @@ public class MultiFileUncompressedLm {
       File dir,
       String encoding,
       int fractionDigits) throws IOException {
+    return generate(arpaFile, dir, encoding, fractionDigits, 1);
+  }
+
+  /**
+   * Generates multi file uncompressed model from an Arpa file. If threadCount is larger than 1,
+   * n-gram lines of orders larger than 1 are parsed in batches by threadCount threads. Batches are
+   * written in the order of the Arpa file so generated files are identical to single threaded
+   * generation. Unigrams are always parsed by the reading thread because the vocabulary is
+   * generated from them.
+   */
+  public static MultiFileUncompressedLm generate(
+      File arpaFile,
+      File dir,
+      String encoding,
+      int fractionDigits,
+      int threadCount) throws IOException {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be positive. But it is " + threadCount);
+    }
     if (dir.exists() && !dir.isDirectory()) {
       throw new IllegalArgumentException(dir + " is not a directory!");
     } else {
       java.nio.file.Files.createDirectories(dir.toPath());
     }
 
-    long elapsedTime = Files.asCharSource(arpaFile, Charset.forName(encoding)).readLines(
-        new ArpaToBinaryConverter(dir, fractionDigits));
+    ExecutorService service = threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null;
+    long elapsedTime;
+    try {
+      elapsedTime = Files.asCharSource(arpaFile, Charset.forName(encoding)).readLines(
+          new ArpaToBinaryConverter(dir, fractionDigits, service, threadCount));
+    } finally {
+      if (service != null) {
+        service.shutdownNow();
+      }
+    }
     Log.info("Multi file uncompressed binary model is generated in " + (double) elapsedTime / 1000d
         + " seconds");
     if (!new File(dir, INFO_FILE_NAME).exists()) {
@@ -171,6 +204,66 @@ public class MultiFileUncompressedLm {
     }
   }
 
+  /**
+   * Same as generateRankFiles(int bit, QuantizerType quantizerType) but quantization of each
+   * probability and back-off file is done in a separate task. Tasks are run by threadCount threads.
+   * Because each task reads all values of a file to memory for quantization, memory usage
+   * increases with thread count.
+   */
+  public void generateRankFiles(int bit, QuantizerType quantizerType, int threadCount)
+      throws IOException {
+    if (bit > 24) {
+      throw new IllegalArgumentException(
+          "Cannot generate rank file larger than 24 bits but it is:" + bit);
+    }
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be positive. But it is " + threadCount);
+    }
+    if (threadCount == 1) {
+      generateRankFiles(bit, quantizerType);
+      return;
+    }
+    ExecutorService service = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 1; i < counts.length; i++) {
+        final int n = i;
+        futures.add(service.submit(() -> {
+          Log.info("Calculating probabilty lookup values for :" + n + " Grams");
+          generateRankFile(bit, n, getProbFile(n), getProbRankFile(n), quantizerType);
+          return null;
+        }));
+        if (i < counts.length - 1) {
+          futures.add(service.submit(() -> {
+            Log.info("Calculating lookup values for " + n + " Grams");
+            generateRankFile(bit, n, getBackoffFile(n), getBackoffRankFile(n), quantizerType);
+            return null;
+          }));
+        }
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Rank file generation is interrupted.", e);
+    } catch (ExecutionException e) {
+      throw toIOException(e);
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  private static IOException toIOException(ExecutionException e) {
+    if (e.getCause() instanceof IOException) {
+      return (IOException) e.getCause();
+    }
+    if (e.getCause() instanceof RuntimeException) {
+      throw (RuntimeException) e.getCause();
+    }
+    return new IOException(e.getCause());
+  }
+
   private void generateRankFile(int bit, int currentOrder, File probFile, File rankFile,
       QuantizerType quantizerType) throws IOException {
     try (DataInputStream dis = new DataInputStream(
@@ -219,6 +312,7 @@ public class MultiFileUncompressedLm {
   private static class ArpaToBinaryConverter implements LineProcessor<Long> {
 
     public static final int DEFAULT_UNKNOWN_PROBABILTY = -20;
+    static final int BATCH_SIZE = 100_000;
     int ngramCounter = 0;
     int _n;
 
@@ -236,11 +330,20 @@ public class MultiFileUncompressedLm {
     LmVocabulary.Builder vocabularyBuilder = new LmVocabulary.Builder();
     // This will be generated after reading unigrams.
     LmVocabulary lmVocabulary;
-    ArpaToBinaryConverter(File dir, int fractionDigitCount)
-        throws FileNotFoundException {
+    // if not null, n-gram lines are parsed in batches by this service.
+    ExecutorService service;
+    int maxPendingBatches;
+    List<String> batch = new ArrayList<>(BATCH_SIZE);
+    ArrayDeque<Future<NgramBatch>> pendingBatches = new ArrayDeque<>();
+
+    ArpaToBinaryConverter(File dir, int fractionDigitCount, ExecutorService service,
+        int threadCount) throws FileNotFoundException {
       Log.info("Generating multi file uncompressed language model from Arpa file in directory: %s",
           dir.getAbsolutePath());
       this.dir = dir;
+      this.service = service;
+      // limits memory used by parsed batches that are not written yet.
+      this.maxPendingBatches = threadCount * 2;
       if (fractionDigitCount >= 0) {
         fractionMultiplier = Math.pow(10, fractionDigitCount);
       } else {
@@ -374,23 +477,13 @@ public class MultiFileUncompressedLm {
           if (clean.length() == 0 || clean.startsWith("\\")) {
             break;
           }
-          tokens = tokenizer.split(clean);
-          logProbability = Float.parseFloat(tokens[0]);
-
-          for (int i = 0; i < _n; i++) {
-            int id = lmVocabulary.indexOf(tokens[i + 1]);
-            gramOs.writeInt(id);
-          }
-
-          // probabilities
-
-          probOs.writeFloat(reduceFraction(logProbability));
-          if (_n < ngramCounts.size()) {
-            logBackoff = 0;
-            if (tokens.length == _n + 2) {
-              logBackoff = Float.parseFloat(tokens[_n + 1]);
+          if (service == null) {
+            writeNgram(clean, _n, gramOs, probOs, backoOffs);
+          } else {
+            batch.add(clean);
+            if (batch.size() == BATCH_SIZE) {
+              submitBatch();
             }
-            backoOffs.writeFloat(reduceFraction(logBackoff));
           }
 
           if (ngramCounter > 0 && ngramCounter % 1000000 == 0) {
@@ -400,6 +493,10 @@ public class MultiFileUncompressedLm {
           ngramCounter++;
           if (ngramCounter == ngramCounts.get(_n - 1)) {
             ngramCounter = 0;
+            if (service != null) {
+              submitBatch();
+              writeBatches(0);
+            }
             // if there is no more ngrams, exit
             if (ngramCounts.size() == _n) {
               state = State.VOCABULARY;
@@ -426,6 +523,74 @@ public class MultiFileUncompressedLm {
       return true;
     }
 
+    // writes ids, probability and back-off (if n is smaller than order) of an n-gram line.
+    private void writeNgram(
+        String line,
+        int n,
+        DataOutputStream gramOs,
+        DataOutputStream probOs,
+        DataOutputStream backoffOs) throws IOException {
+      String[] tokens = tokenizer.split(line);
+      float logProbability = Float.parseFloat(tokens[0]);
+
+      for (int i = 0; i < n; i++) {
+        int id = lmVocabulary.indexOf(tokens[i + 1]);
+        gramOs.writeInt(id);
+      }
+
+      // probabilities
+
+      probOs.writeFloat(reduceFraction(logProbability));
+      if (n < order) {
+        float logBackoff = 0;
+        if (tokens.length == n + 2) {
+          logBackoff = Float.parseFloat(tokens[n + 1]);
+        }
+        backoffOs.writeFloat(reduceFraction(logBackoff));
+      }
+    }
+
+    private NgramBatch parseBatch(List<String> lines, int n) throws IOException {
+      NgramBatch result = new NgramBatch(lines.size(), n);
+      DataOutputStream gramOs = new DataOutputStream(result.grams);
+      DataOutputStream probOs = new DataOutputStream(result.probs);
+      DataOutputStream backoffOs = new DataOutputStream(result.backoffs);
+      for (String line : lines) {
+        writeNgram(line, n, gramOs, probOs, backoffOs);
+      }
+      return result;
+    }
+
+    private void submitBatch() throws IOException {
+      if (batch.isEmpty()) {
+        return;
+      }
+      final List<String> lines = batch;
+      final int n = _n;
+      batch = new ArrayList<>(BATCH_SIZE);
+      pendingBatches.add(service.submit(() -> parseBatch(lines, n)));
+      writeBatches(maxPendingBatches);
+    }
+
+    // writes parsed batches in submission order until at most `limit` batches are pending.
+    private void writeBatches(int limit) throws IOException {
+      try {
+        while (pendingBatches.size() > limit) {
+          NgramBatch parsed = pendingBatches.poll().get();
+          parsed.grams.writeTo(gramOs);
+          parsed.probs.writeTo(probOs);
+          if (parsed.n < order) {
+            parsed.backoffs.writeTo(backoOffs);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Arpa parsing is interrupted.", e);
+      } catch (ExecutionException e) {
+        throw toIOException(e);
+      }
+    }
+
     // adds undefined specials token with default probability.
     private void handleSpecialToken(String word) throws IOException {
       if (vocabularyBuilder.indexOf(word) == -1
@@ -455,5 +620,21 @@ public class MultiFileUncompressedLm {
     enum State {
       BEGIN, UNIGRAMS, NGRAMS, VOCABULARY
     }
+
+    // binary data of parsed n-gram lines.
+    static class NgramBatch {
+
+      final int n;
+      final ByteArrayOutputStream grams;
+      final ByteArrayOutputStream probs;
+      final ByteArrayOutputStream backoffs;
+
+      NgramBatch(int lineCount, int n) {
+        this.n = n;
+        grams = new ByteArrayOutputStream(lineCount * n * 4);
+        probs = new ByteArrayOutputStream(lineCount * 4);
+        backoffs = new ByteArrayOutputStream(lineCount * 4);
+      }
+    }
   }
 }
@@ -10,15 +10,19 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import zemberek.core.hash.LargeNgramMphf;
 import zemberek.core.hash.Mphf;
 import zemberek.core.hash.MultiLevelMphf;
+import zemberek.core.io.ChannelInputStream;
 import zemberek.core.logging.Log;
 import zemberek.core.math.LogMath;
 import zemberek.core.quantization.FloatLookup;
 import zemberek.lm.BaseLanguageModel;
+import zemberek.lm.ConcurrentLookupCache;
 import zemberek.lm.LmVocabulary;
 import zemberek.lm.NgramLanguageModel;
 
@@ -66,13 +70,14 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
 
   private SmoothLm(
       DataInputStream dis,
+      ChannelInputStream mappedInput,
       float logBase,
       float unigramWeight,
       float unknownBackoffPenalty,
       boolean useStupidBackoff,
       float stupidBackoffAlpha,
       File ngramKeyFileDir) throws IOException {
-    this(dis); // load the lm data.
+    this(dis, mappedInput); // load the lm data.
     // Now apply necessary transformations and configurations
     this.unigramWeight = unigramWeight;
     this.unknownBackoffPenalty = unknownBackoffPenalty;
@@ -109,7 +114,12 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     }
   }
 
-  private SmoothLm(DataInputStream dis) throws IOException {
+  /**
+   * Loads the model from the stream. If `mappedInput` is not null, `dis` must read from it, then
+   * n-gram data and MPHF data are not loaded to heap but accessed from memory mapped regions of the
+   * model file.
+   */
+  private SmoothLm(DataInputStream dis, ChannelInputStream mappedInput) throws IOException {
 
     this.version = dis.readInt();
     int typeInt = dis.readInt();
@@ -143,7 +153,8 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     //load fingerprint, probability and backoff data.
     ngramData = new GramDataArray[order + 1];
     for (int i = 1; i <= order; i++) {
-      ngramData[i] = new GramDataArray(dis);
+      ngramData[i] = mappedInput == null ?
+          new GramDataArray(dis) : MappedGramDataArray.map(mappedInput);
     }
 
     // we take the unigram probability data out to get rid of rank look-ups for speed.
@@ -163,12 +174,14 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     if (type == MphfType.LARGE) {
       mphfs = new LargeNgramMphf[order + 1];
       for (int i = 2; i <= order; i++) {
-        mphfs[i] = LargeNgramMphf.deserialize(dis);
+        mphfs[i] = mappedInput == null ?
+            LargeNgramMphf.deserialize(dis) : LargeNgramMphf.deserialize(mappedInput);
       }
     } else {
       mphfs = new MultiLevelMphf[order + 1];
       for (int i = 2; i <= order; i++) {
-        mphfs[i] = MultiLevelMphf.deserialize(dis);
+        mphfs[i] = mappedInput == null ?
+            MultiLevelMphf.deserialize(dis) : MultiLevelMphf.deserialize(mappedInput);
       }
     }
 
@@ -273,6 +286,22 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     return new LookupCache(this, bits);
   }
 
+  /**
+   * returns a ConcurrentLookupCache instance with default size. Unlike LookupCache, a single
+   * instance can be shared by all threads.
+   */
+  public ConcurrentLookupCache getConcurrentCache() {
+    return new ConcurrentLookupCache(this);
+  }
+
+  /**
+   * returns a ConcurrentLookupCache instance with at least `size` slots. Unlike LookupCache, a
+   * single instance can be shared by all threads.
+   */
+  public ConcurrentLookupCache getConcurrentCache(int size) {
+    return new ConcurrentLookupCache(this, size);
+  }
+
   /**
    * Gets the count of a particular gram size
    *
@@ -508,46 +537,304 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
       default:
         break;
     }
-    int begin = 0;
+    return getProbability(wordIndexes, 0, n);
+  }
+
+  /**
+   * Calculates probability of ids[end-1] with ids[begin..end-1) as context without creating new
+   * arrays. Hash of the context is calculated once, it is used for the back-off look-up and it is
+   * extended with the last id for the n-gram look-up. Values are added in the same order with
+   * getProbability(int...) for every order, so results are identical.
+   */
+  private float getProbability(int[] ids, int begin, int end) {
+    final int gram = end - begin;
+    if (gram > 3) {
+      return getHigherOrderProbability(ids, begin, end);
+    }
+    if (gram == 1) {
+      return unigramProbs[ids[begin]];
+    }
+    final int contextHash = MultiLevelMphf.hash(ids, begin, end - 1, -1);
+    final int fingerPrint = MultiLevelMphf.extendHash(contextHash, ids[end - 1]);
+    final int nGramIndex = mphfs[gram].get(ids, begin, end, fingerPrint);
+    if (ngramData[gram].checkFingerPrint(fingerPrint, nGramIndex)) {
+      return probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(nGramIndex));
+    }
+    // back off to B(begin..end-1) + P(end-1|begin+1..end-1)
+    return getBackoff(ids, begin, end - 1, contextHash) + getProbability(ids, begin + 1, end);
+  }
+
+  // for n > 3, back-off values are accumulated from left to right as
+  // B(begin..end-1) + B(begin+1..end-1) + ... + P
+  private float getHigherOrderProbability(int[] ids, int begin, int end) {
     float result = 0;
-    int gram = n;
-    while (gram > 1) {
-      // try to find P(N|begin..N-1)
-      int fingerPrint = MultiLevelMphf.hash(wordIndexes, begin, n, -1);
-      int nGramIndex = mphfs[gram].get(wordIndexes, begin, n, fingerPrint);
-      if (!ngramData[gram].checkFingerPrint(fingerPrint,
-          nGramIndex)) { // if there is no probability value, back off to B(begin..N-1)
-        if (useStupidBackoff) {
-          if (gram == 2) {
-            return result + unigramProbs[wordIndexes[n - 1]] + stupidBackoffLogAlpha;
-          } else {
-            result += stupidBackoffLogAlpha;
-          }
-        } else {
-          if (gram
-              == 2) {  // we are already backed off to unigrams because no bigram found. So we return only P(N)+B(N-1)
-            return result + unigramProbs[wordIndexes[n - 1]] + unigramBackoffs[wordIndexes[begin]];
-          }
-          fingerPrint = MultiLevelMphf.hash(wordIndexes, begin, n - 1, -1);
-          nGramIndex = mphfs[gram - 1].get(wordIndexes, begin, n - 1, fingerPrint);
-          if (ngramData[gram - 1].checkFingerPrint(fingerPrint,
-              nGramIndex)) { //if backoff available, we add it to result.
-            result += backoffLookups[gram - 1].get(ngramData[gram - 1].getBackoffRank(nGramIndex));
-          } else {
-            result += unknownBackoffPenalty;
-          }
-        }
-      } else {
-        // we have found the P(N|begin..N-1) we return the accumulated result.
-        return result + probabilityLookups[gram]
-            .get(ngramData[gram].getProbabilityRank(nGramIndex));
+    for (int b = begin; ; b++) {
+      final int gram = end - b;
+      final int contextHash = MultiLevelMphf.hash(ids, b, end - 1, -1);
+      final int fingerPrint = MultiLevelMphf.extendHash(contextHash, ids[end - 1]);
+      final int nGramIndex = mphfs[gram].get(ids, b, end, fingerPrint);
+      if (ngramData[gram].checkFingerPrint(fingerPrint, nGramIndex)) {
+        return result + probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(nGramIndex));
       }
-      begin++;
-      gram = n - begin;
+      if (gram == 2) {
+        return result + unigramProbs[ids[end - 1]] + getBackoff(ids, b, end - 1, contextHash);
+      }
+      result += getBackoff(ids, b, end - 1, contextHash);
+    }
+  }
+
+  /**
+   * Back-off value of ids[begin..end). `fingerPrint` must be the hash of the ids in range.
+   */
+  private float getBackoff(int[] ids, int begin, int end, int fingerPrint) {
+    if (useStupidBackoff) {
+      return stupidBackoffLogAlpha;
+    }
+    final int gram = end - begin;
+    if (gram == 1) {
+      return unigramBackoffs[ids[begin]];
+    }
+    final int nGramIndex = mphfs[gram].get(ids, begin, end, fingerPrint);
+    if (ngramData[gram].checkFingerPrint(fingerPrint, nGramIndex)) {
+      return backoffLookups[gram].get(ngramData[gram].getBackoffRank(nGramIndex));
+    } else {
+      return unknownBackoffPenalty;
+    }
+  }
+
+  /**
+   * Sums probabilities of tokens in ids[begin..end). No array is created for sliding n-grams.
+   */
+  @Override
+  public float getSequenceProbability(int[] ids, int begin, int end) {
+    if (begin < 0 || end > ids.length || begin > end) {
+      throw new IllegalArgumentException("Invalid range [" + begin + "," + end + ") for " +
+          ids.length + " ids.");
+    }
+    float result = 0;
+    for (int i = begin; i < end; i++) {
+      result += getProbability(ids, Math.max(0, i - order + 1), i + 1);
     }
     return result;
   }
 
+  /**
+   * Calculates probabilities of candidates following the context. Hashes of the context and its
+   * suffixes are calculated once. For each candidate, n-gram fingerprints are calculated by
+   * extending these hashes. Back-off values of the context suffixes are looked up once, when they
+   * are first required.
+   */
+  @Override
+  public void getProbabilities(int[] context, int[] candidates, float[] results) {
+    if (results.length < candidates.length) {
+      throw new IllegalArgumentException("Result array length must be at least " +
+          candidates.length + ". But it is " + results.length);
+    }
+    final int contextLength = Math.min(context.length, order - 1);
+    // context ids followed by the candidate id.
+    final int[] ids = new int[contextLength + 1];
+    System.arraycopy(context, context.length - contextLength, ids, 0, contextLength);
+    // hashes and back-off values of ids[i..contextLength)
+    final int[] contextHashes = new int[contextLength];
+    final float[] backoffs = new float[contextLength];
+    for (int i = 0; i < contextLength; i++) {
+      contextHashes[i] = MultiLevelMphf.hash(ids, i, contextLength, -1);
+      backoffs[i] = Float.NaN;
+    }
+    for (int i = 0; i < candidates.length; i++) {
+      ids[contextLength] = candidates[i];
+      results[i] = getCandidateProbability(ids, 0, contextHashes, backoffs);
+    }
+  }
+
+  // same as getProbability(ids, begin, ids.length) but uses pre calculated context hashes and
+  // back-off values.
+  private float getCandidateProbability(int[] ids, int begin, int[] contextHashes,
+      float[] backoffs) {
+    final int last = ids.length - 1;
+    final int gram = ids.length - begin;
+    if (gram > 3) {
+      return getHigherOrderCandidateProbability(ids, begin, contextHashes, backoffs);
+    }
+    if (gram == 1) {
+      return unigramProbs[ids[last]];
+    }
+    final int fingerPrint = MultiLevelMphf.extendHash(contextHashes[begin], ids[last]);
+    final int nGramIndex = mphfs[gram].get(ids, begin, ids.length, fingerPrint);
+    if (ngramData[gram].checkFingerPrint(fingerPrint, nGramIndex)) {
+      return probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(nGramIndex));
+    }
+    if (Float.isNaN(backoffs[begin])) {
+      backoffs[begin] = getBackoff(ids, begin, last, contextHashes[begin]);
+    }
+    return backoffs[begin] + getCandidateProbability(ids, begin + 1, contextHashes, backoffs);
+  }
+
+  // same as getHigherOrderProbability(ids, begin, ids.length) but uses pre calculated context hashes
+  // and back-off values.
+  private float getHigherOrderCandidateProbability(int[] ids, int begin, int[] contextHashes,
+      float[] backoffs) {
+    final int last = ids.length - 1;
+    float result = 0;
+    for (int b = begin; ; b++) {
+      final int gram = ids.length - b;
+      final int fingerPrint = MultiLevelMphf.extendHash(contextHashes[b], ids[last]);
+      final int nGramIndex = mphfs[gram].get(ids, b, ids.length, fingerPrint);
+      if (ngramData[gram].checkFingerPrint(fingerPrint, nGramIndex)) {
+        return result + probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(nGramIndex));
+      }
+      if (Float.isNaN(backoffs[b])) {
+        backoffs[b] = getBackoff(ids, b, last, contextHashes[b]);
+      }
+      if (gram == 2) {
+        return result + unigramProbs[ids[last]] + backoffs[b];
+      }
+      result += backoffs[b];
+    }
+  }
+
+  /**
+   * Returns the state with no history. States are used for scoring word sequences word by word with
+   * {@link #score(State, int)} and {@link #extend(State, int)}.
+   */
+  public State getNullState() {
+    return new State(new int[0], new int[0], new float[0], 0, 0, 0);
+  }
+
+  /**
+   * Returns the state after the sentence start token.
+   */
+  public State getSentenceStartState() {
+    return extend(getNullState(), vocabulary.getSentenceStartIndex());
+  }
+
+  /**
+   * Returns log probability of the word following the history represented by the state. It is
+   * same as getProbability for history words and the word, except for rare fingerprint false
+   * positives and float rounding differences. Only n-grams starting from the state context are
+   * looked up and back-off values of the context are not looked up again.
+   */
+  public float score(State state, int word) {
+    final int[] context = state.context;
+    float result = state.droppedBackoff;
+    for (int i = 0; i < context.length; i++) {
+      final int gram = context.length - i + 1;
+      final int fingerPrint = MultiLevelMphf.extendHash(state.hashes[i], word);
+      final int index = extensionIndex(context, i, word, fingerPrint);
+      if (index >= 0) {
+        return result + probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(index));
+      }
+      result += state.backoffs[i];
+    }
+    return result + unigramProbs[word];
+  }
+
+  /**
+   * Returns the state after appending the word to the history of the state. Score of the word is
+   * available from {@link State#getScore()}. Calculating a state costs more than {@link
+   * #score(State, int)}, so decoders may score all hypothesis extensions first and create states
+   * only for the ones that are kept.
+   */
+  public State extend(State state, int word) {
+    final int[] context = state.context;
+    final int m = context.length;
+    float score = state.droppedBackoff;
+    // start of the longest matching n-gram in context. m means only the unigram matches.
+    int matched = m;
+    int index = -1;
+    for (int i = 0; i < m; i++) {
+      index = extensionIndex(context, i, word, MultiLevelMphf.extendHash(state.hashes[i], word));
+      if (index >= 0) {
+        matched = i;
+        break;
+      }
+      score += state.backoffs[i];
+    }
+    if (matched == m) {
+      score += unigramProbs[word];
+    } else {
+      final int gram = m - matched + 1;
+      score += probabilityLookups[gram].get(ngramData[gram].getProbabilityRank(index));
+    }
+
+    // a longer n-gram cannot exist after the matched one, so new history can start from it.
+    int from = Math.max(matched, m + 1 - (order - 1));
+    int length = m + 1 - from;
+    int[] ids = new int[length];
+    if (length > 0) {
+      System.arraycopy(context, from, ids, 0, length - 1);
+      ids[length - 1] = word;
+    }
+    int[] hashes = new int[length];
+    for (int j = 0; j < length; j++) {
+      hashes[j] = MultiLevelMphf.hash(ids, j, length, -1);
+    }
+    // only the longest existing suffix is kept, longer n-grams cannot exist with missing contexts.
+    int start = 0;
+    index = -1;
+    for (; start < length - 1; start++) {
+      index = ngramIndex(ids, start, length, hashes[start]);
+      if (index >= 0) {
+        break;
+      }
+    }
+    float[] backoffs = new float[length - start];
+    for (int j = start; j < length; j++) {
+      final int gram = length - j;
+      float backoff;
+      if (useStupidBackoff) {
+        backoff = stupidBackoffLogAlpha;
+      } else if (gram == 1) {
+        backoff = unigramBackoffs[ids[j]];
+      } else {
+        final int nGramIndex = j == start ? index : ngramIndex(ids, j, length, hashes[j]);
+        backoff = nGramIndex >= 0 ?
+            backoffLookups[gram].get(ngramData[gram].getBackoffRank(nGramIndex)) :
+            unknownBackoffPenalty;
+      }
+      backoffs[j - start] = backoff;
+    }
+
+    // words dropped from the history are backed off with unknown back-off penalty.
+    int historyLength = Math.min(order - 1, state.historyLength + 1);
+    int dropped = historyLength - (length - start);
+    float droppedBackoff = dropped * (useStupidBackoff ? stupidBackoffLogAlpha :
+        unknownBackoffPenalty);
+    return new State(
+        Arrays.copyOfRange(ids, start, length),
+        Arrays.copyOfRange(hashes, start, length),
+        backoffs,
+        historyLength,
+        droppedBackoff,
+        score);
+  }
+
+  // index of n-gram ids[begin..end) or -1 if it does not exist.
+  private int ngramIndex(int[] ids, int begin, int end, int fingerPrint) {
+    final int gram = end - begin;
+    final int index = mphfs[gram].get(ids, begin, end, fingerPrint);
+    return ngramData[gram].checkFingerPrint(fingerPrint, index) ? index : -1;
+  }
+
+  // index of n-gram context[begin..] + word or -1 if it does not exist.
+  private int extensionIndex(int[] context, int begin, int word, int fingerPrint) {
+    final int gram = context.length - begin + 1;
+    final int index;
+    switch (gram) {
+      case 2:
+        index = mphfs[2].get(context[begin], word, fingerPrint);
+        break;
+      case 3:
+        index = mphfs[3].get(context[begin], context[begin + 1], word, fingerPrint);
+        break;
+      default:
+        int[] key = Arrays.copyOfRange(context, begin, begin + gram);
+        key[gram - 1] = word;
+        index = mphfs[gram].get(key, fingerPrint);
+    }
+    return ngramData[gram].checkFingerPrint(fingerPrint, index) ? index : -1;
+  }
+
   public float getBigramProbability(int w0, int w1) {
     float prob = getBigramProbabilityValue(w0, w1);
     if (prob == LogMath.LOG_ZERO_FLOAT) {
@@ -752,15 +1039,20 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     private float _unigramWeight = DEFAULT_UNIGRAM_WEIGHT;
     private boolean _useStupidBackoff = false;
     private float _stupidBackoffAlpha = DEFAULT_STUPID_BACKOFF_ALPHA;
-    private DataInputStream _dis;
+    private InputStream _is;
+    private File _file;
+    private boolean _useMemoryMapping = false;
     private File _ngramIds;
 
     public Builder(InputStream is) {
-      this._dis = new DataInputStream(new BufferedInputStream(is));
+      this._is = is;
     }
 
     public Builder(File file) throws FileNotFoundException {
-      this._dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (!file.isFile()) {
+        throw new FileNotFoundException("Model file " + file + " does not exist.");
+      }
+      this._file = file;
     }
 
     public Builder logBase(double logBase) {
@@ -798,9 +1090,40 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
       return this;
     }
 
+    /**
+     * Model file is memory mapped. N-gram data and MPHFs are not loaded to heap, they are read
+     * from the file through the operating system page cache. This reduces heap usage and load time
+     * of large models and allows processes to share the model data. Vocabulary and unigram values
+     * are still loaded to heap. Only applicable if builder is created with a model file.
+     */
+    public Builder useMemoryMapping() {
+      this._useMemoryMapping = true;
+      return this;
+    }
+
+    public Builder useMemoryMapping(boolean useMemoryMapping) {
+      this._useMemoryMapping = useMemoryMapping;
+      return this;
+    }
+
     public SmoothLm build() throws IOException {
+      DataInputStream dis;
+      ChannelInputStream mappedInput = null;
+      if (_useMemoryMapping) {
+        if (_file == null) {
+          throw new IllegalStateException("Memory mapping requires a model file.");
+        }
+        mappedInput = new ChannelInputStream(
+            FileChannel.open(_file.toPath(), StandardOpenOption.READ));
+        dis = new DataInputStream(mappedInput);
+      } else if (_file != null) {
+        dis = new DataInputStream(new BufferedInputStream(new FileInputStream(_file)));
+      } else {
+        dis = new DataInputStream(new BufferedInputStream(_is));
+      }
       return new SmoothLm(
-          _dis,
+          dis,
+          mappedInput,
           _logBase,
           _unigramWeight,
           _unknownBackoffPenalty,
@@ -810,6 +1133,62 @@ public class SmoothLm extends BaseLanguageModel implements NgramLanguageModel {
     }
   }
 
+  /**
+   * Language model state of a word history. It keeps the longest suffix of the history that exists
+   * in the model with its hashes and back-off values, so that extending the history only requires
+   * n-gram look-ups. Two histories with equal states give same scores for all following words, so
+   * decoders can merge hypotheses with equal states. States are immutable.
+   */
+  public static final class State {
+
+    // longest suffix of the history that exists in the model. At most order-1 ids.
+    final int[] context;
+    // hashes[i] = hash of context[i..]
+    final int[] hashes;
+    // backoffs[i] = back-off value of context[i..]
+    final float[] backoffs;
+    // amount of history words used by the model, at most order-1.
+    final int historyLength;
+    // back-off value for history words that are not in context.
+    final float droppedBackoff;
+    final float score;
+
+    State(int[] context, int[] hashes, float[] backoffs, int historyLength,
+        float droppedBackoff, float score) {
+      this.context = context;
+      this.hashes = hashes;
+      this.backoffs = backoffs;
+      this.historyLength = historyLength;
+      this.droppedBackoff = droppedBackoff;
+      this.score = score;
+    }
+
+    /**
+     * Returns log probability of the last word of the history given previous words. 0 for null
+     * state.
+     */
+    public float getScore() {
+      return score;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      State that = (State) o;
+      return historyLength == that.historyLength && Arrays.equals(context, that.context);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(context) + historyLength;
+    }
+  }
+
   private static class Explanation {
 
     StringBuilder sb = new StringBuilder();
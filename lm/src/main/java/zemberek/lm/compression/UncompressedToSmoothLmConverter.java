@@ -6,7 +6,13 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import zemberek.core.hash.IntHashKeyProvider;
 import zemberek.core.hash.LargeNgramMphf;
 import zemberek.core.hash.Mphf;
@@ -21,12 +27,28 @@ public class UncompressedToSmoothLmConverter {
   File tempDir;
 
   int order;
+  int threadCount = 1;
 
   public UncompressedToSmoothLmConverter(File lmFile, File tempDir) {
     this.lmFile = lmFile;
     this.tempDir = tempDir;
   }
 
+  /**
+   * Creates a converter that uses threadCount threads for quantization and MPHF generation. For
+   * SMALL type, MPHFs of different orders are generated concurrently. For LARGE type, MPHFs of key
+   * segments of an order are generated concurrently. Generated model is identical to the model
+   * generated with a single thread.
+   */
+  public UncompressedToSmoothLmConverter(File lmFile, File tempDir, int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be positive. But it is " + threadCount);
+    }
+    this.lmFile = lmFile;
+    this.tempDir = tempDir;
+    this.threadCount = threadCount;
+  }
+
   public void convertSmall(File binaryUncompressedLmDir, NgramDataBlock block) throws IOException {
     convert(binaryUncompressedLmDir, block, SmoothLm.MphfType.SMALL, null, -1);
   }
@@ -51,7 +73,7 @@ public class UncompressedToSmoothLmConverter {
 
     MultiFileUncompressedLm lm = new MultiFileUncompressedLm(binaryUncompressedLmDir);
 
-    lm.generateRankFiles(block.probabilitySize * 8, QuantizerType.BINNING);
+    lm.generateRankFiles(block.probabilitySize * 8, QuantizerType.BINNING, threadCount);
 
     order = lm.order;
 
@@ -63,21 +85,31 @@ public class UncompressedToSmoothLmConverter {
     File[] phfFiles = new File[order + 1];
     if (oneBasedMphfFiles != null) {
       phfFiles = oneBasedMphfFiles;
+    } else if (type == SmoothLm.MphfType.SMALL && threadCount > 1 && order > 2) {
+      ExecutorService service = Executors.newFixedThreadPool(Math.min(threadCount, order - 1));
+      try {
+        List<Future<File>> futures = new ArrayList<>();
+        for (int i = 2; i <= order; i++) {
+          final int n = i;
+          futures.add(service.submit(() -> generateMphfFile(lm, n, type, chunkBits)));
+        }
+        for (int i = 2; i <= order; i++) {
+          phfFiles[i] = futures.get(i - 2).get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("MPHF generation is interrupted.", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      } finally {
+        service.shutdownNow();
+      }
     } else {
       for (int i = 2; i <= order; i++) {
-        Mphf mphf;
-        if (type == SmoothLm.MphfType.LARGE) {
-          mphf = LargeNgramMphf.generate(lm.getGramFile(i), chunkBits);
-        } else {
-          mphf = MultiLevelMphf.generate(lm.getGramFile(i));
-        }
-        Log.info("MPHF is generated for order %d with %d keys. Average bits per key: %.3f",
-            i,
-            mphf.size(),
-            mphf.averageBitsPerKey());
-        File mphfFile = new File(tempDir, lmFile.getName() + i + "gram.mphf");
-        phfFiles[i] = mphfFile;
-        mphf.serialize(mphfFile);
+        phfFiles[i] = generateMphfFile(lm, i, type, chunkBits);
       }
     }
     // generate header.
@@ -191,6 +223,27 @@ public class UncompressedToSmoothLmConverter {
 
   }
 
+  // generates MPHF for n-grams of order n and serializes it to a file in temp directory.
+  private File generateMphfFile(
+      MultiFileUncompressedLm lm,
+      int n,
+      SmoothLm.MphfType type,
+      int chunkBits) throws IOException {
+    Mphf mphf;
+    if (type == SmoothLm.MphfType.LARGE) {
+      mphf = LargeNgramMphf.generate(lm.getGramFile(n), chunkBits, threadCount);
+    } else {
+      mphf = MultiLevelMphf.generate(lm.getGramFile(n));
+    }
+    Log.info("MPHF is generated for order %d with %d keys. Average bits per key: %.3f",
+        n,
+        mphf.size(),
+        mphf.averageBitsPerKey());
+    File mphfFile = new File(tempDir, lmFile.getName() + n + "gram.mphf");
+    mphf.serialize(mphfFile);
+    return mphfFile;
+  }
+
   private void validateIndexArray(int[] arr) {
     BitSet set = new BitSet();
     for (int i : arr) {
@@ -0,0 +1,445 @@
+package zemberek.morphology;
+
+import static zemberek.morphology.lexicon.DictionaryItemCodec.readString;
+import static zemberek.morphology.lexicon.DictionaryItemCodec.writeString;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.RootAttribute;
+import zemberek.core.turkish.SecondaryPos;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.SingleAnalysis.MorphemeData;
+import zemberek.morphology.analysis.StemTransitions;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.DictionaryItemCodec;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.AttributeSet;
+import zemberek.morphology.morphotactics.Morpheme;
+import zemberek.morphology.morphotactics.MorphemeState;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * A binary snapshot of an initialized TurkishMorphology. It contains the root lexicon, stem
+ * transitions of every lexicon item and analyses of the static cache words, so loading does not
+ * require generating stem transitions or analyzing the most frequent words again.
+ * <p>
+ * This is a serialized cache, not a memory mapped data structure. File is memory mapped while
+ * loading but the lexicon, all stem transitions and static cache analyses are decoded to heap
+ * objects eagerly, and stem transitions are indexed by the StemTransitions implementation as
+ * usual. So heap usage is the same as a morphology created from the lexicon and most of the
+ * startup cost remains.
+ * <p>
+ * Morpheme graph is not stored because it is defined in code, it is built by the morphotactics
+ * class and stem transitions are connected to it by state ids. Snapshots are only compatible with
+ * the library version that created them.
+ * <p>
+ * File structure:
+ * <pre>
+ * int magic, int version, int flags
+ * enum tables (names of PrimaryPos, SecondaryPos, RootAttribute, PhoneticAttribute values)
+ * int length, lexicon section
+ * int length, stem transitions section
+ * int length, static cache section
+ * </pre>
+ */
+class MorphologySnapshot {
+
+  private static final int MAGIC = 0x5a4d534e;
+  private static final int VERSION = 1;
+
+  private static final int INFORMAL_ANALYSIS = 1;
+  private static final int IGNORE_DIACRITICS = 1 << 1;
+  private static final int UNIDENTIFIED_TOKEN_ANALYZER = 1 << 2;
+
+  // item reference values used in static cache analyses.
+  private static final int UNKNOWN_ITEM = -2;
+  private static final int INLINE_ITEM = -1;
+
+  private static final PrimaryPos[] PRIMARY_POS = PrimaryPos.values();
+  private static final SecondaryPos[] SECONDARY_POS = SecondaryPos.values();
+  private static final RootAttribute[] ROOT_ATTRIBUTES = RootAttribute.values();
+  private static final PhoneticAttribute[] PHONETIC_ATTRIBUTES = PhoneticAttribute.values();
+
+  final boolean informalAnalysis;
+  final boolean ignoreDiacriticsInAnalysis;
+  final boolean useUnidentifiedTokenAnalyzer;
+
+  private final RootLexicon lexicon;
+  private final DictionaryItem[] items;
+
+  private final ByteBuffer stemSection;
+  private final ByteBuffer cacheSection;
+
+  private MorphologySnapshot(
+      int flags,
+      RootLexicon lexicon,
+      DictionaryItem[] items,
+      ByteBuffer stemSection,
+      ByteBuffer cacheSection) {
+    this.informalAnalysis = (flags & INFORMAL_ANALYSIS) != 0;
+    this.ignoreDiacriticsInAnalysis = (flags & IGNORE_DIACRITICS) != 0;
+    this.useUnidentifiedTokenAnalyzer = (flags & UNIDENTIFIED_TOKEN_ANALYZER) != 0;
+    this.lexicon = lexicon;
+    this.items = items;
+    this.stemSection = stemSection;
+    this.cacheSection = cacheSection;
+  }
+
+  RootLexicon getLexicon() {
+    return lexicon;
+  }
+
+  /**
+   * Maps the snapshot file and decodes the root lexicon. Stem transitions and static cache
+   * analyses are decoded later, when the morphotactics is created.
+   */
+  static MorphologySnapshot load(Path path) throws IOException {
+    long start = System.currentTimeMillis();
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+      throw new IOException(path + " is not a morphology snapshot file.");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException(String.format(
+          "Snapshot version of %s is %d but expected version is %d", path, version, VERSION));
+    }
+    int flags = buffer.getInt();
+    checkEnumTable(buffer, PRIMARY_POS);
+    checkEnumTable(buffer, SECONDARY_POS);
+    checkEnumTable(buffer, ROOT_ATTRIBUTES);
+    checkEnumTable(buffer, PHONETIC_ATTRIBUTES);
+
+    ByteBuffer lexiconSection = nextSection(buffer);
+    ByteBuffer stemSection = nextSection(buffer);
+    ByteBuffer cacheSection = nextSection(buffer);
+
+    int itemCount = lexiconSection.getInt();
+    DictionaryItem[] items = new DictionaryItem[itemCount];
+    int[] references = new int[itemCount];
+    RootLexicon lexicon = new RootLexicon();
+    for (int i = 0; i < itemCount; i++) {
+      items[i] = DictionaryItemCodec.read(lexiconSection);
+      references[i] = lexiconSection.getInt();
+      lexicon.add(items[i]);
+    }
+    for (int i = 0; i < itemCount; i++) {
+      if (references[i] >= 0) {
+        items[i].setReferenceItem(items[references[i]]);
+      }
+    }
+    Log.info("Root lexicon with %d items loaded from snapshot in %d ms.",
+        itemCount, System.currentTimeMillis() - start);
+    return new MorphologySnapshot(flags, lexicon, items, stemSection, cacheSection);
+  }
+
+  /**
+   * Decodes stem transitions of lexicon items from the snapshot and returns a provider of them.
+   * States of the transitions are taken from given morphotactics.
+   */
+  Function<DictionaryItem, List<StemTransition>> stemTransitionProvider(
+      TurkishMorphotactics morphotactics) {
+    ByteBuffer buffer = stemSection.duplicate();
+    Map<String, MorphemeState> stateMap = new HashMap<>();
+    for (MorphemeState state : morphotactics.getAllStates()) {
+      stateMap.putIfAbsent(state.id, state);
+    }
+    int stateCount = buffer.getInt();
+    MorphemeState[] states = new MorphemeState[stateCount];
+    for (int i = 0; i < stateCount; i++) {
+      String id = readString(buffer);
+      states[i] = stateMap.get(id);
+      if (states[i] == null) {
+        throw new IllegalStateException(
+            "Snapshot root state " + id + " does not exist in morphotactics.");
+      }
+    }
+
+    Map<DictionaryItem, List<StemTransition>> transitionMap = new IdentityHashMap<>(items.length);
+    for (DictionaryItem item : items) {
+      int count = buffer.getInt();
+      List<StemTransition> transitions = new ArrayList<>(count);
+      for (int j = 0; j < count; j++) {
+        String surface = buffer.get() == 0 ? item.root : readString(buffer);
+        AttributeSet<PhoneticAttribute> attributes = AttributeSet.fromBits(buffer.getInt());
+        transitions.add(new StemTransition(surface, item, attributes, states[buffer.getInt()]));
+      }
+      transitionMap.put(item, transitions);
+    }
+    return item -> transitionMap.getOrDefault(item, new ArrayList<>(0));
+  }
+
+  /**
+   * Decodes static cache analyses of the snapshot. Should be called after the morphotactics of
+   * the snapshot is created, so that all morphemes are registered.
+   */
+  Map<String, WordAnalysis> loadStaticCache() {
+    ByteBuffer buffer = cacheSection.duplicate();
+    int morphemeCount = buffer.getInt();
+    Morpheme[] morphemes = new Morpheme[morphemeCount];
+    for (int i = 0; i < morphemeCount; i++) {
+      String id = readString(buffer);
+      morphemes[i] = id.equals(Morpheme.UNKNOWN.id) ?
+          Morpheme.UNKNOWN : TurkishMorphotactics.getMorpheme(id);
+      if (morphemes[i] == null) {
+        throw new IllegalStateException("Snapshot morpheme " + id + " does not exist.");
+      }
+    }
+    int wordCount = buffer.getInt();
+    Map<String, WordAnalysis> result = new HashMap<>(wordCount * 2);
+    for (int i = 0; i < wordCount; i++) {
+      String input = readString(buffer);
+      String normalized = readString(buffer);
+      int analysisCount = buffer.getInt();
+      List<SingleAnalysis> analyses = new ArrayList<>(analysisCount);
+      for (int j = 0; j < analysisCount; j++) {
+        analyses.add(readAnalysis(buffer, morphemes));
+      }
+      result.put(input, new WordAnalysis(input, normalized, analyses));
+    }
+    return result;
+  }
+
+  private SingleAnalysis readAnalysis(ByteBuffer buffer, Morpheme[] morphemes) {
+    int itemReference = buffer.getInt();
+    DictionaryItem item;
+    if (itemReference == UNKNOWN_ITEM) {
+      item = DictionaryItem.UNKNOWN;
+    } else if (itemReference == INLINE_ITEM) {
+      item = DictionaryItemCodec.read(buffer);
+    } else {
+      item = items[itemReference];
+    }
+    int morphemeDataCount = buffer.getInt();
+    List<MorphemeData> morphemeDataList = new ArrayList<>(morphemeDataCount);
+    for (int k = 0; k < morphemeDataCount; k++) {
+      Morpheme morpheme = morphemes[buffer.getInt()];
+      morphemeDataList.add(new MorphemeData(morpheme, readString(buffer)));
+    }
+    int[] groupBoundaries = new int[buffer.getInt()];
+    for (int k = 0; k < groupBoundaries.length; k++) {
+      groupBoundaries[k] = buffer.getInt();
+    }
+    return new SingleAnalysis(item, morphemeDataList, groupBoundaries);
+  }
+
+  /**
+   * Saves the snapshot of the morphotactics and static cache analyses to the path. Flags are the
+   * analysis options of the morphology that generated the static cache analyses.
+   */
+  static void save(
+      Path path,
+      TurkishMorphotactics morphotactics,
+      Map<String, WordAnalysis> staticCache,
+      boolean informalAnalysis,
+      boolean ignoreDiacriticsInAnalysis,
+      boolean useUnidentifiedTokenAnalyzer) throws IOException {
+
+    long start = System.currentTimeMillis();
+    List<DictionaryItem> items = new ArrayList<>(morphotactics.getRootLexicon().size());
+    morphotactics.getRootLexicon().forEach(items::add);
+    Map<DictionaryItem, Integer> itemIndexes = new IdentityHashMap<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      itemIndexes.put(items.get(i), i);
+    }
+
+    try (DataOutputStream dos = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      dos.writeInt(MAGIC);
+      dos.writeInt(VERSION);
+      int flags = (informalAnalysis ? INFORMAL_ANALYSIS : 0)
+          | (ignoreDiacriticsInAnalysis ? IGNORE_DIACRITICS : 0)
+          | (useUnidentifiedTokenAnalyzer ? UNIDENTIFIED_TOKEN_ANALYZER : 0);
+      dos.writeInt(flags);
+      writeEnumTable(dos, PRIMARY_POS);
+      writeEnumTable(dos, SECONDARY_POS);
+      writeEnumTable(dos, ROOT_ATTRIBUTES);
+      writeEnumTable(dos, PHONETIC_ATTRIBUTES);
+      writeSection(dos, lexiconSection(items, itemIndexes));
+      writeSection(dos, stemSection(items, morphotactics));
+      writeSection(dos, cacheSection(staticCache, itemIndexes));
+    }
+    Log.info("Morphology snapshot with %d items and %d cached words saved to %s in %d ms.",
+        items.size(), staticCache.size(), path, System.currentTimeMillis() - start);
+  }
+
+  private static byte[] lexiconSection(
+      List<DictionaryItem> items,
+      Map<DictionaryItem, Integer> itemIndexes) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    dos.writeInt(items.size());
+    for (DictionaryItem item : items) {
+      DictionaryItemCodec.write(dos, item);
+      DictionaryItem reference = item.getReferenceItem();
+      Integer referenceIndex = reference == null ? null : itemIndexes.get(reference);
+      dos.writeInt(referenceIndex == null ? -1 : referenceIndex);
+    }
+    dos.flush();
+    return bos.toByteArray();
+  }
+
+  private static byte[] stemSection(
+      List<DictionaryItem> items,
+      TurkishMorphotactics morphotactics) throws IOException {
+    StemTransitions stemTransitions = morphotactics.getStemTransitions();
+
+    // root states are written once and transitions refer to them with indexes.
+    Map<String, MorphemeState> stateMap = new HashMap<>();
+    for (MorphemeState state : morphotactics.getAllStates()) {
+      stateMap.putIfAbsent(state.id, state);
+    }
+    Map<MorphemeState, Integer> stateIndexes = new IdentityHashMap<>();
+    List<String> stateIds = new ArrayList<>();
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    for (DictionaryItem item : items) {
+      List<StemTransition> transitions = stemTransitions.getTransitions(item);
+      dos.writeInt(transitions.size());
+      for (StemTransition transition : transitions) {
+        if (transition.surface.equals(item.root)) {
+          dos.writeByte(0);
+        } else {
+          dos.writeByte(1);
+          writeString(dos, transition.surface);
+        }
+        dos.writeInt(transition.getPhoneticAttributes().getBits());
+        Integer stateIndex = stateIndexes.get(transition.to);
+        if (stateIndex == null) {
+          if (stateMap.get(transition.to.id) != transition.to) {
+            throw new IllegalStateException("Root state " + transition.to.id
+                + " of " + item + " cannot be identified with its id.");
+          }
+          stateIndex = stateIds.size();
+          stateIndexes.put(transition.to, stateIndex);
+          stateIds.add(transition.to.id);
+        }
+        dos.writeInt(stateIndex);
+      }
+    }
+    dos.flush();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream(bos.size() + stateIds.size() * 16);
+    DataOutputStream resultStream = new DataOutputStream(result);
+    resultStream.writeInt(stateIds.size());
+    for (String stateId : stateIds) {
+      writeString(resultStream, stateId);
+    }
+    bos.writeTo(resultStream);
+    resultStream.flush();
+    return result.toByteArray();
+  }
+
+  private static byte[] cacheSection(
+      Map<String, WordAnalysis> staticCache,
+      Map<DictionaryItem, Integer> itemIndexes) throws IOException {
+
+    Map<String, Integer> morphemeIndexes = new LinkedHashMap<>();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream dos = new DataOutputStream(bos);
+    dos.writeInt(staticCache.size());
+    for (Map.Entry<String, WordAnalysis> entry : staticCache.entrySet()) {
+      WordAnalysis wordAnalysis = entry.getValue();
+      writeString(dos, entry.getKey());
+      String normalized = wordAnalysis.getNormalizedInput();
+      writeString(dos, normalized == null ? entry.getKey() : normalized);
+      dos.writeInt(wordAnalysis.analysisCount());
+      for (SingleAnalysis analysis : wordAnalysis) {
+        DictionaryItem item = analysis.getDictionaryItem();
+        Integer itemIndex = itemIndexes.get(item);
+        if (item.isUnknown()) {
+          dos.writeInt(UNKNOWN_ITEM);
+        } else if (itemIndex == null) {
+          // items generated during analysis, such as proper nouns, are not in lexicon.
+          dos.writeInt(INLINE_ITEM);
+          DictionaryItemCodec.write(dos, item);
+        } else {
+          dos.writeInt(itemIndex);
+        }
+        List<MorphemeData> morphemeDataList = analysis.getMorphemeDataList();
+        dos.writeInt(morphemeDataList.size());
+        for (MorphemeData morphemeData : morphemeDataList) {
+          Integer morphemeIndex = morphemeIndexes
+              .computeIfAbsent(morphemeData.morpheme.id, k -> morphemeIndexes.size());
+          dos.writeInt(morphemeIndex);
+          writeString(dos, morphemeData.surface);
+        }
+        int[] groupBoundaries = analysis.getGroupBoundaries();
+        dos.writeInt(groupBoundaries.length);
+        for (int boundary : groupBoundaries) {
+          dos.writeInt(boundary);
+        }
+      }
+    }
+    dos.flush();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream(bos.size() + 4096);
+    DataOutputStream resultStream = new DataOutputStream(result);
+    resultStream.writeInt(morphemeIndexes.size());
+    for (String morphemeId : morphemeIndexes.keySet()) {
+      writeString(resultStream, morphemeId);
+    }
+    bos.writeTo(resultStream);
+    resultStream.flush();
+    return result.toByteArray();
+  }
+
+  private static void writeEnumTable(DataOutputStream dos, Enum<?>[] values) throws IOException {
+    dos.writeInt(values.length);
+    for (Enum<?> value : values) {
+      writeString(dos, value.name());
+    }
+  }
+
+  // ordinals of enums are written to the snapshot, so names and order must be the same.
+  private static void checkEnumTable(ByteBuffer buffer, Enum<?>[] values) throws IOException {
+    int count = buffer.getInt();
+    String[] names = new String[count];
+    for (int i = 0; i < count; i++) {
+      names[i] = readString(buffer);
+    }
+    String[] expected = Arrays.stream(values).map(Enum::name).toArray(String[]::new);
+    if (!Arrays.equals(names, expected)) {
+      throw new IOException(values.getClass().getComponentType().getSimpleName()
+          + " values of snapshot are not compatible with this version.");
+    }
+  }
+
+  private static void writeSection(DataOutputStream dos, byte[] section) throws IOException {
+    dos.writeInt(section.length);
+    dos.write(section);
+  }
+
+  private static ByteBuffer nextSection(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    ByteBuffer section = buffer.slice();
+    section.limit(length);
+    buffer.position(buffer.position() + length);
+    return section;
+  }
+
+}
@@ -0,0 +1,219 @@
+package zemberek.morphology;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import zemberek.core.text.TextUtil;
+import zemberek.morphology.analysis.SentenceAnalysis;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.tokenization.Token;
+import zemberek.tokenization.TurkishSentenceExtractor;
+
+/**
+ * Applies tokenization, morphological analysis and disambiguation to many sentences in parallel.
+ * Results for each sentence are same as {@link TurkishMorphology#analyzeAndDisambiguate(String)}
+ * and they are returned in input order.
+ * <p>
+ * Sentences are processed in batches. Tokenization, analysis and disambiguation of a batch are
+ * run as separate tasks on the executor, so stages of different batches overlap. Amount of
+ * batches in process is limited, input is read only when there is room, so large inputs can be
+ * processed with bounded memory. Results are emitted on the calling thread.
+ * <p>
+ * Usage:
+ * <pre>
+ *   SentenceAnalysisPipeline pipeline = SentenceAnalysisPipeline.builder(morphology).build();
+ *   List&lt;SentenceAnalysis&gt; results = pipeline.processDocument(documentText);
+ * </pre>
+ * Instances are thread safe if the executor is.
+ */
+public class SentenceAnalysisPipeline {
+
+  public static final int DEFAULT_BATCH_SIZE = 8;
+
+  private final TurkishMorphology morphology;
+  private final TurkishSentenceExtractor sentenceExtractor;
+  private final Executor executor;
+  private final int batchSize;
+  private final int maxPendingBatches;
+
+  private SentenceAnalysisPipeline(Builder builder) {
+    this.morphology = builder.morphology;
+    this.sentenceExtractor = builder.sentenceExtractor;
+    this.executor = builder.executor;
+    this.batchSize = builder.batchSize;
+    this.maxPendingBatches = builder.maxPendingBatches;
+  }
+
+  public static Builder builder(TurkishMorphology morphology) {
+    return new Builder(morphology);
+  }
+
+  /**
+   * Extracts sentences from the document and analyzes them.
+   */
+  public List<SentenceAnalysis> processDocument(String document) {
+    return process(sentenceExtractor.fromDocument(document));
+  }
+
+  /**
+   * Analyzes and disambiguates all sentences.
+   *
+   * @return results in input order.
+   */
+  public List<SentenceAnalysis> process(List<String> sentences) {
+    List<SentenceAnalysis> result = new ArrayList<>(sentences.size());
+    process(sentences.iterator(), result::add);
+    return result;
+  }
+
+  /**
+   * Analyzes and disambiguates sentences from the iterator and passes results to the consumer in
+   * input order. Iterator and consumer are only used by the calling thread. This method returns
+   * after all sentences are processed. If a sentence cannot be processed, remaining work is
+   * cancelled and the exception is thrown.
+   */
+  public void process(Iterator<String> sentences, Consumer<SentenceAnalysis> consumer) {
+    ArrayDeque<CompletableFuture<List<SentenceAnalysis>>> pending = new ArrayDeque<>();
+    try {
+      while (sentences.hasNext()) {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && sentences.hasNext()) {
+          batch.add(sentences.next());
+        }
+        if (pending.size() == maxPendingBatches) {
+          emit(pending.poll(), consumer);
+        }
+        pending.add(submit(batch));
+        // emit finished results early so consumer does not wait for the whole input.
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+          emit(pending.poll(), consumer);
+        }
+      }
+      while (!pending.isEmpty()) {
+        emit(pending.poll(), consumer);
+      }
+    } finally {
+      for (CompletableFuture<List<SentenceAnalysis>> future : pending) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  private CompletableFuture<List<SentenceAnalysis>> submit(List<String> batch) {
+    return CompletableFuture
+        .supplyAsync(() -> tokenize(batch), executor)
+        .thenApplyAsync(this::analyze, executor)
+        .thenApplyAsync(analyses -> disambiguate(batch, analyses), executor);
+  }
+
+  private List<List<Token>> tokenize(List<String> batch) {
+    List<List<Token>> result = new ArrayList<>(batch.size());
+    for (String sentence : batch) {
+      String normalized = TextUtil.normalizeQuotesHyphens(sentence);
+      result.add(morphology.getTokenizer().tokenize(normalized));
+    }
+    return result;
+  }
+
+  private List<List<WordAnalysis>> analyze(List<List<Token>> batch) {
+    List<List<WordAnalysis>> result = new ArrayList<>(batch.size());
+    for (List<Token> tokens : batch) {
+      List<WordAnalysis> analyses = new ArrayList<>(tokens.size());
+      for (Token token : tokens) {
+        analyses.add(morphology.analyze(token));
+      }
+      result.add(analyses);
+    }
+    return result;
+  }
+
+  private List<SentenceAnalysis> disambiguate(
+      List<String> batch, List<List<WordAnalysis>> analyses) {
+    List<SentenceAnalysis> result = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      result.add(morphology.disambiguate(batch.get(i), analyses.get(i)));
+    }
+    return result;
+  }
+
+  private static void emit(
+      CompletableFuture<List<SentenceAnalysis>> future,
+      Consumer<SentenceAnalysis> consumer) {
+    List<SentenceAnalysis> results;
+    try {
+      results = future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    for (SentenceAnalysis result : results) {
+      consumer.accept(result);
+    }
+  }
+
+  public static class Builder {
+
+    TurkishMorphology morphology;
+    TurkishSentenceExtractor sentenceExtractor = TurkishSentenceExtractor.DEFAULT;
+    Executor executor = ForkJoinPool.commonPool();
+    int batchSize = DEFAULT_BATCH_SIZE;
+    int maxPendingBatches = Runtime.getRuntime().availableProcessors() * 4;
+
+    Builder(TurkishMorphology morphology) {
+      this.morphology = morphology;
+    }
+
+    /**
+     * Executor for running pipeline stages. If not set, common ForkJoinPool is used.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Extractor used in processDocument method.
+     */
+    public Builder sentenceExtractor(TurkishSentenceExtractor sentenceExtractor) {
+      this.sentenceExtractor = sentenceExtractor;
+      return this;
+    }
+
+    /**
+     * Amount of sentences processed together in a task. Larger batches reduce task overhead for
+     * short sentences.
+     */
+    public Builder batchSize(int batchSize) {
+      if (batchSize < 1) {
+        throw new IllegalArgumentException("Batch size must be positive. But it is " + batchSize);
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Maximum amount of batches in process. Input is not read until a batch is finished when this
+     * limit is reached. Default value is four times the processor count.
+     */
+    public Builder maxPendingBatches(int maxPendingBatches) {
+      if (maxPendingBatches < 1) {
+        throw new IllegalArgumentException(
+            "Max pending batch count must be positive. But it is " + maxPendingBatches);
+      }
+      this.maxPendingBatches = maxPendingBatches;
+      return this;
+    }
+
+    public SentenceAnalysisPipeline build() {
+      return new SentenceAnalysisPipeline(this);
+    }
+  }
+}
@@ -1,11 +1,21 @@
 package zemberek.morphology;
 
 import com.google.common.base.Stopwatch;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextUtil;
@@ -16,14 +26,21 @@ import zemberek.core.turkish.TurkishAlphabet;
 import zemberek.morphology.ambiguity.AmbiguityResolver;
 import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver;
 import zemberek.morphology.analysis.AnalysisCache;
+import zemberek.morphology.analysis.PersistentAnalysisCache;
 import zemberek.morphology.analysis.RuleBasedAnalyzer;
 import zemberek.morphology.analysis.SentenceAnalysis;
 import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.StemTransitions;
+import zemberek.morphology.analysis.StemTransitionsCopyOnWrite;
+import zemberek.morphology.analysis.StemTransitionsDoubleArrayBased;
+import zemberek.morphology.analysis.StemTransitionsMapBased;
 import zemberek.morphology.analysis.UnidentifiedTokenAnalyzer;
 import zemberek.morphology.analysis.WordAnalysis;
 import zemberek.morphology.generator.WordGenerator;
+import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.InformalTurkishMorphotactics;
+import zemberek.morphology.morphotactics.StemTransition;
 import zemberek.morphology.morphotactics.TurkishMorphotactics;
 import zemberek.tokenization.TurkishTokenizer;
 import zemberek.tokenization.Token;
@@ -31,7 +48,7 @@ import zemberek.tokenization.Token;
 // TODO: mothods require some re-thinking.
 // analysis method should probably not apply unidentified token analysis.
 // this should be left to the user.
-public class TurkishMorphology {
+public class TurkishMorphology implements Closeable {
 
   private RootLexicon lexicon;
   private RuleBasedAnalyzer analyzer;
@@ -39,25 +56,59 @@ public class TurkishMorphology {
   private UnidentifiedTokenAnalyzer unidentifiedTokenAnalyzer;
   private TurkishTokenizer tokenizer;
   private AnalysisCache cache;
+  private PersistentAnalysisCache persistentCache;
   private TurkishMorphotactics morphotactics;
   private AmbiguityResolver ambiguityResolver;
 
+  private Executor bulkAnalysisExecutor;
+
   private boolean useUnidentifiedTokenAnalyzer;
   private boolean useCache;
+  private boolean informalAnalysis;
+  private boolean ignoreDiacriticsInAnalysis;
+
+  // Bulk analysis misses are processed inline if there are fewer than this many distinct words.
+  private static final int MIN_PARALLEL_BULK_SIZE = 64;
 
   private TurkishMorphology(Builder builder) {
 
+    MorphologySnapshot snapshot = builder.snapshot;
+    if (snapshot != null && (builder.lexicon != snapshot.getLexicon()
+        || builder.informalAnalysis != snapshot.informalAnalysis
+        || builder.ignoreDiacriticsInAnalysis != snapshot.ignoreDiacriticsInAnalysis
+        || builder.useUnidentifiedTokenAnalyzer != snapshot.useUnidentifiedTokenAnalyzer)) {
+      throw new IllegalStateException(
+          "Lexicon and analysis options cannot be changed after loading a snapshot.");
+    }
+
     this.lexicon = builder.lexicon;
     if (lexicon.isEmpty()) {
       Log.warn("TurkishMorphology class is being instantiated with empty root lexicon.");
     }
+    this.informalAnalysis = builder.informalAnalysis;
+    this.ignoreDiacriticsInAnalysis = builder.ignoreDiacriticsInAnalysis;
+
+    if (snapshot == null
+        && !builder.useDoubleArrayStemTransitions
+        && !builder.useLockFreeStemTransitions) {
+      this.morphotactics = builder.informalAnalysis ?
+          new InformalTurkishMorphotactics(this.lexicon) : new TurkishMorphotactics(this.lexicon);
+    } else {
+      Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory =
+          stemTransitionsFactory(builder);
+      this.morphotactics = builder.informalAnalysis ?
+          new InformalTurkishMorphotactics(this.lexicon, stemTransitionsFactory) :
+          new TurkishMorphotactics(this.lexicon, stemTransitionsFactory);
+    }
 
-    this.morphotactics = builder.informalAnalysis ?
-        new InformalTurkishMorphotactics(this.lexicon) : new TurkishMorphotactics(this.lexicon);
-
-    this.analyzer = builder.ignoreDiacriticsInAnalysis ?
-        RuleBasedAnalyzer.ignoreDiacriticsInstance(morphotactics) :
-        RuleBasedAnalyzer.instance(morphotactics);
+    if (builder.useCompiledMorphotactics) {
+      this.analyzer = RuleBasedAnalyzer.compiledInstance(
+          morphotactics, builder.ignoreDiacriticsInAnalysis);
+    } else {
+      this.analyzer = builder.ignoreDiacriticsInAnalysis ?
+          RuleBasedAnalyzer.ignoreDiacriticsInstance(morphotactics) :
+          RuleBasedAnalyzer.instance(morphotactics);
+    }
 
     this.wordGenerator = new WordGenerator(morphotactics);
     this.unidentifiedTokenAnalyzer = new UnidentifiedTokenAnalyzer(analyzer);
@@ -69,9 +120,35 @@ public class TurkishMorphology {
       } else {
         cache = builder.cache;
       }
-      cache.initializeStaticCache(this::analyzeWithoutCache);
+    } else if (builder.persistentCachePath != null) {
+      // only the persistent cache is used.
+      cache = new AnalysisCache.Builder().disableStaticCache().disableDynamicCache().build();
+    }
+    if (builder.persistentCachePath != null) {
+      try {
+        this.persistentCache = PersistentAnalysisCache.open(
+            builder.persistentCachePath,
+            morphotactics,
+            builder.persistentCacheCapacity,
+            builder.informalAnalysis,
+            builder.ignoreDiacriticsInAnalysis,
+            builder.useUnidentifiedTokenAnalyzer);
+      } catch (IOException e) {
+        throw new RuntimeException(
+            "Cannot open persistent analysis cache " + builder.persistentCachePath, e);
+      }
+      cache.setPersistentCache(persistentCache);
     }
-    this.useCache = builder.useDynamicCache;
+    if (builder.useDynamicCache) {
+      if (snapshot == null) {
+        cache.initializeStaticCache(this::analyzeWithoutCache);
+      } else {
+        cache.initializeStaticCache(snapshot.loadStaticCache());
+      }
+    }
+    this.useCache = cache != null;
+    this.bulkAnalysisExecutor = builder.bulkAnalysisExecutor == null ?
+        ForkJoinPool.commonPool() : builder.bulkAnalysisExecutor;
     this.useUnidentifiedTokenAnalyzer = builder.useUnidentifiedTokenAnalyzer;
 
     if (builder.ambiguityResolver == null) {
@@ -88,10 +165,31 @@ public class TurkishMorphology {
     }
   }
 
+  private static Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory(
+      Builder builder) {
+    return morphotactics -> {
+      Function<DictionaryItem, List<StemTransition>> provider = builder.snapshot == null ?
+          null : builder.snapshot.stemTransitionProvider(morphotactics);
+      if (builder.useDoubleArrayStemTransitions) {
+        return new StemTransitionsDoubleArrayBased(builder.lexicon, morphotactics, provider);
+      }
+      if (builder.useLockFreeStemTransitions) {
+        return new StemTransitionsCopyOnWrite(builder.lexicon, morphotactics, provider);
+      }
+      return provider == null ?
+          new StemTransitionsMapBased(builder.lexicon, morphotactics) :
+          new StemTransitionsMapBased(builder.lexicon, morphotactics, provider);
+    };
+  }
+
   public RuleBasedAnalyzer getAnalyzer() {
     return analyzer;
   }
 
+  public TurkishTokenizer getTokenizer() {
+    return tokenizer;
+  }
+
   public UnidentifiedTokenAnalyzer getUnidentifiedTokenAnalyzer() {
     return unidentifiedTokenAnalyzer;
   }
@@ -107,6 +205,41 @@ public class TurkishMorphology {
     return new Builder().setLexicon(lexicon).build();
   }
 
+  /**
+   * Creates a TurkishMorphology from a snapshot file created with saveSnapshot. Lexicon, stem
+   * transitions and static cache analyses are loaded from the snapshot instead of being generated.
+   * They are still decoded to heap objects, so this saves stem transition generation and static
+   * cache analysis but not object creation. Startup time and heap usage are close to creating
+   * the morphology from the lexicon.
+   */
+  public static TurkishMorphology fromSnapshot(Path snapshotPath) throws IOException {
+    Stopwatch sw = Stopwatch.createStarted();
+    TurkishMorphology instance = new Builder().loadSnapshot(snapshotPath).build();
+    Log.info("Initialized from snapshot in %d ms.", sw.elapsed(TimeUnit.MILLISECONDS));
+    return instance;
+  }
+
+  /**
+   * Saves lexicon, stem transitions and analyses of the static cache words of this instance to
+   * a snapshot file. Analysis options of this instance are also saved, a morphology loaded from
+   * the snapshot uses the same options.
+   */
+  public void saveSnapshot(Path snapshotPath) throws IOException {
+    Map<String, WordAnalysis> staticCache = new LinkedHashMap<>();
+    List<String> words = cache == null ?
+        AnalysisCache.staticCacheWords() : cache.loadStaticCacheWords();
+    for (String word : words) {
+      staticCache.put(word, analyzeWithoutCache(word));
+    }
+    MorphologySnapshot.save(
+        snapshotPath,
+        morphotactics,
+        staticCache,
+        informalAnalysis,
+        ignoreDiacriticsInAnalysis,
+        useUnidentifiedTokenAnalyzer);
+  }
+
   public TurkishMorphotactics getMorphotactics() {
     return morphotactics;
   }
@@ -129,6 +262,29 @@ public class TurkishMorphology {
     }
   }
 
+  /**
+   * Writes pending analyses of the persistent cache and releases it. Persistent cache file is
+   * closed when all morphology instances that use it are closed. Other resources do not need to be
+   * released, so this does nothing if persistent cache is not used. After this, words are analyzed
+   * without the persistent cache.
+   */
+  @Override
+  public synchronized void close() {
+    if (persistentCache == null) {
+      return;
+    }
+    if (cache.getPersistentCache() == persistentCache) {
+      cache.setPersistentCache(null);
+    }
+    try {
+      persistentCache.close();
+    } catch (IOException e) {
+      Log.warn("Cannot close persistent analysis cache %s. Reason: %s", persistentCache.getPath(),
+          e.getMessage());
+    }
+    persistentCache = null;
+  }
+
   public RootLexicon getLexicon() {
     return lexicon;
   }
@@ -231,6 +387,134 @@ public class TurkishMorphology {
     return result;
   }
 
+  /**
+   * Analyzes all words in the input. Results are returned in input order. Repeated words are
+   * analyzed only once and cache is checked once for every distinct word. Words that are not in
+   * the cache are analyzed in parallel with the bulk analysis executor of this instance.
+   *
+   * @param words input words.
+   * @return WordAnalysis list in the same order with input.
+   */
+  public List<WordAnalysis> analyzeAll(Collection<String> words) {
+    return analyzeAll(words, bulkAnalysisExecutor);
+  }
+
+  /**
+   * Same as {@link #analyzeAll(Collection)} but cache misses are analyzed with given executor.
+   */
+  public List<WordAnalysis> analyzeAll(Collection<String> words, Executor executor) {
+    return analyzeDistinct(new ArrayList<>(words), s -> s, this::analyzeWithoutCache, executor);
+  }
+
+  /**
+   * Tokenizes and analyzes all sentences. Result for each sentence is same as {@link
+   * #analyzeSentence(String)}. Distinct tokens of all sentences are analyzed only once, in
+   * parallel with the bulk analysis executor of this instance.
+   *
+   * @param sentences input sentences.
+   * @return WordAnalysis lists of sentences in input order.
+   */
+  public List<List<WordAnalysis>> analyzeSentences(List<String> sentences) {
+    return analyzeSentences(sentences, bulkAnalysisExecutor);
+  }
+
+  /**
+   * Same as {@link #analyzeSentences(List)} but cache misses are analyzed with given executor.
+   */
+  public List<List<WordAnalysis>> analyzeSentences(List<String> sentences, Executor executor) {
+    List<Token> allTokens = new ArrayList<>();
+    int[] tokenCounts = new int[sentences.size()];
+    for (int i = 0; i < sentences.size(); i++) {
+      String normalized = TextUtil.normalizeQuotesHyphens(sentences.get(i));
+      List<Token> tokens = tokenizer.tokenize(normalized);
+      tokenCounts[i] = tokens.size();
+      allTokens.addAll(tokens);
+    }
+    List<WordAnalysis> analyses = analyzeDistinct(
+        allTokens, Token::getText, this::analyzeWithoutCache, executor);
+    List<List<WordAnalysis>> result = new ArrayList<>(sentences.size());
+    int start = 0;
+    for (int count : tokenCounts) {
+      result.add(new ArrayList<>(analyses.subList(start, start + count)));
+      start += count;
+    }
+    return result;
+  }
+
+  private <T> List<WordAnalysis> analyzeDistinct(
+      List<T> inputs,
+      Function<T, String> keyFunction,
+      Function<T, WordAnalysis> analysisFunction,
+      Executor executor) {
+
+    // collect first occurrences of distinct keys.
+    Map<String, T> distinct = new LinkedHashMap<>();
+    for (T input : inputs) {
+      distinct.putIfAbsent(keyFunction.apply(input), input);
+    }
+
+    Map<String, WordAnalysis> analyses = new HashMap<>(distinct.size() * 2);
+    List<T> misses = new ArrayList<>();
+    for (Map.Entry<String, T> entry : distinct.entrySet()) {
+      WordAnalysis analysis = useCache ? cache.getIfPresent(entry.getKey()) : null;
+      if (analysis == null) {
+        misses.add(entry.getValue());
+      } else {
+        analyses.put(entry.getKey(), analysis);
+      }
+    }
+
+    List<WordAnalysis> missAnalyses;
+    if (misses.size() < MIN_PARALLEL_BULK_SIZE) {
+      missAnalyses = new ArrayList<>(misses.size());
+      for (T miss : misses) {
+        missAnalyses.add(analysisFunction.apply(miss));
+      }
+    } else {
+      missAnalyses = analyzeParallel(misses, analysisFunction, executor);
+    }
+
+    for (int i = 0; i < misses.size(); i++) {
+      String key = keyFunction.apply(misses.get(i));
+      WordAnalysis analysis = missAnalyses.get(i);
+      analyses.put(key, analysis);
+      if (useCache) {
+        cache.put(key, analysis);
+      }
+    }
+
+    List<WordAnalysis> result = new ArrayList<>(inputs.size());
+    for (T input : inputs) {
+      result.add(analyses.get(keyFunction.apply(input)));
+    }
+    return result;
+  }
+
+  private static <T> List<WordAnalysis> analyzeParallel(
+      List<T> inputs,
+      Function<T, WordAnalysis> analysisFunction,
+      Executor executor) {
+    // Split the work to a few chunks per processor so that uneven chunks are balanced.
+    int chunkCount = Runtime.getRuntime().availableProcessors() * 4;
+    int chunkSize = Math.max(MIN_PARALLEL_BULK_SIZE / 4, inputs.size() / chunkCount + 1);
+    List<CompletableFuture<List<WordAnalysis>>> futures = new ArrayList<>();
+    for (int start = 0; start < inputs.size(); start += chunkSize) {
+      List<T> chunk = inputs.subList(start, Math.min(start + chunkSize, inputs.size()));
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        List<WordAnalysis> chunkResult = new ArrayList<>(chunk.size());
+        for (T input : chunk) {
+          chunkResult.add(analysisFunction.apply(input));
+        }
+        return chunkResult;
+      }, executor));
+    }
+    List<WordAnalysis> result = new ArrayList<>(inputs.size());
+    for (CompletableFuture<List<WordAnalysis>> future : futures) {
+      result.addAll(future.join());
+    }
+    return result;
+  }
+
   public SentenceAnalysis disambiguate(String sentence, List<WordAnalysis> sentenceAnalysis) {
     return ambiguityResolver.disambiguate(sentence, sentenceAnalysis);
   }
@@ -271,10 +555,31 @@ public class TurkishMorphology {
     boolean useDynamicCache = true;
     boolean useUnidentifiedTokenAnalyzer = true;
     AnalysisCache cache;
+    Path persistentCachePath;
+    int persistentCacheCapacity;
     AmbiguityResolver ambiguityResolver;
     TurkishTokenizer tokenizer = TurkishTokenizer.DEFAULT;
     boolean informalAnalysis = false;
     boolean ignoreDiacriticsInAnalysis = false;
+    boolean useCompiledMorphotactics = false;
+    boolean useDoubleArrayStemTransitions = false;
+    boolean useLockFreeStemTransitions = false;
+    Executor bulkAnalysisExecutor;
+    MorphologySnapshot snapshot;
+
+    /**
+     * Loads lexicon and analysis options from a snapshot file created with
+     * TurkishMorphology.saveSnapshot. Stem transitions and static cache are also initialized from
+     * the snapshot. After this, lexicon and analysis options should not be changed.
+     */
+    public Builder loadSnapshot(Path snapshotPath) throws IOException {
+      this.snapshot = MorphologySnapshot.load(snapshotPath);
+      this.lexicon = snapshot.getLexicon();
+      this.informalAnalysis = snapshot.informalAnalysis;
+      this.ignoreDiacriticsInAnalysis = snapshot.ignoreDiacriticsInAnalysis;
+      this.useUnidentifiedTokenAnalyzer = snapshot.useUnidentifiedTokenAnalyzer;
+      return this;
+    }
 
     public Builder setLexicon(RootLexicon lexicon) {
       this.lexicon = lexicon;
@@ -296,11 +601,58 @@ public class TurkishMorphology {
       return this;
     }
 
+    /**
+     * Analysis runs on a compiled, array based form of the morphotactics graph.
+     */
+    public Builder useCompiledMorphotactics() {
+      this.useCompiledMorphotactics = true;
+      return this;
+    }
+
+    /**
+     * Stem surfaces are stored in an off-heap double array trie instead of hash maps. This
+     * reduces heap usage and lookup cost for large lexicons.
+     */
+    public Builder useDoubleArrayStemTransitions() {
+      this.useDoubleArrayStemTransitions = true;
+      return this;
+    }
+
+    /**
+     * Stem transitions are read without locks and dictionary item updates are published as new
+     * immutable versions. This reduces contention when many threads analyze concurrently. Ignored
+     * if double array stem transitions are used, they are also read without locks.
+     */
+    public Builder useLockFreeStemTransitions() {
+      this.useLockFreeStemTransitions = true;
+      return this;
+    }
+
     public Builder setCache(AnalysisCache cache) {
       this.cache = cache;
       return this;
     }
 
+    /**
+     * Uses a memory mapped analysis cache file as second level cache. File is shared between
+     * processes that use the same lexicon and analysis options and restarted processes do not
+     * analyze the same words again. If cache is disabled, only the persistent cache is used.
+     * Morphology instances that use the same file in a JVM share it, call close() to release it.
+     */
+    public Builder usePersistentCache(Path cachePath) {
+      return usePersistentCache(cachePath, PersistentAnalysisCache.DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * Same as usePersistentCache(Path), capacity is the file size in bytes used when file is
+     * created.
+     */
+    public Builder usePersistentCache(Path cachePath, int capacityBytes) {
+      this.persistentCachePath = cachePath;
+      this.persistentCacheCapacity = capacityBytes;
+      return this;
+    }
+
     public Builder setAmbiguityResolver(AmbiguityResolver ambiguityResolver) {
       this.ambiguityResolver = ambiguityResolver;
       return this;
@@ -311,6 +663,15 @@ public class TurkishMorphology {
       return this;
     }
 
+    /**
+     * Sets the executor used for analyzing cache misses in bulk analysis methods such as
+     * analyzeAll and analyzeSentences. If not set, common ForkJoinPool is used.
+     */
+    public Builder setBulkAnalysisExecutor(Executor executor) {
+      this.bulkAnalysisExecutor = executor;
+      return this;
+    }
+
     public Builder disableCache() {
       useDynamicCache = false;
       return this;
@@ -0,0 +1,539 @@
+package zemberek.morphology.ambiguity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import zemberek.core.data.WeightLookup;
+import zemberek.core.dynamic.ActiveList;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver.DecodeResult;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver.Decoder;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver.FeatureExtractor;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver.Hypothesis;
+import zemberek.morphology.ambiguity.PerceptronAmbiguityResolver.WordData;
+import zemberek.morphology.analysis.SingleAnalysis;
+import zemberek.morphology.analysis.WordAnalysis;
+import zemberek.morphology.morphotactics.Morpheme;
+
+/**
+ * A Decoder that produces the same scores with {@link FeatureExtractor} features but does not
+ * generate feature Strings for every hypothesis and analysis combination.
+ * <p>
+ * Feature components of an analysis (lemma, inflectional groups etc.) are calculated once per
+ * word and converted to 64 bit hashes. Features that depend only on a single analysis are scored
+ * once per word and features that depend on two consecutive analyses are scored once per analysis
+ * pair. Remaining bigram and trigram features are identified with 64 bit keys that are combined
+ * from component hashes. Their weights are kept in a bounded cache that is shared by all threads,
+ * so a feature String is only generated when a feature is not in the cache. Weight cache stores
+ * full keys, so it never returns the weight of another feature. If caches are disabled, weights
+ * are kept in a primitive table for each sentence instead.
+ * <p>
+ * Scores of analysis trigrams are also kept in a bounded cache that is shared by all threads.
+ * Cache keys are calculated from content signatures of analyses (dictionary item id and morpheme
+ * sequence), so frequent trigrams are scored only once for all sentences. This cache is lossy, a
+ * different trigram's score may be returned with a very low probability.
+ * <p>
+ * Cached scores and weights are not updated if model weights change, so caches should be disabled
+ * when decoding with a model that is being trained.
+ */
+class FeatureHashingDecoder extends Decoder {
+
+  // feature template ids. These correspond to the prefixes used by FeatureExtractor.
+  private static final long T2 = 2;
+  private static final long T3 = 3;
+  private static final long T9 = 9;
+  private static final long T15 = 15;
+  private static final long T17 = 17;
+
+  static final int DEFAULT_CACHE_SIZE = 1 << 18;
+
+  // null if cache is disabled.
+  private final ScoreCache cache;
+  // feature weights for all sentences. null if cache is disabled.
+  private final WeightCache weightCache;
+
+  FeatureHashingDecoder(WeightLookup model) {
+    this(model, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize maximum amount of cached trigram scores and feature weights. If 0, caches
+   * are not used.
+   */
+  FeatureHashingDecoder(WeightLookup model, int cacheSize) {
+    super(model, new FeatureExtractor(false));
+    if (cacheSize < 0) {
+      throw new IllegalArgumentException("Cache size cannot be negative. But it is " + cacheSize);
+    }
+    this.cache = cacheSize == 0 ? null : new ScoreCache(cacheSize);
+    this.weightCache = cacheSize == 0 ? null : new WeightCache(cacheSize);
+  }
+
+  @Override
+  DecodeResult bestPath(List<WordAnalysis> sentence) {
+
+    if (sentence.size() == 0) {
+      throw new IllegalArgumentException("bestPath cannot be called with empty sentence.");
+    }
+
+    int beamSize = this.beamSize;
+    float beamScoreRange = this.beamScoreRange;
+    int hypotheses = 0;
+    int pruned = 0;
+
+    // model weights may change between calls if caches are disabled.
+    FloatTable table = weightCache == null ? new WeightTable() : weightCache;
+    // these are created for every sentence because model weights may change between calls.
+    AnalysisFeatures sentenceBegin =
+        new AnalysisFeatures(PerceptronAmbiguityResolver.sentenceBegin, 0);
+    AnalysisFeatures sentenceEnd = new AnalysisFeatures(PerceptronAmbiguityResolver.sentenceEnd, 0);
+
+    ActiveList<FeatureHypothesis> currentList = new ActiveList<>();
+    currentList.add(new FeatureHypothesis(sentenceBegin, sentenceBegin, null, 0));
+    AnalysisFeatures[] previous = {sentenceBegin};
+
+    for (WordAnalysis analysisData : sentence) {
+
+      ActiveList<FeatureHypothesis> nextList = new ActiveList<>();
+
+      // this is necessary because word analysis may contain zero SingleAnalysis
+      // So we add an unknown SingleAnalysis to it.
+      List<SingleAnalysis> analyses = analysisData.getAnalysisResults();
+      if (analyses.size() == 0) {
+        analyses = new ArrayList<>(1);
+        analyses.add(SingleAnalysis.unknown(analysisData.getInput()));
+      }
+
+      AnalysisFeatures[] current = new AnalysisFeatures[analyses.size()];
+      for (int i = 0; i < current.length; i++) {
+        current[i] = new AnalysisFeatures(analyses.get(i), i);
+      }
+
+      // bigram scores are calculated when they are needed, NaN values are not calculated yet.
+      float[][] bigramScores = new float[previous.length][current.length];
+      for (float[] scores : bigramScores) {
+        Arrays.fill(scores, Float.NaN);
+      }
+
+      for (AnalysisFeatures c : current) {
+        for (FeatureHypothesis h : currentList) {
+          long key = 0;
+          float trigramScore = Float.NaN;
+          if (cache != null) {
+            key = trigramKey(h.prevFeatures.signature, h.currentFeatures.signature, c.signature);
+            trigramScore = cache.get(key);
+          }
+          if (Float.isNaN(trigramScore)) {
+            float bigramScore = bigramScores[h.currentFeatures.index][c.index];
+            if (Float.isNaN(bigramScore)) {
+              bigramScore = bigramScore(table, h.currentFeatures, c);
+              bigramScores[h.currentFeatures.index][c.index] = bigramScore;
+            }
+            trigramScore = h.prevFeatures.firstScore
+                + h.currentFeatures.secondScore
+                + c.thirdScore
+                + bigramScore
+                + trigramScore(table, h.prevFeatures, h.currentFeatures, c);
+            if (cache != null) {
+              cache.put(key, trigramScore);
+            }
+          }
+          nextList.add(new FeatureHypothesis(
+              h.currentFeatures,
+              c,
+              h,
+              h.score + trigramScore));
+          hypotheses++;
+        }
+      }
+      currentList = prune(nextList, beamSize, beamScoreRange);
+      pruned += nextList.size() - currentList.size();
+      previous = current;
+    }
+
+    // score for sentence end. No need to create new hypotheses.
+    for (FeatureHypothesis h : currentList) {
+      h.score += h.prevFeatures.firstScore
+          + h.currentFeatures.secondScore
+          + sentenceEnd.thirdScore
+          + bigramScore(table, h.currentFeatures, sentenceEnd)
+          + trigramScore(table, h.prevFeatures, h.currentFeatures, sentenceEnd);
+    }
+
+    return result(currentList.getBest(), hypotheses, pruned);
+  }
+
+  // scores features 3, 9 and 17 of FeatureExtractor.
+  private float bigramScore(FloatTable table, AnalysisFeatures w2, AnalysisFeatures w3) {
+    float score = 0;
+
+    long key = key(T3, w2.lemmaIgHash, w3.lemmaIgHash);
+    float weight = table.get(key);
+    if (Float.isNaN(weight)) {
+      weight = table.put(key, model.get("3:" + w2.lemmaIg + "-" + w3.lemmaIg));
+    }
+    score += weight;
+
+    key = key(T9, w2.lemmaHash, w3.lemmaHash);
+    weight = table.get(key);
+    if (Float.isNaN(weight)) {
+      weight = table.put(key, model.get("9:" + w2.lemma + "-" + w3.lemma));
+    }
+    score += weight;
+
+    for (int i = 0; i < w3.igs.length; i++) {
+      key = key(T17, w2.lastGroupHash, w3.igHashes[i]);
+      weight = table.get(key);
+      if (Float.isNaN(weight)) {
+        weight = table.put(key, model.get("17:" + w2.lastGroup + w3.igs[i]));
+      }
+      score += weight;
+    }
+    return score;
+  }
+
+  // scores features 2 and 15 of FeatureExtractor.
+  private float trigramScore(
+      FloatTable table, AnalysisFeatures w1, AnalysisFeatures w2, AnalysisFeatures w3) {
+    float score = 0;
+
+    long key = key(T2, w1.lemmaHash, w2.igHash, w3.lemmaIgHash);
+    float weight = table.get(key);
+    if (Float.isNaN(weight)) {
+      weight = table.put(key, model.get("2:" + w1.lemma + w2.ig + w3.lemmaIg));
+    }
+    score += weight;
+
+    for (int i = 0; i < w3.igs.length; i++) {
+      key = key(T15, w1.lastGroupHash, w2.lastGroupHash, w3.igHashes[i]);
+      weight = table.get(key);
+      if (Float.isNaN(weight)) {
+        weight = table.put(key,
+            model.get("15:" + w1.lastGroup + "-" + w2.lastGroup + "-" + w3.igs[i]));
+      }
+      score += weight;
+    }
+    return score;
+  }
+
+  /**
+   * Feature components of a single analysis and scores of the features that only depend on this
+   * analysis.
+   */
+  final class AnalysisFeatures {
+
+    final SingleAnalysis analysis;
+    // index of the analysis in the word's analyses.
+    final int index;
+    final long signature;
+
+    final String lemma;
+    final String ig;
+    final String lemmaIg;
+    final String lastGroup;
+    final String[] igs;
+
+    final long lemmaHash;
+    final long igHash;
+    final long lemmaIgHash;
+    final long lastGroupHash;
+    final long[] igHashes;
+
+    // score of features 4, 10, 20 and 22, used when analysis is the last word of a trigram.
+    final float thirdScore;
+    // score of feature 10b, used when analysis is the second word of a trigram.
+    final float secondScore;
+    // score of feature 10c, used when analysis is the first word of a trigram.
+    final float firstScore;
+
+    AnalysisFeatures(SingleAnalysis analysis, int index) {
+      this.analysis = analysis;
+      this.index = index;
+      this.signature = signature(analysis);
+      WordData data = WordData.fromAnalysis(analysis);
+      this.lemma = data.lemma;
+      this.igs = data.igs.toArray(new String[0]);
+      this.ig = String.join("+", data.igs);
+      this.lemmaIg = lemma + "+" + ig;
+      this.lastGroup = data.lastGroup();
+
+      this.lemmaHash = hash(lemma);
+      this.igHash = hash(ig);
+      this.lemmaIgHash = hash(lemmaIg);
+      this.lastGroupHash = hash(lastGroup);
+      this.igHashes = new long[igs.length];
+      for (int i = 0; i < igs.length; i++) {
+        igHashes[i] = hash(igs[i]);
+      }
+
+      float score = model.get("4:" + lemmaIg) + model.get("10:" + lemma);
+      for (int k = 0; k < igs.length; k++) {
+        score += model.get("20:" + k + "-" + igs[k]);
+      }
+      score += model.get("22:" + analysis.groupCount());
+      this.thirdScore = score;
+      this.secondScore = model.get("10b:" + lemma);
+      this.firstScore = model.get("10c:" + lemma);
+    }
+  }
+
+  static final class FeatureHypothesis extends Hypothesis {
+
+    final AnalysisFeatures prevFeatures;
+    final AnalysisFeatures currentFeatures;
+
+    FeatureHypothesis(
+        AnalysisFeatures prevFeatures,
+        AnalysisFeatures currentFeatures,
+        FeatureHypothesis previous,
+        float score) {
+      super(prevFeatures.analysis, currentFeatures.analysis, previous, score);
+      this.prevFeatures = prevFeatures;
+      this.currentFeatures = currentFeatures;
+    }
+  }
+
+  /**
+   * Returns a 64 bit content signature of an analysis. It is calculated from the dictionary item
+   * id and morpheme sequence, which determine all features of an analysis.
+   */
+  static long signature(SingleAnalysis analysis) {
+    long h = hash(analysis.getDictionaryItem().id);
+    for (Morpheme morpheme : analysis.getMorphemes()) {
+      h = mix(h * 31 + hash(morpheme.id));
+    }
+    return mix(h + analysis.groupCount());
+  }
+
+  static long trigramKey(long signature1, long signature2, long signature3) {
+    return key(0, signature1, signature2, signature3);
+  }
+
+  // 64 bit FNV-1a hash of a String.
+  static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  static long key(long template, long h1, long h2) {
+    return mix(mix(template * 0x9E3779B97F4A7C15L + h1) + h2);
+  }
+
+  static long key(long template, long h1, long h2, long h3) {
+    return mix(key(template, h1, h2) + h3);
+  }
+
+  // finalizer of MurmurHash3 64 bit.
+  static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * A long key - float value table. Float.NaN is returned for absent keys.
+   */
+  interface FloatTable {
+
+    float get(long key);
+
+    /**
+     * Puts the value and returns it.
+     */
+    float put(long key, float value);
+  }
+
+  /**
+   * A fixed size, thread safe and lossy long key - float value cache. Each key has a single slot
+   * determined by its lower bits, an entry carries upper 32 bits of its key and the value in a
+   * single long so readers never see partially written entries. Newer entries replace the older
+   * ones in the same slot.
+   */
+  static final class ScoreCache {
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    ScoreCache(int size) {
+      int k = 1;
+      while (k < size) {
+        k <<= 1;
+      }
+      entries = new AtomicLongArray(k);
+      mask = k - 1;
+    }
+
+    /**
+     * Returns Float.NaN if key does not exist.
+     */
+    float get(long key) {
+      long entry = entries.get((int) key & mask);
+      if (entry != 0 && (int) (entry >>> 32) == (int) (key >>> 32)) {
+        return Float.intBitsToFloat((int) entry);
+      }
+      return Float.NaN;
+    }
+
+    void put(long key, float value) {
+      long entry = (key & 0xFFFF_FFFF_0000_0000L) | (Float.floatToIntBits(value) & 0xFFFF_FFFFL);
+      entries.lazySet((int) key & mask, entry);
+    }
+
+    int capacity() {
+      return entries.length();
+    }
+  }
+
+  /**
+   * A fixed size and thread safe long key - float value cache. Full keys are stored so a value is
+   * only returned for its own key. Each slot is guarded with a sequence stamp. A writer makes the
+   * stamp odd, writes the key and value, then makes it even again. A reader accepts a slot only if
+   * the stamp is even, not zero and does not change while reading the key and value. Writers never
+   * wait, if another thread is writing the slot, the value is not cached. Newer entries replace
+   * the older ones in the same slot.
+   */
+  static final class WeightCache implements FloatTable {
+
+    // each slot uses 3 longs in the table: [stamp][key][value bits]
+    private static final int SLOT_LENGTH = 3;
+
+    private final AtomicLongArray table;
+    private final int mask;
+
+    WeightCache(int size) {
+      int k = 1;
+      while (k < size) {
+        k <<= 1;
+      }
+      table = new AtomicLongArray(k * SLOT_LENGTH);
+      mask = k - 1;
+    }
+
+    public float get(long key) {
+      final int base = slot(key);
+      final long stamp = table.get(base);
+      if (stamp != 0 && (stamp & 1) == 0 && table.get(base + 1) == key) {
+        final long bits = table.get(base + 2);
+        if (table.get(base) == stamp) {
+          return Float.intBitsToFloat((int) bits);
+        }
+      }
+      return Float.NaN;
+    }
+
+    public float put(long key, float value) {
+      final int base = slot(key);
+      final long stamp = table.get(base);
+      if ((stamp & 1) == 0 && table.compareAndSet(base, stamp, stamp + 1)) {
+        table.set(base + 1, key);
+        table.set(base + 2, Float.floatToIntBits(value));
+        table.set(base, stamp + 2);
+      }
+      return value;
+    }
+
+    int capacity() {
+      return table.length() / SLOT_LENGTH;
+    }
+
+    private int slot(long key) {
+      return ((int) (key ^ (key >>> 32)) & mask) * SLOT_LENGTH;
+    }
+  }
+
+  /**
+   * Open addressing long key - float value table that is not thread safe. Float.NaN is returned for
+   * absent keys. Key 0 is used as empty slot marker, so it is stored as 1.
+   */
+  static final class WeightTable implements FloatTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] keys;
+    private float[] values;
+    private int size;
+    private int threshold;
+    private int mask;
+
+    WeightTable() {
+      this(INITIAL_CAPACITY);
+    }
+
+    WeightTable(int capacity) {
+      int k = 1;
+      while (k < capacity) {
+        k <<= 1;
+      }
+      keys = new long[k];
+      values = new float[k];
+      mask = k - 1;
+      threshold = k / 2;
+    }
+
+    public float get(long key) {
+      key = key == 0 ? 1 : key;
+      int slot = slot(key);
+      while (true) {
+        long k = keys[slot];
+        if (k == key) {
+          return values[slot];
+        }
+        if (k == 0) {
+          return Float.NaN;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    public float put(long key, float value) {
+      key = key == 0 ? 1 : key;
+      if (size == threshold) {
+        expand();
+      }
+      int slot = slot(key);
+      while (keys[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      if (keys[slot] == 0) {
+        keys[slot] = key;
+        size++;
+      }
+      values[slot] = value;
+      return value;
+    }
+
+    int size() {
+      return size;
+    }
+
+    private int slot(long key) {
+      return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void expand() {
+      long[] oldKeys = keys;
+      float[] oldValues = values;
+      keys = new long[oldKeys.length * 2];
+      values = new float[oldKeys.length * 2];
+      mask = keys.length - 1;
+      threshold = keys.length / 2;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int slot = slot(oldKeys[i]);
+          while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package zemberek.morphology.ambiguity;
+
+import zemberek.core.data.WeightLookup;
+
+/**
+ * Feature weights keyed by 64 bit hashes of feature Strings. Keys and values are kept in primitive
+ * arrays with open addressing. This is used during training instead of String keyed Weights. It is
+ * not thread safe.
+ */
+class HashedWeights implements WeightLookup {
+
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  // key 0 is the empty slot marker, so it is stored as 1.
+  private long[] keys;
+  private float[] values;
+  private int size;
+  private int threshold;
+  private int mask;
+
+  HashedWeights() {
+    this(INITIAL_CAPACITY);
+  }
+
+  HashedWeights(int capacity) {
+    int k = 1;
+    while (k < capacity) {
+      k <<= 1;
+    }
+    keys = new long[k];
+    values = new float[k];
+    mask = k - 1;
+    threshold = k / 2;
+  }
+
+  static long featureHash(String feature) {
+    long h = FeatureHashingDecoder.mix(FeatureHashingDecoder.hash(feature));
+    return h == 0 ? 1 : h;
+  }
+
+  @Override
+  public float get(String feature) {
+    return get(featureHash(feature));
+  }
+
+  /**
+   * Returns the weight of the key, 0 if key does not exist.
+   */
+  float get(long key) {
+    int slot = locate(key);
+    return slot < 0 ? 0 : values[slot];
+  }
+
+  void increment(long key, float amount) {
+    int slot = locate(key);
+    if (slot >= 0) {
+      values[slot] += amount;
+      return;
+    }
+    if (size == threshold) {
+      expand();
+      slot = locate(key);
+    }
+    slot = -slot - 1;
+    keys[slot] = key;
+    values[slot] = amount;
+    size++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  HashedWeights copy() {
+    HashedWeights copy = new HashedWeights(1);
+    copy.keys = keys.clone();
+    copy.values = values.clone();
+    copy.size = size;
+    copy.threshold = threshold;
+    copy.mask = mask;
+    return copy;
+  }
+
+  void forEach(EntryConsumer consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  interface EntryConsumer {
+
+    void accept(long key, float value);
+  }
+
+  // returns slot index if key exists, otherwise -(empty slot index)-1
+  private int locate(long key) {
+    int slot = (int) key & mask;
+    while (true) {
+      long k = keys[slot];
+      if (k == key) {
+        return slot;
+      }
+      if (k == 0) {
+        return -slot - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void expand() {
+    long[] oldKeys = keys;
+    float[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new float[oldKeys.length * 2];
+    mask = keys.length - 1;
+    threshold = keys.length / 2;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = -locate(oldKeys[i]) - 1;
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
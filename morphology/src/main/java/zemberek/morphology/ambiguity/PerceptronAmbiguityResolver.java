@@ -1,12 +1,15 @@
 package zemberek.morphology.ambiguity;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import zemberek.core.collections.IntValueMap;
 import zemberek.core.data.CompressedWeights;
 import zemberek.core.data.WeightLookup;
@@ -40,6 +43,10 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
     this.decoder = new Decoder(averagedModel, extractor);
   }
 
+  PerceptronAmbiguityResolver(Decoder decoder) {
+    this.decoder = decoder;
+  }
+
   WeightLookup getModel() {
     return decoder.model;
   }
@@ -49,6 +56,15 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
   }
 
   public static PerceptronAmbiguityResolver fromModelFile(Path modelFile) throws IOException {
+    return fromModelFile(modelFile, FeatureHashingDecoder.DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Loads the model and uses trigram score and feature weight caches with given size. Caches are
+   * shared by all threads that use this resolver. If cacheSize is 0, caches are not used.
+   */
+  public static PerceptronAmbiguityResolver fromModelFile(Path modelFile, int cacheSize)
+      throws IOException {
 
     WeightLookup lookup;
     if (CompressedWeights.isCompressed(modelFile)) {
@@ -56,11 +72,19 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
     } else {
       lookup = Weights.loadFromFile(modelFile);
     }
-    FeatureExtractor extractor = new FeatureExtractor(false);
-    return new PerceptronAmbiguityResolver(lookup, extractor);
+    return new PerceptronAmbiguityResolver(new FeatureHashingDecoder(lookup, cacheSize));
   }
 
   public static PerceptronAmbiguityResolver fromResource(String resourcePath) throws IOException {
+    return fromResource(resourcePath, FeatureHashingDecoder.DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Loads the model and uses trigram score and feature weight caches with given size. Caches are
+   * shared by all threads that use this resolver. If cacheSize is 0, caches are not used.
+   */
+  public static PerceptronAmbiguityResolver fromResource(String resourcePath, int cacheSize)
+      throws IOException {
 
     WeightLookup lookup;
     if (CompressedWeights.isCompressed(resourcePath)) {
@@ -68,8 +92,59 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
     } else {
       lookup = Weights.loadFromResource(resourcePath);
     }
-    FeatureExtractor extractor = new FeatureExtractor(false);
-    return new PerceptronAmbiguityResolver(lookup, extractor);
+    return new PerceptronAmbiguityResolver(new FeatureHashingDecoder(lookup, cacheSize));
+  }
+
+  /**
+   * Limits the amount of hypotheses kept after each word during decoding. Hypotheses with the
+   * highest scores are kept. By default there is no limit, which means an exact search whose
+   * cost grows with the product of the analysis counts of consecutive words. Smaller values bound
+   * the worst case decoding time of sentences with many ambiguous words but may change results.
+   */
+  public void setBeamSize(int beamSize) {
+    if (beamSize < 1) {
+      throw new IllegalArgumentException("Beam size must be positive. But it is " + beamSize);
+    }
+    decoder.beamSize = beamSize;
+  }
+
+  /**
+   * Hypotheses with scores lower than [best hypothesis score - scoreRange] are removed after each
+   * word during decoding. By default there is no limit.
+   */
+  public void setBeamScoreRange(float scoreRange) {
+    if (scoreRange < 0 || Float.isNaN(scoreRange)) {
+      throw new IllegalArgumentException("Score range must be non negative. But it is " + scoreRange);
+    }
+    decoder.beamScoreRange = scoreRange;
+  }
+
+  /**
+   * Returns the amount of sentences decoded by this resolver.
+   */
+  public long decodedSentenceCount() {
+    return decoder.sentenceCount.sum();
+  }
+
+  /**
+   * Returns the total amount of hypotheses scored by this resolver.
+   */
+  public long scoredHypothesisCount() {
+    return decoder.hypothesisCount.sum();
+  }
+
+  /**
+   * Returns the total amount of hypotheses removed by beam size and score range limits.
+   */
+  public long prunedHypothesisCount() {
+    return decoder.prunedHypothesisCount.sum();
+  }
+
+  /**
+   * Returns the largest amount of hypotheses scored for a single sentence.
+   */
+  public long maxSentenceHypothesisCount() {
+    return decoder.maxSentenceHypothesisCount.get();
   }
 
   @Override
@@ -117,13 +192,22 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
 
   static class FeatureExtractor {
 
+    static final int DEFAULT_CACHE_SIZE = 200_000;
+
     boolean useCache;
 
-    ConcurrentHashMap<SingleAnalysis[], IntValueMap<String>> featureCache =
-        new ConcurrentHashMap<>();
+    // keys are content signatures of analysis trigrams. See FeatureHashingDecoder.signature
+    Cache<Long, IntValueMap<String>> featureCache;
 
     FeatureExtractor(boolean useCache) {
+      this(useCache, DEFAULT_CACHE_SIZE);
+    }
+
+    FeatureExtractor(boolean useCache, int cacheSize) {
       this.useCache = useCache;
+      if (useCache) {
+        featureCache = Caffeine.newBuilder().maximumSize(cacheSize).build();
+      }
     }
 
     // This is used for training. Extracts feature counts from current best analysis sequence.
@@ -148,8 +232,13 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
 
     IntValueMap<String> extractFromTrigram(SingleAnalysis[] trigram) {
 
+      long key = 0;
       if (useCache) {
-        IntValueMap<String> cached = featureCache.get(trigram);
+        key = FeatureHashingDecoder.trigramKey(
+            FeatureHashingDecoder.signature(trigram[0]),
+            FeatureHashingDecoder.signature(trigram[1]),
+            FeatureHashingDecoder.signature(trigram[2]));
+        IntValueMap<String> cached = featureCache.getIfPresent(key);
         if (cached != null) {
           return cached;
         }
@@ -225,14 +314,14 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
       }
 */
       if (useCache) {
-        featureCache.put(trigram, feats);
+        featureCache.put(key, feats);
       }
       return feats;
     }
   }
 
-  private static final SingleAnalysis sentenceBegin = SingleAnalysis.unknown("<s>");
-  private static final SingleAnalysis sentenceEnd = SingleAnalysis.unknown("</s>");
+  static final SingleAnalysis sentenceBegin = SingleAnalysis.unknown("<s>");
+  static final SingleAnalysis sentenceEnd = SingleAnalysis.unknown("</s>");
 
   /**
    * Decoder finds the best path from multiple word analyses using Viterbi search algorithm.
@@ -242,18 +331,63 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
     WeightLookup model;
     FeatureExtractor extractor;
 
+    // beam limits. Values are read once per sentence.
+    volatile int beamSize = Integer.MAX_VALUE;
+    volatile float beamScoreRange = Float.POSITIVE_INFINITY;
+
+    final LongAdder sentenceCount = new LongAdder();
+    final LongAdder hypothesisCount = new LongAdder();
+    final LongAdder prunedHypothesisCount = new LongAdder();
+    final LongAccumulator maxSentenceHypothesisCount = new LongAccumulator(Math::max, 0);
+
     Decoder(WeightLookup model,
         FeatureExtractor extractor) {
       this.model = model;
       this.extractor = extractor;
     }
 
+    /**
+     * Applies beam limits to the list. Returns the list itself if limits are not set.
+     */
+    <T extends Hypothesis> ActiveList<T> prune(
+        ActiveList<T> list, int beamSize, float beamScoreRange) {
+      if (list.size() <= beamSize && beamScoreRange == Float.POSITIVE_INFINITY) {
+        return list;
+      }
+      return list.prune(beamSize, beamScoreRange);
+    }
+
+    DecodeResult result(Hypothesis best, int hypotheses, int pruned) {
+      float bestScore = best.score;
+      List<SingleAnalysis> result = Lists.newArrayList();
+
+      // backtrack. from end to begin, we add words from Hypotheses.
+      while (best.previous != null) {
+        result.add(best.current);
+        best = best.previous;
+      }
+
+      // because we collect from end to begin, reverse is required.
+      Collections.reverse(result);
+
+      sentenceCount.increment();
+      hypothesisCount.add(hypotheses);
+      prunedHypothesisCount.add(pruned);
+      maxSentenceHypothesisCount.accumulate(hypotheses);
+      return new DecodeResult(result, bestScore, hypotheses, pruned);
+    }
+
     DecodeResult bestPath(List<WordAnalysis> sentence) {
 
       if (sentence.size() == 0) {
         throw new IllegalArgumentException("bestPath cannot be called with empty sentence.");
       }
 
+      int beamSize = this.beamSize;
+      float beamScoreRange = this.beamScoreRange;
+      int hypotheses = 0;
+      int pruned = 0;
+
       // holds the current active paths. initially it contains a single empty Hypothesis.
       ActiveList<Hypothesis> currentList = new ActiveList<>();
       currentList.add(new Hypothesis(sentenceBegin, sentenceBegin, null, 0));
@@ -288,9 +422,11 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
                 h,
                 h.score + trigramScore);
             nextList.add(newHyp);
+            hypotheses++;
           }
         }
-        currentList = nextList;
+        currentList = prune(nextList, beamSize, beamScoreRange);
+        pruned += nextList.size() - currentList.size();
       }
 
       // score for sentence end. No need to create new hypotheses.
@@ -305,19 +441,7 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
         h.score += trigramScore;
       }
 
-      Hypothesis best = currentList.getBest();
-      float bestScore = best.score;
-      List<SingleAnalysis> result = Lists.newArrayList();
-
-      // backtrack. from end to begin, we add words from Hypotheses.
-      while (best.previous != null) {
-        result.add(best.current);
-        best = best.previous;
-      }
-
-      // because we collect from end to begin, reverse is required.
-      Collections.reverse(result);
-      return new DecodeResult(result, bestScore);
+      return result(currentList.getBest(), hypotheses, pruned);
     }
   }
 
@@ -325,11 +449,21 @@ public class PerceptronAmbiguityResolver implements AmbiguityResolver {
 
     List<SingleAnalysis> bestParse;
     float score;
+    // amount of hypotheses scored and removed by beam limits during decoding.
+    int hypothesisCount;
+    int prunedCount;
 
-    private DecodeResult(List<SingleAnalysis> bestParse, float score) {
+    DecodeResult(List<SingleAnalysis> bestParse, float score) {
       this.bestParse = bestParse;
       this.score = score;
     }
+
+    DecodeResult(List<SingleAnalysis> bestParse, float score, int hypothesisCount,
+        int prunedCount) {
+      this(bestParse, score);
+      this.hypothesisCount = hypothesisCount;
+      this.prunedCount = prunedCount;
+    }
   }
 
   static class Hypothesis implements Scorable {
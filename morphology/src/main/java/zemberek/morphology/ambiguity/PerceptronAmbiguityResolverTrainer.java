@@ -12,6 +12,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import zemberek.core.collections.IntValueMap;
@@ -111,6 +116,134 @@ public class PerceptronAmbiguityResolverTrainer {
     return train(trainingSet, devSet, iterationCount);
   }
 
+  /**
+   * Trains the model with multiple threads using iterative parameter mixing. In each iteration
+   * training set is shuffled and split into `threadCount` shards. Each shard is trained in parallel
+   * starting from the mixed weights of the previous iteration. Then shard weights are averaged to
+   * obtain the new mixed weights. Averaged weights of shards are accumulated over iterations and
+   * their mean is used as the final model.
+   * <p>
+   * During training, features are kept in primitive hash tables keyed by 64 bit hashes of feature
+   * Strings and decoding is done with {@link FeatureHashingDecoder}. Results are deterministic for
+   * the same data set and thread count. Generated model can be saved the same way as the model
+   * from {@link #train(DataSet, DataSet, int)}.
+   */
+  public PerceptronAmbiguityResolver trainParallel(
+      DataSet trainingSet,
+      DataSet devSet,
+      int iterationCount,
+      int threadCount) throws InterruptedException, ExecutionException {
+
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Thread count must be positive. But it is " + threadCount);
+    }
+    // feature Strings are only needed when generating the final model.
+    Map<Long, String> featureNames = new ConcurrentHashMap<>();
+    HashedWeights mixed = new HashedWeights();
+    HashedWeights averagedSum = new HashedWeights();
+
+    ExecutorService service = Executors.newFixedThreadPool(threadCount);
+    try {
+      for (int i = 0; i < iterationCount; i++) {
+        Log.info("Iteration:" + i);
+        Stopwatch sw = Stopwatch.createStarted();
+        trainingSet.shuffle();
+        List<SentenceAnalysis> sentences = trainingSet.sentences;
+        int shardCount = Math.max(1, Math.min(threadCount, sentences.size()));
+
+        List<Future<HashedWeights[]>> futures = new ArrayList<>(shardCount);
+        for (int j = 0; j < shardCount; j++) {
+          List<SentenceAnalysis> shard = sentences.subList(
+              j * sentences.size() / shardCount, (j + 1) * sentences.size() / shardCount);
+          HashedWeights start = mixed.copy();
+          futures.add(service.submit(() -> trainShard(shard, start, featureNames)));
+        }
+
+        // shard results are combined in shard order so that results are deterministic.
+        HashedWeights nextMixed = new HashedWeights(mixed.size() * 2);
+        float shardWeight = 1f / shardCount;
+        for (Future<HashedWeights[]> future : futures) {
+          HashedWeights[] shardResult = future.get();
+          shardResult[0].forEach((k, v) -> nextMixed.increment(k, v * shardWeight));
+          shardResult[1].forEach((k, v) -> averagedSum.increment(k, v * shardWeight));
+        }
+        mixed = nextMixed;
+        Log.info("Iteration %d finished in %d ms. Feature count = %d", i,
+            sw.elapsed(TimeUnit.MILLISECONDS), mixed.size());
+
+        Log.info("Testing development set.");
+        Weights current = toWeights(averagedSum, 1f / (i + 1), featureNames);
+        test(devSet, new PerceptronAmbiguityResolver(current, new FeatureExtractor(false)));
+      }
+    } finally {
+      service.shutdown();
+    }
+    Weights result = toWeights(averagedSum, 1f / Math.max(1, iterationCount), featureNames);
+    return new PerceptronAmbiguityResolver(result, new FeatureExtractor(false));
+  }
+
+  /**
+   * Trains a perceptron for the shard starting from given weights.
+   *
+   * @return final weights and averaged weights of the shard.
+   */
+  private HashedWeights[] trainShard(
+      List<SentenceAnalysis> shard,
+      HashedWeights weights,
+      Map<Long, String> featureNames) {
+
+    FeatureExtractor extractor = new FeatureExtractor(false);
+    // score cache must not be used as weights change after each update.
+    FeatureHashingDecoder decoder = new FeatureHashingDecoder(weights, 0);
+    // accumulates update * example index for computing averaged weights lazily.
+    HashedWeights updates = new HashedWeights();
+    int c = 1;
+    for (SentenceAnalysis sentence : shard) {
+      if (sentence.size() == 0) {
+        continue;
+      }
+      DecodeResult result = decoder.bestPath(sentence.ambiguousAnalysis());
+      if (!sentence.bestAnalysis().equals(result.bestParse)) {
+        IntValueMap<String> correctFeatures =
+            extractor.extractFeatureCounts(sentence.bestAnalysis());
+        IntValueMap<String> bestFeatures =
+            extractor.extractFeatureCounts(result.bestParse);
+        Set<String> keySet = Sets.newHashSet();
+        keySet.addAll(correctFeatures.getKeyList());
+        keySet.addAll(bestFeatures.getKeyList());
+        for (String feat : keySet) {
+          int delta = correctFeatures.get(feat) - bestFeatures.get(feat);
+          if (delta == 0) {
+            continue;
+          }
+          long key = HashedWeights.featureHash(feat);
+          featureNames.putIfAbsent(key, feat);
+          weights.increment(key, delta);
+          updates.increment(key, (float) c * delta);
+        }
+      }
+      c++;
+    }
+    HashedWeights averaged = weights.copy();
+    float count = c;
+    updates.forEach((k, v) -> averaged.increment(k, -v / count));
+    return new HashedWeights[]{weights, averaged};
+  }
+
+  private Weights toWeights(
+      HashedWeights hashedWeights,
+      float scale,
+      Map<Long, String> featureNames) {
+    Weights weights = new Weights();
+    hashedWeights.forEach((k, v) -> {
+      float w = v * scale;
+      if (Math.abs(w) > minPruneWeight) {
+        weights.put(featureNames.get(k), w);
+      }
+    });
+    return weights;
+  }
+
   private void updateModel(
       IntValueMap<String> correctFeatures,
       IntValueMap<String> bestFeatures,
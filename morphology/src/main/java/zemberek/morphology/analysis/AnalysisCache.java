@@ -5,9 +5,12 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import zemberek.core.logging.Log;
 import zemberek.core.text.TextIO;
@@ -15,6 +18,10 @@ import zemberek.tokenization.Token;
 
 /**
  * A simple analysis cache. Can be shared between threads.
+ * <p>
+ * Static cache contains analyses of the most frequent words and never changes after
+ * initialization. Dynamic cache size can be limited either by entry count or by approximate
+ * memory usage of the cached analyses.
  */
 public class AnalysisCache {
 
@@ -26,23 +33,43 @@ public class AnalysisCache {
   private static final String MOST_USED_WORDS_FILE = "/tr/first-10K";
   private ConcurrentHashMap<String, WordAnalysis> staticCache;
   private boolean staticCacheInitialized = false;
-  private long staticCacheHits;
-  private long staticCacheMiss;
+  private final LongAdder staticCacheHits = new LongAdder();
+  private final LongAdder staticCacheMiss = new LongAdder();
   private Cache<String, WordAnalysis> dynamicCache;
   private boolean staticCacheDisabled;
   private boolean dynamicCacheDisabled;
+  private volatile PersistentAnalysisCache persistentCache;
+  private final int staticCacheSize;
+  private final Path staticCacheWordsPath;
+  private final boolean compactAnalyses;
 
   AnalysisCache(Builder builder) {
 
     this.dynamicCacheDisabled = builder._disableDynamicCache;
     this.staticCacheDisabled = builder._disableStaticCache;
+    this.staticCacheSize = builder._staticCacheSize;
+    this.staticCacheWordsPath = builder._staticCacheWordsPath;
+    this.compactAnalyses = builder._compactAnalyses;
 
-    dynamicCache = dynamicCacheDisabled ? null : Caffeine.newBuilder()
-        .recordStats()
-        .initialCapacity(builder._dynamicCacheInitialSize)
-        .maximumSize(builder._dynamicCacheMaxSize)
-        .build();
-    staticCache = staticCacheDisabled ? null : new ConcurrentHashMap<>(STATIC_CACHE_CAPACITY);
+    if (dynamicCacheDisabled) {
+      dynamicCache = null;
+    } else if (builder._dynamicCache != null) {
+      dynamicCache = builder._dynamicCache;
+    } else if (builder._dynamicCacheMaxBytes > 0) {
+      dynamicCache = Caffeine.newBuilder()
+          .recordStats()
+          .initialCapacity(builder._dynamicCacheInitialSize)
+          .maximumWeight(builder._dynamicCacheMaxBytes)
+          .weigher(AnalysisCache::estimateBytes)
+          .build();
+    } else {
+      dynamicCache = Caffeine.newBuilder()
+          .recordStats()
+          .initialCapacity(builder._dynamicCacheInitialSize)
+          .maximumSize(builder._dynamicCacheMaxSize)
+          .build();
+    }
+    staticCache = staticCacheDisabled ? null : new ConcurrentHashMap<>(staticCacheSize);
   }
 
   public static Builder builder() {
@@ -52,10 +79,14 @@ public class AnalysisCache {
   public static class Builder {
 
     int _staticCacheSize = STATIC_CACHE_CAPACITY;
+    Path _staticCacheWordsPath;
     int _dynamicCacheInitialSize = DEFAULT_INITIAL_DYNAMIC_CACHE_CAPACITY;
     int _dynamicCacheMaxSize = DEFAULT_MAX_DYNAMIC_CACHE_CAPACITY;
+    long _dynamicCacheMaxBytes = 0;
+    Cache<String, WordAnalysis> _dynamicCache;
     boolean _disableStaticCache = false;
     boolean _disableDynamicCache = false;
+    boolean _compactAnalyses = false;
 
     public Builder staticCacheSize(int staticCacheSize) {
       Preconditions.checkArgument(staticCacheSize >= 0,
@@ -64,6 +95,16 @@ public class AnalysisCache {
       return this;
     }
 
+    /**
+     * Sets the word list file used for initializing the static cache. File should contain one
+     * word per line, sorted by frequency. First staticCacheSize words are used. If not set,
+     * most frequent words list in resources is used.
+     */
+    public Builder staticCacheWords(Path wordListPath) {
+      this._staticCacheWordsPath = wordListPath;
+      return this;
+    }
+
     public Builder dynamicCacheSize(int initial, int max) {
       Preconditions.checkArgument(initial >= 0,
           "Dynamic cache initial size cannot be negative. But it is %d", initial);
@@ -77,6 +118,36 @@ public class AnalysisCache {
       return this;
     }
 
+    /**
+     * Limits the dynamic cache by approximate memory usage of cached analyses instead of entry
+     * count. Overrides the maximum size given with dynamicCacheSize.
+     */
+    public Builder dynamicCacheMaxBytes(long maxBytes) {
+      Preconditions.checkArgument(maxBytes > 0,
+          "Dynamic cache byte limit must be positive. But it is %d", maxBytes);
+      this._dynamicCacheMaxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * Uses the given cache as dynamic cache. This allows using a different eviction policy such
+     * as expiration. For hit rate reporting, cache should record statistics.
+     */
+    public Builder dynamicCache(Cache<String, WordAnalysis> cache) {
+      this._dynamicCache = Preconditions.checkNotNull(cache);
+      return this;
+    }
+
+    /**
+     * Analyses are stored in compact form. This reduces memory usage of cached analyses
+     * considerably, but morpheme data and groups of cached analyses are generated every time
+     * they are requested.
+     */
+    public Builder useCompactAnalyses() {
+      this._compactAnalyses = true;
+      return this;
+    }
+
     public Builder disableStaticCache() {
       this._disableStaticCache = true;
       return this;
@@ -92,6 +163,28 @@ public class AnalysisCache {
     }
   }
 
+  /**
+   * Returns an approximate heap size of a cache entry in bytes. Dictionary items and morphemes
+   * are shared with the lexicon so they are not counted.
+   */
+  static int estimateBytes(String input, WordAnalysis analysis) {
+    // entry, key and WordAnalysis objects
+    long bytes = 64 + stringBytes(input) + 24;
+    if (analysis.normalizedInput != null && analysis.normalizedInput != input) {
+      bytes += stringBytes(analysis.normalizedInput);
+    }
+    // result list
+    bytes += 24 + 4L * analysis.analysisCount();
+    for (SingleAnalysis single : analysis) {
+      bytes += single.estimateBytes(analysis.normalizedInput);
+    }
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
+  }
+
+  static long stringBytes(String s) {
+    return 40 + 2L * s.length();
+  }
+
   public void invalidateDynamicCache() {
     if (!dynamicCacheDisabled && dynamicCache != null) {
       dynamicCache.invalidateAll();
@@ -105,14 +198,12 @@ public class AnalysisCache {
     new Thread(() -> {
       try {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        List<String> words = TextIO.loadLinesFromResource(MOST_USED_WORDS_FILE);
+        List<String> words = loadStaticCacheWords();
         Log.debug("File read in %d ms.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-        int size = Math.min(STATIC_CACHE_CAPACITY, words.size());
-        for (int i = 0; i < size; i++) {
-          String word = words.get(i);
-          staticCache.put(word, analysisProvider.apply(word));
+        for (String word : words) {
+          staticCache.put(word, compactIfNeeded(analysisProvider.apply(word)));
         }
-        Log.debug("Static cache initialized with %d most frequent words", size);
+        Log.debug("Static cache initialized with %d most frequent words", words.size());
         Log.debug("Initialization time: %d ms.", stopwatch.elapsed(TimeUnit.MILLISECONDS));
       } catch (IOException e) {
         Log.error("Could not read most frequent words list, static cache is disabled.");
@@ -122,49 +213,170 @@ public class AnalysisCache {
     staticCacheInitialized = true;
   }
 
+  /**
+   * Initializes the static cache with already available analyses, such as the ones loaded from a
+   * morphology snapshot. Unlike initializeStaticCache(Function), this runs in calling thread.
+   */
+  public synchronized void initializeStaticCache(Map<String, WordAnalysis> analyses) {
+    if (staticCacheDisabled || staticCacheInitialized) {
+      return;
+    }
+    for (Map.Entry<String, WordAnalysis> entry : analyses.entrySet()) {
+      staticCache.put(entry.getKey(), compactIfNeeded(entry.getValue()));
+    }
+    staticCacheInitialized = true;
+    Log.debug("Static cache initialized with %d analyses.", analyses.size());
+  }
+
+  /**
+   * Returns the default most frequent words that are used for initializing the static cache.
+   */
+  public static List<String> staticCacheWords() throws IOException {
+    List<String> words = TextIO.loadLinesFromResource(MOST_USED_WORDS_FILE);
+    return words.subList(0, Math.min(STATIC_CACHE_CAPACITY, words.size()));
+  }
+
+  /**
+   * Returns the words that this cache uses for initializing the static cache.
+   */
+  public List<String> loadStaticCacheWords() throws IOException {
+    List<String> words = staticCacheWordsPath == null ?
+        TextIO.loadLinesFromResource(MOST_USED_WORDS_FILE) :
+        TextIO.loadLines(staticCacheWordsPath);
+    return words.subList(0, Math.min(staticCacheSize, words.size()));
+  }
+
+  /**
+   * Sets a persistent cache that is used as second level cache for dynamic cache misses. Analyses
+   * that are not found in it are added after they are generated. Can be null.
+   */
+  public void setPersistentCache(PersistentAnalysisCache persistentCache) {
+    this.persistentCache = persistentCache;
+  }
+
+  public PersistentAnalysisCache getPersistentCache() {
+    return persistentCache;
+  }
+
+  private <T> WordAnalysis loadOrAnalyze(
+      String key,
+      T input,
+      Function<T, WordAnalysis> analysisProvider) {
+    PersistentAnalysisCache secondLevel = persistentCache;
+    if (secondLevel == null) {
+      return analysisProvider.apply(input);
+    }
+    WordAnalysis analysis = secondLevel.get(key);
+    if (analysis == null) {
+      analysis = analysisProvider.apply(input);
+      secondLevel.put(key, analysis);
+    }
+    return analysis;
+  }
+
+  private WordAnalysis compactIfNeeded(WordAnalysis analysis) {
+    return compactAnalyses ? analysis.compact() : analysis;
+  }
+
   public WordAnalysis getAnalysis(String input, Function<String, WordAnalysis> analysisProvider) {
 
     WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(input);
     if (analysis != null) {
-      staticCacheHits++;
+      staticCacheHits.increment();
       return analysis;
     }
-    staticCacheMiss++;
+    staticCacheMiss.increment();
     if (dynamicCacheDisabled) {
-      return analysisProvider.apply(input);
+      return loadOrAnalyze(input, input, analysisProvider);
     } else {
-      return dynamicCache.get(input, analysisProvider);
+      return dynamicCache.get(input,
+          k -> compactIfNeeded(loadOrAnalyze(k, k, analysisProvider)));
     }
   }
 
   public WordAnalysis getAnalysis(Token input, Function<Token, WordAnalysis> analysisProvider) {
     WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(input.getText());
     if (analysis != null) {
-      staticCacheHits++;
+      staticCacheHits.increment();
       return analysis;
     }
-    staticCacheMiss++;
+    staticCacheMiss.increment();
     if (dynamicCacheDisabled) {
-      return analysisProvider.apply(input);
+      return loadOrAnalyze(input.getText(), input, analysisProvider);
     } else {
-      WordAnalysis a = dynamicCache.getIfPresent(input.getText());
-      if (a == null) {
-        a = analysisProvider.apply(input);
-        dynamicCache.put(input.getText(), a);
+      return dynamicCache.get(input.getText(),
+          k -> compactIfNeeded(loadOrAnalyze(k, input, analysisProvider)));
+    }
+  }
+
+  /**
+   * Returns the cached analysis of the input if it exists in static, dynamic or persistent cache.
+   * Otherwise returns null. Does not trigger an analysis.
+   */
+  public WordAnalysis getIfPresent(String input) {
+    WordAnalysis analysis = staticCacheDisabled ? null : staticCache.get(input);
+    if (analysis != null) {
+      staticCacheHits.increment();
+      return analysis;
+    }
+    staticCacheMiss.increment();
+    analysis = dynamicCacheDisabled ? null : dynamicCache.getIfPresent(input);
+    PersistentAnalysisCache secondLevel = persistentCache;
+    if (analysis == null && secondLevel != null) {
+      analysis = secondLevel.get(input);
+      if (analysis != null && !dynamicCacheDisabled) {
+        analysis = compactIfNeeded(analysis);
+        dynamicCache.put(input, analysis);
       }
-      return a;
+    }
+    return analysis;
+  }
+
+  /**
+   * Puts an analysis result to the dynamic and persistent caches. If they are disabled, it does
+   * nothing.
+   */
+  public void put(String input, WordAnalysis analysis) {
+    if (!dynamicCacheDisabled) {
+      dynamicCache.put(input, compactIfNeeded(analysis));
+    }
+    PersistentAnalysisCache secondLevel = persistentCache;
+    if (secondLevel != null) {
+      secondLevel.put(input, analysis);
     }
   }
 
+  public long staticCacheHitCount() {
+    return staticCacheHits.sum();
+  }
+
+  public long staticCacheMissCount() {
+    return staticCacheMiss.sum();
+  }
+
+  /**
+   * Returns approximate entry count of the dynamic cache.
+   */
+  public long dynamicCacheSize() {
+    return dynamicCacheDisabled ? 0 : dynamicCache.estimatedSize();
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    long total = staticCacheHits + staticCacheMiss;
-    if (total > 0) {
+    long hits = staticCacheHits.sum();
+    long total = hits + staticCacheMiss.sum();
+    if (total > 0 && !staticCacheDisabled) {
       sb.append(String.format("Static cache(size: %d) Hit rate: %.3f%n",
-          staticCache.size(), 1.0 * (staticCacheHits) / (staticCacheHits + staticCacheMiss)));
+          staticCache.size(), 1.0 * hits / total));
+    }
+    if (!dynamicCacheDisabled) {
+      sb.append(String.format("Dynamic cache(size: %d) hit rate: %.3f ",
+          dynamicCache.estimatedSize(), dynamicCache.stats().hitRate()));
+    }
+    if (persistentCache != null) {
+      sb.append(String.format("%n")).append(persistentCache);
     }
-    sb.append(String.format("Dynamic cache hit rate: %.3f ", dynamicCache.stats().hitRate()));
     return sb.toString();
   }
 }
@@ -0,0 +1,129 @@
+package zemberek.morphology.analysis;
+
+import static zemberek.morphology.lexicon.DictionaryItemCodec.readString;
+import static zemberek.morphology.lexicon.DictionaryItemCodec.writeString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import zemberek.morphology.analysis.SingleAnalysis.MorphemeData;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.DictionaryItemCodec;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.Morpheme;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * Converts WordAnalysis objects to bytes and back. Lexicon items are written with their ids and
+ * morphemes are written with their morpheme ids, so encoded data can be decoded by another
+ * process that uses the same lexicon. Items that are not in the lexicon, such as the ones
+ * generated for proper nouns, are written with all their fields using {@link DictionaryItemCodec},
+ * so enum definitions must be the same as well.
+ */
+class AnalysisCodec {
+
+  private static final int LEXICON_ITEM = 0;
+  private static final int INLINE_ITEM = 1;
+  private static final int UNKNOWN_ITEM = 2;
+
+  private final RootLexicon lexicon;
+
+  AnalysisCodec(RootLexicon lexicon) {
+    this.lexicon = lexicon;
+  }
+
+  byte[] encode(WordAnalysis analysis) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(128);
+    try (DataOutputStream dos = new DataOutputStream(bos)) {
+      writeString(dos, analysis.getInput());
+      String normalized = analysis.getNormalizedInput();
+      writeString(dos, normalized == null ? analysis.getInput() : normalized);
+      dos.writeShort(analysis.analysisCount());
+      for (SingleAnalysis single : analysis) {
+        writeItem(dos, single.getDictionaryItem());
+        List<MorphemeData> morphemeDataList = single.getMorphemeDataList();
+        dos.writeShort(morphemeDataList.size());
+        for (MorphemeData morphemeData : morphemeDataList) {
+          writeString(dos, morphemeData.morpheme.id);
+          writeString(dos, morphemeData.surface);
+        }
+        int[] groupBoundaries = single.getGroupBoundaries();
+        dos.writeShort(groupBoundaries.length);
+        for (int boundary : groupBoundaries) {
+          dos.writeShort(boundary);
+        }
+      }
+    } catch (IOException e) {
+      // ByteArrayOutputStream does not throw IOException.
+      throw new IllegalStateException(e);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Decodes an analysis encoded with encode method. Throws IllegalStateException if data refers
+   * to items or morphemes that does not exist.
+   */
+  WordAnalysis decode(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    String input = readString(buffer);
+    String normalized = readString(buffer);
+    int analysisCount = buffer.getShort();
+    List<SingleAnalysis> analyses = new ArrayList<>(analysisCount);
+    for (int i = 0; i < analysisCount; i++) {
+      DictionaryItem item = readItem(buffer);
+      int morphemeCount = buffer.getShort();
+      List<MorphemeData> morphemeDataList = new ArrayList<>(morphemeCount);
+      for (int j = 0; j < morphemeCount; j++) {
+        Morpheme morpheme = getMorpheme(readString(buffer));
+        morphemeDataList.add(new MorphemeData(morpheme, readString(buffer)));
+      }
+      int[] groupBoundaries = new int[buffer.getShort()];
+      for (int j = 0; j < groupBoundaries.length; j++) {
+        groupBoundaries[j] = buffer.getShort();
+      }
+      analyses.add(new SingleAnalysis(item, morphemeDataList, groupBoundaries));
+    }
+    return new WordAnalysis(input, normalized, analyses);
+  }
+
+  private static Morpheme getMorpheme(String id) {
+    Morpheme morpheme = id.equals(Morpheme.UNKNOWN.id) ?
+        Morpheme.UNKNOWN : TurkishMorphotactics.getMorpheme(id);
+    if (morpheme == null) {
+      throw new IllegalStateException("Morpheme " + id + " does not exist.");
+    }
+    return morpheme;
+  }
+
+  private void writeItem(DataOutputStream dos, DictionaryItem item) throws IOException {
+    if (item.isUnknown()) {
+      dos.writeByte(UNKNOWN_ITEM);
+    } else if (lexicon.getItemById(item.id) == item) {
+      dos.writeByte(LEXICON_ITEM);
+      writeString(dos, item.id);
+    } else {
+      dos.writeByte(INLINE_ITEM);
+      DictionaryItemCodec.write(dos, item);
+    }
+  }
+
+  private DictionaryItem readItem(ByteBuffer buffer) {
+    int type = buffer.get();
+    if (type == UNKNOWN_ITEM) {
+      return DictionaryItem.UNKNOWN;
+    }
+    if (type == LEXICON_ITEM) {
+      String id = readString(buffer);
+      DictionaryItem item = lexicon.getItemById(id);
+      if (item == null) {
+        throw new IllegalStateException("Dictionary item " + id + " does not exist in lexicon.");
+      }
+      return item;
+    }
+    return DictionaryItemCodec.read(buffer);
+  }
+}
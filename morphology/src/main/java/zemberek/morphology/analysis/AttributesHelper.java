@@ -42,6 +42,23 @@ public class AttributesHelper {
       return predecessorAttrs.copy();
     }
     AttributeSet<PhoneticAttribute> attrs = new AttributeSet<>();
+    setMorphemicAttributes(seq, predecessorAttrs, attrs);
+    return attrs;
+  }
+
+  /**
+   * Same as getMorphemicAttributes(seq, predecessorAttrs) but writes the result to `attrs` instead
+   * of creating a new set. `attrs` and `predecessorAttrs` must be different instances.
+   */
+  public static void setMorphemicAttributes(
+      CharSequence seq,
+      AttributeSet<PhoneticAttribute> predecessorAttrs,
+      AttributeSet<PhoneticAttribute> attrs) {
+    if (seq.length() == 0) {
+      attrs.copyFrom(predecessorAttrs);
+      return;
+    }
+    attrs.clear();
     if (alphabet.containsVowel(seq)) {
 
       TurkicLetter last = alphabet.getLastLetter(seq);
@@ -88,7 +105,6 @@ public class AttributesHelper {
     } else {
       attrs.add(LastLetterVoiced);
     }
-    return attrs;
   }
 
 }
@@ -0,0 +1,578 @@
+package zemberek.morphology.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.RootAttribute;
+import zemberek.core.turkish.SecondaryPos;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.morphotactics.InformalTurkishMorphotactics;
+import zemberek.morphology.morphotactics.MorphemeState;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * A word analysis cache that is stored in a memory mapped file. It can be used as a second level
+ * cache behind AnalysisCache, so that analyses survive restarts and are shared between processes
+ * on the same host that use the same file.
+ * <p>
+ * File contains a header, an open addressing hash index of entry offsets and an append only data
+ * region. Entries are never removed or updated. New entries are kept in memory first and they are
+ * appended to the file in batches under an exclusive file lock, so analyzing threads do not wait
+ * for the lock. Readers do not lock. An entry is only read if it ends before the data end in the
+ * header and its checksum matches, otherwise it is treated as missing. When the data region or the
+ * index is full, new entries are not added.
+ * <p>
+ * Header contains a fingerprint of the lexicon, morphemes and analysis options. If fingerprint of
+ * the file does not match, file is cleared. Instances opened for the same file in a JVM share one
+ * mapping and file channel, channel is closed when all of them are closed.
+ */
+public class PersistentAnalysisCache implements Closeable {
+
+  private static final int MAGIC = 0x5a504143;
+  private static final int VERSION = 3;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int FINGERPRINT_OFFSET = 8;
+  private static final int SLOT_COUNT_OFFSET = 16;
+  private static final int ENTRY_COUNT_OFFSET = 20;
+  private static final int DATA_END_OFFSET = 24;
+  private static final int HEADER_SIZE = 64;
+
+  // entry: int key hash, int key length, int value length, int checksum, key bytes, value bytes.
+  private static final int ENTRY_HEADER_SIZE = 16;
+
+  // approximate average entry size, used for deciding index size.
+  private static final int BYTES_PER_SLOT = 256;
+  private static final double MAX_LOAD_FACTOR = 0.75;
+
+  // pending entries are written to the file when there are this many of them.
+  private static final int WRITE_BATCH_SIZE = 256;
+  // new entries are ignored if this many entries are waiting to be written.
+  private static final int MAX_PENDING_ENTRIES = 16 * WRITE_BATCH_SIZE;
+
+  public static final int DEFAULT_CAPACITY_BYTES = 256 * 1024 * 1024;
+
+  // files opened in this JVM, keyed by canonical path.
+  private static final Map<Path, MappedFile> OPEN_FILES = new HashMap<>();
+
+  static {
+    // analyses that are not written yet are written when JVM exits.
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      synchronized (OPEN_FILES) {
+        OPEN_FILES.values().forEach(MappedFile::flush);
+      }
+    }));
+  }
+
+  private final MappedFile file;
+  private final AnalysisCodec codec;
+  private volatile boolean closed = false;
+
+  private PersistentAnalysisCache(MappedFile file, AnalysisCodec codec) {
+    this.file = file;
+    this.codec = codec;
+  }
+
+  /**
+   * Opens a cache file with default capacity for analyses with default options.
+   */
+  public static PersistentAnalysisCache open(Path path, TurkishMorphotactics morphotactics)
+      throws IOException {
+    return open(path, morphotactics, DEFAULT_CAPACITY_BYTES);
+  }
+
+  /**
+   * Same as open(Path, TurkishMorphotactics), capacity is the file size in bytes used when file is
+   * created.
+   */
+  public static PersistentAnalysisCache open(
+      Path path,
+      TurkishMorphotactics morphotactics,
+      int capacityBytes) throws IOException {
+    return open(path, morphotactics, capacityBytes,
+        morphotactics instanceof InformalTurkishMorphotactics, false, true);
+  }
+
+  /**
+   * Opens or creates a cache file. If file exists and it is created for the same lexicon,
+   * morphemes and analysis options, its content and capacity are used. Otherwise file is created or
+   * cleared with given capacity. If file is already open in this JVM, returned instance shares it
+   * with the other instances. In that case lexicon and options must be the same, and capacity is
+   * ignored.
+   */
+  public static PersistentAnalysisCache open(
+      Path path,
+      TurkishMorphotactics morphotactics,
+      int capacityBytes,
+      boolean informalAnalysis,
+      boolean ignoreDiacriticsInAnalysis,
+      boolean useUnidentifiedTokenAnalyzer) throws IOException {
+    long fingerprint = fingerprint(morphotactics);
+    fingerprint = mix(fingerprint, informalAnalysis ? 1 : 0);
+    fingerprint = mix(fingerprint, ignoreDiacriticsInAnalysis ? 1 : 0);
+    fingerprint = mix(fingerprint, useUnidentifiedTokenAnalyzer ? 1 : 0);
+    AnalysisCodec codec = new AnalysisCodec(morphotactics.getRootLexicon());
+    MappedFile file;
+    synchronized (OPEN_FILES) {
+      Path canonicalPath = canonicalPath(path);
+      file = OPEN_FILES.get(canonicalPath);
+      if (file == null) {
+        file = MappedFile.open(canonicalPath, fingerprint, capacityBytes);
+        OPEN_FILES.put(canonicalPath, file);
+        Log.info("Persistent analysis cache %s opened with %d entries.", path, file.size());
+      } else if (file.fingerprint != fingerprint) {
+        throw new IllegalArgumentException("Persistent analysis cache " + path
+            + " is already open for a different lexicon or analysis options.");
+      }
+      file.references++;
+    }
+    return new PersistentAnalysisCache(file, codec);
+  }
+
+  private static Path canonicalPath(Path path) throws IOException {
+    if (Files.exists(path)) {
+      return path.toRealPath();
+    }
+    Path absolute = path.toAbsolutePath();
+    Path parent = absolute.getParent();
+    return parent == null ? absolute : parent.toRealPath().resolve(absolute.getFileName());
+  }
+
+  /**
+   * Returns a fingerprint of the lexicon items and morpheme graph of the morphotactics. Item
+   * order does not change the fingerprint.
+   */
+  static long fingerprint(TurkishMorphotactics morphotactics) {
+    long h = 0x9E3779B97F4A7C15L * VERSION;
+    h = mix(h, morphotactics.getClass().getName().hashCode());
+    for (Enum<?>[] values : new Enum<?>[][]{
+        PrimaryPos.values(), SecondaryPos.values(), RootAttribute.values()}) {
+      for (Enum<?> value : values) {
+        h = mix(h, value.name().hashCode());
+      }
+    }
+    // enum and object hash codes differ between processes, only string hashes are used.
+    long stateSum = 0;
+    for (MorphemeState state : morphotactics.getAllStates()) {
+      stateSum += mix(state.id.hashCode(), state.morpheme.id.hashCode());
+    }
+    long itemSum = 0;
+    for (DictionaryItem item : morphotactics.getRootLexicon()) {
+      long itemHash = mix(item.id.hashCode(), item.root.hashCode());
+      itemHash = mix(itemHash, Objects.hashCode(item.pronunciation));
+      for (RootAttribute attribute : item.attributes) {
+        itemHash = mix(itemHash, attribute.name().hashCode());
+      }
+      itemSum += itemHash;
+    }
+    return mix(mix(h, stateSum), itemSum);
+  }
+
+  private static long mix(long h, long value) {
+    h ^= value + 0x9E3779B97F4A7C15L + (h << 6) + (h >>> 2);
+    h ^= h >>> 31;
+    h *= 0x7FB5D329728EA185L;
+    return h ^ (h >>> 27);
+  }
+
+  private static int hash(byte[] key) {
+    int h = 0x811C9DC5;
+    for (byte b : key) {
+      h = (h ^ (b & 0xff)) * 0x01000193;
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private static int checksum(byte[] key, byte[] value) {
+    CRC32 crc = new CRC32();
+    crc.update(key);
+    crc.update(value);
+    return (int) crc.getValue();
+  }
+
+  public Path getPath() {
+    return file.path;
+  }
+
+  public int size() {
+    return file.size();
+  }
+
+  /**
+   * Returns the analysis of the input if it exists in the cache, otherwise returns null.
+   */
+  public WordAnalysis get(String input) {
+    if (closed) {
+      return null;
+    }
+    byte[] value = file.find(input);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return codec.decode(value);
+    } catch (RuntimeException e) {
+      Log.warn("Cannot decode cached analysis of %s from %s. Reason: %s", input, file.path,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Adds the analysis to the cache if input does not exist in it and there is enough space.
+   * Analysis may be written to the file later, in a batch with other analyses.
+   */
+  public void put(String input, WordAnalysis analysis) {
+    if (closed) {
+      return;
+    }
+    file.add(input, codec.encode(analysis));
+  }
+
+  /**
+   * Writes pending analyses to the file and writes changes to the storage device.
+   */
+  public void flush() {
+    if (!closed) {
+      file.flush();
+    }
+  }
+
+  /**
+   * Writes pending analyses and releases this instance. File is closed when all instances opened
+   * for it in this JVM are closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    synchronized (OPEN_FILES) {
+      if (--file.references > 0) {
+        file.flush();
+        return;
+      }
+      // file is closed while holding the registry lock, so that it is not opened again before its
+      // channel and file lock are released.
+      OPEN_FILES.remove(file.path);
+      file.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return file.toString();
+  }
+
+  /**
+   * A cache file and the analyses that are waiting to be written to it. Shared by all cache
+   * instances of the file in this JVM.
+   */
+  private static final class MappedFile {
+
+    final Path path;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    final long fingerprint;
+    final int slotCount;
+    final int dataStart;
+    // number of open cache instances that use this file. Guarded by OPEN_FILES.
+    int references = 0;
+
+    // encoded analyses that are not written to the file yet.
+    final ConcurrentHashMap<String, byte[]> pending = new ConcurrentHashMap<>();
+    final ReentrantLock writeLock = new ReentrantLock();
+    // end of the data written by this JVM. Written after each batch, so all entries written by
+    // this JVM before it are visible to threads that read it.
+    volatile long publishedEnd;
+    volatile boolean full = false;
+    volatile boolean closed = false;
+
+    private MappedFile(
+        Path path,
+        FileChannel channel,
+        MappedByteBuffer buffer,
+        long fingerprint) {
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+      this.fingerprint = fingerprint;
+      this.slotCount = buffer.getInt(SLOT_COUNT_OFFSET);
+      this.dataStart = HEADER_SIZE + slotCount * Long.BYTES;
+      this.publishedEnd = buffer.getLong(DATA_END_OFFSET);
+    }
+
+    static MappedFile open(Path path, long fingerprint, int capacityBytes) throws IOException {
+      FileChannel channel = FileChannel.open(path,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        MappedByteBuffer buffer;
+        FileLock lock = channel.lock();
+        try {
+          buffer = isValid(channel, fingerprint) ?
+              channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()) :
+              initialize(channel, fingerprint, capacityBytes);
+        } finally {
+          lock.release();
+        }
+        return new MappedFile(path, channel, buffer, fingerprint);
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    private static boolean isValid(FileChannel channel, long fingerprint) throws IOException {
+      if (channel.size() < HEADER_SIZE) {
+        return false;
+      }
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      channel.read(header, 0);
+      return header.getInt(MAGIC_OFFSET) == MAGIC
+          && header.getInt(VERSION_OFFSET) == VERSION
+          && header.getLong(FINGERPRINT_OFFSET) == fingerprint
+          && channel.size() >= HEADER_SIZE + header.getInt(SLOT_COUNT_OFFSET) * (long) Long.BYTES;
+    }
+
+    private static MappedByteBuffer initialize(
+        FileChannel channel,
+        long fingerprint,
+        int capacityBytes) throws IOException {
+      // file is not truncated because other processes may have mapped it.
+      long size = Math.max(channel.size(), capacityBytes);
+      if (size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Cache file cannot be larger than 2GB.");
+      }
+      int slotCount = Integer.highestOneBit(Math.max(1024, (int) size / BYTES_PER_SLOT));
+      long dataStart = HEADER_SIZE + slotCount * (long) Long.BYTES;
+      if (size <= dataStart) {
+        throw new IllegalArgumentException("Cache capacity " + size + " is too small.");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      // header is written last, with the fingerprint other processes detect that file is cleared.
+      buffer.putInt(MAGIC_OFFSET, 0);
+      for (int i = 0; i < slotCount; i++) {
+        buffer.putLong(HEADER_SIZE + i * Long.BYTES, 0);
+      }
+      buffer.putInt(VERSION_OFFSET, VERSION);
+      buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+      buffer.putInt(ENTRY_COUNT_OFFSET, 0);
+      buffer.putLong(DATA_END_OFFSET, dataStart);
+      buffer.putLong(FINGERPRINT_OFFSET, fingerprint);
+      buffer.putInt(MAGIC_OFFSET, MAGIC);
+      return buffer;
+    }
+
+    int size() {
+      return buffer.getInt(ENTRY_COUNT_OFFSET);
+    }
+
+    // File is cleared by another process that uses a different lexicon.
+    boolean isStale() {
+      return buffer.getLong(FINGERPRINT_OFFSET) != fingerprint;
+    }
+
+    // Returns the encoded analysis of the input, or null if it is not found.
+    byte[] find(String input) {
+      if (closed || isStale()) {
+        return null;
+      }
+      byte[] value = pending.get(input);
+      if (value != null) {
+        return value;
+      }
+      byte[] key = input.getBytes(StandardCharsets.UTF_8);
+      try {
+        // entries of this JVM are visible up to published end. Entries after it are written by
+        // other processes and they may not be completely visible, checksum is used for them.
+        long end = publishedEnd;
+        long fileEnd = buffer.getLong(DATA_END_OFFSET);
+        if (fileEnd > end && fileEnd <= buffer.capacity()) {
+          end = fileEnd;
+        }
+        ByteBuffer b = buffer.duplicate();
+        long found = findEntry(b, key, hash(key), end);
+        if (found <= 0) {
+          return null;
+        }
+        int offset = (int) found;
+        int valueLength = b.getInt(offset + 8);
+        int valueStart = offset + ENTRY_HEADER_SIZE + key.length;
+        if (valueLength < 0 || valueStart + (long) valueLength > end) {
+          return null;
+        }
+        value = new byte[valueLength];
+        b.position(valueStart);
+        b.get(value);
+        return checksum(key, value) == b.getInt(offset + 12) ? value : null;
+      } catch (RuntimeException e) {
+        // this may happen if file is cleared by another process while reading.
+        Log.warn("Cannot read cached analysis of %s from %s. Reason: %s", input, path,
+            e.getMessage());
+        return null;
+      }
+    }
+
+    // Returns offset of the entry with the key, or -(slot index + 1) of the empty slot for the key.
+    // If index is full or it contains an offset out of [data start, end) range, returns 0.
+    private long findEntry(ByteBuffer b, byte[] key, int keyHash, long end) {
+      int mask = slotCount - 1;
+      int slot = keyHash & mask;
+      for (int i = 0; i < slotCount; i++) {
+        long offset = b.getLong(HEADER_SIZE + slot * Long.BYTES);
+        if (offset == 0) {
+          return -(slot + 1);
+        }
+        if (offset < dataStart || offset + ENTRY_HEADER_SIZE > end) {
+          return 0;
+        }
+        if (b.getInt((int) offset) == keyHash && keyEquals(b, (int) offset, key, end)) {
+          return offset;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return 0;
+    }
+
+    private static boolean keyEquals(ByteBuffer b, int offset, byte[] key, long end) {
+      int start = offset + ENTRY_HEADER_SIZE;
+      if (b.getInt(offset + 4) != key.length || start + (long) key.length > end) {
+        return false;
+      }
+      for (int i = 0; i < key.length; i++) {
+        if (b.get(start + i) != key[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void add(String input, byte[] value) {
+      if (closed || full || pending.size() >= MAX_PENDING_ENTRIES) {
+        return;
+      }
+      pending.putIfAbsent(input, value);
+      // only one thread writes a batch, others do not wait for it.
+      if (pending.size() >= WRITE_BATCH_SIZE && writeLock.tryLock()) {
+        try {
+          writePending();
+        } finally {
+          writeLock.unlock();
+        }
+      }
+    }
+
+    void flush() {
+      writeLock.lock();
+      try {
+        writePending();
+        if (!closed) {
+          buffer.force();
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    void close() throws IOException {
+      writeLock.lock();
+      try {
+        writePending();
+        closed = true;
+        buffer.force();
+        channel.close();
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    // Appends pending entries to the file. Must be called while holding the write lock. Entries
+    // are removed from pending after they are written, or if they cannot be written.
+    private void writePending() {
+      if (closed || pending.isEmpty()) {
+        return;
+      }
+      List<Map.Entry<String, byte[]>> batch = new ArrayList<>(pending.entrySet());
+      try {
+        FileLock lock = channel.lock();
+        try {
+          if (!isStale()) {
+            append(batch);
+          }
+        } finally {
+          lock.release();
+        }
+      } catch (IOException | RuntimeException e) {
+        // OverlappingFileLockException is thrown if file is locked by another channel of this
+        // JVM. Batch is skipped in that case.
+        Log.warn("Cannot write to persistent analysis cache %s. Reason: %s", path, e);
+      }
+      for (Map.Entry<String, byte[]> entry : batch) {
+        pending.remove(entry.getKey(), entry.getValue());
+      }
+    }
+
+    private void append(List<Map.Entry<String, byte[]>> batch) {
+      ByteBuffer b = buffer.duplicate();
+      int entryCount = b.getInt(ENTRY_COUNT_OFFSET);
+      long dataEnd = b.getLong(DATA_END_OFFSET);
+      for (Map.Entry<String, byte[]> entry : batch) {
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] value = entry.getValue();
+        int keyHash = hash(key);
+        long found = findEntry(b, key, keyHash, dataEnd);
+        if (found > 0) {
+          continue;
+        }
+        long newEnd = dataEnd + ENTRY_HEADER_SIZE + key.length + value.length;
+        if (found == 0 || newEnd > b.capacity() || entryCount + 1 > slotCount * MAX_LOAD_FACTOR) {
+          Log.warn("Persistent analysis cache %s is full. New analyses will not be added.", path);
+          full = true;
+          break;
+        }
+        int offset = (int) dataEnd;
+        b.putInt(offset, keyHash);
+        b.putInt(offset + 4, key.length);
+        b.putInt(offset + 8, value.length);
+        b.putInt(offset + 12, checksum(key, value));
+        b.position(offset + ENTRY_HEADER_SIZE);
+        b.put(key);
+        b.put(value);
+        // data end is written before the index, so readers that find the entry accept its range.
+        b.putLong(DATA_END_OFFSET, newEnd);
+        int slot = (int) (-found - 1);
+        b.putLong(HEADER_SIZE + slot * Long.BYTES, dataEnd);
+        entryCount++;
+        dataEnd = newEnd;
+      }
+      b.putInt(ENTRY_COUNT_OFFSET, entryCount);
+      publishedEnd = dataEnd;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Persistent cache(path: %s, entries: %d, data used: %.1f%%)",
+          path, size(),
+          100.0 * (buffer.getLong(DATA_END_OFFSET) - dataStart) / (buffer.capacity() - dataStart));
+    }
+  }
+}
@@ -1,7 +1,7 @@
 package zemberek.morphology.analysis;
 
-import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import zemberek.core.collections.IntValueMap;
 import zemberek.core.turkish.PhoneticAttribute;
@@ -12,6 +12,7 @@ import zemberek.morphology.analysis.SurfaceTransition.TemplateTokenType;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.AttributeSet;
 import zemberek.morphology.morphotactics.CombinedCondition;
+import zemberek.morphology.morphotactics.CompiledMorphotactics;
 import zemberek.morphology.morphotactics.Condition;
 import zemberek.morphology.morphotactics.MorphemeTransition;
 import zemberek.morphology.morphotactics.StemTransition;
@@ -32,6 +33,8 @@ public class RuleBasedAnalyzer {
   private AnalysisDebugData debugData;
   private boolean asciiTolerant = false;
   private TurkishMorphotactics morphotactics;
+  // if not null, search runs on this compiled form of the morphotactics graph.
+  private CompiledMorphotactics compiled;
 
   private RuleBasedAnalyzer(TurkishMorphotactics morphotactics) {
     this.lexicon = morphotactics.getRootLexicon();
@@ -58,6 +61,24 @@ public class RuleBasedAnalyzer {
     return analyzer;
   }
 
+  /**
+   * Generates a RuleBasedAnalyzer instance that runs on a CompiledMorphotactics generated from
+   * the morphotactics. Suffix transitions are visited through flat arrays and most transition
+   * conditions are checked with bit masks. Results are same with the regular instance.
+   */
+  public static RuleBasedAnalyzer compiledInstance(TurkishMorphotactics morphotactics) {
+    return compiledInstance(morphotactics, false);
+  }
+
+  public static RuleBasedAnalyzer compiledInstance(
+      TurkishMorphotactics morphotactics,
+      boolean asciiTolerant) {
+    RuleBasedAnalyzer analyzer = RuleBasedAnalyzer.instance(morphotactics);
+    analyzer.compiled = CompiledMorphotactics.compile(morphotactics);
+    analyzer.asciiTolerant = asciiTolerant;
+    return analyzer;
+  }
+
   /**
    * Method returns an RuleBasedAnalyzer instance. But when this factory constructor is used, an
    * AnalysisDebugData object is generated after each call to generation methods. That object cen be
@@ -103,47 +124,78 @@ public class RuleBasedAnalyzer {
       debugData.candidateStemTransitions.addAll(candidates);
     }
 
-    // generate initial search paths.
-    List<SearchPath> paths = new ArrayList<>();
-    for (StemTransition candidate : candidates) {
-      int length = candidate.surface.length();
-      String tail = input.substring(length);
-      paths.add(SearchPath.initialPath(candidate, tail));
-    }
+    SearchArena arena = acquireArena();
+    try {
+      // generate initial search paths.
+      List<SearchPath> paths = arena.current;
+      for (StemTransition candidate : candidates) {
+        SearchPath path = arena.newPath();
+        path.setInitial(candidate, input, candidate.surface.length());
+        if (compiled != null) {
+          path.stateIndex = compiled.getStateIndex(candidate.to);
+          if (path.stateIndex < 0) {
+            throw new IllegalStateException(
+                "Root state of " + candidate + " does not exist in compiled morphotactics.");
+          }
+          path.rootAttributeBits = CompiledMorphotactics.rootAttributeBits(candidate.item);
+        }
+        paths.add(path);
+      }
 
-    // search graph.
-    List<SearchPath> resultPaths = search(paths);
+      // search graph.
+      List<SearchPath> resultPaths = search(arena);
 
-    // generate results from successful paths.
-    List<SingleAnalysis> result = new ArrayList<>(resultPaths.size());
-    for (SearchPath path : resultPaths) {
-      SingleAnalysis analysis = SingleAnalysis.fromSearchPath(path);
-      result.add(analysis);
-      if (debugMode) {
-        debugData.results.add(analysis);
+      // generate results from successful paths.
+      List<SingleAnalysis> result = new ArrayList<>(resultPaths.size());
+      for (SearchPath path : resultPaths) {
+        SingleAnalysis analysis = SingleAnalysis.fromSearchPath(path);
+        result.add(analysis);
+        if (debugMode) {
+          debugData.results.add(analysis);
+        }
       }
+      return result;
+    } finally {
+      arena.release();
     }
-    return result;
+  }
+
+  // In debug mode paths are kept in debug data, so they cannot be reused. Also if this thread's
+  // arena is already in use, a temporary one is created.
+  private SearchArena acquireArena() {
+    if (debugMode) {
+      return new SearchArena();
+    }
+    SearchArena arena = threadArena.get();
+    if (arena.inUse) {
+      return new SearchArena();
+    }
+    arena.inUse = true;
+    return arena;
   }
 
   // searches through morphotactics graph.
-  private List<SearchPath> search(List<SearchPath> currentPaths) {
+  private List<SearchPath> search(SearchArena arena) {
+
+    List<SearchPath> currentPaths = arena.current;
+    List<SearchPath> newPaths = arena.next;
 
     if (currentPaths.size() > 30) {
-      currentPaths = pruneCyclicPaths(currentPaths);
+      pruneCyclicPaths(currentPaths);
     }
 
-    List<SearchPath> result = new ArrayList<>(3);
+    List<SearchPath> result = arena.result;
     // new Paths are generated with matching transitions.
     while (currentPaths.size() > 0) {
 
-      List<SearchPath> allNewPaths = Lists.newArrayList();
+      newPaths.clear();
 
-      for (SearchPath path : currentPaths) {
+      for (int i = 0; i < currentPaths.size(); i++) {
+        SearchPath path = currentPaths.get(i);
 
         // if there are no more letters to consume and path can be terminated, we accept this
         // path as a correct result.
-        if (path.tail.length() == 0) {
+        if (!path.hasTail()) {
           if (path.isTerminal() &&
               !path.containsPhoneticAttribute(PhoneticAttribute.CannotTerminate)) {
             result.add(path);
@@ -158,17 +210,24 @@ public class RuleBasedAnalyzer {
         }
 
         // Creates new paths with outgoing and matching transitions.
-        List<SearchPath> newPaths = advance(path);
-        allNewPaths.addAll(newPaths);
+        int newPathStart = newPaths.size();
+        if (compiled != null) {
+          advanceCompiled(path, arena, newPaths);
+        } else {
+          advance(path, arena, newPaths);
+        }
 
         if (debugMode) {
-          if (newPaths.isEmpty()) {
+          if (newPaths.size() == newPathStart) {
             debugData.failedPaths.put(path, "No Transition");
           }
-          debugData.paths.addAll(newPaths);
+          debugData.paths.addAll(newPaths.subList(newPathStart, newPaths.size()));
         }
       }
-      currentPaths = allNewPaths;
+      // swap current and new path lists.
+      List<SearchPath> tmp = currentPaths;
+      currentPaths = newPaths;
+      newPaths = tmp;
     }
 
     if (debugMode) {
@@ -178,20 +237,20 @@ public class RuleBasedAnalyzer {
     return result;
   }
 
-  // for all allowed matching outgoing transitions, new paths are generated.
+  // for all allowed matching outgoing transitions, new paths are generated and added to newPaths.
   // Transition `conditions` are used for checking if a `search path`
   // is allowed to pass a transition.
-  private List<SearchPath> advance(SearchPath path) {
+  private void advance(SearchPath path, SearchArena arena, List<SearchPath> newPaths) {
 
-    List<SearchPath> newPaths = new ArrayList<>(2);
+    List<MorphemeTransition> outgoing = path.currentState.getOutgoing();
 
     // for all outgoing transitions.
-    for (MorphemeTransition transition : path.currentState.getOutgoing()) {
+    for (int i = 0; i < outgoing.size(); i++) {
 
-      SuffixTransition suffixTransition = (SuffixTransition) transition;
+      SuffixTransition suffixTransition = (SuffixTransition) outgoing.get(i);
 
       // if tail is empty and this transitions surface is not empty, no need to check.
-      if (path.tail.isEmpty() && suffixTransition.hasSurfaceForm()) {
+      if (!path.hasTail() && suffixTransition.hasSurfaceForm()) {
         if (debugMode) {
           debugData.rejectedTransitions.put(
               path,
@@ -207,8 +266,9 @@ public class RuleBasedAnalyzer {
       // no need to go further if generated surface form is not a prefix of the paths's tail.
       boolean tailStartsWith =
           asciiTolerant ?
-              TurkishAlphabet.INSTANCE.startsWithIgnoreDiacritics(path.tail, surface) :
-              path.tail.startsWith(surface);
+              TurkishAlphabet.INSTANCE
+                  .startsWithIgnoreDiacritics(path.input, path.tailIndex, surface) :
+              path.input.startsWith(surface, path.tailIndex);
       if (!tailStartsWith) {
         if (debugMode) {
           debugData.rejectedTransitions.put(
@@ -239,23 +299,25 @@ public class RuleBasedAnalyzer {
         continue;
       }
 
+      SearchPath p = arena.newPath();
+
       // epsilon (empty) transition. Add and continue. Use existing attributes.
       if (!suffixTransition.hasSurfaceForm()) {
-        newPaths.add(path.getCopy(
-            new SurfaceTransition("", suffixTransition),
-            path.phoneticAttributes));
+        p.setNext(path, suffixTransition, "", path.tailIndex);
+        p.phoneticAttributes.copyFrom(path.phoneticAttributes);
+        newPaths.add(p);
         continue;
       }
 
-      SurfaceTransition surfaceTransition = new SurfaceTransition(surface, suffixTransition);
+      p.setNext(path, suffixTransition, surface, path.tailIndex + surface.length());
 
       //if tail is equal to surface, no need to calculate phonetic attributes.
-      boolean tailEqualsSurface = asciiTolerant ?
-          TurkishAlphabet.INSTANCE.equalsIgnoreDiacritics(path.tail, surface)
-          : path.tail.equals(surface);
-      AttributeSet<PhoneticAttribute> attributes = tailEqualsSurface ?
-          path.phoneticAttributes.copy() :
-          AttributesHelper.getMorphemicAttributes(surface, path.phoneticAttributes);
+      AttributeSet<PhoneticAttribute> attributes = p.phoneticAttributes;
+      if (path.getTailLength() == surface.length()) {
+        attributes.copyFrom(path.phoneticAttributes);
+      } else {
+        AttributesHelper.setMorphemicAttributes(surface, path.phoneticAttributes, attributes);
+      }
 
       // This is required for suffixes like `cik` and `ciğ`
       // an extra attribute is added if "cik" or "ciğ" is generated and matches the tail.
@@ -269,32 +331,138 @@ public class RuleBasedAnalyzer {
         attributes.add(PhoneticAttribute.ExpectsVowel);
         attributes.add(PhoneticAttribute.CannotTerminate);
       }
+      newPaths.add(p);
+    }
+  }
+
+  // Same as advance, but uses compiled morphotactics. Cheap mask checks are applied before surface
+  // generation and remaining conditions are checked last.
+  private void advanceCompiled(SearchPath path, SearchArena arena, List<SearchPath> newPaths) {
+
+    int phoneticBits = path.phoneticAttributes.getBits();
+    boolean hasTail = path.hasTail();
+    boolean hasSuffixSurface = path.containsSuffixWithSurface();
+    int end = compiled.transitionEnd(path.stateIndex);
+
+    for (int t = compiled.transitionStart(path.stateIndex); t < end; t++) {
+
+      boolean hasSurface = compiled.hasSurface(t);
+      if (!hasTail && hasSurface) {
+        continue;
+      }
+      if (!compiled.passesMasks(t, phoneticBits, path.rootAttributeBits, hasTail,
+          hasSuffixSurface)) {
+        continue;
+      }
+
+      SuffixTransition suffixTransition = compiled.getTransition(t);
+      String surface = "";
+      if (hasSurface) {
+        surface = SurfaceTransition.generateSurface(suffixTransition, path.phoneticAttributes);
+        boolean tailStartsWith =
+            asciiTolerant ?
+                TurkishAlphabet.INSTANCE
+                    .startsWithIgnoreDiacritics(path.input, path.tailIndex, surface) :
+                path.input.startsWith(surface, path.tailIndex);
+        if (!tailStartsWith) {
+          continue;
+        }
+      }
 
-      SearchPath p = path.getCopy(
-          surfaceTransition,
-          attributes);
+      if (!compiled.passesResidual(t, path)) {
+        continue;
+      }
+
+      SearchPath p = arena.newPath();
+
+      // epsilon (empty) transition. Use existing attributes.
+      if (!hasSurface) {
+        p.setNext(path, suffixTransition, "", path.tailIndex);
+        p.stateIndex = compiled.getTarget(t);
+        p.phoneticAttributes.copyFrom(path.phoneticAttributes);
+        newPaths.add(p);
+        continue;
+      }
+
+      p.setNext(path, suffixTransition, surface, path.tailIndex + surface.length());
+      p.stateIndex = compiled.getTarget(t);
+
+      AttributeSet<PhoneticAttribute> attributes = p.phoneticAttributes;
+      if (path.getTailLength() == surface.length()) {
+        attributes.copyFrom(path.phoneticAttributes);
+      } else {
+        AttributesHelper.setMorphemicAttributes(surface, path.phoneticAttributes, attributes);
+      }
+
+      // See advance method for the explanation.
+      attributes.remove(PhoneticAttribute.CannotTerminate);
+      SuffixTemplateToken lastToken = suffixTransition.getLastTemplateToken();
+      if (lastToken.type == TemplateTokenType.LAST_VOICED) {
+        attributes.add(PhoneticAttribute.ExpectsConsonant);
+      } else if (lastToken.type == TemplateTokenType.LAST_NOT_VOICED) {
+        attributes.add(PhoneticAttribute.ExpectsVowel);
+        attributes.add(PhoneticAttribute.CannotTerminate);
+      }
       newPaths.add(p);
     }
-    return newPaths;
   }
 
   // for preventing excessive branching during search, we remove paths that has more than
   // MAX_REPEATING_SUFFIX_TYPE_COUNT morpheme-state types.
-  private List<SearchPath> pruneCyclicPaths(List<SearchPath> tokens) {
-    List<SearchPath> result = new ArrayList<>();
-    for (SearchPath token : tokens) {
-      boolean remove = false;
+  private void pruneCyclicPaths(List<SearchPath> paths) {
+    paths.removeIf(path -> {
       IntValueMap<String> typeCounts = new IntValueMap<>(10);
-      for (SurfaceTransition node : token.transitions) {
-        if (typeCounts.addOrIncrement(node.getState().id) > MAX_REPEATING_SUFFIX_TYPE_COUNT) {
-          remove = true;
-          break;
+      for (SearchPath p = path; p != null; p = p.getPrevious()) {
+        if (typeCounts.addOrIncrement(p.getCurrentState().id) > MAX_REPEATING_SUFFIX_TYPE_COUNT) {
+          return true;
         }
       }
-      if (!remove) {
-        result.add(token);
+      return false;
+    });
+  }
+
+  private final ThreadLocal<SearchArena> threadArena = ThreadLocal.withInitial(SearchArena::new);
+
+  /**
+   * Holds reusable search paths and path lists of a thread. Paths created from an arena are only
+   * valid until the arena is released, so they must not escape an analyze call. Only the surviving
+   * paths are converted to SingleAnalysis objects before that.
+   */
+  private static final class SearchArena {
+
+    // pools larger than this are not kept after release.
+    private static final int MAX_RETAINED_PATH_COUNT = 4096;
+
+    SearchPath[] paths = new SearchPath[64];
+    int used;
+    boolean inUse;
+
+    List<SearchPath> current = new ArrayList<>();
+    List<SearchPath> next = new ArrayList<>();
+    List<SearchPath> result = new ArrayList<>(3);
+
+    SearchPath newPath() {
+      if (used == paths.length) {
+        paths = Arrays.copyOf(paths, paths.length * 2);
+      }
+      SearchPath path = paths[used];
+      if (path == null) {
+        path = new SearchPath();
+        paths[used] = path;
       }
+      used++;
+      return path;
+    }
+
+    void release() {
+      if (paths.length > MAX_RETAINED_PATH_COUNT) {
+        paths = new SearchPath[64];
+      }
+      used = 0;
+      current.clear();
+      next.clear();
+      result.clear();
+      inUse = false;
     }
-    return result;
   }
 }
@@ -1,110 +1,158 @@
 package zemberek.morphology.analysis;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.morphotactics.AttributeSet;
 import zemberek.morphology.morphotactics.MorphemeState;
+import zemberek.morphology.morphotactics.MorphemeTransition;
 import zemberek.morphology.morphotactics.StemTransition;
-import zemberek.morphology.lexicon.DictionaryItem;
 
 /**
  * This class represents a path in morphotactics graph. During analysis many SearchPaths are created
  * and surviving paths are used for generating analysis results.
+ * <p>
+ * A path is a persistent linked structure. Every path only holds the last transition it passed and
+ * a reference to the path it is derived from. So creating a new path does not copy the transition
+ * history. Remaining letters are represented with an offset to the input.
  */
 public class SearchPath {
 
-  // letters to parse.
-  String tail;
+  // input and the index of the first letter to parse.
+  String input;
+  int tailIndex;
 
-  MorphemeState currentState;
+  // path this path is derived from. For initial paths, this is null.
+  SearchPath previous;
+
+  // last transition of this path and its surface.
+  MorphemeTransition transition;
+  String surface;
 
-  List<SurfaceTransition> transitions;
+  // root transition of this path.
+  StemTransition stemTransition;
+
+  MorphemeState currentState;
 
   AttributeSet<PhoneticAttribute> phoneticAttributes;
 
+  // amount of transitions in this path, including the stem transition.
+  int transitionCount;
+
+  // Only used when analysis runs on a CompiledMorphotactics. Index of the current state and
+  // root attribute bits of the dictionary item.
+  int stateIndex = -1;
+  long rootAttributeBits;
+
   private boolean terminal;
   private boolean containsDerivation = false;
   private boolean containsSuffixWithSurface = false;
 
   public static SearchPath initialPath(StemTransition stemTransition, String tail) {
-    List<SurfaceTransition> morphemes = new ArrayList<>(4);
-    SurfaceTransition root = new SurfaceTransition(stemTransition.surface, stemTransition);
-    morphemes.add(root);
-    return new SearchPath(
-        tail,
-        stemTransition.to,
-        morphemes,
-        stemTransition.getPhoneticAttributes().copy(),
-        stemTransition.to.terminal);
-  }
-
-  private SearchPath(
-      String tail,
-      MorphemeState currentState,
-      List<SurfaceTransition> transitions,
-      AttributeSet<PhoneticAttribute> phoneticAttributes,
-      boolean terminal) {
-    this.tail = tail;
-    this.currentState = currentState;
-    this.transitions = transitions;
-    this.phoneticAttributes = phoneticAttributes;
-    this.terminal = terminal;
+    return initialPath(stemTransition, tail, 0);
+  }
+
+  /**
+   * Creates an initial path for the input. Letters of the input starting from tailIndex are the
+   * ones that needs to be consumed by the path.
+   */
+  public static SearchPath initialPath(StemTransition stemTransition, String input,
+      int tailIndex) {
+    SearchPath path = new SearchPath();
+    path.setInitial(stemTransition, input, tailIndex);
+    return path;
+  }
+
+  // Instances are also created and reused by RuleBasedAnalyzer's search arenas.
+  SearchPath() {
+    this.phoneticAttributes = new AttributeSet<>();
+  }
+
+  void setInitial(StemTransition stemTransition, String input, int tailIndex) {
+    this.input = input;
+    this.tailIndex = tailIndex;
+    this.previous = null;
+    this.transition = stemTransition;
+    this.surface = stemTransition.surface;
+    this.stemTransition = stemTransition;
+    this.currentState = stemTransition.to;
+    this.phoneticAttributes.copyFrom(stemTransition.getPhoneticAttributes());
+    this.transitionCount = 1;
+    this.stateIndex = -1;
+    this.rootAttributeBits = 0;
+    this.terminal = stemTransition.to.terminal;
+    this.containsDerivation = false;
+    this.containsSuffixWithSurface = false;
+  }
+
+  // Sets this path as the continuation of `parent` with given transition and surface.
+  // phoneticAttributes of this path is not modified.
+  void setNext(
+      SearchPath parent,
+      MorphemeTransition transition,
+      String surface,
+      int tailIndex) {
+    MorphemeState state = transition.to;
+    this.input = parent.input;
+    this.tailIndex = tailIndex;
+    this.previous = parent;
+    this.transition = transition;
+    this.surface = surface;
+    this.stemTransition = parent.stemTransition;
+    this.currentState = state;
+    this.transitionCount = parent.transitionCount + 1;
+    this.stateIndex = -1;
+    this.rootAttributeBits = parent.rootAttributeBits;
+    this.terminal = state.terminal;
+    this.containsSuffixWithSurface = parent.containsSuffixWithSurface || !surface.isEmpty();
+    this.containsDerivation = parent.containsDerivation || state.derivative;
   }
 
   SearchPath getCopy(
       SurfaceTransition surfaceNode,
       AttributeSet<PhoneticAttribute> phoneticAttributes) {
-
-    boolean isTerminal = surfaceNode.getState().terminal;
-    ArrayList<SurfaceTransition> hist = new ArrayList<>(transitions);
-    hist.add(surfaceNode);
-    String newTail = tail.substring(surfaceNode.surface.length());
-    SearchPath path = new SearchPath(
-        newTail,
-        surfaceNode.getState(),
-        hist,
-        phoneticAttributes,
-        isTerminal);
-    path.containsSuffixWithSurface = containsSuffixWithSurface || !surfaceNode.surface.isEmpty();
-    path.containsDerivation = containsDerivation || surfaceNode.getState().derivative;
+    SearchPath path = new SearchPath();
+    path.setNext(this, surfaceNode.lexicalTransition, surfaceNode.surface,
+        tailIndex + surfaceNode.surface.length());
+    path.phoneticAttributes.copyFrom(phoneticAttributes);
     return path;
   }
 
   public SearchPath getCopyForGeneration(
       SurfaceTransition surfaceNode,
       AttributeSet<PhoneticAttribute> phoneticAttributes) {
-
-    boolean isTerminal = surfaceNode.getState().terminal;
-    ArrayList<SurfaceTransition> hist = new ArrayList<>(transitions);
-    hist.add(surfaceNode);
-    SearchPath path = new SearchPath(
-        tail,
-        surfaceNode.getState(),
-        hist,
-        phoneticAttributes,
-        isTerminal);
-    path.containsSuffixWithSurface = containsSuffixWithSurface || !surfaceNode.surface.isEmpty();
-    path.containsDerivation = containsDerivation || surfaceNode.getState().derivative;
+    SearchPath path = new SearchPath();
+    path.setNext(this, surfaceNode.lexicalTransition, surfaceNode.surface, tailIndex);
+    path.phoneticAttributes.copyFrom(phoneticAttributes);
     return path;
   }
 
   public String toString() {
     StemTransition st = getStemTransition();
     String morphemeStr =
-        transitions.stream()
+        getTransitions().stream()
             .map(SurfaceTransition::toString)
             .collect(Collectors.joining(" + "));
-    return "[(" + st.item.id + ")(-" + tail + ") " + morphemeStr + "]";
+    return "[(" + st.item.id + ")(-" + getTail() + ") " + morphemeStr + "]";
   }
 
   public String getTail() {
-    return tail;
+    return input.substring(tailIndex);
+  }
+
+  public boolean hasTail() {
+    return tailIndex < input.length();
+  }
+
+  public int getTailLength() {
+    return input.length() - tailIndex;
   }
 
   public StemTransition getStemTransition() {
-    return (StemTransition) transitions.get(0).lexicalTransition;
+    return stemTransition;
   }
 
   public MorphemeState getCurrentState() {
@@ -112,10 +160,26 @@ public class SearchPath {
   }
 
   public MorphemeState getPreviousState() {
-    if (transitions.size() < 2) {
+    if (previous == null) {
       return null;
     }
-    return transitions.get(transitions.size() - 2).getState();
+    return previous.currentState;
+  }
+
+  /**
+   * Returns the path this path is derived from. For initial paths that only contain a stem
+   * transition, returns null. This can be used for iterating over the transitions of the path from
+   * last to first without generating the transition list.
+   */
+  public SearchPath getPrevious() {
+    return previous;
+  }
+
+  /**
+   * Returns the surface of the last transition of this path.
+   */
+  public String getSurface() {
+    return surface;
   }
 
   public AttributeSet<PhoneticAttribute> getPhoneticAttributes() {
@@ -130,10 +194,22 @@ public class SearchPath {
     return terminal;
   }
 
+  /**
+   * Generates the list of transitions of this path. First item is the stem transition.
+   */
   public List<SurfaceTransition> getTransitions() {
+    List<SurfaceTransition> transitions = new ArrayList<>(transitionCount);
+    for (SearchPath p = this; p != null; p = p.previous) {
+      transitions.add(new SurfaceTransition(p.surface, p.transition));
+    }
+    Collections.reverse(transitions);
     return transitions;
   }
 
+  public int getTransitionCount() {
+    return transitionCount;
+  }
+
   public boolean containsDerivation() {
     return containsDerivation;
   }
@@ -144,15 +220,15 @@ public class SearchPath {
 
   public boolean hasDictionaryItem(DictionaryItem item) {
     // TODO: for performance, probably it is safe to check references only.
-    return item.equals(getStemTransition().item);
+    return item.equals(stemTransition.item);
   }
 
   public SurfaceTransition getLastTransition() {
-    return transitions.get(transitions.size() - 1);
+    return new SurfaceTransition(surface, transition);
   }
 
   public DictionaryItem getDictionaryItem() {
-    return getStemTransition().item;
+    return stemTransition.item;
   }
 
 }
@@ -2,15 +2,19 @@ package zemberek.morphology.analysis;
 
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.RootAttribute;
 import zemberek.core.turkish.StemAndEnding;
 import zemberek.morphology.lexicon.DictionaryItem;
 import zemberek.morphology.morphotactics.Morpheme;
+import zemberek.morphology.morphotactics.MorphemeState;
 import zemberek.morphology.morphotactics.TurkishMorphotactics;
 
 /**
@@ -30,9 +34,20 @@ public class SingleAnalysis {
   // groupBoundaries holds the index values of morphemes.
   private int[] groupBoundaries;
 
+  // Compact form of morpheme data. For each morpheme, it contains two bytes for morpheme index in
+  // compactMorphemeList and one byte for surface length. morphemeDataList and groupBoundaries
+  // are null in compact analyses and they are generated when they are requested.
+  private byte[] compactMorphemes;
+  // concatenated surfaces of the morphemes of a compact analysis.
+  private String compactSurface;
+
   // cached hash value.
   private int hash;
 
+  // morphemes of compact analyses are represented with their index in this list.
+  private static final List<Morpheme> compactMorphemeList = new CopyOnWriteArrayList<>();
+  private static final Map<Morpheme, Integer> compactMorphemeIndex = new ConcurrentHashMap<>();
+
   public SingleAnalysis(
       DictionaryItem item,
       List<MorphemeData> morphemeDataList,
@@ -43,6 +58,17 @@ public class SingleAnalysis {
     this.hash = hashCode();
   }
 
+  private SingleAnalysis(
+      DictionaryItem item,
+      byte[] compactMorphemes,
+      String compactSurface,
+      int hash) {
+    this.item = item;
+    this.compactMorphemes = compactMorphemes;
+    this.compactSurface = compactSurface;
+    this.hash = hash;
+  }
+
   public static SingleAnalysis unknown(String input) {
     DictionaryItem item = DictionaryItem.UNKNOWN;
     MorphemeData s = new MorphemeData(Morpheme.UNKNOWN, input);
@@ -57,7 +83,145 @@ public class SingleAnalysis {
   }
 
   public String surfaceForm() {
-    return getStem() + getEnding();
+    return isCompact() ? compactSurface : getStem() + getEnding();
+  }
+
+  /**
+   * Returns true if this analysis is in compact form.
+   */
+  public boolean isCompact() {
+    return morphemeDataList == null;
+  }
+
+  /**
+   * Returns a compact form of this analysis. Compact analyses keep morphemes and their surfaces
+   * in a byte array and a single string, so they use much less memory. Morpheme data and groups
+   * are generated each time they are requested, so compact form is suitable for storing analyses
+   * such as in caches. If analysis cannot be represented compactly, this instance is returned.
+   *
+   * @param sharedSurface concatenated morpheme surfaces of this analysis. Usually it is the
+   * normalized input of the word, passing it allows sharing the same string between analyses.
+   * If it is null or does not match, a new string is created.
+   */
+  public SingleAnalysis compact(String sharedSurface) {
+    if (isCompact()) {
+      return this;
+    }
+    int size = morphemeDataList.size();
+    byte[] bytes = new byte[size * 3];
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      MorphemeData data = morphemeDataList.get(i);
+      int index = compactIndexOf(data.morpheme);
+      int length = data.surface.length();
+      if (index > 0xffff || length > 0xff) {
+        return this;
+      }
+      bytes[i * 3] = (byte) (index >>> 8);
+      bytes[i * 3 + 1] = (byte) index;
+      bytes[i * 3 + 2] = (byte) length;
+      sb.append(data.surface);
+    }
+    String surface = sb.toString();
+    if (sharedSurface != null && sharedSurface.equals(surface)) {
+      surface = sharedSurface;
+    }
+    SingleAnalysis compact = new SingleAnalysis(item, bytes, surface, hash);
+    // group boundaries of compact form are generated from derivational morphemes.
+    if (!Arrays.equals(compact.inflateGroupBoundaries(), groupBoundaries)) {
+      return this;
+    }
+    return compact;
+  }
+
+  public SingleAnalysis compact() {
+    return compact(null);
+  }
+
+  /**
+   * Returns approximate heap size of this analysis in bytes. Dictionary item and morphemes are
+   * not counted because they are shared.
+   */
+  long estimateBytes(String sharedSurface) {
+    if (isCompact()) {
+      long bytes = 32 + 16 + compactMorphemes.length;
+      return compactSurface == sharedSurface ?
+          bytes : bytes + AnalysisCache.stringBytes(compactSurface);
+    }
+    // object, group boundary array and morpheme data list
+    long bytes = 32 + 16 + 4L * groupBoundaries.length + 24;
+    for (MorphemeData data : morphemeDataList) {
+      bytes += 4 + 16 + AnalysisCache.stringBytes(data.surface);
+    }
+    return bytes;
+  }
+
+  private static int compactIndexOf(Morpheme morpheme) {
+    Integer index = compactMorphemeIndex.get(morpheme);
+    if (index != null) {
+      return index;
+    }
+    synchronized (compactMorphemeList) {
+      index = compactMorphemeIndex.get(morpheme);
+      if (index == null) {
+        index = compactMorphemeList.size();
+        compactMorphemeList.add(morpheme);
+        compactMorphemeIndex.put(morpheme, index);
+      }
+      return index;
+    }
+  }
+
+  private int compactMorphemeCount() {
+    return compactMorphemes.length / 3;
+  }
+
+  private Morpheme compactMorpheme(int i) {
+    int index = ((compactMorphemes[i * 3] & 0xff) << 8) | (compactMorphemes[i * 3 + 1] & 0xff);
+    return compactMorphemeList.get(index);
+  }
+
+  private int compactSurfaceLength(int i) {
+    return compactMorphemes[i * 3 + 2] & 0xff;
+  }
+
+  private List<MorphemeData> inflateMorphemeData() {
+    int count = compactMorphemeCount();
+    List<MorphemeData> result = new ArrayList<>(count);
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      Morpheme morpheme = compactMorpheme(i);
+      int end = start + compactSurfaceLength(i);
+      if (start == end) {
+        result.add(emptyMorphemeCache.computeIfAbsent(morpheme, m -> new MorphemeData(m, "")));
+      } else {
+        result.add(new MorphemeData(morpheme, compactSurface.substring(start, end)));
+      }
+      start = end;
+    }
+    return result;
+  }
+
+  private int[] inflateGroupBoundaries() {
+    int count = compactMorphemeCount();
+    int derivationCount = 0;
+    for (int i = 0; i < count; i++) {
+      if (compactMorpheme(i).derivational) {
+        derivationCount++;
+      }
+    }
+    int[] boundaries = new int[derivationCount + 1];
+    int k = 1;
+    for (int i = 0; i < count; i++) {
+      if (compactMorpheme(i).derivational) {
+        boundaries[k++] = i;
+      }
+    }
+    return boundaries;
+  }
+
+  private int[] boundaries() {
+    return groupBoundaries != null ? groupBoundaries : inflateGroupBoundaries();
   }
 
   public static class MorphemeGroup {
@@ -115,7 +279,7 @@ public class SingleAnalysis {
   }
 
   int getMorphemeGroupCount() {
-    return groupBoundaries.length;
+    return groupCount();
   }
 
   /**
@@ -130,6 +294,9 @@ public class SingleAnalysis {
    * @return concatenated suffix surfaces.
    */
   public String getEnding() {
+    if (isCompact()) {
+      return compactSurface.substring(compactSurfaceLength(0));
+    }
     StringBuilder sb = new StringBuilder();
     // skip the root.
     for (int i = 1; i < morphemeDataList.size(); i++) {
@@ -152,10 +319,21 @@ public class SingleAnalysis {
    * @return concatenated suffix surfaces.
    */
   public String getStem() {
+    if (isCompact()) {
+      return compactSurface.substring(0, compactSurfaceLength(0));
+    }
     return morphemeDataList.get(0).surface;
   }
 
   public boolean containsMorpheme(Morpheme morpheme) {
+    if (isCompact()) {
+      for (int i = 0; i < compactMorphemeCount(); i++) {
+        if (compactMorpheme(i) == morpheme) {
+          return true;
+        }
+      }
+      return false;
+    }
     for (MorphemeData morphemeData : morphemeDataList) {
       if (morphemeData.morpheme == morpheme) {
         return true;
@@ -193,15 +371,33 @@ public class SingleAnalysis {
   }
 
 
+  /**
+   * Returns morphemes and their surfaces. For compact analyses a new list is generated in every
+   * call.
+   */
   public List<MorphemeData> getMorphemeDataList() {
-    return morphemeDataList;
+    return morphemeDataList != null ? morphemeDataList : inflateMorphemeData();
   }
 
   public List<Morpheme> getMorphemes() {
+    if (isCompact()) {
+      List<Morpheme> morphemes = new ArrayList<>(compactMorphemeCount());
+      for (int i = 0; i < compactMorphemeCount(); i++) {
+        morphemes.add(compactMorpheme(i));
+      }
+      return morphemes;
+    }
     return morphemeDataList.stream().map(s -> s.morpheme).collect(Collectors.toList());
   }
 
   public MorphemeGroup getGroup(int groupIndex) {
+    return getGroup(groupIndex, getMorphemeDataList(), boundaries());
+  }
+
+  private static MorphemeGroup getGroup(
+      int groupIndex,
+      List<MorphemeData> morphemeDataList,
+      int[] groupBoundaries) {
     if (groupIndex < 0 || groupIndex >= groupBoundaries.length) {
       throw new IllegalArgumentException("There are only " + groupBoundaries.length +
           " morpheme groups. But input is " + groupIndex);
@@ -261,13 +457,15 @@ public class SingleAnalysis {
   }
 
   public MorphemeGroup getLastGroup() {
-    return getGroup(groupBoundaries.length - 1);
+    return getGroup(groupCount() - 1);
   }
 
   public MorphemeGroup[] getGroups() {
+    List<MorphemeData> morphemeDataList = getMorphemeDataList();
+    int[] groupBoundaries = boundaries();
     MorphemeGroup[] groups = new MorphemeGroup[groupBoundaries.length];
     for (int i = 0; i < groups.length; i++) {
-      groups[i] = getGroup(i);
+      groups[i] = getGroup(i, morphemeDataList, groupBoundaries);
     }
     return groups;
   }
@@ -279,17 +477,19 @@ public class SingleAnalysis {
   // Here we generate a SingleAnalysis from a search path.
   public static SingleAnalysis fromSearchPath(SearchPath searchPath) {
 
-    List<MorphemeData> morphemes = new ArrayList<>(searchPath.transitions.size());
+    List<MorphemeData> morphemes = new ArrayList<>(searchPath.getTransitionCount());
 
     int derivationCount = 0;
 
-    for (SurfaceTransition transition : searchPath.getTransitions()) {
+    // transitions are visited from last to first. List is reversed afterwards.
+    for (SearchPath p = searchPath; p != null; p = p.getPrevious()) {
 
-      if (transition.isDerivative()) {
+      MorphemeState state = p.getCurrentState();
+      if (state.derivative) {
         derivationCount++;
       }
 
-      Morpheme morpheme = transition.getMorpheme();
+      Morpheme morpheme = state.morpheme;
 
       // we skip these two morphemes as they create visual noise and does not carry much information.
       if (morpheme == TurkishMorphotactics.nom || morpheme == TurkishMorphotactics.pnon) {
@@ -297,7 +497,7 @@ public class SingleAnalysis {
       }
 
       // if empty, use the cache.
-      if (transition.surface.isEmpty()) {
+      if (p.getSurface().isEmpty()) {
         MorphemeData morphemeData = emptyMorphemeCache.get(morpheme);
         if (morphemeData == null) {
           morphemeData = new MorphemeData(morpheme, "");
@@ -307,9 +507,10 @@ public class SingleAnalysis {
         continue;
       }
 
-      MorphemeData suffixSurface = new MorphemeData(morpheme, transition.surface);
+      MorphemeData suffixSurface = new MorphemeData(morpheme, p.getSurface());
       morphemes.add(suffixSurface);
     }
+    Collections.reverse(morphemes);
 
     int[] groupBoundaries = new int[derivationCount + 1];
     groupBoundaries[0] = 0; // we assume there is always an IG
@@ -352,10 +553,10 @@ public class SingleAnalysis {
    */
   SingleAnalysis copyFor(DictionaryItem item, String stem) {
     // copy morpheme-surface list.
-    List<MorphemeData> data = new ArrayList<>(morphemeDataList);
+    List<MorphemeData> data = new ArrayList<>(getMorphemeDataList());
     // replace the stem surface. it is in the first morpheme.
     data.set(0, new MorphemeData(data.get(0).morpheme, stem));
-    return new SingleAnalysis(item, data, groupBoundaries.clone());
+    return new SingleAnalysis(item, data, boundaries().clone());
   }
 
   /**
@@ -370,10 +571,11 @@ public class SingleAnalysis {
   public List<String> getStems() {
     List<String> stems = Lists.newArrayListWithCapacity(2);
     stems.add(getStem());
-    String previousStem = getGroup(0).surfaceForm();
-    if (groupBoundaries.length > 1) {
-      for (int i = 1; i < groupBoundaries.length; i++) {
-        MorphemeGroup ig = getGroup(i);
+    MorphemeGroup[] groups = getGroups();
+    String previousStem = groups[0].surfaceForm();
+    if (groups.length > 1) {
+      for (int i = 1; i < groups.length; i++) {
+        MorphemeGroup ig = groups[i];
         MorphemeData suffixData = ig.morphemes.get(0);
 
         String surface = suffixData.surface;
@@ -402,16 +604,17 @@ public class SingleAnalysis {
     List<String> lemmas = Lists.newArrayListWithCapacity(2);
     lemmas.add(item.root);
 
-    String previousStem = getGroup(0).surfaceForm();
+    MorphemeGroup[] groups = getGroups();
+    String previousStem = groups[0].surfaceForm();
     if (!previousStem.equals(item.root)) {
       if (previousStem.endsWith("ğ")) {
         previousStem = previousStem.substring(0, previousStem.length() - 1) + "k";
       }
     }
 
-    if (groupBoundaries.length > 1) {
-      for (int i = 1; i < groupBoundaries.length; i++) {
-        MorphemeGroup ig = getGroup(i);
+    if (groups.length > 1) {
+      for (int i = 1; i < groups.length; i++) {
+        MorphemeGroup ig = groups[i];
         MorphemeData suffixData = ig.morphemes.get(0);
 
         String surface = suffixData.surface;
@@ -455,9 +658,25 @@ public class SingleAnalysis {
   }
 
   public int groupCount() {
+    if (isCompact()) {
+      int count = 1;
+      for (int i = 0; i < compactMorphemeCount(); i++) {
+        if (compactMorpheme(i).derivational) {
+          count++;
+        }
+      }
+      return count;
+    }
     return groupBoundaries.length;
   }
 
+  /**
+   * Returns a copy of the morpheme indexes where inflectional groups start.
+   */
+  public int[] getGroupBoundaries() {
+    return isCompact() ? inflateGroupBoundaries() : groupBoundaries.clone();
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -475,7 +694,11 @@ public class SingleAnalysis {
     if (!item.equals(that.item)) {
       return false;
     }
-    return morphemeDataList.equals(that.morphemeDataList);
+    if (isCompact() && that.isCompact()) {
+      return compactSurface.equals(that.compactSurface)
+          && Arrays.equals(compactMorphemes, that.compactMorphemes);
+    }
+    return getMorphemeDataList().equals(that.getMorphemeDataList());
   }
 
   @Override
@@ -484,7 +707,7 @@ public class SingleAnalysis {
       return hash;
     }
     int result = item.hashCode();
-    result = 31 * result + morphemeDataList.hashCode();
+    result = 31 * result + getMorphemeDataList().hashCode();
     result = 31 * result + hash;
     return result;
   }
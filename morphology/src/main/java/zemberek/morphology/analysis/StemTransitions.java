@@ -20,6 +20,20 @@ public interface StemTransitions {
 
   void removeDictionaryItem(DictionaryItem item);
 
+  /**
+   * Adds all items. Implementations may apply them as a single update.
+   */
+  default void addDictionaryItems(Collection<DictionaryItem> items) {
+    items.forEach(this::addDictionaryItem);
+  }
+
+  /**
+   * Removes all items. Implementations may apply them as a single update.
+   */
+  default void removeDictionaryItems(Collection<DictionaryItem> items) {
+    items.forEach(this::removeDictionaryItem);
+  }
+
   List<StemTransition> generate(DictionaryItem item);
 
 }
@@ -0,0 +1,373 @@
+package zemberek.morphology.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.TurkishAlphabet;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * StemTransitions implementation with a lock free read path. Stem transitions are kept in
+ * immutable tables that are published through a volatile reference, readers never take a lock.
+ * <p>
+ * Writers are serialized and never modify a published table. Transitions added after
+ * construction are kept in a small delta table and removed transitions of the base table are
+ * kept in a removed set, each update copies only these and publishes a new version. When delta
+ * grows beyond a threshold it is merged into a new base table. This keeps frequent small updates,
+ * such as runtime items of UnidentifiedTokenAnalyzer, cheap.
+ */
+public class StemTransitionsCopyOnWrite extends StemTransitionsBase implements StemTransitions {
+
+  // delta and removed sets are merged to base table when their total size exceeds this.
+  private static final int MERGE_THRESHOLD = 1000;
+
+  private volatile Version version;
+
+  public StemTransitionsCopyOnWrite(RootLexicon lexicon, TurkishMorphotactics morphotactics) {
+    this(lexicon, morphotactics, null);
+  }
+
+  /**
+   * Creates the stem transitions of lexicon items with the provider instead of generating them.
+   * Provider should return the same transitions generate(item) would return.
+   */
+  public StemTransitionsCopyOnWrite(
+      RootLexicon lexicon,
+      TurkishMorphotactics morphotactics,
+      Function<DictionaryItem, List<StemTransition>> transitionProvider) {
+    this.lexicon = lexicon;
+    this.morphotactics = morphotactics;
+    TableBuilder builder = new TableBuilder(lexicon.size() * 2);
+    for (DictionaryItem item : lexicon) {
+      try {
+        builder.add(item,
+            transitionProvider == null ? generate(item) : transitionProvider.apply(item));
+      } catch (Exception e) {
+        Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+      }
+    }
+    this.version = new Version(builder.build(), StemTable.EMPTY, Collections.emptySet());
+  }
+
+  public List<StemTransition> getTransitions() {
+    Version v = version;
+    List<StemTransition> result = new ArrayList<>(v.base.transitionCount);
+    for (List<StemTransition> transitions : v.base.stems.values()) {
+      v.addNotRemoved(transitions, result);
+    }
+    for (List<StemTransition> transitions : v.delta.stems.values()) {
+      result.addAll(transitions);
+    }
+    return result;
+  }
+
+  public RootLexicon getLexicon() {
+    return lexicon;
+  }
+
+  public List<StemTransition> getPrefixMatches(String input, boolean asciiTolerant) {
+    Version v = version;
+    List<StemTransition> matches = new ArrayList<>(3);
+    for (int i = 1; i <= input.length(); i++) {
+      String stem = input.substring(0, i);
+      if (asciiTolerant) {
+        matches.addAll(v.getTransitionsAsciiTolerant(stem));
+      } else {
+        v.addTransitions(stem, matches);
+      }
+    }
+    return matches;
+  }
+
+  public List<StemTransition> getTransitions(DictionaryItem item) {
+    Version v = version;
+    List<StemTransition> result = new ArrayList<>(2);
+    List<StemTransition> different = v.delta.differentStemItems.get(item);
+    if (different != null) {
+      result.addAll(different);
+      return result;
+    }
+    different = v.base.differentStemItems.get(item);
+    if (different != null) {
+      v.addNotRemoved(different, result);
+      return result;
+    }
+    List<StemTransition> transitions = new ArrayList<>(2);
+    v.addTransitions(item.root, transitions);
+    for (StemTransition transition : transitions) {
+      if (transition.item.equals(item)) {
+        result.add(transition);
+      }
+    }
+    return result;
+  }
+
+  public void addDictionaryItem(DictionaryItem item) {
+    addDictionaryItems(Collections.singletonList(item));
+  }
+
+  public void removeDictionaryItem(DictionaryItem item) {
+    removeDictionaryItems(Collections.singletonList(item));
+  }
+
+  /**
+   * Adds all items and publishes the result as a single new version.
+   */
+  @Override
+  public synchronized void addDictionaryItems(Collection<DictionaryItem> items) {
+    Version v = version;
+    TableBuilder delta = new TableBuilder(v.delta);
+    Set<StemTransition> removed = new HashSet<>(v.removed);
+    for (DictionaryItem item : items) {
+      List<StemTransition> transitions;
+      try {
+        transitions = generate(item);
+      } catch (Exception e) {
+        Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+        continue;
+      }
+      List<StemTransition> toAdd = new ArrayList<>(transitions.size());
+      for (StemTransition transition : transitions) {
+        // transition may exist in base table but marked as removed.
+        if (!removed.remove(transition)) {
+          toAdd.add(transition);
+        }
+      }
+      delta.addTransitions(toAdd);
+      if (v.base.differentStemItems.get(item) == null) {
+        delta.addDifferentStems(item, transitions);
+      }
+    }
+    publish(v.base, delta, removed);
+  }
+
+  /**
+   * Removes all items and publishes the result as a single new version.
+   */
+  @Override
+  public synchronized void removeDictionaryItems(Collection<DictionaryItem> items) {
+    Version v = version;
+    TableBuilder delta = new TableBuilder(v.delta);
+    Set<StemTransition> removed = new HashSet<>(v.removed);
+    for (DictionaryItem item : items) {
+      try {
+        for (StemTransition transition : generate(item)) {
+          if (!delta.remove(transition) && v.base.contains(transition)) {
+            removed.add(transition);
+          }
+        }
+        delta.differentStemItems.remove(item);
+      } catch (Exception e) {
+        Log.warn("Cannot remove %s ", e.getMessage());
+      }
+    }
+    publish(v.base, delta, removed);
+  }
+
+  private void publish(StemTable base, TableBuilder delta, Set<StemTransition> removed) {
+    if (delta.transitionCount + removed.size() <= MERGE_THRESHOLD) {
+      version = new Version(base, delta.build(), removed);
+      return;
+    }
+    TableBuilder merged = new TableBuilder(base.stems.size() + delta.stems.size());
+    for (List<StemTransition> transitions : base.stems.values()) {
+      for (StemTransition transition : transitions) {
+        if (!removed.contains(transition)) {
+          merged.addTransition(transition);
+        }
+      }
+    }
+    for (Map.Entry<DictionaryItem, List<StemTransition>> entry :
+        base.differentStemItems.entrySet()) {
+      if (!removed.containsAll(entry.getValue())) {
+        merged.differentStemItems.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (List<StemTransition> transitions : delta.stems.values()) {
+      merged.addTransitions(transitions);
+    }
+    merged.differentStemItems.putAll(delta.differentStemItems);
+    version = new Version(merged.build(), StemTable.EMPTY, Collections.emptySet());
+    Log.debug("Stem transition delta merged to base table.");
+  }
+
+  /**
+   * An immutable view of stem transitions. Base table entries that are in the removed set are
+   * not visible.
+   */
+  private static final class Version {
+
+    final StemTable base;
+    final StemTable delta;
+    final Set<StemTransition> removed;
+
+    Version(StemTable base, StemTable delta, Set<StemTransition> removed) {
+      this.base = base;
+      this.delta = delta;
+      this.removed = removed;
+    }
+
+    void addNotRemoved(List<StemTransition> transitions, Collection<StemTransition> result) {
+      if (removed.isEmpty()) {
+        result.addAll(transitions);
+        return;
+      }
+      for (StemTransition transition : transitions) {
+        if (!removed.contains(transition)) {
+          result.add(transition);
+        }
+      }
+    }
+
+    void addTransitions(String stem, Collection<StemTransition> result) {
+      List<StemTransition> transitions = base.stems.get(stem);
+      if (transitions != null) {
+        addNotRemoved(transitions, result);
+      }
+      transitions = delta.stems.get(stem);
+      if (transitions != null) {
+        result.addAll(transitions);
+      }
+    }
+
+    LinkedHashSet<StemTransition> getTransitionsAsciiTolerant(String stem) {
+      // add actual
+      LinkedHashSet<StemTransition> result = new LinkedHashSet<>();
+      addTransitions(stem, result);
+      String ascii = TurkishAlphabet.INSTANCE.toAscii(stem);
+      for (String st : base.getAsciiKeys().getOrDefault(ascii, Collections.emptyList())) {
+        addTransitions(st, result);
+      }
+      for (String st : delta.getAsciiKeys().getOrDefault(ascii, Collections.emptyList())) {
+        addTransitions(st, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Stem surface to transitions map. It is not modified after it is built.
+   */
+  private static final class StemTable {
+
+    static final StemTable EMPTY = new TableBuilder(0).build();
+
+    final Map<String, List<StemTransition>> stems;
+    // contains dictionary items that has multiple or different than item.root stem surface forms.
+    final Map<DictionaryItem, List<StemTransition>> differentStemItems;
+    final int transitionCount;
+
+    // ascii tolerant keys are only generated when they are needed.
+    private volatile Map<String, List<String>> asciiKeys;
+
+    StemTable(
+        Map<String, List<StemTransition>> stems,
+        Map<DictionaryItem, List<StemTransition>> differentStemItems,
+        int transitionCount) {
+      this.stems = stems;
+      this.differentStemItems = differentStemItems;
+      this.transitionCount = transitionCount;
+    }
+
+    boolean contains(StemTransition transition) {
+      List<StemTransition> transitions = stems.get(transition.surface);
+      return transitions != null && transitions.contains(transition);
+    }
+
+    // Concurrent callers may generate the map more than once, results are the same.
+    Map<String, List<String>> getAsciiKeys() {
+      Map<String, List<String>> keys = asciiKeys;
+      if (keys == null) {
+        keys = new HashMap<>();
+        for (String s : stems.keySet()) {
+          if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
+            keys.computeIfAbsent(TurkishAlphabet.INSTANCE.toAscii(s), k -> new ArrayList<>(1))
+                .add(s);
+          }
+        }
+        asciiKeys = keys;
+      }
+      return keys;
+    }
+  }
+
+  private static final class TableBuilder {
+
+    final Map<String, List<StemTransition>> stems;
+    final Map<DictionaryItem, List<StemTransition>> differentStemItems;
+    int transitionCount;
+
+    TableBuilder(int capacity) {
+      stems = new HashMap<>(capacity);
+      differentStemItems = new HashMap<>();
+    }
+
+    // lists of published tables are never modified, so they are copied when changed.
+    TableBuilder(StemTable table) {
+      stems = new HashMap<>(table.stems);
+      differentStemItems = new HashMap<>(table.differentStemItems);
+      transitionCount = table.transitionCount;
+    }
+
+    void add(DictionaryItem item, List<StemTransition> transitions) {
+      addTransitions(transitions);
+      addDifferentStems(item, transitions);
+    }
+
+    void addDifferentStems(DictionaryItem item, List<StemTransition> transitions) {
+      if (transitions.size() > 1 || (transitions.size() == 1 && !item.root
+          .equals(transitions.get(0).surface))) {
+        differentStemItems.put(item, new ArrayList<>(transitions));
+      }
+    }
+
+    void addTransitions(List<StemTransition> transitions) {
+      for (StemTransition transition : transitions) {
+        addTransition(transition);
+      }
+    }
+
+    void addTransition(StemTransition transition) {
+      List<StemTransition> existing = stems.get(transition.surface);
+      List<StemTransition> list = new ArrayList<>(existing == null ? 1 : existing.size() + 1);
+      if (existing != null) {
+        list.addAll(existing);
+      }
+      list.add(transition);
+      stems.put(transition.surface, list);
+      transitionCount++;
+    }
+
+    boolean remove(StemTransition transition) {
+      List<StemTransition> existing = stems.get(transition.surface);
+      if (existing == null || !existing.contains(transition)) {
+        return false;
+      }
+      if (existing.size() == 1) {
+        stems.remove(transition.surface);
+      } else {
+        List<StemTransition> list = new ArrayList<>(existing);
+        list.remove(transition);
+        stems.put(transition.surface, list);
+      }
+      transitionCount--;
+      return true;
+    }
+
+    StemTable build() {
+      return new StemTable(stems, differentStemItems, transitionCount);
+    }
+  }
+
+}
@@ -0,0 +1,731 @@
+package zemberek.morphology.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import zemberek.core.collections.IntMap;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.TurkishAlphabet;
+import zemberek.morphology.lexicon.DictionaryItem;
+import zemberek.morphology.lexicon.RootLexicon;
+import zemberek.morphology.morphotactics.StemTransition;
+import zemberek.morphology.morphotactics.TurkishMorphotactics;
+
+/**
+ * StemTransitions implementation that keeps stem surfaces in a double-array trie stored in
+ * direct (off-heap) buffers. Trie nodes that end a stem surface carry an index to a transition
+ * table where transitions with the same surface are stored consecutively. Prefix matching walks
+ * the trie once over the input characters and does not create substrings. Buffers are not mapped
+ * to a file, trie is built from the lexicon when this class is created. StemTransition objects of
+ * the transition table are on heap.
+ * <p>
+ * Readers do not lock. Trie and the changes made after it is built are kept in an immutable
+ * version that is published through a volatile reference. Dictionary items added later are kept
+ * in an on-heap overlay map and removed transitions are filtered during lookups. Writers are
+ * serialized, each update copies the overlay and publishes a new version. When the overlay grows
+ * large compared to the trie, trie is built again with all transitions. So this class is best
+ * suited for large lexicons with few dynamic changes, many items should be added with
+ * addDictionaryItems. Ascii tolerant matching is applied to the
+ * overlay items as well, but their prefixes are looked up with substrings.
+ */
+public class StemTransitionsDoubleArrayBased extends StemTransitionsBase implements
+    StemTransitions {
+
+  private static final int FREE = -1;
+
+  // overlay is merged to a new trie when its size exceeds both this and a quarter of the trie
+  // transition count.
+  private static final int MERGE_THRESHOLD = 1000;
+
+  private volatile Version version;
+
+  public StemTransitionsDoubleArrayBased(RootLexicon lexicon, TurkishMorphotactics morphotactics) {
+    this(lexicon, morphotactics, null);
+  }
+
+  /**
+   * Creates the stem transitions of lexicon items with the provider instead of generating them.
+   * Provider should return the same transitions generate(item) would return.
+   */
+  public StemTransitionsDoubleArrayBased(
+      RootLexicon lexicon,
+      TurkishMorphotactics morphotactics,
+      Function<DictionaryItem, List<StemTransition>> transitionProvider) {
+    this.lexicon = lexicon;
+    this.morphotactics = morphotactics;
+    TableBuilder builder = new TableBuilder();
+    for (DictionaryItem item : lexicon) {
+      try {
+        builder.add(item,
+            transitionProvider == null ? generate(item) : transitionProvider.apply(item));
+      } catch (Exception e) {
+        Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+      }
+    }
+    this.version = new Version(builder.build());
+  }
+
+  private static boolean hasDifferentStems(
+      DictionaryItem item,
+      List<StemTransition> transitions) {
+    return transitions.size() > 1 || (transitions.size() == 1 && !item.root
+        .equals(transitions.get(0).surface));
+  }
+
+  private static IntBuffer allocate(int size) {
+    return ByteBuffer.allocateDirect(size * Integer.BYTES)
+        .order(ByteOrder.nativeOrder())
+        .asIntBuffer();
+  }
+
+  private static IntBuffer toBuffer(int[] array, int size) {
+    IntBuffer buffer = allocate(size);
+    buffer.put(array, 0, size);
+    buffer.clear();
+    return buffer;
+  }
+
+  public List<StemTransition> getTransitions() {
+    Version v = version;
+    List<StemTransition> result =
+        new ArrayList<>(v.table.transitionTable.length + v.addedCount);
+    v.addNotRemoved(Arrays.asList(v.table.transitionTable), result);
+    for (List<StemTransition> transitions : v.added.values()) {
+      result.addAll(transitions);
+    }
+    return result;
+  }
+
+  public RootLexicon getLexicon() {
+    return lexicon;
+  }
+
+  public List<StemTransition> getPrefixMatches(String input, boolean asciiTolerant) {
+    Version v = version;
+    List<StemTransition> matches = new ArrayList<>(3);
+    if (asciiTolerant) {
+      v.table.addAsciiTolerantMatches(input, v, matches);
+    } else {
+      v.table.addPrefixMatches(input, v, matches);
+    }
+    if (!v.added.isEmpty()) {
+      v.addOverlayPrefixMatches(input, asciiTolerant, matches);
+    }
+    return matches;
+  }
+
+  public List<StemTransition> getTransitions(DictionaryItem item) {
+    Version v = version;
+    List<StemTransition> result = new ArrayList<>(2);
+    List<StemTransition> different = v.addedDifferentStems.get(item);
+    if (different != null) {
+      result.addAll(different);
+      return result;
+    }
+    different = v.table.differentStemItems.get(item);
+    if (different != null) {
+      v.addNotRemoved(different, result);
+      return result;
+    }
+    List<StemTransition> transitions = new ArrayList<>(2);
+    v.table.addTransitions(item.root, v, transitions);
+    List<StemTransition> added = v.added.get(item.root);
+    if (added != null) {
+      transitions.addAll(added);
+    }
+    for (StemTransition transition : transitions) {
+      if (transition.item.equals(item)) {
+        result.add(transition);
+      }
+    }
+    return result;
+  }
+
+  public void addDictionaryItem(DictionaryItem item) {
+    addDictionaryItems(Collections.singletonList(item));
+  }
+
+  public void removeDictionaryItem(DictionaryItem item) {
+    removeDictionaryItems(Collections.singletonList(item));
+  }
+
+  /**
+   * Adds all items and publishes the result as a single new version.
+   */
+  @Override
+  public synchronized void addDictionaryItems(Collection<DictionaryItem> items) {
+    Version v = version;
+    Map<String, List<StemTransition>> added = new HashMap<>(v.added);
+    Map<DictionaryItem, List<StemTransition>> addedDifferentStems =
+        new HashMap<>(v.addedDifferentStems);
+    Set<StemTransition> removed = new HashSet<>(v.removed);
+    int addedCount = v.addedCount;
+    for (DictionaryItem item : items) {
+      List<StemTransition> transitions;
+      try {
+        transitions = generate(item);
+      } catch (Exception e) {
+        Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
+        continue;
+      }
+      for (StemTransition transition : transitions) {
+        // transition may exist in the trie but marked as removed.
+        if (!removed.remove(transition)) {
+          addTransition(added, transition);
+          addedCount++;
+        }
+      }
+      if (hasDifferentStems(item, transitions)
+          && !v.table.differentStemItems.containsKey(item)) {
+        addedDifferentStems.put(item, new ArrayList<>(transitions));
+      }
+    }
+    publish(v.table, added, addedDifferentStems, removed, addedCount);
+  }
+
+  /**
+   * Removes all items and publishes the result as a single new version.
+   */
+  @Override
+  public synchronized void removeDictionaryItems(Collection<DictionaryItem> items) {
+    Version v = version;
+    Map<String, List<StemTransition>> added = new HashMap<>(v.added);
+    Map<DictionaryItem, List<StemTransition>> addedDifferentStems =
+        new HashMap<>(v.addedDifferentStems);
+    Set<StemTransition> removed = new HashSet<>(v.removed);
+    int addedCount = v.addedCount;
+    for (DictionaryItem item : items) {
+      try {
+        for (StemTransition transition : generate(item)) {
+          if (removeTransition(added, transition)) {
+            addedCount--;
+          } else if (v.table.contains(transition)) {
+            removed.add(transition);
+          }
+        }
+        addedDifferentStems.remove(item);
+      } catch (Exception e) {
+        Log.warn("Cannot remove %s ", e.getMessage());
+      }
+    }
+    publish(v.table, added, addedDifferentStems, removed, addedCount);
+  }
+
+  // lists of published maps are never modified, so they are copied when changed.
+  private static void addTransition(
+      Map<String, List<StemTransition>> map,
+      StemTransition transition) {
+    List<StemTransition> existing = map.get(transition.surface);
+    List<StemTransition> list = new ArrayList<>(existing == null ? 1 : existing.size() + 1);
+    if (existing != null) {
+      list.addAll(existing);
+    }
+    list.add(transition);
+    map.put(transition.surface, list);
+  }
+
+  private static boolean removeTransition(
+      Map<String, List<StemTransition>> map,
+      StemTransition transition) {
+    List<StemTransition> existing = map.get(transition.surface);
+    if (existing == null || !existing.contains(transition)) {
+      return false;
+    }
+    if (existing.size() == 1) {
+      map.remove(transition.surface);
+    } else {
+      List<StemTransition> list = new ArrayList<>(existing);
+      list.remove(transition);
+      map.put(transition.surface, list);
+    }
+    return true;
+  }
+
+  private void publish(
+      DoubleArrayTable table,
+      Map<String, List<StemTransition>> added,
+      Map<DictionaryItem, List<StemTransition>> addedDifferentStems,
+      Set<StemTransition> removed,
+      int addedCount) {
+    if (addedCount + removed.size()
+        <= Math.max(MERGE_THRESHOLD, table.transitionTable.length / 4)) {
+      version = new Version(table, added, addedDifferentStems, removed, addedCount);
+      return;
+    }
+    TableBuilder builder = new TableBuilder();
+    for (StemTransition transition : table.transitionTable) {
+      if (!removed.contains(transition)) {
+        builder.addTransition(transition);
+      }
+    }
+    for (Map.Entry<DictionaryItem, List<StemTransition>> entry :
+        table.differentStemItems.entrySet()) {
+      if (!removed.containsAll(entry.getValue())) {
+        builder.differentStemItems.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (List<StemTransition> transitions : added.values()) {
+      transitions.forEach(builder::addTransition);
+    }
+    builder.differentStemItems.putAll(addedDifferentStems);
+    version = new Version(builder.build());
+    Log.debug("Stem transition overlay merged to a new double array trie.");
+  }
+
+  /**
+   * An immutable view of stem transitions. It contains the trie, transitions added after the trie
+   * is built and transitions of the trie that are removed.
+   */
+  private static final class Version {
+
+    final DoubleArrayTable table;
+    // added transitions keyed by surface.
+    final Map<String, List<StemTransition>> added;
+    // added dictionary items that has multiple or different than item.root stem surface forms.
+    final Map<DictionaryItem, List<StemTransition>> addedDifferentStems;
+    final Set<StemTransition> removed;
+    final int addedCount;
+
+    // ascii tolerant keys of added surfaces are only generated when they are needed.
+    private volatile Map<String, List<String>> asciiKeys;
+
+    Version(DoubleArrayTable table) {
+      this(table, Collections.emptyMap(), Collections.emptyMap(), Collections.emptySet(), 0);
+    }
+
+    Version(
+        DoubleArrayTable table,
+        Map<String, List<StemTransition>> added,
+        Map<DictionaryItem, List<StemTransition>> addedDifferentStems,
+        Set<StemTransition> removed,
+        int addedCount) {
+      this.table = table;
+      this.added = added;
+      this.addedDifferentStems = addedDifferentStems;
+      this.removed = removed;
+      this.addedCount = addedCount;
+    }
+
+    boolean isRemoved(StemTransition transition) {
+      return !removed.isEmpty() && removed.contains(transition);
+    }
+
+    void addNotRemoved(List<StemTransition> transitions, Collection<StemTransition> result) {
+      if (removed.isEmpty()) {
+        result.addAll(transitions);
+        return;
+      }
+      for (StemTransition transition : transitions) {
+        if (!removed.contains(transition)) {
+          result.add(transition);
+        }
+      }
+    }
+
+    void addOverlayPrefixMatches(
+        String input,
+        boolean asciiTolerant,
+        List<StemTransition> matches) {
+      for (int i = 1; i <= input.length(); i++) {
+        String stem = input.substring(0, i);
+        if (!asciiTolerant) {
+          addAdded(stem, matches);
+          continue;
+        }
+        LinkedHashSet<StemTransition> result = new LinkedHashSet<>();
+        addAdded(stem, result);
+        String ascii = TurkishAlphabet.INSTANCE.toAscii(stem);
+        for (String st : getAsciiKeys().getOrDefault(ascii, Collections.emptyList())) {
+          addAdded(st, result);
+        }
+        matches.addAll(result);
+      }
+    }
+
+    private void addAdded(String stem, Collection<StemTransition> result) {
+      List<StemTransition> transitions = added.get(stem);
+      if (transitions != null) {
+        result.addAll(transitions);
+      }
+    }
+
+    // Concurrent callers may generate the map more than once, results are the same.
+    private Map<String, List<String>> getAsciiKeys() {
+      Map<String, List<String>> keys = asciiKeys;
+      if (keys == null) {
+        keys = new HashMap<>();
+        for (String s : added.keySet()) {
+          if (TurkishAlphabet.INSTANCE.containsAsciiRelated(s)) {
+            keys.computeIfAbsent(TurkishAlphabet.INSTANCE.toAscii(s), k -> new ArrayList<>(1))
+                .add(s);
+          }
+        }
+        asciiKeys = keys;
+      }
+      return keys;
+    }
+  }
+
+  private static final class TableBuilder {
+
+    // surfaces are sorted so that trie construction can process shared prefixes together.
+    final TreeMap<String, List<StemTransition>> surfaceMap = new TreeMap<>();
+    final Map<DictionaryItem, List<StemTransition>> differentStemItems = new HashMap<>();
+
+    void add(DictionaryItem item, List<StemTransition> transitions) {
+      transitions.forEach(this::addTransition);
+      if (hasDifferentStems(item, transitions)) {
+        differentStemItems.put(item, new ArrayList<>(transitions));
+      }
+    }
+
+    void addTransition(StemTransition transition) {
+      if (!transition.surface.isEmpty()) {
+        surfaceMap.computeIfAbsent(transition.surface, k -> new ArrayList<>(1)).add(transition);
+      }
+    }
+
+    DoubleArrayTable build() {
+      return new DoubleArrayTable(surfaceMap, differentStemItems);
+    }
+  }
+
+  /**
+   * Double array trie of stem surfaces and the transition table. It is not modified after it is
+   * created.
+   */
+  private static final class DoubleArrayTable {
+
+    // maps stem characters to trie codes. 0 means character does not exist in any stem.
+    final char[] charCodes;
+    // for ascii tolerant matching, maps an ascii equivalent char to the codes it matches.
+    final IntMap<int[]> asciiEquivalentCodes = new IntMap<>();
+
+    final IntBuffer base;
+    final IntBuffer check;
+    // transition group index of trie nodes, or -1 if node does not end a stem surface.
+    final IntBuffer value;
+    final int nodeCount;
+
+    // transitions of group i are in [groupOffsets[i], groupOffsets[i+1]) range of the table.
+    final IntBuffer groupOffsets;
+    final StemTransition[] transitionTable;
+
+    // contains dictionary items that has multiple or different than item.root stem surface forms.
+    final Map<DictionaryItem, List<StemTransition>> differentStemItems;
+
+    DoubleArrayTable(
+        TreeMap<String, List<StemTransition>> surfaceMap,
+        Map<DictionaryItem, List<StemTransition>> differentStemItems) {
+      this.differentStemItems = differentStemItems;
+      String[] surfaces = surfaceMap.keySet().toArray(new String[0]);
+      int transitionCount = 0;
+      for (List<StemTransition> list : surfaceMap.values()) {
+        transitionCount += list.size();
+      }
+      this.transitionTable = new StemTransition[transitionCount];
+      this.groupOffsets = allocate(surfaces.length + 1);
+      int offset = 0;
+      int group = 0;
+      for (List<StemTransition> list : surfaceMap.values()) {
+        groupOffsets.put(group++, offset);
+        for (StemTransition transition : list) {
+          transitionTable[offset++] = transition;
+        }
+      }
+      groupOffsets.put(group, offset);
+
+      this.charCodes = createCharCodes(surfaces);
+      createAsciiEquivalents();
+
+      TrieBuilder builder = new TrieBuilder(surfaces, charCodes);
+      builder.build();
+      this.nodeCount = builder.size;
+      this.base = toBuffer(builder.base, nodeCount);
+      this.check = toBuffer(builder.check, nodeCount);
+      this.value = toBuffer(builder.value, nodeCount);
+      Log.debug("Double array trie with %d nodes created for %d stem surfaces.",
+          nodeCount, surfaces.length);
+    }
+
+    // codes are assigned in char order, so sorted strings are also sorted by their codes.
+    private static char[] createCharCodes(String[] surfaces) {
+      char max = 0;
+      boolean[] exists = new boolean[Character.MAX_VALUE + 1];
+      for (String surface : surfaces) {
+        for (int i = 0; i < surface.length(); i++) {
+          char c = surface.charAt(i);
+          exists[c] = true;
+          if (c > max) {
+            max = c;
+          }
+        }
+      }
+      char[] codes = new char[max + 1];
+      char code = 1;
+      for (int c = 0; c <= max; c++) {
+        if (exists[c]) {
+          codes[c] = code++;
+        }
+      }
+      return codes;
+    }
+
+    private void createAsciiEquivalents() {
+      Map<Character, List<Integer>> groups = new LinkedHashMap<>();
+      for (char c = 0; c < charCodes.length; c++) {
+        if (charCodes[c] != 0) {
+          char ascii = TurkishAlphabet.INSTANCE.getAsciiEqual(c);
+          groups.computeIfAbsent(ascii, k -> new ArrayList<>(2)).add((int) charCodes[c]);
+        }
+      }
+      for (Map.Entry<Character, List<Integer>> entry : groups.entrySet()) {
+        int[] codes = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+        asciiEquivalentCodes.put(entry.getKey(), codes);
+      }
+    }
+
+    private int child(int node, char c) {
+      if (c >= charCodes.length || charCodes[c] == 0) {
+        return -1;
+      }
+      return childWithCode(node, charCodes[c]);
+    }
+
+    private int childWithCode(int node, int code) {
+      int t = base.get(node) + code;
+      if (t >= nodeCount || check.get(t) != node) {
+        return -1;
+      }
+      return t;
+    }
+
+    private void addTransitionsOf(int node, Version v, Collection<StemTransition> matches) {
+      int group = value.get(node);
+      if (group < 0) {
+        return;
+      }
+      int end = groupOffsets.get(group + 1);
+      for (int i = groupOffsets.get(group); i < end; i++) {
+        StemTransition transition = transitionTable[i];
+        if (!v.isRemoved(transition)) {
+          matches.add(transition);
+        }
+      }
+    }
+
+    void addPrefixMatches(String input, Version v, List<StemTransition> matches) {
+      int node = 0;
+      for (int i = 0; i < input.length(); i++) {
+        node = child(node, input.charAt(i));
+        if (node < 0) {
+          break;
+        }
+        addTransitionsOf(node, v, matches);
+      }
+    }
+
+    // Walks all trie paths that are ascii equal to the input. For each prefix, node that matches
+    // the input exactly is kept first so that exact matches come before ascii tolerant ones.
+    void addAsciiTolerantMatches(String input, Version v, List<StemTransition> matches) {
+      int[] nodes = {0};
+      int nodeSize = 1;
+      for (int i = 0; i < input.length() && nodeSize > 0; i++) {
+        char c = input.charAt(i);
+        int exactCode = c < charCodes.length ? charCodes[c] : 0;
+        int[] codes = asciiEquivalentCodes.get(TurkishAlphabet.INSTANCE.getAsciiEqual(c));
+        if (codes == null) {
+          break;
+        }
+        int[] next = new int[nodeSize * codes.length];
+        int nextSize = 0;
+        for (int j = 0; j < nodeSize; j++) {
+          int node = nodes[j];
+          if (exactCode != 0) {
+            int t = childWithCode(node, exactCode);
+            if (t >= 0) {
+              next[nextSize++] = t;
+            }
+          }
+          for (int code : codes) {
+            if (code == exactCode) {
+              continue;
+            }
+            int t = childWithCode(node, code);
+            if (t >= 0) {
+              next[nextSize++] = t;
+            }
+          }
+        }
+        for (int j = 0; j < nextSize; j++) {
+          addTransitionsOf(next[j], v, matches);
+        }
+        nodes = next;
+        nodeSize = nextSize;
+      }
+    }
+
+    private int find(String stem) {
+      int node = 0;
+      for (int i = 0; i < stem.length() && node >= 0; i++) {
+        node = child(node, stem.charAt(i));
+      }
+      return node;
+    }
+
+    void addTransitions(String stem, Version v, Collection<StemTransition> result) {
+      int node = find(stem);
+      if (node > 0) {
+        addTransitionsOf(node, v, result);
+      }
+    }
+
+    boolean contains(StemTransition transition) {
+      int node = find(transition.surface);
+      if (node <= 0 || value.get(node) < 0) {
+        return false;
+      }
+      int group = value.get(node);
+      int end = groupOffsets.get(group + 1);
+      for (int i = groupOffsets.get(group); i < end; i++) {
+        if (transitionTable[i].equals(transition)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Builds double array trie arrays from sorted, unique keys. Node 0 is the root. A node t is a
+   * child of node s with code c if t = base[s] + c and check[t] = s.
+   */
+  private static class TrieBuilder {
+
+    final String[] keys;
+    final char[] charCodes;
+
+    int[] base;
+    int[] check;
+    int[] value;
+    int size;
+    int nextCheckPos;
+
+    TrieBuilder(String[] keys, char[] charCodes) {
+      this.keys = keys;
+      this.charCodes = charCodes;
+      int capacity = Math.max(1024, keys.length * 2);
+      base = new int[capacity];
+      check = new int[capacity];
+      value = new int[capacity];
+      Arrays.fill(check, FREE);
+      Arrays.fill(value, -1);
+    }
+
+    void build() {
+      check[0] = 0;
+      size = 1;
+      if (keys.length > 0) {
+        insertChildren(0, 0, 0, keys.length);
+      }
+    }
+
+    private void ensureCapacity(int index) {
+      if (index < base.length) {
+        return;
+      }
+      int newCapacity = Math.max(index + 1, base.length + (base.length >> 1));
+      int oldCapacity = base.length;
+      base = Arrays.copyOf(base, newCapacity);
+      check = Arrays.copyOf(check, newCapacity);
+      value = Arrays.copyOf(value, newCapacity);
+      Arrays.fill(check, oldCapacity, newCapacity, FREE);
+      Arrays.fill(value, oldCapacity, newCapacity, -1);
+    }
+
+    // keys in [begin, end) share the same prefix of given length, which ends at parent node.
+    private void insertChildren(int parent, int depth, int begin, int end) {
+      int i = begin;
+      // keys are sorted and unique, so only the first key can end at this node.
+      if (keys[i].length() == depth) {
+        value[parent] = i;
+        i++;
+      }
+      if (i == end) {
+        return;
+      }
+
+      int[] codes = new int[end - i];
+      int[] starts = new int[end - i + 1];
+      int siblingCount = 0;
+      int previous = -1;
+      for (; i < end; i++) {
+        int code = charCodes[keys[i].charAt(depth)];
+        if (code != previous) {
+          codes[siblingCount] = code;
+          starts[siblingCount] = i;
+          siblingCount++;
+          previous = code;
+        }
+      }
+      starts[siblingCount] = end;
+
+      int b = findBase(codes, siblingCount);
+      base[parent] = b;
+      for (int j = 0; j < siblingCount; j++) {
+        int t = b + codes[j];
+        check[t] = parent;
+        if (t >= size) {
+          size = t + 1;
+        }
+      }
+      for (int j = 0; j < siblingCount; j++) {
+        insertChildren(b + codes[j], depth + 1, starts[j], starts[j + 1]);
+      }
+    }
+
+    private int findBase(int[] codes, int count) {
+      int pos = Math.max(codes[0] + 1, nextCheckPos) - 1;
+      int nonEmpty = 0;
+      boolean first = true;
+      outer:
+      while (true) {
+        pos++;
+        ensureCapacity(pos);
+        if (check[pos] != FREE) {
+          nonEmpty++;
+          continue;
+        } else if (first) {
+          nextCheckPos = pos;
+          first = false;
+        }
+        int b = pos - codes[0];
+        ensureCapacity(b + codes[count - 1]);
+        for (int j = 1; j < count; j++) {
+          if (check[b + codes[j]] != FREE) {
+            continue outer;
+          }
+        }
+        // skip densely used region in later searches.
+        if ((double) nonEmpty / (pos - nextCheckPos + 1) >= 0.95) {
+          nextCheckPos = pos;
+        }
+        return b;
+      }
+    }
+  }
+
+}
@@ -10,8 +10,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import zemberek.core.logging.Log;
 import zemberek.core.turkish.TurkishAlphabet;
@@ -41,6 +43,22 @@ public class StemTransitionsMapBased extends StemTransitionsBase implements Stem
     lexicon.forEach(this::addDictionaryItem);
   }
 
+  /**
+   * Creates the stem transitions of lexicon items with the provider instead of generating them.
+   * Provider should return the same transitions generate(item) would return.
+   */
+  public StemTransitionsMapBased(
+      RootLexicon lexicon,
+      TurkishMorphotactics morphotactics,
+      Function<DictionaryItem, List<StemTransition>> transitionProvider) {
+    this.lexicon = lexicon;
+    this.morphotactics = morphotactics;
+    this.singleStems = new ConcurrentHashMap<>(lexicon.size() * 2);
+    for (DictionaryItem item : lexicon) {
+      addTransitions(item, transitionProvider.apply(item));
+    }
+  }
+
   //TODO: this is kind of a hack. Because StemTransitions may be shared between
   // analyzer classes, this may be necessary when one of them happens to be ascii tolerant
   // and other is not.
@@ -183,14 +201,7 @@ public class StemTransitionsMapBased extends StemTransitionsBase implements Stem
   public void addDictionaryItem(DictionaryItem item) {
     lock.writeLock().lock();
     try {
-      List<StemTransition> transitions = generate(item);
-      for (StemTransition transition : transitions) {
-        addStemTransition(transition);
-      }
-      if (transitions.size() > 1 || (transitions.size() == 1 && !item.root
-          .equals(transitions.get(0).surface))) {
-        differentStemItems.putAll(item, transitions);
-      }
+      addTransitions(item, generate(item));
     } catch (Exception e) {
       Log.warn("Cannot generate stem transition for %s with reason %s", item, e.getMessage());
     } finally {
@@ -198,6 +209,16 @@ public class StemTransitionsMapBased extends StemTransitionsBase implements Stem
     }
   }
 
+  private void addTransitions(DictionaryItem item, List<StemTransition> transitions) {
+    for (StemTransition transition : transitions) {
+      addStemTransition(transition);
+    }
+    if (transitions.size() > 1 || (transitions.size() == 1 && !item.root
+        .equals(transitions.get(0).surface))) {
+      differentStemItems.putAll(item, transitions);
+    }
+  }
+
   public void removeDictionaryItem(DictionaryItem item) {
     lock.writeLock().lock();
     try {
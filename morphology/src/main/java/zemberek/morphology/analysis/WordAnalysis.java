@@ -1,5 +1,6 @@
 package zemberek.morphology.analysis;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -59,6 +60,19 @@ public class WordAnalysis implements Iterable<SingleAnalysis> {
     return new WordAnalysis(this.input, this.normalizedInput, analyses);
   }
 
+  /**
+   * Returns a copy of this with compact forms of the analyses.
+   *
+   * @see SingleAnalysis#compact(String)
+   */
+  public WordAnalysis compact() {
+    List<SingleAnalysis> compactResults = new ArrayList<>(analysisResults.size());
+    for (SingleAnalysis analysis : analysisResults) {
+      compactResults.add(analysis.compact(normalizedInput));
+    }
+    return new WordAnalysis(input, normalizedInput, compactResults);
+  }
+
   public List<SingleAnalysis> getAnalysisResults() {
     return analysisResults;
   }
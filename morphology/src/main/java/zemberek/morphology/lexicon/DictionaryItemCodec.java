@@ -0,0 +1,78 @@
+package zemberek.morphology.lexicon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import zemberek.core.turkish.PrimaryPos;
+import zemberek.core.turkish.RootAttribute;
+import zemberek.core.turkish.SecondaryPos;
+
+/**
+ * Binary encoding of DictionaryItem fields. Part of speech values are written with their ordinals
+ * and root attributes are written as a bit set of ordinals, so data can only be read by code with
+ * the same enum definitions. Users of this class must check enum compatibility themselves.
+ * <p>
+ * Strings are written as int32 byte length followed by UTF-8 bytes.
+ */
+public final class DictionaryItemCodec {
+
+  private static final PrimaryPos[] PRIMARY_POS = PrimaryPos.values();
+  private static final SecondaryPos[] SECONDARY_POS = SecondaryPos.values();
+  private static final RootAttribute[] ROOT_ATTRIBUTES = RootAttribute.values();
+
+  private DictionaryItemCodec() {
+  }
+
+  /**
+   * Writes lemma, root, pronunciation, part of speech values, attributes and index of the item.
+   * Reference item is not written.
+   */
+  public static void write(DataOutputStream dos, DictionaryItem item) throws IOException {
+    writeString(dos, item.lemma);
+    writeString(dos, item.root);
+    writeString(dos, item.pronunciation);
+    dos.writeByte(item.primaryPos.ordinal());
+    SecondaryPos secondaryPos = item.secondaryPos == null ? SecondaryPos.None : item.secondaryPos;
+    dos.writeByte(secondaryPos.ordinal());
+    long attributeBits = 0;
+    for (RootAttribute attribute : item.attributes) {
+      attributeBits |= 1L << attribute.ordinal();
+    }
+    dos.writeLong(attributeBits);
+    dos.writeInt(item.index);
+  }
+
+  /**
+   * Reads an item written with write method.
+   */
+  public static DictionaryItem read(ByteBuffer buffer) {
+    String lemma = readString(buffer);
+    String root = readString(buffer);
+    String pronunciation = readString(buffer);
+    PrimaryPos primaryPos = PRIMARY_POS[buffer.get()];
+    SecondaryPos secondaryPos = SECONDARY_POS[buffer.get()];
+    long attributeBits = buffer.getLong();
+    EnumSet<RootAttribute> attributes = EnumSet.noneOf(RootAttribute.class);
+    for (RootAttribute attribute : ROOT_ATTRIBUTES) {
+      if ((attributeBits & (1L << attribute.ordinal())) != 0) {
+        attributes.add(attribute);
+      }
+    }
+    return new DictionaryItem(
+        lemma, root, pronunciation, primaryPos, secondaryPos, attributes, buffer.getInt());
+  }
+
+  public static void writeString(DataOutputStream dos, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    dos.writeInt(bytes.length);
+    dos.write(bytes);
+  }
+
+  public static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -33,6 +33,13 @@ public class AttributeSet<E extends Enum<E>> {
     return new AttributeSet<>();
   }
 
+  /**
+   * Creates a set from the value returned by getBits().
+   */
+  public static <E extends Enum<E>> AttributeSet<E> fromBits(int bits) {
+    return new AttributeSet<>(bits);
+  }
+
   public void copyFrom(AttributeSet<E> other) {
     this.bits = other.bits;
   }
@@ -57,6 +64,10 @@ public class AttributeSet<E extends Enum<E>> {
     }
   }
 
+  public void clear() {
+    bits = 0;
+  }
+
   public void remove(E en) {
     bits &= ~mask(en);
   }
@@ -0,0 +1,303 @@
+package zemberek.morphology.morphotactics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import zemberek.core.logging.Log;
+import zemberek.core.turkish.RootAttribute;
+import zemberek.morphology.analysis.SearchPath;
+import zemberek.morphology.lexicon.DictionaryItem;
+
+/**
+ * A flattened, array based form of a morphotactics graph. States are represented with dense
+ * integer indexes and outgoing transitions of a state are stored in a continuous range of the
+ * transition arrays.
+ * <p>
+ * Transition conditions that only check phonetic attributes, root attributes, tail or suffix
+ * surface existence are converted to bit masks. Remaining conditions of a transition are kept as
+ * a residual Condition that is evaluated only if all mask checks pass.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public class CompiledMorphotactics {
+
+  public static final byte NO_REQUIREMENT = 0;
+  public static final byte REQUIRED = 1;
+  public static final byte FORBIDDEN = 2;
+
+  private final MorphemeState[] states;
+  private final Map<MorphemeState, Integer> stateIndexes;
+
+  // outgoing transitions of state i are in [transitionStart[i], transitionStart[i+1])
+  private final int[] transitionStart;
+
+  private final SuffixTransition[] transitions;
+  private final int[] targets;
+  private final boolean[] hasSurface;
+
+  // phonetic attribute masks. Path attribute bits must contain all bits of required and
+  // none of the forbidden.
+  private final int[] requiredPhonetic;
+  private final int[] forbiddenPhonetic;
+
+  // root attribute masks, checked against rootAttributeBits(item) of the path's dictionary item.
+  private final long[] requiredRoot;
+  private final long[] forbiddenRoot;
+
+  // remaining letters and suffix surface requirements. One of NO_REQUIREMENT, REQUIRED, FORBIDDEN
+  private final byte[] tailRequirement;
+  private final byte[] suffixSurfaceRequirement;
+
+  // conditions that could not be converted to masks. null if there is none.
+  private final Condition[] residualConditions;
+
+  private CompiledMorphotactics(List<MorphemeState> stateList) {
+    int stateCount = stateList.size();
+    this.states = stateList.toArray(new MorphemeState[0]);
+    this.stateIndexes = new IdentityHashMap<>(stateCount);
+    int transitionCount = 0;
+    for (int i = 0; i < stateCount; i++) {
+      stateIndexes.put(states[i], i);
+      transitionCount += states[i].getOutgoing().size();
+    }
+
+    this.transitionStart = new int[stateCount + 1];
+    this.transitions = new SuffixTransition[transitionCount];
+    this.targets = new int[transitionCount];
+    this.hasSurface = new boolean[transitionCount];
+    this.requiredPhonetic = new int[transitionCount];
+    this.forbiddenPhonetic = new int[transitionCount];
+    this.requiredRoot = new long[transitionCount];
+    this.forbiddenRoot = new long[transitionCount];
+    this.tailRequirement = new byte[transitionCount];
+    this.suffixSurfaceRequirement = new byte[transitionCount];
+    this.residualConditions = new Condition[transitionCount];
+
+    int t = 0;
+    int maskedCount = 0, residualCount = 0;
+    for (int i = 0; i < stateCount; i++) {
+      transitionStart[i] = t;
+      for (MorphemeTransition transition : states[i].getOutgoing()) {
+        SuffixTransition suffixTransition = (SuffixTransition) transition;
+        transitions[t] = suffixTransition;
+        targets[t] = stateIndexes.get(suffixTransition.to);
+        hasSurface[t] = suffixTransition.hasSurfaceForm();
+        List<Condition> residual = new ArrayList<>();
+        for (Condition atom : atoms(suffixTransition.getCondition())) {
+          if (compileAtom(atom, t)) {
+            maskedCount++;
+          } else {
+            residual.add(atom);
+          }
+        }
+        residualCount += residual.size();
+        if (residual.size() == 1) {
+          residualConditions[t] = residual.get(0);
+        } else if (residual.size() > 1) {
+          residualConditions[t] = Conditions.and(residual);
+        }
+        t++;
+      }
+    }
+    transitionStart[stateCount] = t;
+    Log.debug("Morphotactics compiled. States = %d, Transitions = %d, "
+            + "Conditions converted to masks = %d, Residual conditions = %d",
+        stateCount, transitionCount, maskedCount, residualCount);
+  }
+
+  /**
+   * Compiles the graph of the morphotactics. All MorphemeState fields of the morphotactics and
+   * target states of its current stem transitions are used as starting points, and every state
+   * reachable from them is included.
+   */
+  public static CompiledMorphotactics compile(TurkishMorphotactics morphotactics) {
+    // MorphemeState equality is based on ids, so identity is used for collecting states.
+    Set<MorphemeState> seeds = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<MorphemeState> ordered = new ArrayList<>(morphotactics.getAllStates());
+    seeds.addAll(ordered);
+    List<MorphemeState> newSeeds = new ArrayList<>();
+    for (StemTransition transition : morphotactics.getStemTransitions().getTransitions()) {
+      if (seeds.add(transition.to)) {
+        ordered.add(transition.to);
+        newSeeds.add(transition.to);
+      }
+    }
+
+    // collect states reachable from stem transition targets that are not fields.
+    ArrayDeque<MorphemeState> toVisit = new ArrayDeque<>(newSeeds);
+    while (!toVisit.isEmpty()) {
+      MorphemeState state = toVisit.poll();
+      for (MorphemeTransition transition : state.getOutgoing()) {
+        if (seeds.add(transition.to)) {
+          ordered.add(transition.to);
+          toVisit.add(transition.to);
+        }
+      }
+    }
+    return new CompiledMorphotactics(ordered);
+  }
+
+  // splits the condition to its AND connected parts.
+  private static List<Condition> atoms(Condition condition) {
+    List<Condition> result = new ArrayList<>();
+    if (condition == null) {
+      return result;
+    }
+    if (condition instanceof CombinedCondition) {
+      CombinedCondition combined = (CombinedCondition) condition;
+      if (combined.operator == Operator.AND || combined.conditions.size() == 1) {
+        for (Condition c : combined.conditions) {
+          result.addAll(atoms(c));
+        }
+        return result;
+      }
+    }
+    result.add(condition);
+    return result;
+  }
+
+  // converts the condition to a mask for transition t if possible.
+  private boolean compileAtom(Condition atom, int t) {
+    boolean negated = false;
+    if (atom instanceof Conditions.NotCondition) {
+      negated = true;
+      atom = ((Conditions.NotCondition) atom).condition;
+    }
+    if (atom instanceof Conditions.HasPhoneticAttribute) {
+      int bit = 1 << ((Conditions.HasPhoneticAttribute) atom).attribute.ordinal();
+      if (negated) {
+        forbiddenPhonetic[t] |= bit;
+      } else {
+        requiredPhonetic[t] |= bit;
+      }
+      return true;
+    }
+    if (atom instanceof Conditions.HasRootAttribute) {
+      long bit = 1L << ((Conditions.HasRootAttribute) atom).attribute.ordinal();
+      if (negated) {
+        forbiddenRoot[t] |= bit;
+      } else {
+        requiredRoot[t] |= bit;
+      }
+      return true;
+    }
+    if (atom instanceof Conditions.HasAnyRootAttribute && negated) {
+      for (RootAttribute attribute : ((Conditions.HasAnyRootAttribute) atom).attributes) {
+        forbiddenRoot[t] |= 1L << attribute.ordinal();
+      }
+      return true;
+    }
+    if (atom instanceof Conditions.HasTail || atom instanceof Conditions.HasNoTail) {
+      boolean requiresTail = (atom instanceof Conditions.HasTail) != negated;
+      return setRequirement(tailRequirement, t, requiresTail ? REQUIRED : FORBIDDEN);
+    }
+    if (atom instanceof Conditions.HasAnySuffixSurface) {
+      return setRequirement(suffixSurfaceRequirement, t, negated ? FORBIDDEN : REQUIRED);
+    }
+    return false;
+  }
+
+  // contradicting requirements are left as residual conditions so that they still fail.
+  private static boolean setRequirement(byte[] requirements, int t, byte requirement) {
+    if (requirements[t] != NO_REQUIREMENT && requirements[t] != requirement) {
+      return false;
+    }
+    requirements[t] = requirement;
+    return true;
+  }
+
+  /**
+   * Returns root attributes of the item as a bit mask that is compatible with root attribute
+   * masks of this class.
+   */
+  public static long rootAttributeBits(DictionaryItem item) {
+    long bits = 0;
+    for (RootAttribute attribute : item.attributes) {
+      bits |= 1L << attribute.ordinal();
+    }
+    return bits;
+  }
+
+  /**
+   * Returns the index of the state or -1 if state is not in this automaton.
+   */
+  public int getStateIndex(MorphemeState state) {
+    Integer index = stateIndexes.get(state);
+    return index == null ? -1 : index;
+  }
+
+  public MorphemeState getState(int stateIndex) {
+    return states[stateIndex];
+  }
+
+  public int stateCount() {
+    return states.length;
+  }
+
+  public int transitionCount() {
+    return transitions.length;
+  }
+
+  public int transitionStart(int stateIndex) {
+    return transitionStart[stateIndex];
+  }
+
+  public int transitionEnd(int stateIndex) {
+    return transitionStart[stateIndex + 1];
+  }
+
+  public SuffixTransition getTransition(int t) {
+    return transitions[t];
+  }
+
+  public int getTarget(int t) {
+    return targets[t];
+  }
+
+  public boolean hasSurface(int t) {
+    return hasSurface[t];
+  }
+
+  /**
+   * Checks mask converted conditions of transition t.
+   *
+   * @param t transition index.
+   * @param phoneticBits phonetic attribute bits of the path.
+   * @param rootBits root attribute bits of the path's dictionary item.
+   * @param hasTail if path has remaining letters.
+   * @param hasSuffixSurface if path contains a suffix with non empty surface.
+   */
+  public boolean passesMasks(
+      int t,
+      int phoneticBits,
+      long rootBits,
+      boolean hasTail,
+      boolean hasSuffixSurface) {
+    if ((phoneticBits & requiredPhonetic[t]) != requiredPhonetic[t]
+        || (phoneticBits & forbiddenPhonetic[t]) != 0) {
+      return false;
+    }
+    if ((rootBits & requiredRoot[t]) != requiredRoot[t] || (rootBits & forbiddenRoot[t]) != 0) {
+      return false;
+    }
+    byte tail = tailRequirement[t];
+    if (tail != NO_REQUIREMENT && (tail == REQUIRED) != hasTail) {
+      return false;
+    }
+    byte surface = suffixSurfaceRequirement[t];
+    return surface == NO_REQUIREMENT || (surface == REQUIRED) == hasSuffixSurface;
+  }
+
+  /**
+   * Checks conditions of transition t that could not be converted to masks.
+   */
+  public boolean passesResidual(int t, SearchPath path) {
+    Condition residual = residualConditions[t];
+    return residual == null || residual.accept(path);
+  }
+
+}
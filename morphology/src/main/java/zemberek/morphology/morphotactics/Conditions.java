@@ -7,13 +7,11 @@ import static zemberek.morphology.morphotactics.Operator.OR;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.PrimaryPos;
 import zemberek.core.turkish.RootAttribute;
 import zemberek.core.turkish.SecondaryPos;
-import zemberek.morphology.analysis.SurfaceTransition;
 import zemberek.morphology.analysis.SearchPath;
 import zemberek.morphology.lexicon.DictionaryItem;
 
@@ -146,7 +144,7 @@ class Conditions {
     return condition.not();
   }
 
-  private static class HasRootAttribute extends AbstractCondition {
+  static class HasRootAttribute extends AbstractCondition {
 
     RootAttribute attribute;
 
@@ -165,7 +163,7 @@ class Conditions {
     }
   }
 
-  private static class HasAnyRootAttribute extends AbstractCondition {
+  static class HasAnyRootAttribute extends AbstractCondition {
 
     RootAttribute[] attributes;
 
@@ -184,7 +182,7 @@ class Conditions {
     }
   }
 
-  private static class HasPhoneticAttribute extends AbstractCondition {
+  static class HasPhoneticAttribute extends AbstractCondition {
 
     PhoneticAttribute attribute;
 
@@ -318,7 +316,7 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      return !visitor.getTail().isEmpty();
+      return visitor.hasTail();
     }
 
     @Override
@@ -331,7 +329,7 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      return visitor.getTail().isEmpty();
+      return !visitor.hasTail();
     }
 
     @Override
@@ -350,16 +348,15 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> forms = visitor.getTransitions();
-      if (forms.size() < morphemes.length) {
+      if (visitor.getTransitionCount() < morphemes.length) {
         return false;
       }
-      int i = 0;
-      int j = forms.size() - morphemes.length;
-      while (i < morphemes.length) {
-        if (morphemes[i++] != forms.get(j++).getMorpheme()) {
+      SearchPath p = visitor;
+      for (int i = morphemes.length - 1; i >= 0; i--) {
+        if (morphemes[i] != p.getCurrentState().morpheme) {
           return false;
         }
+        p = p.getPrevious();
       }
       return true;
     }
@@ -380,22 +377,20 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> forms = visitor.getTransitions();
-      if (forms.size() < morphemes.length) {
+      if (visitor.getTransitionCount() < morphemes.length) {
         return false;
       }
-      int m = 0;
-      for (SurfaceTransition form : forms) {
-        if (form.getMorpheme().equals(morphemes[m])) {
-          m++;
-          if (m == morphemes.length) {
-            return true;
-          }
-        } else {
-          m = 0;
-        }
+      return matchCount(visitor) == morphemes.length;
+    }
+
+    // Scans transitions from first to last and returns the amount of matching morphemes.
+    // Path is visited recursively because it is linked from last transition to the first.
+    private int matchCount(SearchPath path) {
+      int m = path.getPrevious() == null ? 0 : matchCount(path.getPrevious());
+      if (m == morphemes.length) {
+        return m;
       }
-      return false;
+      return path.getCurrentState().morpheme.equals(morphemes[m]) ? m + 1 : 0;
     }
 
     @Override
@@ -600,11 +595,9 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (int i = suffixes.size() - 1; i > 0; i--) {
-        SurfaceTransition sf = suffixes.get(i);
-        if (sf.getState().derivative) {
-          return sf.getState() == state;
+      for (SearchPath p = visitor; p.getPrevious() != null; p = p.getPrevious()) {
+        if (p.getCurrentState().derivative) {
+          return p.getCurrentState() == state;
         }
       }
       return false;
@@ -620,9 +613,8 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (SurfaceTransition suffix : suffixes) {
-        if (suffix.getState().derivative) {
+      for (SearchPath p = visitor; p != null; p = p.getPrevious()) {
+        if (p.getCurrentState().derivative) {
           return true;
         }
       }
@@ -646,11 +638,9 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (int i = suffixes.size() - 1; i > 0; i--) {
-        SurfaceTransition sf = suffixes.get(i);
-        if (sf.getState().derivative) {
-          return states.contains(sf.getState());
+      for (SearchPath p = visitor; p.getPrevious() != null; p = p.getPrevious()) {
+        if (p.getCurrentState().derivative) {
+          return states.contains(p.getCurrentState());
         }
       }
       return false;
@@ -676,13 +666,11 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (int i = suffixes.size() - 1; i > 0; i--) {
-        SurfaceTransition sf = suffixes.get(i);
-        if (states.contains(sf.getState())) {
+      for (SearchPath p = visitor; p.getPrevious() != null; p = p.getPrevious()) {
+        if (states.contains(p.getCurrentState())) {
           return true;
         }
-        if (sf.getState().derivative) {
+        if (p.getCurrentState().derivative) {
           return false;
         }
       }
@@ -709,25 +697,20 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-
-      int lastIndex = suffixes.size() - 1;
-      SurfaceTransition sf = suffixes.get(lastIndex);
+      SearchPath p = visitor;
       // go back until a transition that is connected to a derivative morpheme.
-      while (!sf.getState().derivative) {
-        if (lastIndex == 0) { // there is no previous group. return early.
+      while (!p.getCurrentState().derivative) {
+        if (p.getPrevious() == null) { // there is no previous group. return early.
           return false;
         }
-        lastIndex--;
-        sf = suffixes.get(lastIndex);
+        p = p.getPrevious();
       }
 
-      for (int i = lastIndex - 1; i > 0; i--) {
-        sf = suffixes.get(i);
-        if (states.contains(sf.getState())) {
+      for (p = p.getPrevious(); p != null && p.getPrevious() != null; p = p.getPrevious()) {
+        if (states.contains(p.getCurrentState())) {
           return true;
         }
-        if (sf.getState().derivative) { //could not found the morpheme in this group.
+        if (p.getCurrentState().derivative) { //could not found the morpheme in this group.
           return false;
         }
       }
@@ -753,25 +736,20 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-
-      int lastIndex = suffixes.size() - 1;
-      SurfaceTransition sf = suffixes.get(lastIndex);
+      SearchPath p = visitor;
       // go back until a transition that is connected to a derivative morpheme.
-      while (!sf.getState().derivative) {
-        if (lastIndex == 0) { // there is no previous group. return early.
+      while (!p.getCurrentState().derivative) {
+        if (p.getPrevious() == null) { // there is no previous group. return early.
           return false;
         }
-        lastIndex--;
-        sf = suffixes.get(lastIndex);
+        p = p.getPrevious();
       }
 
-      for (int i = lastIndex - 1; i > 0; i--) {
-        sf = suffixes.get(i);
-        if (morphemes.contains(sf.getState().morpheme)) {
+      for (p = p.getPrevious(); p != null && p.getPrevious() != null; p = p.getPrevious()) {
+        if (morphemes.contains(p.getCurrentState().morpheme)) {
           return true;
         }
-        if (sf.getState().derivative) { //could not found the morpheme in this group.
+        if (p.getCurrentState().derivative) { //could not found the morpheme in this group.
           return false;
         }
       }
@@ -790,13 +768,11 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (int i = suffixes.size() - 1; i > 0; i--) {
-        SurfaceTransition sf = suffixes.get(i);
-        if (sf.getState().derivative) {
+      for (SearchPath p = visitor; p.getPrevious() != null; p = p.getPrevious()) {
+        if (p.getCurrentState().derivative) {
           return true;
         }
-        if (!sf.surface.isEmpty()) {
+        if (!p.getSurface().isEmpty()) {
           return false;
         }
       }
@@ -820,9 +796,8 @@ class Conditions {
 
     @Override
     public boolean accept(SearchPath visitor) {
-      List<SurfaceTransition> suffixes = visitor.getTransitions();
-      for (SurfaceTransition suffix : suffixes) {
-        if (morphemes.contains(suffix.getState().morpheme)) {
+      for (SearchPath p = visitor; p != null; p = p.getPrevious()) {
+        if (morphemes.contains(p.getCurrentState().morpheme)) {
           return true;
         }
       }
@@ -4,7 +4,9 @@ import static zemberek.morphology.morphotactics.Conditions.notHave;
 import static zemberek.morphology.morphotactics.MorphemeState.nonTerminal;
 import static zemberek.morphology.morphotactics.MorphemeState.terminal;
 
+import java.util.function.Function;
 import zemberek.core.turkish.PhoneticAttribute;
+import zemberek.morphology.analysis.StemTransitions;
 import zemberek.morphology.analysis.StemTransitionsMapBased;
 import zemberek.morphology.lexicon.RootLexicon;
 import zemberek.morphology.morphotactics.Conditions.RootSurfaceIsAny;
@@ -18,6 +20,15 @@ public class InformalTurkishMorphotactics extends TurkishMorphotactics {
     this.stemTransitions = new StemTransitionsMapBased(lexicon, this);
   }
 
+  public InformalTurkishMorphotactics(
+      RootLexicon lexicon,
+      Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory) {
+    this.lexicon = lexicon;
+    makeGraph();
+    addGraph();
+    this.stemTransitions = stemTransitionsFactory.apply(this);
+  }
+
   public static final Morpheme a1plInformal = addMorpheme(
       Morpheme.builder("A1pl_Informal", "A1pl_Informal")
           .informal().mappedMorpheme(a1pl).build());
@@ -51,22 +62,22 @@ public class InformalTurkishMorphotactics extends TurkishMorphotactics {
       Morpheme.builder("Opt_Informal", "Opt_Informal")
           .informal().mappedMorpheme(opt).build());
 
-  MorphemeState vA1pl_ST_Inf = terminal("vA1pl_ST_Inf", a1plInformal);
-  MorphemeState vA1sg_ST_Inf = terminal("vA1sg_ST_Inf", a1sgInformal);
-  MorphemeState vProgYor_S_Inf = nonTerminal("vProgYor_S_Inf", prog1Informal);
+  MorphemeState vA1pl_ST_Inf = addState(terminal("vA1pl_ST_Inf", a1plInformal));
+  MorphemeState vA1sg_ST_Inf = addState(terminal("vA1sg_ST_Inf", a1sgInformal));
+  MorphemeState vProgYor_S_Inf = addState(nonTerminal("vProgYor_S_Inf", prog1Informal));
 
-  MorphemeState vFut_S_Inf = nonTerminal("vFut_S_Inf", futInformal);
-  MorphemeState vFut_S_Inf2 = nonTerminal("vFut_S_Inf2", futInformal);
-  MorphemeState vFut_S_Inf3 = nonTerminal("vFut_S_Inf3", futInformal);
+  MorphemeState vFut_S_Inf = addState(nonTerminal("vFut_S_Inf", futInformal));
+  MorphemeState vFut_S_Inf2 = addState(nonTerminal("vFut_S_Inf2", futInformal));
+  MorphemeState vFut_S_Inf3 = addState(nonTerminal("vFut_S_Inf3", futInformal));
 
-  MorphemeState vQues_S_Inf = nonTerminal("vQues_S_Inf", quesSuffixInformal);
+  MorphemeState vQues_S_Inf = addState(nonTerminal("vQues_S_Inf", quesSuffixInformal));
 
-  MorphemeState vNeg_S_Inf = nonTerminal("vNeg_S_Inf", negInformal);
-  MorphemeState vUnable_S_Inf = nonTerminal("vUnable_S_Inf", unableInformal);
+  MorphemeState vNeg_S_Inf = addState(nonTerminal("vNeg_S_Inf", negInformal));
+  MorphemeState vUnable_S_Inf = addState(nonTerminal("vUnable_S_Inf", unableInformal));
 
-  MorphemeState vOpt_S_Inf = nonTerminal("vOpt_S_Inf", optInformal);
-  MorphemeState vOpt_S_Empty_Inf = nonTerminal("vOpt_S_Empty_Inf", optInformal);
-  MorphemeState vOpt_S_Empty_Inf2 = nonTerminal("vOpt_S_Empty_Inf2", optInformal);
+  MorphemeState vOpt_S_Inf = addState(nonTerminal("vOpt_S_Inf", optInformal));
+  MorphemeState vOpt_S_Empty_Inf = addState(nonTerminal("vOpt_S_Empty_Inf", optInformal));
+  MorphemeState vOpt_S_Empty_Inf2 = addState(nonTerminal("vOpt_S_Empty_Inf2", optInformal));
 
   void addGraph() {
 
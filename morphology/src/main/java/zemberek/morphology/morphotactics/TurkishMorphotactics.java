@@ -18,10 +18,14 @@ import static zemberek.morphology.morphotactics.MorphemeState.nonTerminalDerivat
 import static zemberek.morphology.morphotactics.MorphemeState.terminal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import zemberek.core.turkish.PhoneticAttribute;
 import zemberek.core.turkish.PrimaryPos;
@@ -265,76 +269,81 @@ public class TurkishMorphotactics {
   // oku-malı
   public static final Morpheme neces = addMorpheme(instance("Necessity", "Neces"));
 
+  // states in registration order. Compiled morphotactics and snapshots depend on this order, so
+  // it must be declared before the states.
+  private final List<MorphemeState> states = new ArrayList<>();
+
   //-------------- States ----------------------------
   // _ST = Terminal state _S = Non Terminal State.
   // A terminal state means that a walk in the graph can end there.
 
   // root of the graph.
-  MorphemeState root_S = nonTerminal("root_S", root);
+  MorphemeState root_S = addState(nonTerminal("root_S", root));
 
-  MorphemeState puncRoot_ST = builder("puncRoot_ST", punc).terminal().posRoot().build();
+  MorphemeState puncRoot_ST = addState(builder("puncRoot_ST", punc).terminal().posRoot().build());
 
   //-------------- Noun States ------------------------
 
-  MorphemeState noun_S = builder("noun_S", noun).posRoot().build();
-  MorphemeState nounCompoundRoot_S = builder("nounCompoundRoot_S", noun).posRoot().build();
-  MorphemeState nounSuRoot_S = builder("nounSuRoot_S", noun).posRoot().build();
-  MorphemeState nounInf1Root_S = builder("nounInf1Root_S", noun).posRoot().build();
-  MorphemeState nounActOfRoot_S = builder("nounActOfRoot_S", noun).posRoot().build();
+  MorphemeState noun_S = addState(builder("noun_S", noun).posRoot().build());
+  MorphemeState nounCompoundRoot_S =
+      addState(builder("nounCompoundRoot_S", noun).posRoot().build());
+  MorphemeState nounSuRoot_S = addState(builder("nounSuRoot_S", noun).posRoot().build());
+  MorphemeState nounInf1Root_S = addState(builder("nounInf1Root_S", noun).posRoot().build());
+  MorphemeState nounActOfRoot_S = addState(builder("nounActOfRoot_S", noun).posRoot().build());
 
   // Number-Person agreement
 
-  MorphemeState a3sg_S = nonTerminal("a3sg_S", a3sg);
-  MorphemeState a3sgSu_S = nonTerminal("a3sgSu_S", a3sg);
-  MorphemeState a3sgCompound_S = nonTerminal("a3sgCompound_S", a3sg);
-  MorphemeState a3sgInf1_S = nonTerminal("a3sgInf1_S", a3sg);
-  MorphemeState a3sgActOf_S = nonTerminal("a3sgActOf_S", a3sg);
-  MorphemeState a3pl_S = nonTerminal("a3pl_S", a3pl);
-  MorphemeState a3plActOf_S = nonTerminal("a3plActOf_S", a3pl);
-  MorphemeState a3plCompound_S = nonTerminal("a3plCompound_S", a3pl);
-  MorphemeState a3plCompound2_S = nonTerminal("a3plCompound2_S", a3pl);
+  MorphemeState a3sg_S = addState(nonTerminal("a3sg_S", a3sg));
+  MorphemeState a3sgSu_S = addState(nonTerminal("a3sgSu_S", a3sg));
+  MorphemeState a3sgCompound_S = addState(nonTerminal("a3sgCompound_S", a3sg));
+  MorphemeState a3sgInf1_S = addState(nonTerminal("a3sgInf1_S", a3sg));
+  MorphemeState a3sgActOf_S = addState(nonTerminal("a3sgActOf_S", a3sg));
+  MorphemeState a3pl_S = addState(nonTerminal("a3pl_S", a3pl));
+  MorphemeState a3plActOf_S = addState(nonTerminal("a3plActOf_S", a3pl));
+  MorphemeState a3plCompound_S = addState(nonTerminal("a3plCompound_S", a3pl));
+  MorphemeState a3plCompound2_S = addState(nonTerminal("a3plCompound2_S", a3pl));
 
   // Possessive
 
-  MorphemeState pnon_S = nonTerminal("pnon_S", pnon);
-  MorphemeState pnonCompound_S = nonTerminal("pnonCompound_S", pnon);
-  MorphemeState pnonCompound2_S = nonTerminal("pnonCompound2_S", pnon);
-  MorphemeState pnonInf1_S = nonTerminal("pnonInf1_S", pnon);
-  MorphemeState pnonActOf = nonTerminal("pnonActOf", pnon);
-  MorphemeState p1sg_S = nonTerminal("p1sg_S", p1sg);
-  MorphemeState p2sg_S = nonTerminal("p2sg_S", p2sg);
-  MorphemeState p3sg_S = nonTerminal("p3sg_S", p3sg);
-  MorphemeState p1pl_S = nonTerminal("p1pl_S", p1pl);
-  MorphemeState p2pl_S = nonTerminal("p2pl_S", p2pl);
-  MorphemeState p3pl_S = nonTerminal("p3pl_S", p3pl);
+  MorphemeState pnon_S = addState(nonTerminal("pnon_S", pnon));
+  MorphemeState pnonCompound_S = addState(nonTerminal("pnonCompound_S", pnon));
+  MorphemeState pnonCompound2_S = addState(nonTerminal("pnonCompound2_S", pnon));
+  MorphemeState pnonInf1_S = addState(nonTerminal("pnonInf1_S", pnon));
+  MorphemeState pnonActOf = addState(nonTerminal("pnonActOf", pnon));
+  MorphemeState p1sg_S = addState(nonTerminal("p1sg_S", p1sg));
+  MorphemeState p2sg_S = addState(nonTerminal("p2sg_S", p2sg));
+  MorphemeState p3sg_S = addState(nonTerminal("p3sg_S", p3sg));
+  MorphemeState p1pl_S = addState(nonTerminal("p1pl_S", p1pl));
+  MorphemeState p2pl_S = addState(nonTerminal("p2pl_S", p2pl));
+  MorphemeState p3pl_S = addState(nonTerminal("p3pl_S", p3pl));
 
   // Case
 
-  MorphemeState nom_ST = terminal("nom_ST", nom);
-  MorphemeState nom_S = nonTerminal("nom_S", nom);
+  MorphemeState nom_ST = addState(terminal("nom_ST", nom));
+  MorphemeState nom_S = addState(nonTerminal("nom_S", nom));
 
-  MorphemeState dat_ST = terminal("dat_ST", dat);
-  MorphemeState abl_ST = terminal("abl_ST", abl);
-  MorphemeState loc_ST = terminal("loc_ST", loc);
-  MorphemeState ins_ST = terminal("ins_ST", ins);
-  MorphemeState acc_ST = terminal("acc_ST", acc);
-  MorphemeState gen_ST = terminal("gen_ST", gen);
-  MorphemeState equ_ST = terminal("equ_ST", equ);
+  MorphemeState dat_ST = addState(terminal("dat_ST", dat));
+  MorphemeState abl_ST = addState(terminal("abl_ST", abl));
+  MorphemeState loc_ST = addState(terminal("loc_ST", loc));
+  MorphemeState ins_ST = addState(terminal("ins_ST", ins));
+  MorphemeState acc_ST = addState(terminal("acc_ST", acc));
+  MorphemeState gen_ST = addState(terminal("gen_ST", gen));
+  MorphemeState equ_ST = addState(terminal("equ_ST", equ));
 
   // Derivation
 
-  MorphemeState dim_S = nonTerminalDerivative("dim_S", dim);
-  MorphemeState ness_S = nonTerminalDerivative("ness_S", ness);
-  MorphemeState agt_S = nonTerminalDerivative("agt_S", agt);
-  MorphemeState related_S = nonTerminalDerivative("related_S", related);
-  MorphemeState rel_S = nonTerminalDerivative("rel_S", rel);
-  MorphemeState relToPron_S = nonTerminalDerivative("relToPron_S", rel);
-  MorphemeState with_S = nonTerminalDerivative("with_S", with);
-  MorphemeState without_S = nonTerminalDerivative("without_S", without);
-  MorphemeState justLike_S = nonTerminalDerivative("justLike_S", justLike);
-  MorphemeState nounZeroDeriv_S = nonTerminalDerivative("nounZeroDeriv_S", zero);
-  MorphemeState become_S = nonTerminalDerivative("become_S", become);
-  MorphemeState acquire_S = nonTerminalDerivative("acquire_S", acquire);
+  MorphemeState dim_S = addState(nonTerminalDerivative("dim_S", dim));
+  MorphemeState ness_S = addState(nonTerminalDerivative("ness_S", ness));
+  MorphemeState agt_S = addState(nonTerminalDerivative("agt_S", agt));
+  MorphemeState related_S = addState(nonTerminalDerivative("related_S", related));
+  MorphemeState rel_S = addState(nonTerminalDerivative("rel_S", rel));
+  MorphemeState relToPron_S = addState(nonTerminalDerivative("relToPron_S", rel));
+  MorphemeState with_S = addState(nonTerminalDerivative("with_S", with));
+  MorphemeState without_S = addState(nonTerminalDerivative("without_S", without));
+  MorphemeState justLike_S = addState(nonTerminalDerivative("justLike_S", justLike));
+  MorphemeState nounZeroDeriv_S = addState(nonTerminalDerivative("nounZeroDeriv_S", zero));
+  MorphemeState become_S = addState(nonTerminalDerivative("become_S", become));
+  MorphemeState acquire_S = addState(nonTerminalDerivative("acquire_S", acquire));
 
   //-------------- Conditions ------------------------------
 
@@ -350,6 +359,15 @@ public class TurkishMorphotactics {
     return morpheme;
   }
 
+  /**
+   * Registers a state of the morpheme graph and returns it. Every state of the graph must be
+   * registered, including the states of sub classes.
+   */
+  protected MorphemeState addState(MorphemeState state) {
+    states.add(state);
+    return state;
+  }
+
   public StemTransitions getStemTransitions() {
     return stemTransitions;
   }
@@ -390,6 +408,38 @@ public class TurkishMorphotactics {
     this.stemTransitions = new StemTransitionsMapBased(lexicon, this);
   }
 
+  /**
+   * Creates the morphotactics with stem transitions created by the factory. Factory is called
+   * after the morpheme graph is built, so it can refer to the states of this instance. This is
+   * used when stem transitions are already available, such as loading from a snapshot.
+   */
+  public TurkishMorphotactics(
+      RootLexicon lexicon,
+      Function<TurkishMorphotactics, StemTransitions> stemTransitionsFactory) {
+    this.lexicon = lexicon;
+    makeGraph();
+    this.stemTransitions = stemTransitionsFactory.apply(this);
+  }
+
+  /**
+   * Returns all states of this morphotactics in registration order. Throws IllegalStateException
+   * if a state that is reachable from a registered state is not registered.
+   */
+  public List<MorphemeState> getAllStates() {
+    // MorphemeState equality is based on ids, so identity is used for checking states.
+    Set<MorphemeState> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+    registered.addAll(states);
+    for (MorphemeState state : states) {
+      for (MorphemeTransition transition : state.getOutgoing()) {
+        if (!registered.contains(transition.to)) {
+          throw new IllegalStateException("State " + transition.to.id
+              + " is reachable from " + state.id + " but it is not registered.");
+        }
+      }
+    }
+    return Collections.unmodifiableList(states);
+  }
+
   protected void makeGraph() {
     mapSpecialItemsToRootStates();
     connectNounStates();
@@ -782,15 +832,15 @@ public class TurkishMorphotactics {
 
   //-------- Morphotactics for modified forms of words like "içeri->içerde"
   public MorphemeState nounLastVowelDropRoot_S =
-      builder("nounLastVowelDropRoot_S", noun).posRoot().build();
+      addState(builder("nounLastVowelDropRoot_S", noun).posRoot().build());
   public MorphemeState adjLastVowelDropRoot_S =
-      builder("adjLastVowelDropRoot_S", adj).posRoot().build();
+      addState(builder("adjLastVowelDropRoot_S", adj).posRoot().build());
   public MorphemeState postpLastVowelDropRoot_S =
-      builder("postpLastVowelDropRoot_S", postp).posRoot().build();
-  MorphemeState a3PlLastVowelDrop_S = nonTerminal("a3PlLastVowelDrop_S", a3pl);
-  MorphemeState a3sgLastVowelDrop_S = nonTerminal("a3sgLastVowelDrop_S", a3sg);
-  MorphemeState pNonLastVowelDrop_S = nonTerminal("pNonLastVowelDrop_S", pnon);
-  MorphemeState zeroLastVowelDrop_S = nonTerminalDerivative("zeroLastVowelDrop_S", zero);
+      addState(builder("postpLastVowelDropRoot_S", postp).posRoot().build());
+  MorphemeState a3PlLastVowelDrop_S = addState(nonTerminal("a3PlLastVowelDrop_S", a3pl));
+  MorphemeState a3sgLastVowelDrop_S = addState(nonTerminal("a3sgLastVowelDrop_S", a3sg));
+  MorphemeState pNonLastVowelDrop_S = addState(nonTerminal("pNonLastVowelDrop_S", pnon));
+  MorphemeState zeroLastVowelDrop_S = addState(nonTerminalDerivative("zeroLastVowelDrop_S", zero));
 
   private void connectLastVowelDropWords() {
     nounLastVowelDropRoot_S.addEmpty(a3sgLastVowelDrop_S);
@@ -805,15 +855,15 @@ public class TurkishMorphotactics {
     zeroLastVowelDrop_S.addEmpty(nounLastVowelDropRoot_S);
   }
 
-  MorphemeState nounProper_S = builder("nounProper_S", noun).posRoot().build();
-  MorphemeState nounAbbrv_S = builder("nounAbbrv_S", noun).posRoot().build();
+  MorphemeState nounProper_S = addState(builder("nounProper_S", noun).posRoot().build());
+  MorphemeState nounAbbrv_S = addState(builder("nounAbbrv_S", noun).posRoot().build());
   // this will be used for proper noun separation.
-  MorphemeState puncProperSeparator_S = nonTerminal("puncProperSeparator_S", punc);
+  MorphemeState puncProperSeparator_S = addState(nonTerminal("puncProperSeparator_S", punc));
 
-  MorphemeState nounNoSuffix_S = builder("nounNoSuffix_S", noun).posRoot().build();
-  MorphemeState nounA3sgNoSuffix_S = nonTerminal("nounA3sgNoSuffix_S", a3sg);
-  MorphemeState nounPnonNoSuffix_S = nonTerminal("nounPnonNoSuffix_S", pnon);
-  MorphemeState nounNomNoSuffix_ST = terminal("nounNomNoSuffix_S", nom);
+  MorphemeState nounNoSuffix_S = addState(builder("nounNoSuffix_S", noun).posRoot().build());
+  MorphemeState nounA3sgNoSuffix_S = addState(nonTerminal("nounA3sgNoSuffix_S", a3sg));
+  MorphemeState nounPnonNoSuffix_S = addState(nonTerminal("nounPnonNoSuffix_S", pnon));
+  MorphemeState nounNomNoSuffix_ST = addState(terminal("nounNomNoSuffix_S", nom));
 
   private void connectProperNounsAndAbbreviations() {
     // ---- Proper noun handling -------
@@ -837,25 +887,27 @@ public class TurkishMorphotactics {
 
   //-------------- Adjective States ------------------------
 
-  MorphemeState adjectiveRoot_ST = builder("adjectiveRoot_ST", adj).terminal().posRoot().build();
-  MorphemeState adjAfterVerb_S = builder("adjAfterVerb_S", adj).posRoot().build();
-  MorphemeState adjAfterVerb_ST = builder("adjAfterVerb_ST", adj).terminal().posRoot().build();
+  MorphemeState adjectiveRoot_ST =
+      addState(builder("adjectiveRoot_ST", adj).terminal().posRoot().build());
+  MorphemeState adjAfterVerb_S = addState(builder("adjAfterVerb_S", adj).posRoot().build());
+  MorphemeState adjAfterVerb_ST =
+      addState(builder("adjAfterVerb_ST", adj).terminal().posRoot().build());
 
-  MorphemeState adjZeroDeriv_S = nonTerminalDerivative("adjZeroDeriv_S", zero);
+  MorphemeState adjZeroDeriv_S = addState(nonTerminalDerivative("adjZeroDeriv_S", zero));
 
   // After verb->adj derivations Adj can get possesive suffixes.
   // Such as "oku-duğ-um", "okuyacağı"
-  MorphemeState aPnon_ST = terminal("aPnon_ST", pnon);
-  MorphemeState aP1sg_ST = terminal("aP1sg_ST", p1sg);
-  MorphemeState aP2sg_ST = terminal("aP2sg_ST", p2sg);
-  MorphemeState aP3sg_ST = terminal("aP3sg_ST", p3sg);
-  MorphemeState aP1pl_ST = terminal("aP3sg_ST", p1pl);
-  MorphemeState aP2pl_ST = terminal("aP2pl_ST", p2pl);
-  MorphemeState aP3pl_ST = terminal("aP3pl_ST", p3pl);
-
-  MorphemeState aLy_S = nonTerminalDerivative("aLy_S", ly);
-  MorphemeState aAsIf_S = nonTerminalDerivative("aAsIf_S", asIf);
-  MorphemeState aAgt_S = nonTerminalDerivative("aAgt_S", agt);
+  MorphemeState aPnon_ST = addState(terminal("aPnon_ST", pnon));
+  MorphemeState aP1sg_ST = addState(terminal("aP1sg_ST", p1sg));
+  MorphemeState aP2sg_ST = addState(terminal("aP2sg_ST", p2sg));
+  MorphemeState aP3sg_ST = addState(terminal("aP3sg_ST", p3sg));
+  MorphemeState aP1pl_ST = addState(terminal("aP3sg_ST", p1pl));
+  MorphemeState aP2pl_ST = addState(terminal("aP2pl_ST", p2pl));
+  MorphemeState aP3pl_ST = addState(terminal("aP3pl_ST", p3pl));
+
+  MorphemeState aLy_S = addState(nonTerminalDerivative("aLy_S", ly));
+  MorphemeState aAsIf_S = addState(nonTerminalDerivative("aAsIf_S", asIf));
+  MorphemeState aAgt_S = addState(nonTerminalDerivative("aAgt_S", agt));
 
   private void connectAdjectiveStates() {
 
@@ -909,8 +961,9 @@ public class TurkishMorphotactics {
   }
 
   //--------------------- Numeral Root --------------------------------------------------
-  MorphemeState numeralRoot_ST = builder("numeralRoot_ST", num).terminal().posRoot().build();
-  MorphemeState numZeroDeriv_S = nonTerminalDerivative("numZeroDeriv_S", zero);
+  MorphemeState numeralRoot_ST =
+      addState(builder("numeralRoot_ST", num).terminal().posRoot().build());
+  MorphemeState numZeroDeriv_S = addState(nonTerminalDerivative("numZeroDeriv_S", zero));
 
   private void connectNumeralStates() {
     numeralRoot_ST.add(ness_S, "lI~k");
@@ -932,25 +985,25 @@ public class TurkishMorphotactics {
 
   //-------------- Adjective-Noun connected Verb States ------------------------
 
-  MorphemeState nVerb_S = builder("nVerb_S", verb).posRoot().build();
-  MorphemeState nVerbDegil_S = builder("nVerbDegil_S", verb).posRoot().build();
+  MorphemeState nVerb_S = addState(builder("nVerb_S", verb).posRoot().build());
+  MorphemeState nVerbDegil_S = addState(builder("nVerbDegil_S", verb).posRoot().build());
 
-  MorphemeState nPresent_S = nonTerminal("nPresent_S", pres);
-  MorphemeState nPast_S = nonTerminal("nPast_S", past);
-  MorphemeState nNarr_S = nonTerminal("nNarr_S", narr);
-  MorphemeState nCond_S = nonTerminal("nCond_S", cond);
-  MorphemeState nA1sg_ST = terminal("nA1sg_ST", a1sg);
-  MorphemeState nA2sg_ST = terminal("nA2sg_ST", a2sg);
-  MorphemeState nA1pl_ST = terminal("nA1pl_ST", a1pl);
-  MorphemeState nA2pl_ST = terminal("nA2pl_ST", a2pl);
-  MorphemeState nA3sg_ST = terminal("nA3sg_ST", a3sg);
-  MorphemeState nA3sg_S = nonTerminal("nA3sg_S", a3sg);
-  MorphemeState nA3pl_ST = terminal("nA3pl_ST", a3pl);
+  MorphemeState nPresent_S = addState(nonTerminal("nPresent_S", pres));
+  MorphemeState nPast_S = addState(nonTerminal("nPast_S", past));
+  MorphemeState nNarr_S = addState(nonTerminal("nNarr_S", narr));
+  MorphemeState nCond_S = addState(nonTerminal("nCond_S", cond));
+  MorphemeState nA1sg_ST = addState(terminal("nA1sg_ST", a1sg));
+  MorphemeState nA2sg_ST = addState(terminal("nA2sg_ST", a2sg));
+  MorphemeState nA1pl_ST = addState(terminal("nA1pl_ST", a1pl));
+  MorphemeState nA2pl_ST = addState(terminal("nA2pl_ST", a2pl));
+  MorphemeState nA3sg_ST = addState(terminal("nA3sg_ST", a3sg));
+  MorphemeState nA3sg_S = addState(nonTerminal("nA3sg_S", a3sg));
+  MorphemeState nA3pl_ST = addState(terminal("nA3pl_ST", a3pl));
 
-  MorphemeState nCop_ST = terminal("nCop_ST", cop);
-  MorphemeState nCopBeforeA3pl_S = nonTerminal("nCopBeforeA3pl_S", cop);
+  MorphemeState nCop_ST = addState(terminal("nCop_ST", cop));
+  MorphemeState nCopBeforeA3pl_S = addState(nonTerminal("nCopBeforeA3pl_S", cop));
 
-  MorphemeState nNeg_S = nonTerminal("nNeg_S", neg);
+  MorphemeState nNeg_S = addState(nonTerminal("nNeg_S", neg));
 
   private void connectVerbAfterNounAdjStates() {
 
@@ -1092,74 +1145,75 @@ public class TurkishMorphotactics {
   // ----------- Pronoun states --------------------------
 
   // Pronouns have states similar with Nouns.
-  MorphemeState pronPers_S = builder("pronPers_S", pron).posRoot().build();
+  MorphemeState pronPers_S = addState(builder("pronPers_S", pron).posRoot().build());
 
-  MorphemeState pronDemons_S = builder("pronDemons_S", pron).posRoot().build();
-  public MorphemeState pronQuant_S = builder("pronQuant_S", pron).posRoot().build();
+  MorphemeState pronDemons_S = addState(builder("pronDemons_S", pron).posRoot().build());
+  public MorphemeState pronQuant_S = addState(builder("pronQuant_S", pron).posRoot().build());
   public MorphemeState pronQuantModified_S =
-      builder("pronQuantModified_S", pron).posRoot().build();
-  public MorphemeState pronQues_S = builder("pronQues_S", pron).posRoot().build();
-  public MorphemeState pronReflex_S = builder("pronReflex_S", pron).posRoot().build();
+      addState(builder("pronQuantModified_S", pron).posRoot().build());
+  public MorphemeState pronQues_S = addState(builder("pronQues_S", pron).posRoot().build());
+  public MorphemeState pronReflex_S = addState(builder("pronReflex_S", pron).posRoot().build());
 
   // used for ben-sen modification
-  public MorphemeState pronPers_Mod_S = builder("pronPers_Mod_S", pron).posRoot().build();
+  public MorphemeState pronPers_Mod_S = addState(builder("pronPers_Mod_S", pron).posRoot().build());
   // A root for noun->Rel->Pron derivation.
-  public MorphemeState pronAfterRel_S = builder("pronAfterRel_S", pron).posRoot().build();
+  public MorphemeState pronAfterRel_S = addState(builder("pronAfterRel_S", pron).posRoot().build());
 
-  MorphemeState pA1sg_S = nonTerminal("pA1sg_S", a1sg);
-  MorphemeState pA2sg_S = nonTerminal("pA2sg_S", a2sg);
+  MorphemeState pA1sg_S = addState(nonTerminal("pA1sg_S", a1sg));
+  MorphemeState pA2sg_S = addState(nonTerminal("pA2sg_S", a2sg));
 
-  MorphemeState pA1sgMod_S = nonTerminal("pA1sgMod_S", a1sg); // for modified ben
-  MorphemeState pA2sgMod_S = nonTerminal("pA2sgMod_S", a2sg); // for modified sen
+  MorphemeState pA1sgMod_S = addState(nonTerminal("pA1sgMod_S", a1sg)); // for modified ben
+  MorphemeState pA2sgMod_S = addState(nonTerminal("pA2sgMod_S", a2sg)); // for modified sen
 
-  MorphemeState pA3sg_S = nonTerminal("pA3sg_S", a3sg);
-  MorphemeState pA3sgRel_S = nonTerminal("pA3sgRel_S", a3sg);
-  MorphemeState pA1pl_S = nonTerminal("pA1pl_S", a1pl);
-  MorphemeState pA2pl_S = nonTerminal("pA2pl_S", a2pl);
+  MorphemeState pA3sg_S = addState(nonTerminal("pA3sg_S", a3sg));
+  MorphemeState pA3sgRel_S = addState(nonTerminal("pA3sgRel_S", a3sg));
+  MorphemeState pA1pl_S = addState(nonTerminal("pA1pl_S", a1pl));
+  MorphemeState pA2pl_S = addState(nonTerminal("pA2pl_S", a2pl));
 
-  MorphemeState pA3pl_S = nonTerminal("pA3pl_S", a3pl);
-  MorphemeState pA3plRel_S = nonTerminal("pA3plRel_S", a3pl);
+  MorphemeState pA3pl_S = addState(nonTerminal("pA3pl_S", a3pl));
+  MorphemeState pA3plRel_S = addState(nonTerminal("pA3plRel_S", a3pl));
 
-  MorphemeState pQuantA3sg_S = nonTerminal("pQuantA3sg_S", a3sg);
-  MorphemeState pQuantA3pl_S = nonTerminal("pQuantA3pl_S", a3pl);
-  MorphemeState pQuantModA3pl_S = nonTerminal("pQuantModA3pl_S", a3pl); // for birbirleri etc.
-  MorphemeState pQuantA1pl_S = nonTerminal("pQuantA1pl_S", a1pl);
-  MorphemeState pQuantA2pl_S = nonTerminal("pQuantA2pl_S", a2pl);
+  MorphemeState pQuantA3sg_S = addState(nonTerminal("pQuantA3sg_S", a3sg));
+  MorphemeState pQuantA3pl_S = addState(nonTerminal("pQuantA3pl_S", a3pl));
+  // for birbirleri etc.
+  MorphemeState pQuantModA3pl_S = addState(nonTerminal("pQuantModA3pl_S", a3pl));
+  MorphemeState pQuantA1pl_S = addState(nonTerminal("pQuantA1pl_S", a1pl));
+  MorphemeState pQuantA2pl_S = addState(nonTerminal("pQuantA2pl_S", a2pl));
 
-  MorphemeState pQuesA3sg_S = nonTerminal("pQuesA3sg_S", a3sg);
-  MorphemeState pQuesA3pl_S = nonTerminal("pQuesA3pl_S", a3pl);
+  MorphemeState pQuesA3sg_S = addState(nonTerminal("pQuesA3sg_S", a3sg));
+  MorphemeState pQuesA3pl_S = addState(nonTerminal("pQuesA3pl_S", a3pl));
 
-  MorphemeState pReflexA3sg_S = nonTerminal("pReflexA3sg_S", a3sg);
-  MorphemeState pReflexA3pl_S = nonTerminal("pReflexA3pl_S", a3pl);
-  MorphemeState pReflexA1sg_S = nonTerminal("pReflexA1sg_S", a1sg);
-  MorphemeState pReflexA2sg_S = nonTerminal("pReflexA2sg_S", a2sg);
-  MorphemeState pReflexA1pl_S = nonTerminal("pReflexA1pl_S", a1pl);
-  MorphemeState pReflexA2pl_S = nonTerminal("pReflexA2pl_S", a2pl);
+  MorphemeState pReflexA3sg_S = addState(nonTerminal("pReflexA3sg_S", a3sg));
+  MorphemeState pReflexA3pl_S = addState(nonTerminal("pReflexA3pl_S", a3pl));
+  MorphemeState pReflexA1sg_S = addState(nonTerminal("pReflexA1sg_S", a1sg));
+  MorphemeState pReflexA2sg_S = addState(nonTerminal("pReflexA2sg_S", a2sg));
+  MorphemeState pReflexA1pl_S = addState(nonTerminal("pReflexA1pl_S", a1pl));
+  MorphemeState pReflexA2pl_S = addState(nonTerminal("pReflexA2pl_S", a2pl));
 
   // Possessive
 
-  MorphemeState pPnon_S = nonTerminal("pPnon_S", pnon);
-  MorphemeState pPnonRel_S = nonTerminal("pPnonRel_S", pnon);
-  MorphemeState pPnonMod_S = nonTerminal("pPnonMod_S", pnon); // for modified ben-sen
-  MorphemeState pP1sg_S = nonTerminal("pP1sg_S", p1sg); // kimim
-  MorphemeState pP2sg_S = nonTerminal("pP2sg_S", p2sg);
-  MorphemeState pP3sg_S = nonTerminal("pP3sg_S", p3sg); // for `birisi` etc
-  MorphemeState pP1pl_S = nonTerminal("pP1pl_S", p1pl); // for `birbirimiz` etc
-  MorphemeState pP2pl_S = nonTerminal("pP2pl_S", p2pl); // for `birbiriniz` etc
-  MorphemeState pP3pl_S = nonTerminal("pP3pl_S", p3pl); // for `birileri` etc
+  MorphemeState pPnon_S = addState(nonTerminal("pPnon_S", pnon));
+  MorphemeState pPnonRel_S = addState(nonTerminal("pPnonRel_S", pnon));
+  MorphemeState pPnonMod_S = addState(nonTerminal("pPnonMod_S", pnon)); // for modified ben-sen
+  MorphemeState pP1sg_S = addState(nonTerminal("pP1sg_S", p1sg)); // kimim
+  MorphemeState pP2sg_S = addState(nonTerminal("pP2sg_S", p2sg));
+  MorphemeState pP3sg_S = addState(nonTerminal("pP3sg_S", p3sg)); // for `birisi` etc
+  MorphemeState pP1pl_S = addState(nonTerminal("pP1pl_S", p1pl)); // for `birbirimiz` etc
+  MorphemeState pP2pl_S = addState(nonTerminal("pP2pl_S", p2pl)); // for `birbiriniz` etc
+  MorphemeState pP3pl_S = addState(nonTerminal("pP3pl_S", p3pl)); // for `birileri` etc
 
   // Case
 
-  MorphemeState pNom_ST = terminal("pNom_ST", nom);
-  MorphemeState pDat_ST = terminal("pDat_ST", dat);
-  MorphemeState pAcc_ST = terminal("pAcc_ST", acc);
-  MorphemeState pAbl_ST = terminal("pAbl_ST", abl);
-  MorphemeState pLoc_ST = terminal("pLoc_ST", loc);
-  MorphemeState pGen_ST = terminal("pGen_ST", gen);
-  MorphemeState pIns_ST = terminal("pIns_ST", ins);
-  MorphemeState pEqu_ST = terminal("pEqu_ST", equ);
+  MorphemeState pNom_ST = addState(terminal("pNom_ST", nom));
+  MorphemeState pDat_ST = addState(terminal("pDat_ST", dat));
+  MorphemeState pAcc_ST = addState(terminal("pAcc_ST", acc));
+  MorphemeState pAbl_ST = addState(terminal("pAbl_ST", abl));
+  MorphemeState pLoc_ST = addState(terminal("pLoc_ST", loc));
+  MorphemeState pGen_ST = addState(terminal("pGen_ST", gen));
+  MorphemeState pIns_ST = addState(terminal("pIns_ST", ins));
+  MorphemeState pEqu_ST = addState(terminal("pEqu_ST", equ));
 
-  MorphemeState pronZeroDeriv_S = nonTerminalDerivative("pronZeroDeriv_S", zero);
+  MorphemeState pronZeroDeriv_S = addState(nonTerminalDerivative("pronZeroDeriv_S", zero));
 
   private void connectPronounStates() {
 
@@ -1476,22 +1530,22 @@ public class TurkishMorphotactics {
     pronZeroDeriv_S.addEmpty(pvVerbRoot_S);
   }
 
-  MorphemeState pvPresent_S = nonTerminal("pvPresent_S", pres);
-  MorphemeState pvPast_S = nonTerminal("pvPast_S", past);
-  MorphemeState pvNarr_S = nonTerminal("pvNarr_S", narr);
-  MorphemeState pvCond_S = nonTerminal("pvCond_S", cond);
-  MorphemeState pvA1sg_ST = terminal("pvA1sg_ST", a1sg);
-  MorphemeState pvA2sg_ST = terminal("pvA2sg_ST", a2sg);
-  MorphemeState pvA3sg_ST = terminal("pvA3sg_ST", a3sg);
-  MorphemeState pvA3sg_S = nonTerminal("pvA3sg_S", a3sg);
-  MorphemeState pvA1pl_ST = terminal("pvA1pl_ST", a1pl);
-  MorphemeState pvA2pl_ST = terminal("pvA2pl_ST", a2pl);
-  MorphemeState pvA3pl_ST = terminal("pvA3pl_ST", a3pl);
+  MorphemeState pvPresent_S = addState(nonTerminal("pvPresent_S", pres));
+  MorphemeState pvPast_S = addState(nonTerminal("pvPast_S", past));
+  MorphemeState pvNarr_S = addState(nonTerminal("pvNarr_S", narr));
+  MorphemeState pvCond_S = addState(nonTerminal("pvCond_S", cond));
+  MorphemeState pvA1sg_ST = addState(terminal("pvA1sg_ST", a1sg));
+  MorphemeState pvA2sg_ST = addState(terminal("pvA2sg_ST", a2sg));
+  MorphemeState pvA3sg_ST = addState(terminal("pvA3sg_ST", a3sg));
+  MorphemeState pvA3sg_S = addState(nonTerminal("pvA3sg_S", a3sg));
+  MorphemeState pvA1pl_ST = addState(terminal("pvA1pl_ST", a1pl));
+  MorphemeState pvA2pl_ST = addState(terminal("pvA2pl_ST", a2pl));
+  MorphemeState pvA3pl_ST = addState(terminal("pvA3pl_ST", a3pl));
 
-  MorphemeState pvCopBeforeA3pl_S = nonTerminal("pvCopBeforeA3pl_S", cop);
-  MorphemeState pvCop_ST = terminal("pvCop_ST", cop);
+  MorphemeState pvCopBeforeA3pl_S = addState(nonTerminal("pvCopBeforeA3pl_S", cop));
+  MorphemeState pvCop_ST = addState(terminal("pvCop_ST", cop));
 
-  MorphemeState pvVerbRoot_S = builder("pvVerbRoot_S", verb).posRoot().build();
+  MorphemeState pvVerbRoot_S = addState(builder("pvVerbRoot_S", verb).posRoot().build());
 
   private void connectVerbAfterPronoun() {
 
@@ -1563,18 +1617,19 @@ public class TurkishMorphotactics {
 
   // ------------- Adverbs -----------------
 
-  MorphemeState advRoot_ST = builder("advRoot_ST", adv).posRoot().terminal().build();
-  MorphemeState advNounRoot_ST = builder("advRoot_ST", adv).posRoot().terminal().build();
+  MorphemeState advRoot_ST = addState(builder("advRoot_ST", adv).posRoot().terminal().build());
+  MorphemeState advNounRoot_ST = addState(builder("advRoot_ST", adv).posRoot().terminal().build());
   MorphemeState advForVerbDeriv_ST =
-      builder("advForVerbDeriv_ST", adv).posRoot().terminal().build();
+      addState(builder("advForVerbDeriv_ST", adv).posRoot().terminal().build());
 
-  MorphemeState avNounAfterAdvRoot_ST = builder("advToNounRoot_ST", noun).posRoot().build();
-  MorphemeState avA3sg_S = nonTerminal("avA3sg_S", a3sg);
-  MorphemeState avPnon_S = nonTerminal("avPnon_S", pnon);
-  MorphemeState avDat_ST = terminal("avDat_ST", dat);
+  MorphemeState avNounAfterAdvRoot_ST =
+      addState(builder("advToNounRoot_ST", noun).posRoot().build());
+  MorphemeState avA3sg_S = addState(nonTerminal("avA3sg_S", a3sg));
+  MorphemeState avPnon_S = addState(nonTerminal("avPnon_S", pnon));
+  MorphemeState avDat_ST = addState(terminal("avDat_ST", dat));
 
-  MorphemeState avZero_S = nonTerminalDerivative("avZero_S", zero);
-  MorphemeState avZeroToVerb_S = nonTerminalDerivative("avZeroToVerb_S", zero);
+  MorphemeState avZero_S = addState(nonTerminalDerivative("avZero_S", zero));
+  MorphemeState avZeroToVerb_S = addState(nonTerminalDerivative("avZeroToVerb_S", zero));
 
   private void connectAdverbs() {
     advNounRoot_ST.addEmpty(avZero_S);
@@ -1589,37 +1644,39 @@ public class TurkishMorphotactics {
 
   // ------------- Interjection, Conjunctions, Determiner and Duplicator  -----------------
 
-  MorphemeState conjRoot_ST = builder("conjRoot_ST", conj).posRoot().terminal().build();
-  MorphemeState interjRoot_ST = builder("interjRoot_ST", interj).posRoot().terminal().build();
-  MorphemeState detRoot_ST = builder("detRoot_ST", det).posRoot().terminal().build();
-  MorphemeState dupRoot_ST = builder("dupRoot_ST", dup).posRoot().terminal().build();
+  MorphemeState conjRoot_ST = addState(builder("conjRoot_ST", conj).posRoot().terminal().build());
+  MorphemeState interjRoot_ST =
+      addState(builder("interjRoot_ST", interj).posRoot().terminal().build());
+  MorphemeState detRoot_ST = addState(builder("detRoot_ST", det).posRoot().terminal().build());
+  MorphemeState dupRoot_ST = addState(builder("dupRoot_ST", dup).posRoot().terminal().build());
 
   // ------------- Post Positive ------------------------------------------------
 
-  MorphemeState postpRoot_ST = builder("postpRoot_ST", postp).posRoot().terminal().build();
-  MorphemeState postpZero_S = nonTerminalDerivative("postpZero_S", zero);
+  MorphemeState postpRoot_ST =
+      addState(builder("postpRoot_ST", postp).posRoot().terminal().build());
+  MorphemeState postpZero_S = addState(nonTerminalDerivative("postpZero_S", zero));
 
-  MorphemeState po2nRoot_S = nonTerminal("po2nRoot_S", noun);
+  MorphemeState po2nRoot_S = addState(nonTerminal("po2nRoot_S", noun));
 
-  MorphemeState po2nA3sg_S = nonTerminal("po2nA3sg_S", a3sg);
-  MorphemeState po2nA3pl_S = nonTerminal("po2nA3pl_S", a3pl);
+  MorphemeState po2nA3sg_S = addState(nonTerminal("po2nA3sg_S", a3sg));
+  MorphemeState po2nA3pl_S = addState(nonTerminal("po2nA3pl_S", a3pl));
 
-  MorphemeState po2nP3sg_S = nonTerminal("po2nP3sg_S", p3sg);
-  MorphemeState po2nP1sg_S = nonTerminal("po2nP1sg_S", p1sg);
-  MorphemeState po2nP2sg_S = nonTerminal("po2nP2sg_S", p2sg);
-  MorphemeState po2nP1pl_S = nonTerminal("po2nP1pl_S", p1pl);
-  MorphemeState po2nP2pl_S = nonTerminal("po2nP2pl_S", p2pl);
-  MorphemeState po2nPnon_S = nonTerminal("po2nPnon_S", pnon);
+  MorphemeState po2nP3sg_S = addState(nonTerminal("po2nP3sg_S", p3sg));
+  MorphemeState po2nP1sg_S = addState(nonTerminal("po2nP1sg_S", p1sg));
+  MorphemeState po2nP2sg_S = addState(nonTerminal("po2nP2sg_S", p2sg));
+  MorphemeState po2nP1pl_S = addState(nonTerminal("po2nP1pl_S", p1pl));
+  MorphemeState po2nP2pl_S = addState(nonTerminal("po2nP2pl_S", p2pl));
+  MorphemeState po2nPnon_S = addState(nonTerminal("po2nPnon_S", pnon));
 
 
-  MorphemeState po2nNom_ST = terminal("po2nNom_ST", nom);
-  MorphemeState po2nDat_ST = terminal("po2nDat_ST", dat);
-  MorphemeState po2nAbl_ST = terminal("po2nAbl_ST", abl);
-  MorphemeState po2nLoc_ST = terminal("po2nLoc_ST", loc);
-  MorphemeState po2nIns_ST = terminal("po2nIns_ST", ins);
-  MorphemeState po2nAcc_ST = terminal("po2nAcc_ST", acc);
-  MorphemeState po2nGen_ST = terminal("po2nGen_ST", gen);
-  MorphemeState po2nEqu_ST = terminal("po2nEqu_ST", equ);
+  MorphemeState po2nNom_ST = addState(terminal("po2nNom_ST", nom));
+  MorphemeState po2nDat_ST = addState(terminal("po2nDat_ST", dat));
+  MorphemeState po2nAbl_ST = addState(terminal("po2nAbl_ST", abl));
+  MorphemeState po2nLoc_ST = addState(terminal("po2nLoc_ST", loc));
+  MorphemeState po2nIns_ST = addState(terminal("po2nIns_ST", ins));
+  MorphemeState po2nAcc_ST = addState(terminal("po2nAcc_ST", acc));
+  MorphemeState po2nGen_ST = addState(terminal("po2nGen_ST", gen));
+  MorphemeState po2nEqu_ST = addState(terminal("po2nEqu_ST", equ));
 
   private void connectPostpositives() {
 
@@ -1674,114 +1731,118 @@ public class TurkishMorphotactics {
 
   // ------------- Verbs -----------------------------------
 
-  public MorphemeState verbRoot_S = builder("verbRoot_S", verb).posRoot().build();
+  public MorphemeState verbRoot_S = addState(builder("verbRoot_S", verb).posRoot().build());
   public MorphemeState verbLastVowelDropModRoot_S =
-      builder("verbLastVowelDropModRoot_S", verb).posRoot().build();
+      addState(builder("verbLastVowelDropModRoot_S", verb).posRoot().build());
   public MorphemeState verbLastVowelDropUnmodRoot_S =
-      builder("verbLastVowelDropUnmodRoot_S", verb).posRoot().build();
-
-  MorphemeState vA1sg_ST = terminal("vA1sg_ST", a1sg);
-  MorphemeState vA2sg_ST = terminal("vA2sg_ST", a2sg);
-  MorphemeState vA3sg_ST = terminal("vA3sg_ST", a3sg);
-  MorphemeState vA1pl_ST = terminal("vA1pl_ST", a1pl);
-  MorphemeState vA2pl_ST = terminal("vA2pl_ST", a2pl);
-  MorphemeState vA3pl_ST = terminal("vA3pl_ST", a3pl);
-
-  MorphemeState vPast_S = nonTerminal("vPast_S", past);
-  MorphemeState vNarr_S = nonTerminal("vNarr_S", narr);
-  MorphemeState vCond_S = nonTerminal("vCond_S", cond);
-  MorphemeState vCondAfterPerson_ST = terminal("vCondAfterPerson_ST", cond);
-  MorphemeState vPastAfterTense_S = nonTerminal("vPastAfterTense_S", past);
-  MorphemeState vNarrAfterTense_S = nonTerminal("vNarrAfterTense_S", narr);
+      addState(builder("verbLastVowelDropUnmodRoot_S", verb).posRoot().build());
+
+  MorphemeState vA1sg_ST = addState(terminal("vA1sg_ST", a1sg));
+  MorphemeState vA2sg_ST = addState(terminal("vA2sg_ST", a2sg));
+  MorphemeState vA3sg_ST = addState(terminal("vA3sg_ST", a3sg));
+  MorphemeState vA1pl_ST = addState(terminal("vA1pl_ST", a1pl));
+  MorphemeState vA2pl_ST = addState(terminal("vA2pl_ST", a2pl));
+  MorphemeState vA3pl_ST = addState(terminal("vA3pl_ST", a3pl));
+
+  MorphemeState vPast_S = addState(nonTerminal("vPast_S", past));
+  MorphemeState vNarr_S = addState(nonTerminal("vNarr_S", narr));
+  MorphemeState vCond_S = addState(nonTerminal("vCond_S", cond));
+  MorphemeState vCondAfterPerson_ST = addState(terminal("vCondAfterPerson_ST", cond));
+  MorphemeState vPastAfterTense_S = addState(nonTerminal("vPastAfterTense_S", past));
+  MorphemeState vNarrAfterTense_S = addState(nonTerminal("vNarrAfterTense_S", narr));
 
   // terminal cases are used if A3pl comes before NarrAfterTense, PastAfterTense or vCond
-  MorphemeState vPastAfterTense_ST = terminal("vPastAfterTense_ST", past);
-  MorphemeState vNarrAfterTense_ST = terminal("vNarrAfterTense_ST", narr);
-  MorphemeState vCond_ST = terminal("vCond_ST", cond);
+  MorphemeState vPastAfterTense_ST = addState(terminal("vPastAfterTense_ST", past));
+  MorphemeState vNarrAfterTense_ST = addState(terminal("vNarrAfterTense_ST", narr));
+  MorphemeState vCond_ST = addState(terminal("vCond_ST", cond));
 
-  MorphemeState vProgYor_S = nonTerminal("vProgYor_S", prog1);
-  MorphemeState vProgMakta_S = nonTerminal("vProgMakta_S", prog2);
-  MorphemeState vFut_S = nonTerminal("vFut_S", fut);
+  MorphemeState vProgYor_S = addState(nonTerminal("vProgYor_S", prog1));
+  MorphemeState vProgMakta_S = addState(nonTerminal("vProgMakta_S", prog2));
+  MorphemeState vFut_S = addState(nonTerminal("vFut_S", fut));
 
-  MorphemeState vCop_ST = terminal("vCop_ST", cop);
-  MorphemeState vCopBeforeA3pl_S = nonTerminal("vCopBeforeA3pl_S", cop);
+  MorphemeState vCop_ST = addState(terminal("vCop_ST", cop));
+  MorphemeState vCopBeforeA3pl_S = addState(nonTerminal("vCopBeforeA3pl_S", cop));
 
-  MorphemeState vNeg_S = nonTerminal("vNeg_S", neg);
-  MorphemeState vUnable_S = nonTerminal("vUnable_S", unable);
+  MorphemeState vNeg_S = addState(nonTerminal("vNeg_S", neg));
+  MorphemeState vUnable_S = addState(nonTerminal("vUnable_S", unable));
   // for negative before progressive-1 "Iyor"
-  MorphemeState vNegProg1_S = nonTerminal("vNegProg1_S", neg);
-  MorphemeState vUnableProg1_S = nonTerminal("vUnableProg1_S", unable);
+  MorphemeState vNegProg1_S = addState(nonTerminal("vNegProg1_S", neg));
+  MorphemeState vUnableProg1_S = addState(nonTerminal("vUnableProg1_S", unable));
 
 
-  MorphemeState vImp_S = nonTerminal("vImp_S", imp);
-  MorphemeState vImpYemekYi_S = nonTerminal("vImpYemekYi_S", imp);
-  MorphemeState vImpYemekYe_S = nonTerminal("vImpYemekYe_S", imp);
+  MorphemeState vImp_S = addState(nonTerminal("vImp_S", imp));
+  MorphemeState vImpYemekYi_S = addState(nonTerminal("vImpYemekYi_S", imp));
+  MorphemeState vImpYemekYe_S = addState(nonTerminal("vImpYemekYe_S", imp));
 
-  MorphemeState vCausT_S = nonTerminalDerivative("vCaus_S", caus);
-  MorphemeState vCausTır_S = nonTerminalDerivative("vCausTır_S", caus);
+  MorphemeState vCausT_S = addState(nonTerminalDerivative("vCaus_S", caus));
+  MorphemeState vCausTır_S = addState(nonTerminalDerivative("vCausTır_S", caus));
 
-  MorphemeState vRecip_S = nonTerminalDerivative("vRecip_S", recip);
-  MorphemeState vImplicitRecipRoot_S = builder("vImplicitRecipRoot_S", verb).posRoot().build();
+  MorphemeState vRecip_S = addState(nonTerminalDerivative("vRecip_S", recip));
+  MorphemeState vImplicitRecipRoot_S =
+      addState(builder("vImplicitRecipRoot_S", verb).posRoot().build());
 
-  MorphemeState vReflex_S = nonTerminalDerivative("vReflex_S", reflex);
-  MorphemeState vImplicitReflexRoot_S = builder("vImplicitReflexRoot_S", verb).posRoot().build();
+  MorphemeState vReflex_S = addState(nonTerminalDerivative("vReflex_S", reflex));
+  MorphemeState vImplicitReflexRoot_S =
+      addState(builder("vImplicitReflexRoot_S", verb).posRoot().build());
 
   // for progressive vowel drop.
-  MorphemeState verbRoot_VowelDrop_S = builder("verbRoot_VowelDrop_S", verb).posRoot().build();
-
-  MorphemeState vAor_S = nonTerminal("vAor_S", aor);
-  MorphemeState vAorNeg_S = nonTerminal("vAorNeg_S", aor);
-  MorphemeState vAorNegEmpty_S = nonTerminal("vAorNegEmpty_S", aor);
-  MorphemeState vAorPartNeg_S = nonTerminalDerivative("vAorPartNeg_S", aorPart);
-  MorphemeState vAorPart_S = nonTerminalDerivative("vAorPart_S", aorPart);
-
-  MorphemeState vAble_S = nonTerminalDerivative("vAble_S", able);
-  MorphemeState vAbleNeg_S = nonTerminalDerivative("vAbleNeg_S", able);
-  MorphemeState vAbleNegDerivRoot_S = builder("vAbleNegDerivRoot_S", verb).posRoot().build();
-
-  MorphemeState vPass_S = nonTerminalDerivative("vPass_S", pass);
-
-  MorphemeState vOpt_S = nonTerminal("vOpt_S", opt);
-  MorphemeState vDesr_S = nonTerminal("vDesr_S", desr);
-  MorphemeState vNeces_S = nonTerminal("vNeces_S", neces);
-
-  MorphemeState vInf1_S = nonTerminalDerivative("vInf1_S", inf1);
-  MorphemeState vInf2_S = nonTerminalDerivative("vInf2_S", inf2);
-  MorphemeState vInf3_S = nonTerminalDerivative("vInf3_S", inf3);
-
-  MorphemeState vAgt_S = nonTerminalDerivative("vAgt_S", agt);
-  MorphemeState vActOf_S = nonTerminalDerivative("vActOf_S", actOf);
-
-  MorphemeState vPastPart_S = nonTerminalDerivative("vPastPart_S", pastPart);
-  MorphemeState vFutPart_S = nonTerminalDerivative("vFutPart_S", futPart);
-  MorphemeState vPresPart_S = nonTerminalDerivative("vPresPart_S", presPart);
-  MorphemeState vNarrPart_S = nonTerminalDerivative("vNarrPart_S", narrPart);
-
-  MorphemeState vFeelLike_S = nonTerminalDerivative("vFeelLike_S", feelLike);
-
-  MorphemeState vNotState_S = nonTerminalDerivative("vNotState_S", notState);
-
-  MorphemeState vEverSince_S = nonTerminalDerivative("vEverSince_S", everSince);
-  MorphemeState vRepeat_S = nonTerminalDerivative("vRepeat_S", repeat);
-  MorphemeState vAlmost_S = nonTerminalDerivative("vAlmost_S", almost);
-  MorphemeState vHastily_S = nonTerminalDerivative("vHastily_S", hastily);
-  MorphemeState vStay_S = nonTerminalDerivative("vStay_S", stay);
-  MorphemeState vStart_S = nonTerminalDerivative("vStart_S", start);
-
-  MorphemeState vWhile_S = nonTerminalDerivative("vWhile_S", while_);
-  MorphemeState vWhen_S = nonTerminalDerivative("vWhen_S", when);
-  MorphemeState vAsIf_S = nonTerminalDerivative("vAsIf_S", asIf);
-  MorphemeState vSinceDoingSo_S = nonTerminalDerivative("vSinceDoingSo_S", sinceDoingSo);
-  MorphemeState vAsLongAs_S = nonTerminalDerivative("vAsLongAs_S", asLongAs);
-  MorphemeState vByDoingSo_S = nonTerminalDerivative("vByDoingSo_S", byDoingSo);
-  MorphemeState vAdamantly_S = nonTerminalDerivative("vAdamantly_S", adamantly);
-  MorphemeState vAfterDoing_S = nonTerminalDerivative("vAfterDoing_S", afterDoingSo);
+  MorphemeState verbRoot_VowelDrop_S =
+      addState(builder("verbRoot_VowelDrop_S", verb).posRoot().build());
+
+  MorphemeState vAor_S = addState(nonTerminal("vAor_S", aor));
+  MorphemeState vAorNeg_S = addState(nonTerminal("vAorNeg_S", aor));
+  MorphemeState vAorNegEmpty_S = addState(nonTerminal("vAorNegEmpty_S", aor));
+  MorphemeState vAorPartNeg_S = addState(nonTerminalDerivative("vAorPartNeg_S", aorPart));
+  MorphemeState vAorPart_S = addState(nonTerminalDerivative("vAorPart_S", aorPart));
+
+  MorphemeState vAble_S = addState(nonTerminalDerivative("vAble_S", able));
+  MorphemeState vAbleNeg_S = addState(nonTerminalDerivative("vAbleNeg_S", able));
+  MorphemeState vAbleNegDerivRoot_S =
+      addState(builder("vAbleNegDerivRoot_S", verb).posRoot().build());
+
+  MorphemeState vPass_S = addState(nonTerminalDerivative("vPass_S", pass));
+
+  MorphemeState vOpt_S = addState(nonTerminal("vOpt_S", opt));
+  MorphemeState vDesr_S = addState(nonTerminal("vDesr_S", desr));
+  MorphemeState vNeces_S = addState(nonTerminal("vNeces_S", neces));
+
+  MorphemeState vInf1_S = addState(nonTerminalDerivative("vInf1_S", inf1));
+  MorphemeState vInf2_S = addState(nonTerminalDerivative("vInf2_S", inf2));
+  MorphemeState vInf3_S = addState(nonTerminalDerivative("vInf3_S", inf3));
+
+  MorphemeState vAgt_S = addState(nonTerminalDerivative("vAgt_S", agt));
+  MorphemeState vActOf_S = addState(nonTerminalDerivative("vActOf_S", actOf));
+
+  MorphemeState vPastPart_S = addState(nonTerminalDerivative("vPastPart_S", pastPart));
+  MorphemeState vFutPart_S = addState(nonTerminalDerivative("vFutPart_S", futPart));
+  MorphemeState vPresPart_S = addState(nonTerminalDerivative("vPresPart_S", presPart));
+  MorphemeState vNarrPart_S = addState(nonTerminalDerivative("vNarrPart_S", narrPart));
+
+  MorphemeState vFeelLike_S = addState(nonTerminalDerivative("vFeelLike_S", feelLike));
+
+  MorphemeState vNotState_S = addState(nonTerminalDerivative("vNotState_S", notState));
+
+  MorphemeState vEverSince_S = addState(nonTerminalDerivative("vEverSince_S", everSince));
+  MorphemeState vRepeat_S = addState(nonTerminalDerivative("vRepeat_S", repeat));
+  MorphemeState vAlmost_S = addState(nonTerminalDerivative("vAlmost_S", almost));
+  MorphemeState vHastily_S = addState(nonTerminalDerivative("vHastily_S", hastily));
+  MorphemeState vStay_S = addState(nonTerminalDerivative("vStay_S", stay));
+  MorphemeState vStart_S = addState(nonTerminalDerivative("vStart_S", start));
+
+  MorphemeState vWhile_S = addState(nonTerminalDerivative("vWhile_S", while_));
+  MorphemeState vWhen_S = addState(nonTerminalDerivative("vWhen_S", when));
+  MorphemeState vAsIf_S = addState(nonTerminalDerivative("vAsIf_S", asIf));
+  MorphemeState vSinceDoingSo_S = addState(nonTerminalDerivative("vSinceDoingSo_S", sinceDoingSo));
+  MorphemeState vAsLongAs_S = addState(nonTerminalDerivative("vAsLongAs_S", asLongAs));
+  MorphemeState vByDoingSo_S = addState(nonTerminalDerivative("vByDoingSo_S", byDoingSo));
+  MorphemeState vAdamantly_S = addState(nonTerminalDerivative("vAdamantly_S", adamantly));
+  MorphemeState vAfterDoing_S = addState(nonTerminalDerivative("vAfterDoing_S", afterDoingSo));
   MorphemeState vWithoutHavingDoneSo_S =
-      nonTerminalDerivative("vWithoutHavingDoneSo_S", withoutHavingDoneSo);
-  MorphemeState vWithoutBeingAbleToHaveDoneSo_S =
-      nonTerminalDerivative("vWithoutBeingAbleToHaveDoneSo_S", withoutBeingAbleToHaveDoneSo);
+      addState(nonTerminalDerivative("vWithoutHavingDoneSo_S", withoutHavingDoneSo));
+  MorphemeState vWithoutBeingAbleToHaveDoneSo_S = addState(
+      nonTerminalDerivative("vWithoutBeingAbleToHaveDoneSo_S", withoutBeingAbleToHaveDoneSo));
 
-  public MorphemeState vDeYeRoot_S = builder("vDeYeRoot_S", verb).posRoot().build();
+  public MorphemeState vDeYeRoot_S = addState(builder("vDeYeRoot_S", verb).posRoot().build());
 
   private void connectVerbs() {
 
@@ -2305,20 +2366,20 @@ public class TurkishMorphotactics {
 
   //-------- Question (mi) -----------------------------------------------
 
-  MorphemeState qPresent_S = nonTerminal("qPresent_S", pres);
-  MorphemeState qPast_S = nonTerminal("qPast_S", past);
-  MorphemeState qNarr_S = nonTerminal("qNarr_S", narr);
-  MorphemeState qA1sg_ST = terminal("qA1sg_ST", a1sg);
-  MorphemeState qA2sg_ST = terminal("qA2sg_ST", a2sg);
-  MorphemeState qA3sg_ST = terminal("qA3sg_ST", a3sg);
-  MorphemeState qA1pl_ST = terminal("qA1pl_ST", a1pl);
-  MorphemeState qA2pl_ST = terminal("qA2pl_ST", a2pl);
-  MorphemeState qA3pl_ST = terminal("qA3pl_ST", a3pl);
+  MorphemeState qPresent_S = addState(nonTerminal("qPresent_S", pres));
+  MorphemeState qPast_S = addState(nonTerminal("qPast_S", past));
+  MorphemeState qNarr_S = addState(nonTerminal("qNarr_S", narr));
+  MorphemeState qA1sg_ST = addState(terminal("qA1sg_ST", a1sg));
+  MorphemeState qA2sg_ST = addState(terminal("qA2sg_ST", a2sg));
+  MorphemeState qA3sg_ST = addState(terminal("qA3sg_ST", a3sg));
+  MorphemeState qA1pl_ST = addState(terminal("qA1pl_ST", a1pl));
+  MorphemeState qA2pl_ST = addState(terminal("qA2pl_ST", a2pl));
+  MorphemeState qA3pl_ST = addState(terminal("qA3pl_ST", a3pl));
 
-  MorphemeState qCopBeforeA3pl_S = nonTerminal("qCopBeforeA3pl_S", cop);
-  MorphemeState qCop_ST = terminal("qCop_ST", cop);
+  MorphemeState qCopBeforeA3pl_S = addState(nonTerminal("qCopBeforeA3pl_S", cop));
+  MorphemeState qCop_ST = addState(terminal("qCop_ST", cop));
 
-  MorphemeState questionRoot_S = builder("questionRoot_S", ques).posRoot().build();
+  MorphemeState questionRoot_S = addState(builder("questionRoot_S", ques).posRoot().build());
 
   private void connectQuestion() {
     //mı
@@ -2390,21 +2451,21 @@ public class TurkishMorphotactics {
 
   //-------- Verb `imek` -----------------------------------------------
 
-  public MorphemeState imekRoot_S = builder("imekRoot_S", verb).posRoot().build();
+  public MorphemeState imekRoot_S = addState(builder("imekRoot_S", verb).posRoot().build());
 
-  MorphemeState imekPast_S = nonTerminal("imekPast_S", past);
-  MorphemeState imekNarr_S = nonTerminal("imekNarr_S", narr);
+  MorphemeState imekPast_S = addState(nonTerminal("imekPast_S", past));
+  MorphemeState imekNarr_S = addState(nonTerminal("imekNarr_S", narr));
 
-  MorphemeState imekCond_S = nonTerminal("imekCond_S", cond);
+  MorphemeState imekCond_S = addState(nonTerminal("imekCond_S", cond));
 
-  MorphemeState imekA1sg_ST = terminal("imekA1sg_ST", a1sg);
-  MorphemeState imekA2sg_ST = terminal("imekA2sg_ST", a2sg);
-  MorphemeState imekA3sg_ST = terminal("imekA3sg_ST", a3sg);
-  MorphemeState imekA1pl_ST = terminal("imekA1pl_ST", a1pl);
-  MorphemeState imekA2pl_ST = terminal("imekA2pl_ST", a2pl);
-  MorphemeState imekA3pl_ST = terminal("imekA3pl_ST", a3pl);
+  MorphemeState imekA1sg_ST = addState(terminal("imekA1sg_ST", a1sg));
+  MorphemeState imekA2sg_ST = addState(terminal("imekA2sg_ST", a2sg));
+  MorphemeState imekA3sg_ST = addState(terminal("imekA3sg_ST", a3sg));
+  MorphemeState imekA1pl_ST = addState(terminal("imekA1pl_ST", a1pl));
+  MorphemeState imekA2pl_ST = addState(terminal("imekA2pl_ST", a2pl));
+  MorphemeState imekA3pl_ST = addState(terminal("imekA3pl_ST", a3pl));
 
-  MorphemeState imekCop_ST = terminal("qCop_ST", cop);
+  MorphemeState imekCop_ST = addState(terminal("qCop_ST", cop));
 
   private void connectImek() {
     // idi
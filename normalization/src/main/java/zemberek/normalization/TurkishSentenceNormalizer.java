@@ -243,6 +243,11 @@ public class TurkishSentenceNormalizer {
     // required for back tracking.
     Hypothesis previous;
 
+    // vocabulary index of current.
+    int currentIndex;
+    // language model state after current. It is calculated when hypothesis is extended.
+    SmoothLm.State lmState;
+
     float score;
 
     @Override
@@ -364,13 +369,27 @@ public class TurkishSentenceNormalizer {
     initial.history = new Candidate[lmOrder - 1];
     Arrays.fill(initial.history, START);
     initial.current = START;
+    initial.lmState = lm.getNullState();
+    int startIndex = lm.getVocabulary().indexOf(START.content);
+    for (int i = 0; i < lmOrder - 1; i++) {
+      initial.lmState = lm.extend(initial.lmState, startIndex);
+    }
     initial.score = 0f;
     current.add(initial);
 
     for (Candidates candidates : candidatesList) {
 
+      int[] candidateIndexes = new int[candidates.candidates.size()];
+      for (int i = 0; i < candidateIndexes.length; i++) {
+        candidateIndexes[i] = lm.getVocabulary().indexOf(candidates.candidates.get(i).content);
+      }
+
       for (Hypothesis h : current) {
-        for (Candidate c : candidates.candidates) {
+        if (h.lmState == null) {
+          h.lmState = lm.extend(h.previous.lmState, h.currentIndex);
+        }
+        for (int i = 0; i < candidateIndexes.length; i++) {
+          Candidate c = candidates.candidates.get(i);
           Hypothesis newHyp = new Hypothesis();
           Candidate[] hist = new Candidate[lmOrder - 1];
           if (lmOrder > 2) {
@@ -378,16 +397,12 @@ public class TurkishSentenceNormalizer {
           }
           hist[hist.length - 1] = h.current;
           newHyp.current = c;
+          newHyp.currentIndex = candidateIndexes[i];
           newHyp.history = hist;
           newHyp.previous = h;
 
-          // score calculation.
-          int[] indexes = new int[lmOrder];
-          for (int j = 0; j < lmOrder - 1; j++) {
-            indexes[j] = lm.getVocabulary().indexOf(hist[j].content);
-          }
-          indexes[lmOrder - 1] = lm.getVocabulary().indexOf(c.content);
-          float score = lm.getProbability(indexes);
+          // score calculation. Back-off values of the history are not looked up again.
+          float score = lm.score(h.lmState, candidateIndexes[i]);
 
           newHyp.score = h.score + score;
           next.add(newHyp);
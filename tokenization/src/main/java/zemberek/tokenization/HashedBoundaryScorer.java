@@ -0,0 +1,292 @@
+package zemberek.tokenization;
+
+import static zemberek.tokenization.TurkishSentenceExtractor.BOUNDARY_CHARS;
+
+import java.util.Set;
+import zemberek.core.collections.FloatValueMap;
+import zemberek.core.turkish.TurkishAlphabet;
+
+/**
+ * Makes the same sentence boundary decisions with {@link TurkishSentenceExtractor.BoundaryData}
+ * features without creating feature Strings. Feature weights are converted to a float array keyed
+ * by 64 bit hashes of feature Strings. For a boundary candidate, feature hashes are calculated
+ * directly from the chars around the candidate. Features are summed in the same order with
+ * BoundaryData so scores are identical, except for the unlikely case of a hash collision.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+final class HashedBoundaryScorer {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final CharRangeSet ABBREVIATIONS =
+      new CharRangeSet(PerceptronSegmenter.TurkishAbbreviationSet);
+
+  private static final String[] WEB_WORDS = PerceptronSegmenter.webWords
+      .toArray(new String[0]);
+
+  private static final TurkishAlphabet alphabet = TurkishAlphabet.INSTANCE;
+
+  private static final long[] F1 = booleanHashes("1:");
+  private static final long[] F1B = booleanHashes("1b:");
+  private static final long[] F7C = booleanHashes("7c:");
+  private static final long[] F7R = booleanHashes("7r:");
+  private static final long F1A = hash("1a:");
+  private static final long F1B_CHAR = hash("1b:");
+  private static final long F2P = hash("2p:");
+  private static final long F2N = hash("2n:");
+  private static final long F9C = hash("9c:");
+  private static final long F9R = hash("9r:");
+  private static final long RCC = hash("rcc:true");
+  private static final long LCC = hash("lcc:true");
+  private static final long F11U = hash("11u:true");
+  private static final long F11D = hash("11d:true");
+
+  // open addressing table. Key 0 is used for empty slots.
+  private final long[] keys;
+  private final float[] values;
+  private final int mask;
+
+  HashedBoundaryScorer(FloatValueMap<String> weights) {
+    int capacity = 4;
+    while (capacity < weights.size() * 2) {
+      capacity <<= 1;
+    }
+    keys = new long[capacity];
+    values = new float[capacity];
+    mask = capacity - 1;
+    for (String feature : weights) {
+      long key = hash(feature);
+      int slot = (int) mix(key) & mask;
+      while (keys[slot] != 0 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = key;
+      values[slot] = weights.get(feature);
+    }
+  }
+
+  /**
+   * Returns true if the boundary char at `pointer` ends a sentence.
+   */
+  boolean isBoundary(CharSequence input, int pointer) {
+    int length = input.length();
+
+    int wordStart = backwardsSpaceOrChar(input, pointer, ' ');
+    int chunkStart = backwardsSpaceOrChar(input, pointer, '.');
+    int wordEnd = forwardsSpace(input, pointer);
+    char nextLetter = pointer < length - 1 ? input.charAt(pointer + 1) : '_';
+
+    // same with BoundaryData.nonBoundaryCheck
+    if (pointer - chunkStart == 1
+        || nextLetter == '\''
+        || BOUNDARY_CHARS.indexOf(nextLetter) >= 0
+        || ABBREVIATIONS.contains(input, wordStart, wordEnd)
+        || ABBREVIATIONS.contains(input, chunkStart, pointer)
+        || potentialWebSite(input, wordStart, wordEnd)) {
+      return false;
+    }
+
+    // features are added in BoundaryData.extractFeatures order.
+    char previousLetter = pointer > 0 ? input.charAt(pointer - 1) : '_';
+    double score = 0;
+    score += weight(F1[Character.isUpperCase(previousLetter) ? 1 : 0]);
+    score += weight(F1B[Character.isWhitespace(nextLetter) ? 1 : 0]);
+    score += weight(hash(F1A, previousLetter));
+    score += weight(hash(F1B_CHAR, nextLetter));
+    score += weight(pointer > 2 ?
+        hash(hash(F2P, input.charAt(pointer - 2)), input.charAt(pointer - 1)) :
+        hash(hash(F2P, '_'), '_'));
+    score += weight(pointer < length - 3 ?
+        hash(hash(F2N, input.charAt(pointer + 1)), input.charAt(pointer + 2)) :
+        hash(hash(F2N, '_'), '_'));
+
+    // current word contains at least the boundary char.
+    score += weight(F7C[Character.isUpperCase(input.charAt(wordStart)) ? 1 : 0]);
+    score += weight(metaCharsHash(F9C, input, wordStart, wordEnd));
+
+    int rightStart = pointer + 1;
+    if (pointer < length - 1 && rightStart < wordEnd) {
+      score += weight(F7R[Character.isUpperCase(input.charAt(rightStart)) ? 1 : 0]);
+      score += weight(metaCharsHash(F9R, input, rightStart, wordEnd));
+      if (!containsVowel(input, rightStart, wordEnd)) {
+        score += weight(RCC);
+      }
+    }
+    // next word in BoundaryData is always empty as it starts from a space. So there are no 7n and
+    // 9n features.
+
+    if (wordStart < pointer && !containsVowel(input, wordStart, pointer)) {
+      score += weight(LCC);
+    }
+
+    boolean hasLetter = false;
+    boolean allUp = true;
+    boolean allDigit = true;
+    for (int i = wordStart; i < wordEnd; i++) {
+      char c = input.charAt(i);
+      if (BOUNDARY_CHARS.indexOf(c) >= 0) {
+        continue;
+      }
+      hasLetter = true;
+      if (!Character.isUpperCase(c)) {
+        allUp = false;
+      }
+      if (!Character.isDigit(c)) {
+        allDigit = false;
+      }
+    }
+    if (hasLetter) {
+      if (allUp) {
+        score += weight(F11U);
+      }
+      if (allDigit) {
+        score += weight(F11D);
+      }
+    }
+    return score > 0;
+  }
+
+  private float weight(long key) {
+    int slot = (int) mix(key) & mask;
+    while (true) {
+      long k = keys[slot];
+      if (k == key) {
+        return values[slot];
+      }
+      if (k == 0) {
+        return 0;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // same as BoundaryData.findBackwardsSpaceOrChar, but returns 0 instead of -1.
+  private static int backwardsSpaceOrChar(CharSequence input, int pos, char chr) {
+    for (int i = pos - 1; i >= 0; i--) {
+      char c = input.charAt(i);
+      if (c == ' ' || c == chr) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private static int forwardsSpace(CharSequence input, int pos) {
+    int j = pos + 1;
+    while (j < input.length() && input.charAt(j) != ' ') {
+      j++;
+    }
+    return j;
+  }
+
+  private static boolean containsVowel(CharSequence input, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (alphabet.isVowel(input.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean potentialWebSite(CharSequence input, int start, int end) {
+    for (String webWord : WEB_WORDS) {
+      int last = end - webWord.length();
+      for (int i = start; i <= last; i++) {
+        if (regionEquals(input, i, webWord)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean regionEquals(CharSequence input, int start, String s) {
+    for (int j = 0; j < s.length(); j++) {
+      if (input.charAt(start + j) != s.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long metaCharsHash(long prefix, CharSequence input, int start, int end) {
+    long h = prefix;
+    for (int i = start; i < end; i++) {
+      h = hash(h, PerceptronSegmenter.getMetaChar(input.charAt(i)));
+    }
+    return h;
+  }
+
+  private static long[] booleanHashes(String prefix) {
+    return new long[]{hash(prefix + false), hash(prefix + true)};
+  }
+
+  static long hash(String s) {
+    long h = FNV_OFFSET;
+    for (int i = 0; i < s.length(); i++) {
+      h = hash(h, s.charAt(i));
+    }
+    return h == 0 ? 1 : h;
+  }
+
+  // continues FNV-1a hash with char c. Result is never 0 for hashes created from FNV_OFFSET in
+  // practice, 0 is still mapped to 1 for being consistent with hash(String).
+  private static long hash(long h, char c) {
+    h = (h ^ c) * FNV_PRIME;
+    return h == 0 ? 1 : h;
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * A String set that can be checked with a char range of a CharSequence without creating a
+   * String. Uses String.hashCode values.
+   */
+  static final class CharRangeSet {
+
+    private final String[] table;
+    private final int mask;
+
+    CharRangeSet(Set<String> strings) {
+      int capacity = 4;
+      while (capacity < strings.size() * 2) {
+        capacity <<= 1;
+      }
+      table = new String[capacity];
+      mask = capacity - 1;
+      for (String s : strings) {
+        int slot = s.hashCode() & mask;
+        while (table[slot] != null && !table[slot].equals(s)) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = s;
+      }
+    }
+
+    boolean contains(CharSequence input, int start, int end) {
+      int h = 0;
+      for (int i = start; i < end; i++) {
+        h = 31 * h + input.charAt(i);
+      }
+      int slot = h & mask;
+      int length = end - start;
+      while (true) {
+        String s = table[slot];
+        if (s == null) {
+          return false;
+        }
+        if (s.length() == length && regionEquals(input, start, s)) {
+          return true;
+        }
+        slot = (slot + 1) & mask;
+      }
+    }
+  }
+}
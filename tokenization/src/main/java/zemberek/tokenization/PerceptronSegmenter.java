@@ -15,7 +15,7 @@ import zemberek.core.text.TextIO;
 
 abstract class PerceptronSegmenter {
 
-  private static final Set<String> webWords =
+  static final Set<String> webWords =
       Sets.newHashSet("http:", ".html", "www", ".tr", ".edu", ".com", ".net", ".gov", ".org", "@");
   static Set<String> TurkishAbbreviationSet = new HashSet<>();
   private static Locale localeTr = new Locale("tr");
@@ -58,7 +58,7 @@ abstract class PerceptronSegmenter {
     return false;
   }
 
-  private static char getMetaChar(char letter) {
+  static char getMetaChar(char letter) {
     char c;
     if (Character.isUpperCase(letter)) {
       c = upperCaseVowels.indexOf(letter) > 0 ? 'V' : 'C';
@@ -0,0 +1,124 @@
+package zemberek.tokenization;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Tokenizes text from a Reader incrementally. Input is read into a fixed size char buffer. If the
+ * scanner needs chars after the buffered input for deciding a token, unused part of the buffer is
+ * moved to the beginning and more input is read, then the token is scanned again. So tokens
+ * spanning chunk boundaries are same as tokenizing the whole input at once. Buffer only grows if a
+ * single token is longer than the buffer.
+ * <p>
+ * Token boundaries are code point indexes from the start of the input as in {@link
+ * TurkishTokenizer#tokenize(String)}, they overflow for inputs longer than Integer.MAX_VALUE code
+ * points. Reader is closed when all input is consumed.
+ */
+class ReaderTokenIterator implements Iterator<Token> {
+
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final TurkishTokenizer tokenizer;
+  private final Reader reader;
+  private final TurkishTokenScanner scanner = new TurkishTokenScanner("");
+
+  private char[] buffer;
+  private CharBuffer chars;
+  // amount of chars in buffer.
+  private int filled;
+  // scanner position in buffer.
+  private int position;
+  private boolean endOfInput;
+
+  // code point index of the scanner position from the start of the input.
+  private int codePointPosition;
+  private Token token;
+
+  ReaderTokenIterator(TurkishTokenizer tokenizer, Reader reader, int bufferSize) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be positive. But it is " + bufferSize);
+    }
+    this.tokenizer = tokenizer;
+    this.reader = reader;
+    this.buffer = new char[bufferSize];
+    this.chars = CharBuffer.wrap(buffer);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (token != null) {
+      return true;
+    }
+    try {
+      while (true) {
+        scanner.reset(chars, position, filled);
+        Token.Type type = scanner.next();
+        if ((type == null || scanner.limitReached()) && !endOfInput) {
+          fill();
+          continue;
+        }
+        if (type == null) {
+          return false;
+        }
+        int start = scanner.start();
+        int end = scanner.end();
+        position = end;
+        int codePointStart = codePointPosition;
+        codePointPosition += codePointCount(start, end);
+        if (tokenizer.isTypeIgnored(type)) {
+          continue;
+        }
+        token = new Token(new String(buffer, start, end - start), type, codePointStart,
+            codePointPosition - 1);
+        return true;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public Token next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Token result = token;
+    token = null;
+    return result;
+  }
+
+  // moves unprocessed chars to the beginning of the buffer and reads more input.
+  private void fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, filled - position);
+      filled -= position;
+      position = 0;
+    }
+    if (filled == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      chars = CharBuffer.wrap(buffer);
+    }
+    int read = reader.read(buffer, filled, buffer.length - filled);
+    if (read < 0) {
+      endOfInput = true;
+      reader.close();
+    } else {
+      filled += read;
+    }
+  }
+
+  private int codePointCount(int start, int end) {
+    int count = end - start;
+    for (int i = start + 1; i < end; i++) {
+      if (Character.isLowSurrogate(buffer[i]) && Character.isHighSurrogate(buffer[i - 1])) {
+        count--;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,161 @@
+package zemberek.tokenization;
+
+import java.util.Arrays;
+
+/**
+ * Holds tokens of an input as types and offsets in parallel int arrays. Token texts are not
+ * stored, they are created from the input only when requested. This is useful when only token
+ * boundaries and types are needed.
+ * <p>
+ * Offsets are char indexes of the input. Start is inclusive, end is exclusive, so
+ * input.subSequence(start(i), end(i)) is the text of the token. Note that this is different from
+ * {@link Token}, where end is inclusive and indexes are code point indexes.
+ * <p>
+ * A buffer can be filled many times with {@link TurkishTokenizer#tokenize(CharSequence,
+ * TokenBuffer)}, arrays are reused. It is not thread safe.
+ */
+public class TokenBuffer {
+
+  private static final Token.Type[] TYPES = Token.Type.values();
+
+  private CharSequence input = "";
+  private int[] types;
+  private int[] starts;
+  private int[] ends;
+  private int size;
+
+  public TokenBuffer() {
+    this(16);
+  }
+
+  public TokenBuffer(int initialCapacity) {
+    if (initialCapacity < 1) {
+      throw new IllegalArgumentException(
+          "Initial capacity must be positive. But it is " + initialCapacity);
+    }
+    types = new int[initialCapacity];
+    starts = new int[initialCapacity];
+    ends = new int[initialCapacity];
+  }
+
+  /**
+   * Removes all tokens and sets the input tokens refer to.
+   */
+  void reset(CharSequence input) {
+    this.input = input;
+    this.size = 0;
+  }
+
+  void add(Token.Type type, int start, int end) {
+    if (size == types.length) {
+      int newCapacity = types.length * 2;
+      types = Arrays.copyOf(types, newCapacity);
+      starts = Arrays.copyOf(starts, newCapacity);
+      ends = Arrays.copyOf(ends, newCapacity);
+    }
+    types[size] = type.ordinal();
+    starts[size] = start;
+    ends[size] = end;
+    size++;
+  }
+
+  public void clear() {
+    reset("");
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Input that token offsets refer to.
+   */
+  public CharSequence getInput() {
+    return input;
+  }
+
+  public Token.Type type(int i) {
+    return TYPES[types[checkIndex(i)]];
+  }
+
+  public int start(int i) {
+    return starts[checkIndex(i)];
+  }
+
+  public int end(int i) {
+    return ends[checkIndex(i)];
+  }
+
+  public int length(int i) {
+    checkIndex(i);
+    return ends[i] - starts[i];
+  }
+
+  public Span span(int i) {
+    checkIndex(i);
+    return new Span(starts[i], ends[i]);
+  }
+
+  /**
+   * Creates the text of the token.
+   */
+  public String text(int i) {
+    checkIndex(i);
+    return input.subSequence(starts[i], ends[i]).toString();
+  }
+
+  /**
+   * Returns true if token text is equal to `s`. No String is created.
+   */
+  public boolean textEquals(int i, CharSequence s) {
+    checkIndex(i);
+    int start = starts[i];
+    int length = ends[i] - start;
+    if (s.length() != length) {
+      return false;
+    }
+    for (int j = 0; j < length; j++) {
+      if (input.charAt(start + j) != s.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the amount of tokens with given type.
+   */
+  public int count(Token.Type type) {
+    int ordinal = type.ordinal();
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (types[i] == ordinal) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private int checkIndex(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+    return i;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(text(i)).append(' ').append(type(i));
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -11,6 +11,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 import zemberek.core.collections.FloatValueMap;
 import zemberek.core.collections.UIntSet;
@@ -33,17 +35,26 @@ public class TurkishSentenceExtractor extends PerceptronSegmenter {
   public static final TurkishSentenceExtractor DEFAULT = Singleton.Instance.extractor;
 
   static final String BOUNDARY_CHARS = ".!?…";
+
+  /**
+   * Approximate amount of chars processed in a single task by parallel extraction methods.
+   */
+  public static final int PARALLEL_CHUNK_SIZE = 1 << 16;
+
   private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("[\n\r]+");
   private boolean doNotSplitInDoubleQuotes = false;
+  private final HashedBoundaryScorer scorer;
 
   private TurkishSentenceExtractor(FloatValueMap<String> weights) {
     this.weights = weights;
+    this.scorer = new HashedBoundaryScorer(weights);
   }
 
   private TurkishSentenceExtractor(FloatValueMap<String> weights,
       boolean doNotSplitInDoubleQuotes) {
     this.weights = weights;
     this.doNotSplitInDoubleQuotes = doNotSplitInDoubleQuotes;
+    this.scorer = new HashedBoundaryScorer(weights);
   }
 
   private static TurkishSentenceExtractor fromDefaultModel() throws IOException {
@@ -150,16 +161,8 @@ public class TurkishSentenceExtractor extends PerceptronSegmenter {
         continue;
       }
 
-      BoundaryData boundaryData = new BoundaryData(paragraph, j);
-      if (boundaryData.nonBoundaryCheck()) {
-        continue;
-      }
-      List<String> features = boundaryData.extractFeatures();
-      double score = 0;
-      for (String feature : features) {
-        score += weights.get(feature);
-      }
-      if (score > 0) {
+      // this is same as scoring BoundaryData features, but without creating Strings.
+      if (scorer.isBoundary(paragraph, j)) {
         Span span = new Span(begin, j + 1);
         if (span.length() > 0) {
           spans.add(span);
@@ -248,6 +251,115 @@ public class TurkishSentenceExtractor extends PerceptronSegmenter {
     return fromParagraphs(lines);
   }
 
+  /**
+   * Same as {@link #fromParagraphs(Collection)} but paragraphs are processed in parallel with the
+   * executor. Sentences are returned in input order.
+   */
+  public List<String> fromParagraphs(Collection<String> paragraphs, Executor executor) {
+    List<String> input = new ArrayList<>(paragraphs);
+    List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+    int i = 0;
+    while (i < input.size()) {
+      int chunkStart = i;
+      int charCount = 0;
+      while (i < input.size() && charCount < PARALLEL_CHUNK_SIZE) {
+        charCount += input.get(i).length();
+        i++;
+      }
+      List<String> chunk = input.subList(chunkStart, i);
+      futures.add(CompletableFuture.supplyAsync(() -> fromParagraphs(chunk), executor));
+    }
+    List<String> result = new ArrayList<>();
+    for (CompletableFuture<List<String>> future : futures) {
+      result.addAll(future.join());
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #fromDocument(String)} but paragraphs are processed in parallel with the
+   * executor. Sentences are returned in document order.
+   */
+  public List<String> fromDocument(String document, Executor executor) {
+    List<Span> spans = extractSpansFromDocument(document, executor);
+    List<String> sentences = new ArrayList<>(spans.size());
+    for (Span span : spans) {
+      sentences.add(span.getSubstring(document));
+    }
+    return sentences;
+  }
+
+  /**
+   * Finds sentences of a document. Document is split to paragraphs from line breaks. Sentences are
+   * same as the result of {@link #fromDocument(String)}, but they are represented as spans relative
+   * to the document.
+   */
+  public List<Span> extractSpansFromDocument(String document) {
+    return sentenceSpans(document, paragraphSpans(document));
+  }
+
+  /**
+   * Same as {@link #extractSpansFromDocument(String)} but paragraphs are processed in parallel with
+   * the executor. Paragraphs are grouped into chunks of around {@link #PARALLEL_CHUNK_SIZE} chars
+   * and each chunk is processed as a separate task. Spans are returned in document order.
+   */
+  public List<Span> extractSpansFromDocument(String document, Executor executor) {
+    List<Span> paragraphs = paragraphSpans(document);
+    List<CompletableFuture<List<Span>>> futures = new ArrayList<>();
+    int i = 0;
+    while (i < paragraphs.size()) {
+      int chunkStart = i;
+      int charCount = 0;
+      while (i < paragraphs.size() && charCount < PARALLEL_CHUNK_SIZE) {
+        charCount += paragraphs.get(i).length();
+        i++;
+      }
+      List<Span> chunk = paragraphs.subList(chunkStart, i);
+      futures.add(CompletableFuture.supplyAsync(() -> sentenceSpans(document, chunk), executor));
+    }
+    List<Span> result = new ArrayList<>();
+    for (CompletableFuture<List<Span>> future : futures) {
+      result.addAll(future.join());
+    }
+    return result;
+  }
+
+  // non empty line spans of the document. Same as splitting from LINE_BREAK_PATTERN.
+  private static List<Span> paragraphSpans(String document) {
+    List<Span> spans = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= document.length(); i++) {
+      if (i == document.length() || document.charAt(i) == '\n' || document.charAt(i) == '\r') {
+        if (i > start) {
+          spans.add(new Span(start, i));
+        }
+        start = i + 1;
+      }
+    }
+    return spans;
+  }
+
+  // sentence spans of paragraphs. Sentences are trimmed as in fromParagraph.
+  private List<Span> sentenceSpans(String document, List<Span> paragraphs) {
+    List<Span> result = new ArrayList<>();
+    for (Span paragraph : paragraphs) {
+      for (Span span : extractToSpans(paragraph.getSubstring(document))) {
+        int start = paragraph.start + span.start;
+        int end = paragraph.start + span.end;
+        while (start < end && document.charAt(start) <= ' ') {
+          start++;
+        }
+        while (end > start && document.charAt(end - 1) <= ' ') {
+          end--;
+        }
+        if (end > start) {
+          result.add(new Span(start, end));
+        }
+      }
+    }
+    return result;
+  }
+
   public char[] getBoundaryCharacters() {
     return BOUNDARY_CHARS.toCharArray();
   }
@@ -0,0 +1,648 @@
+package zemberek.tokenization;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import zemberek.tokenization.Token.Type;
+
+/**
+ * A hand written scanner that produces same tokens with the Antlr generated TurkishLexer (see
+ * TurkishLexer.g4) without creating intermediate objects. For every position, each lexer rule
+ * calculates the longest text it can match. Longest match wins, if lengths are equal, the rule
+ * defined first in the grammar wins. Abbreviation tokens are generated the same way the lexer
+ * does: a Word followed by a dot is merged if it is in the abbreviation dictionary.
+ * <p>
+ * Scanner works on a CharSequence and token boundaries are char offsets. Token text is not
+ * created unless a Word needs to be checked against abbreviations. Instances are not thread
+ * safe but they are cheap and can be reused for different inputs with reset.
+ */
+final class TurkishTokenScanner {
+
+  static final Set<String> ABBREVIATIONS = loadAbbreviations();
+
+  // character class flags.
+  private static final int LETTER = 1;
+  private static final int CAPITAL = 1 << 1;
+  private static final int DIGIT = 1 << 2;
+  private static final int UNDERSCORE = 1 << 3;
+  private static final int ASCII_ALNUM = 1 << 4;
+  private static final int URL_FRAGMENT = 1 << 5;
+  private static final int ROMAN = 1 << 6;
+  private static final int PUNCTUATION = 1 << 7;
+  // chars that cannot be part of an UnknownWord.
+  private static final int NOT_UNKNOWN_WORD = 1 << 8;
+
+  private static final int ALNUM = LETTER | DIGIT;
+  private static final int ALNUM_UNDERSCORE = LETTER | DIGIT | UNDERSCORE;
+
+  private static final int TABLE_SIZE = 0x2200;
+  private static final short[] CLASSES = new short[TABLE_SIZE];
+
+  private static final String[] EMOTICONS = {
+      ":)", ":-)", ":-]", ":D", ":-D", "8-)", ";)", ";\u2011)", ":(", ":-(", ":'(", ":')",
+      ":P", ":p", ":|", "=|", "=)", "=(",
+      ":\u2011/", ":/", ":^)", "¯\\_(ツ)_/¯", "O_o", "o_O", "O_O", "\\o/", "<3"};
+
+  private static final String EMOTICON_STARTS = ":;8=¯Oo\\<";
+
+  // after a letter sequence, these may start a suffix, a URL, an Email or an Abbreviation.
+  private static final String WORD_CONTINUATIONS = ".'’-@:/";
+
+  // Punctuation chars that can start other tokens.
+  private static final String PUNCTUATION_PREFIXES = "+-%@:;=\\";
+
+  private static final String[] URL_DOMAINS = {".com", ".org", ".edu", ".gov", ".net", ".info"};
+
+  static {
+    String turkishLower = "çğıöşüâîû";
+    String turkishUpper = "ÇĞİÖŞÜÂÎÛ";
+    for (char c = 'a'; c <= 'z'; c++) {
+      add(c, LETTER | ASCII_ALNUM | URL_FRAGMENT);
+    }
+    for (char c = 'A'; c <= 'Z'; c++) {
+      add(c, LETTER | CAPITAL | ASCII_ALNUM | URL_FRAGMENT);
+    }
+    for (char c = '0'; c <= '9'; c++) {
+      add(c, DIGIT | ASCII_ALNUM | URL_FRAGMENT);
+    }
+    for (char c : turkishLower.toCharArray()) {
+      add(c, LETTER | URL_FRAGMENT);
+    }
+    for (char c : turkishUpper.toCharArray()) {
+      add(c, LETTER | CAPITAL | URL_FRAGMENT);
+    }
+    add('_', UNDERSCORE | ASCII_ALNUM | URL_FRAGMENT);
+    for (char c : "-/?&+;=[].".toCharArray()) {
+      add(c, URL_FRAGMENT);
+    }
+    for (char c : "ILVCDMX".toCharArray()) {
+      add(c, ROMAN);
+    }
+    for (char c : "'’\"”“»«>‘…=.,!?%$&*+@:;®™©℠\\-/()[]{}^".toCharArray()) {
+      add(c, PUNCTUATION);
+    }
+    for (char c : " \n\r\t.,!?%$&*+@:;…®™©℠=>'’‘\"”“»«\\-(/)[]{}^".toCharArray()) {
+      add(c, NOT_UNKNOWN_WORD);
+    }
+  }
+
+  private static void add(char c, int flags) {
+    CLASSES[c] |= flags;
+  }
+
+  private static Set<String> loadAbbreviations() {
+    Locale tr = new Locale("tr");
+    Set<String> abbreviations = new HashSet<>();
+    try {
+      for (String line : Resources.readLines(
+          Resources.getResource("tokenization/abbreviations.txt"), StandardCharsets.UTF_8)) {
+        if (line.trim().length() > 0) {
+          final String abbr = line.trim().replaceAll("\\s+", ""); // erase spaces
+          if (abbr.endsWith(".")) {
+            abbreviations.add(abbr);
+            abbreviations.add(abbr.toLowerCase(Locale.ENGLISH));
+            abbreviations.add(abbr.toLowerCase(tr));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return abbreviations;
+  }
+
+  private CharSequence input;
+  private int limit;
+  private int position;
+
+  // set when a rule needs a char at or after the limit.
+  private boolean limitReached;
+
+  private int tokenStart;
+  private int tokenEnd;
+  private Type tokenType;
+
+  TurkishTokenScanner(CharSequence input) {
+    reset(input, 0, input.length());
+  }
+
+  /**
+   * Scanner starts scanning from `start` and uses chars until `limit`.
+   */
+  void reset(CharSequence input, int start, int limit) {
+    this.input = input;
+    this.position = start;
+    this.limit = limit;
+    this.tokenType = null;
+    this.limitReached = false;
+  }
+
+  /**
+   * Finds the next token.
+   *
+   * @return type of the token or null if there is no more input.
+   */
+  Type next() {
+    limitReached = false;
+    tokenStart = position;
+    if (position >= limit) {
+      tokenType = null;
+      return null;
+    }
+    int ch = input.charAt(position);
+    if (ch == ' ' || ch == '\t') {
+      setToken(Type.SpaceTab, run(position + 1, ' ', '\t'));
+    } else if (ch == '\n' || ch == '\r') {
+      setToken(Type.NewLine, position + 1);
+    } else if (!scanCommon(ch)) {
+      scanLongest(ch);
+      if (tokenType == Type.Word) {
+        checkAbbreviation();
+      }
+    }
+    position = tokenEnd;
+    return tokenType;
+  }
+
+  Type type() {
+    return tokenType;
+  }
+
+  /**
+   * Start offset of the current token.
+   */
+  int start() {
+    return tokenStart;
+  }
+
+  /**
+   * End offset of the current token. This is exclusive.
+   */
+  int end() {
+    return tokenEnd;
+  }
+
+  /**
+   * Returns true if a char at or after the limit was needed for finding the current token. In
+   * that case token may be different if there were more input after the limit.
+   */
+  boolean limitReached() {
+    return limitReached;
+  }
+
+  private void setToken(Type type, int end) {
+    this.tokenType = type;
+    this.tokenEnd = end;
+  }
+
+  // Fast path for words and punctuations that cannot be a part of a longer token. Returns false if
+  // all rules needs to be checked.
+  private boolean scanCommon(int first) {
+    int i = position;
+    if (is(first, LETTER) && !is(first, ROMAN)) {
+      int end = run(i + 1, LETTER);
+      int c = charAt(end);
+      // a letter sequence followed by these can only be a Word.
+      if (c < 0 || (is(c, NOT_UNKNOWN_WORD) && WORD_CONTINUATIONS.indexOf(c) < 0)) {
+        setToken(Type.Word, end);
+        return true;
+      }
+    } else if (is(first, PUNCTUATION) && PUNCTUATION_PREFIXES.indexOf(first) < 0) {
+      setToken(Type.Punctuation, punctuation(i));
+      return true;
+    }
+    return false;
+  }
+
+  // rules are checked in grammar order. Only a longer match can replace the current one.
+  private void scanLongest(int first) {
+    int i = position;
+    tokenType = null;
+    tokenEnd = i;
+    if (isDigit(first) || first == '+' || first == '-' || first == '%') {
+      if (isDigit(first)) {
+        longer(Type.Time, time(i));
+        longer(Type.Date, date(i));
+      }
+      if (first == '%') {
+        longer(Type.PercentNumeral, percentNumeral(i));
+      }
+      longer(Type.Number, number(i));
+    }
+    if (is(first, ALNUM_UNDERSCORE)) {
+      longer(Type.URL, url(i));
+      longer(Type.Email, email(i));
+    }
+    if (first == '#') {
+      longer(Type.HashTag, prefixed(i, '#'));
+    }
+    if (first == '@') {
+      longer(Type.Mention, prefixed(i, '@'));
+    }
+    if (first == '<') {
+      longer(Type.MetaTag, metaTag(i));
+    }
+    if (EMOTICON_STARTS.indexOf(first) >= 0) {
+      longer(Type.Emoticon, emoticon(i));
+    }
+    if (is(first, ROMAN)) {
+      longer(Type.RomanNumeral, romanNumeral(i));
+    }
+    if (is(first, CAPITAL)) {
+      longer(Type.AbbreviationWithDots, abbreviationWithDots(i));
+    }
+    if (is(first, ALNUM)) {
+      longer(Type.Word, run(i, LETTER));
+      longer(Type.WordAlphanumerical, run(i, ALNUM));
+      longer(Type.WordWithSymbol, wordWithSymbol(i));
+    }
+    if (is(first, PUNCTUATION)) {
+      longer(Type.Punctuation, punctuation(i));
+    } else {
+      longer(Type.UnknownWord, unknownWord(i));
+    }
+    longer(Type.Unknown, unknown(i));
+  }
+
+  private void longer(Type type, int end) {
+    if (end > tokenEnd) {
+      tokenType = type;
+      tokenEnd = end;
+    }
+  }
+
+  private void checkAbbreviation() {
+    int end = tokenEnd;
+    // lexer only merges a single dot Punctuation token. Three dots is a different token.
+    if (charAt(end) != '.' || (charAt(end + 1) == '.' && charAt(end + 2) == '.')) {
+      return;
+    }
+    String abbreviation = input.subSequence(tokenStart, end + 1).toString();
+    if (ABBREVIATIONS.contains(abbreviation)) {
+      setToken(Type.Abbreviation, end + 1);
+    }
+  }
+
+  // returns -1 if i is not smaller than limit.
+  private int charAt(int i) {
+    if (i >= limit) {
+      limitReached = true;
+      return -1;
+    }
+    return input.charAt(i);
+  }
+
+  private boolean is(int c, int flags) {
+    return c >= 0 && c < TABLE_SIZE && (CLASSES[c] & flags) != 0;
+  }
+
+  private boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private boolean inRange(int c, char from, char to) {
+    return c >= from && c <= to;
+  }
+
+  private boolean isApostrophe(int c) {
+    return c == '\'' || c == '’';
+  }
+
+  private int run(int i, int flags) {
+    while (is(charAt(i), flags)) {
+      i++;
+    }
+    return i;
+  }
+
+  private int run(int i, char c1, char c2) {
+    int c = charAt(i);
+    while (c == c1 || c == c2) {
+      c = charAt(++i);
+    }
+    return i;
+  }
+
+  private boolean startsWith(String s, int i) {
+    for (int j = 0; j < s.length(); j++) {
+      if (charAt(i + j) != s.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // AposAndSuffix? Returns i if there is no suffix.
+  private int suffix(int i) {
+    if (isApostrophe(charAt(i))) {
+      int end = run(i + 1, LETTER);
+      if (end > i + 1) {
+        return end;
+      }
+    }
+    return i;
+  }
+
+  private int unknown(int i) {
+    if (Character.isHighSurrogate(input.charAt(i))
+        && Character.isLowSurrogate((char) charAt(i + 1))) {
+      return i + 2;
+    }
+    return i + 1;
+  }
+
+  private int time(int i) {
+    int sep = charAt(i + 2);
+    if (!inRange(charAt(i), '0', '2') || !isDigit(charAt(i + 1)) || (sep != ':' && sep != '.')
+        || !inRange(charAt(i + 3), '0', '5') || !isDigit(charAt(i + 4))) {
+      return -1;
+    }
+    int end = i + 5;
+    sep = charAt(end);
+    if ((sep == ':' || sep == '.')
+        && inRange(charAt(end + 1), '0', '5') && isDigit(charAt(end + 2))) {
+      end += 3;
+    }
+    return suffix(end);
+  }
+
+  private int date(int i) {
+    int dayEnd = twoDigitEnd(i, '3');
+    if (dayEnd < 0) {
+      return -1;
+    }
+    int sep = charAt(dayEnd);
+    if (sep != '.' && sep != '/') {
+      return -1;
+    }
+    int monthEnd = twoDigitEnd(dayEnd + 1, '1');
+    if (monthEnd < 0 || charAt(monthEnd) != sep) {
+      return -1;
+    }
+    int y = monthEnd + 1;
+    int c0 = charAt(y);
+    int c1 = charAt(y + 1);
+    if (!isDigit(c0) || !isDigit(c1)) {
+      return -1;
+    }
+    if (((c0 == '1' && inRange(c1, '7', '9')) || (c0 == '2' && c1 == '0'))
+        && isDigit(charAt(y + 2)) && isDigit(charAt(y + 3))) {
+      return suffix(y + 4);
+    }
+    return suffix(y + 2);
+  }
+
+  // [0-max]?[0-9] followed by a non digit.
+  private int twoDigitEnd(int i, char max) {
+    int c0 = charAt(i);
+    if (!isDigit(c0)) {
+      return -1;
+    }
+    if (!isDigit(charAt(i + 1))) {
+      return i + 1;
+    }
+    return c0 <= max ? i + 2 : -1;
+  }
+
+  private int percentNumeral(int i) {
+    return number(i + 1);
+  }
+
+  private int number(int i) {
+    int best = -1;
+    int start = i;
+    int first = charAt(i);
+    if (first == '+' || first == '-') {
+      start++;
+    }
+    int intEnd = run(start, DIGIT);
+    if (intEnd == start) {
+      return -1;
+    }
+    // [+\-]? Integer AposAndSuffix?
+    best = suffix(intEnd);
+    int c = charAt(intEnd);
+    // [+\-]? Integer [.,] Integer Exp? AposAndSuffix?
+    if (c == '.' || c == ',') {
+      int fractionEnd = run(intEnd + 1, DIGIT);
+      if (fractionEnd > intEnd + 1) {
+        int expEnd = exponent(fractionEnd);
+        best = Math.max(best, suffix(expEnd > 0 ? expEnd : fractionEnd));
+      }
+    }
+    // [+\-]? Integer Exp AposAndSuffix?
+    int expEnd = exponent(intEnd);
+    if (expEnd > 0) {
+      best = Math.max(best, suffix(expEnd));
+    }
+    // [+\-]? Integer '/' Integer AposAndSuffix?
+    if (c == '/') {
+      int denominatorEnd = run(intEnd + 1, DIGIT);
+      if (denominatorEnd > intEnd + 1) {
+        best = Math.max(best, suffix(denominatorEnd));
+      }
+    }
+    if (start == i) {
+      // (Integer '.')+ Integer AposAndSuffix? and (Integer ',')+ Integer AposAndSuffix?
+      if (c == '.' || c == ',') {
+        int end = -1;
+        int p = intEnd;
+        while (charAt(p) == c) {
+          int groupEnd = run(p + 1, DIGIT);
+          if (groupEnd == p + 1) {
+            break;
+          }
+          end = groupEnd;
+          p = groupEnd;
+        }
+        if (end > 0) {
+          best = Math.max(best, suffix(end));
+        }
+      }
+      // Integer '.'? AposAndSuffix?
+      if (c == '.') {
+        best = Math.max(best, suffix(intEnd + 1));
+      }
+    }
+    return best;
+  }
+
+  private int exponent(int i) {
+    int c = charAt(i);
+    if (c != 'E' && c != 'e') {
+      return -1;
+    }
+    int start = i + 1;
+    c = charAt(start);
+    if (c == '+' || c == '-') {
+      start++;
+    }
+    int end = run(start, DIGIT);
+    return end > start ? end : -1;
+  }
+
+  private int url(int i) {
+    int best = -1;
+    int p = i;
+    if (startsWith("http://", i)) {
+      p = i + 7;
+    } else if (startsWith("https://", i)) {
+      p = i + 8;
+    }
+    if (p > i) {
+      best = urlFragment(p);
+    }
+    if (startsWith("www.", i)) {
+      best = Math.max(best, urlFragment(i + 4));
+    }
+    if (p > i && startsWith("www.", p)) {
+      best = Math.max(best, urlFragment(p + 4));
+    }
+    int nameEnd = run(i, ASCII_ALNUM);
+    if (nameEnd > i && charAt(nameEnd) == '.') {
+      for (String domain : URL_DOMAINS) {
+        if (startsWith(domain, nameEnd)) {
+          int end = nameEnd + domain.length();
+          if (startsWith(".tr", end)) {
+            end += 3;
+          }
+          if (charAt(end) == '/') {
+            int fragmentEnd = run(end + 1, URL_FRAGMENT);
+            if (fragmentEnd > end + 1) {
+              end = fragmentEnd;
+            }
+          }
+          best = Math.max(best, suffix(end));
+          break;
+        }
+      }
+    }
+    return best;
+  }
+
+  // URLFragment AposAndSuffix?
+  private int urlFragment(int i) {
+    int end = run(i, URL_FRAGMENT);
+    return end > i ? suffix(end) : -1;
+  }
+
+  private int email(int i) {
+    int localEnd = run(i, ALNUM_UNDERSCORE);
+    int c = charAt(localEnd);
+    if (c == '.') {
+      // AllTurkishAlphanumericalUnderscore+ '.' AllTurkishAlphanumericalUnderscore+
+      int p = localEnd + 1;
+      localEnd = run(p, ALNUM_UNDERSCORE);
+      if (localEnd == p || charAt(localEnd) != '@') {
+        return -1;
+      }
+    } else if (c != '@' || localEnd - i < 2) {
+      // without the dot, two consecutive alphanumeric parts require at least two chars.
+      return -1;
+    }
+    // (AllTurkishAlphanumericalUnderscore+ '.' AllTurkishAlphanumericalUnderscore+)+
+    int p = localEnd + 1;
+    int partEnd = run(p, ALNUM_UNDERSCORE);
+    if (partEnd == p || charAt(partEnd) != '.') {
+      return -1;
+    }
+    int partStart = partEnd + 1;
+    partEnd = run(partStart, ALNUM_UNDERSCORE);
+    if (partEnd == partStart) {
+      return -1;
+    }
+    // a part between two dots belongs to two groups so it needs at least two chars.
+    while (charAt(partEnd) == '.' && partEnd - partStart >= 2) {
+      int next = run(partEnd + 1, ALNUM_UNDERSCORE);
+      if (next == partEnd + 1) {
+        break;
+      }
+      partStart = partEnd + 1;
+      partEnd = next;
+    }
+    return suffix(partEnd);
+  }
+
+  // HashTag and Mention
+  private int prefixed(int i, char prefix) {
+    if (charAt(i) != prefix) {
+      return -1;
+    }
+    int end = run(i + 1, ALNUM_UNDERSCORE);
+    return end > i + 1 ? suffix(end) : -1;
+  }
+
+  private int metaTag(int i) {
+    int end = run(i + 1, ALNUM_UNDERSCORE);
+    return end > i + 1 && charAt(end) == '>' ? end + 1 : -1;
+  }
+
+  private int emoticon(int i) {
+    int best = -1;
+    for (String emoticon : EMOTICONS) {
+      if (i + emoticon.length() > best && startsWith(emoticon, i)) {
+        best = i + emoticon.length();
+      }
+    }
+    return best;
+  }
+
+  private int romanNumeral(int i) {
+    int end = run(i, ROMAN);
+    if (charAt(end) == '.') {
+      end++;
+    }
+    return suffix(end);
+  }
+
+  private int abbreviationWithDots(int i) {
+    int p = i;
+    while (is(charAt(p), CAPITAL) && charAt(p + 1) == '.') {
+      p += 2;
+    }
+    if (p == i) {
+      return -1;
+    }
+    if (is(charAt(p), CAPITAL)) {
+      p++;
+    }
+    return suffix(p);
+  }
+
+  private int wordWithSymbol(int i) {
+    int best = -1;
+    int end = run(i, ALNUM);
+    if (charAt(end) == '-') {
+      int secondEnd = run(end + 1, ALNUM);
+      if (secondEnd > end + 1) {
+        best = suffix(secondEnd);
+      }
+    }
+    if (end - i >= 2) {
+      best = Math.max(best, suffix(end));
+    }
+    return best;
+  }
+
+  private int punctuation(int i) {
+    int c = charAt(i);
+    int c1 = charAt(i + 1);
+    if ((c == '.' && c1 == '.' && charAt(i + 2) == '.')
+        || (c == '(' && (c1 == '!' || c1 == '?') && charAt(i + 2) == ')')) {
+      return i + 3;
+    }
+    return i + 1;
+  }
+
+  private int unknownWord(int i) {
+    int c = charAt(i);
+    while (c >= 0 && (c >= TABLE_SIZE || (CLASSES[c] & NOT_UNKNOWN_WORD) == 0)) {
+      c = charAt(++i);
+    }
+    return i;
+  }
+}
@@ -2,20 +2,29 @@ package zemberek.tokenization;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import org.antlr.v4.runtime.BaseErrorListener;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.ConsoleErrorListener;
-import org.antlr.v4.runtime.Lexer;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import zemberek.tokenization.Token.Type;
 import zemberek.tokenization.antlr.TurkishLexer;
 
 
 /**
- * A wrapper for Antlr generated lexer.
+ * Tokenizer for Turkish texts. Token types are defined in TurkishLexer.g4 grammar. Tokenization is
+ * done with {@link TurkishTokenScanner}, which generates the same tokens with the Antlr generated
+ * lexer without creating Antlr objects. Token boundaries are code point indexes as in the Antlr
+ * lexer.
  */
 public class TurkishTokenizer {
 
@@ -26,8 +35,6 @@ public class TurkishTokenizer {
       .ignoreTypes(Token.Type.NewLine, Token.Type.SpaceTab)
       .build();
 
-  private static final BaseErrorListener IGNORING_ERROR_LISTENER = new ConsoleErrorListener();
-
   private long acceptedTypeBits;
 
   private TurkishTokenizer(long acceptedTypeBits) {
@@ -38,13 +45,6 @@ public class TurkishTokenizer {
     return new Builder();
   }
 
-  private static TurkishLexer lexerInstance(CharStream inputStream) {
-    TurkishLexer lexer = new TurkishLexer(inputStream);
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(IGNORING_ERROR_LISTENER);
-    return lexer;
-  }
-
   public boolean isTypeAccepted(Token.Type i) {
     return !typeAccepted(i);
   }
@@ -63,11 +63,36 @@ public class TurkishTokenizer {
 
 
   public List<Token> tokenize(File file) throws IOException {
-    return getAllTokens(lexerInstance(CharStreams.fromPath(file.toPath())));
+    List<Token> tokens = new ArrayList<>();
+    getTokenIterator(file).forEachRemaining(tokens::add);
+    return tokens;
   }
 
   public List<Token> tokenize(String input) {
-    return getAllTokens(lexerInstance(CharStreams.fromString(input)));
+    List<Token> tokens = new ArrayList<>();
+    TokenIterator iterator = new TokenIterator(this, input);
+    while (iterator.hasNext()) {
+      tokens.add(iterator.next());
+    }
+    return tokens;
+  }
+
+  /**
+   * Tokenizes the input into the buffer. Previous content of the buffer is removed. No token text
+   * is created, buffer keeps only types and char offsets of accepted tokens.
+   *
+   * @return the buffer.
+   */
+  public TokenBuffer tokenize(CharSequence input, TokenBuffer buffer) {
+    buffer.reset(input);
+    TurkishTokenScanner scanner = new TurkishTokenScanner(input);
+    Token.Type type;
+    while ((type = scanner.next()) != null) {
+      if (typeAccepted(type)) {
+        buffer.add(type, scanner.start(), scanner.end());
+      }
+    }
+    return buffer;
   }
 
   public List<String> tokenizeToStrings(String input) {
@@ -80,25 +105,46 @@ public class TurkishTokenizer {
   }
 
   public Iterator<Token> getTokenIterator(String input) {
-    return new TokenIterator(this, lexerInstance(CharStreams.fromString(input)));
+    return new TokenIterator(this, input);
   }
 
+  /**
+   * Returns an iterator that reads the UTF-8 file incrementally. File is closed when all tokens
+   * are read.
+   */
   public Iterator<Token> getTokenIterator(File file) throws IOException {
-    return new TokenIterator(this, lexerInstance(CharStreams.fromPath(file.toPath())));
+    return getTokenIterator(
+        new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8));
   }
 
-  private List<Token> getAllTokens(Lexer lexer) {
-    List<Token> tokens = new ArrayList<>();
-    for (org.antlr.v4.runtime.Token token = lexer.nextToken();
-        token.getType() != org.antlr.v4.runtime.Token.EOF;
-        token = lexer.nextToken()) {
-      Token.Type type = convertType(token);
-      if (typeIgnored(type)) {
-        continue;
-      }
-      tokens.add(convert(token));
-    }
-    return tokens;
+  /**
+   * Returns an iterator that reads input from the reader in chunks, so that input of any size can
+   * be tokenized with constant memory. Tokens are same as tokenizing the whole input at once.
+   * Reader is closed when all tokens are read.
+   */
+  public Iterator<Token> getTokenIterator(Reader reader) {
+    return new ReaderTokenIterator(this, reader, ReaderTokenIterator.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Same as {@link #getTokenIterator(Reader)} but returns a Spliterator. It can be used for
+   * creating a Stream with StreamSupport.stream(spliterator, false).
+   */
+  public Spliterator<Token> getTokenSpliterator(Reader reader) {
+    return Spliterators.spliteratorUnknownSize(
+        getTokenIterator(reader),
+        Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Returns a Spliterator that reads UTF-8 encoded input from the channel incrementally. Malformed
+   * input is replaced. Channel is closed when all tokens are read.
+   */
+  public Spliterator<Token> getTokenSpliterator(ReadableByteChannel channel) {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    return getTokenSpliterator(Channels.newReader(channel, decoder, -1));
   }
 
   public static Token convert(org.antlr.v4.runtime.Token token) {
@@ -194,37 +240,68 @@ public class TurkishTokenizer {
 
   private static class TokenIterator implements Iterator<Token> {
 
-    TurkishLexer lexer;
     TurkishTokenizer tokenizer;
-    org.antlr.v4.runtime.Token token;
-    Token.Type type;
+    TurkishTokenScanner scanner;
+    String input;
+    Token token;
 
-    private TokenIterator(TurkishTokenizer tokenizer, TurkishLexer lexer) {
+    // scanner offsets are char indexes. For converting them to code point indexes, amount of
+    // surrogate pairs before the scanner position is tracked if input contains any.
+    boolean hasSurrogates;
+    int surrogatePairCount;
+
+    private TokenIterator(TurkishTokenizer tokenizer, String input) {
       this.tokenizer = tokenizer;
-      this.lexer = lexer;
+      this.input = input;
+      this.scanner = new TurkishTokenScanner(input);
+      for (int i = 0; i < input.length(); i++) {
+        if (Character.isSurrogate(input.charAt(i))) {
+          hasSurrogates = true;
+          break;
+        }
+      }
     }
 
     @Override
     public boolean hasNext() {
-      org.antlr.v4.runtime.Token token = lexer.nextToken();
-      if (token.getType() == org.antlr.v4.runtime.Token.EOF) {
-        return false;
+      if (token != null) {
+        return true;
       }
-      type = convertType(token);
-      while (tokenizer.typeIgnored(type)) {
-        token = lexer.nextToken();
-        if (token.getType() == org.antlr.v4.runtime.Token.EOF) {
-          return false;
+      Token.Type type;
+      while ((type = scanner.next()) != null) {
+        int start = scanner.start() - surrogatePairCount;
+        if (hasSurrogates) {
+          surrogatePairCount += countSurrogatePairs(scanner.start(), scanner.end());
+        }
+        if (tokenizer.typeIgnored(type)) {
+          continue;
         }
-        type = convertType(token);
+        int end = scanner.end() - surrogatePairCount - 1;
+        token = new Token(input.substring(scanner.start(), scanner.end()), type, start, end);
+        return true;
       }
-      this.token = token;
-      return true;
+      return false;
+    }
+
+    private int countSurrogatePairs(int start, int end) {
+      int count = 0;
+      for (int i = start; i < end; i++) {
+        if (Character.isLowSurrogate(input.charAt(i))
+            && i > 0 && Character.isHighSurrogate(input.charAt(i - 1))) {
+          count++;
+        }
+      }
+      return count;
     }
 
     @Override
     public Token next() {
-      return convert(token, type);
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Token result = token;
+      token = null;
+      return result;
     }
 
     @Override